@@ -0,0 +1,16 @@
+package com.pblGEHU.Custlysis.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    // Count Hibernate statements per request thread
+    @Bean
+    public HibernatePropertiesCustomizer statementCounter() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new HibernateStatementCounter());
+    }
+}
@@ -0,0 +1,46 @@
+package com.pblGEHU.Custlysis.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Records per-endpoint Hibernate statement counts and, for collection responses, the
+ * number of rows returned. Latency percentiles come from the standard http.server.requests timer.
+ */
+@Component
+public class RequestMetricsInterceptor implements HandlerInterceptor {
+
+    static final String ROWS_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".rows";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) {
+        HibernateStatementCounter.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, Exception ex) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String method = request.getMethod();
+
+        meterRegistry.summary("custlysis.http.hibernate.statements", "method", method, "uri", uri)
+            .record(HibernateStatementCounter.count());
+        Object rows = request.getAttribute(ROWS_ATTRIBUTE);
+        if (rows instanceof Integer) {
+            meterRegistry.summary("custlysis.http.response.rows", "method", method, "uri", uri)
+                .record((Integer) rows);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.pblGEHU.Custlysis.config;
+
+import com.pblGEHU.Custlysis.dto.PageResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.lang.NonNull;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Collection;
+
+/**
+ * Notes how many rows a list or page response carries, for {@link RequestMetricsInterceptor}
+ */
+@ControllerAdvice
+public class ResponseRowCountAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(@NonNull MethodParameter returnType,
+                            @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, @NonNull MethodParameter returnType,
+                                  @NonNull MediaType selectedContentType,
+                                  @NonNull Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  @NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response) {
+        Integer rows = null;
+        if (body instanceof Collection) {
+            rows = ((Collection<?>) body).size();
+        } else if (body instanceof PageResponse) {
+            rows = ((PageResponse<?>) body).getItems().size();
+        }
+        if (rows != null && request instanceof ServletServerHttpRequest) {
+            ((ServletServerHttpRequest) request).getServletRequest()
+                .setAttribute(RequestMetricsInterceptor.ROWS_ATTRIBUTE, rows);
+        }
+        return body;
+    }
+}
@@ -0,0 +1,12 @@
+package com.pblGEHU.Custlysis.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Nightly rebuilds, reconciles and flushes; off only where nothing should run in the background
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "custlysis.scheduling.enabled", matchIfMissing = true)
+public class SchedulingConfig {
+}
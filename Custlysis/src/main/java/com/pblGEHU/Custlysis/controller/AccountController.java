@@ -1,11 +1,26 @@
 package com.pblGEHU.Custlysis.controller;
 
+import com.pblGEHU.Custlysis.dto.DormancyJobStatus;
+import com.pblGEHU.Custlysis.dto.PageResponse;
+import com.pblGEHU.Custlysis.dto.TransactionActivity;
 import com.pblGEHU.Custlysis.entity.Account;
+import com.pblGEHU.Custlysis.event.AccountChangedEvent;
 import com.pblGEHU.Custlysis.repository.AccountRepository;
+import com.pblGEHU.Custlysis.repository.Specs;
+import com.pblGEHU.Custlysis.service.AccountDormancyJob;
+import com.pblGEHU.Custlysis.service.CustomerSegmentIndex;
+import com.pblGEHU.Custlysis.service.TransactionRollups;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,9 +32,55 @@ public class AccountController {
     @Autowired
     private AccountRepository accountRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CustomerSegmentIndex segmentIndex;
+
+    @Autowired
+    private TransactionRollups rollups;
+
+    @Autowired
+    private AccountDormancyJob dormancyJob;
+
+    @Value("${custlysis.rollups.max-range-days:3660}")
+    private long maxRangeDays;
+
+    // Get a page of accounts, optionally filtered; page with ?cursor=<nextCursor>
     @GetMapping
-    public List<Account> getAllAccounts() {
-        return accountRepository.findAll();
+    public PageResponse<Account> getAllAccounts(
+            @RequestParam(required = false) Integer cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "asc") String sort,
+            @RequestParam(required = false) Integer customerId,
+            @RequestParam(required = false) String accountType,
+            @RequestParam(required = false) Boolean dormant,
+            @RequestParam(required = false) BigDecimal minBalance,
+            @RequestParam(required = false) BigDecimal maxBalance,
+            @RequestParam(required = false) String segment) {
+        Specification<Account> filters = Specification.allOf(
+            Specs.equal("customerId", customerId),
+            Specs.equal("accountType", accountType),
+            Specs.equal("dormantFlag", dormant),
+            Specs.atLeast("balance", minBalance),
+            Specs.atMost("balance", maxBalance),
+            Specs.inSegment("customerId", segment, segmentIndex.getModelVersion()));
+        return KeysetPagination.page(accountRepository, filters, "accountId", Account::getAccountId,
+            cursor, limit, sort);
+    }
+
+    // Start the dormancy and last-activity job, or get the run already in progress
+    @PostMapping("/dormancy-job")
+    public ResponseEntity<DormancyJobStatus> runDormancyJob() {
+        return ResponseEntity.accepted().body(dormancyJob.submit());
+    }
+
+    // Get the dormancy job's current or last run
+    @GetMapping("/dormancy-job")
+    public ResponseEntity<DormancyJobStatus> getDormancyJob() {
+        DormancyJobStatus status = dormancyJob.status();
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
     }
 
     @GetMapping("/{id}")
@@ -28,9 +89,32 @@ public class AccountController {
         return account.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
 
+    // Get daily (default) or monthly transaction counts, amounts and channel split from the rollups;
+    // "from" is inclusive, "to" exclusive, the range defaults to the 90 days up to and including today
+    @GetMapping("/{id}/activity")
+    public ResponseEntity<List<TransactionActivity>> getActivity(
+            @PathVariable Integer id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String granularity) {
+        LocalDate end = to != null ? to : LocalDate.now().plusDays(1);
+        LocalDate start = from != null ? from : end.minusDays(90);
+        long rangeDays = ChronoUnit.DAYS.between(start, end);
+        boolean monthly = "month".equalsIgnoreCase(granularity);
+        if (!monthly && !"day".equalsIgnoreCase(granularity) || rangeDays <= 0 || rangeDays > maxRangeDays) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!accountRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(rollups.accountActivity(id, start, end, monthly));
+    }
+
     @PostMapping
     public Account createAccount(@RequestBody Account account) {
-        return accountRepository.save(account);
+        Account saved = accountRepository.save(account);
+        eventPublisher.publishEvent(new AccountChangedEvent(null, saved));
+        return saved;
     }
 
     @PutMapping("/{id}")
@@ -38,24 +122,29 @@ public class AccountController {
         Optional<Account> optionalAccount = accountRepository.findById(id);
         if (optionalAccount.isPresent()) {
             Account account = optionalAccount.get();
+            Account before = account.toBuilder().build();
             account.setCustomerId(accountDetails.getCustomerId());
             account.setAccountType(accountDetails.getAccountType());
             account.setBalance(accountDetails.getBalance());
-            account.setAvgMonthlyTxn(accountDetails.getAvgMonthlyTxn());
+            // avgMonthlyTxn is derived from the transaction rollups and not taken from the request
             account.setOverdraftEnabled(accountDetails.getOverdraftEnabled());
             account.setLastActiveDate(accountDetails.getLastActiveDate());
             account.setTenureMonths(accountDetails.getTenureMonths());
             account.setChannelPreferences(accountDetails.getChannelPreferences());
             account.setDormantFlag(accountDetails.getDormantFlag());
-            return ResponseEntity.ok(accountRepository.save(account));
+            Account saved = accountRepository.save(account);
+            eventPublisher.publishEvent(new AccountChangedEvent(before, saved));
+            return ResponseEntity.ok(saved);
         }
         return ResponseEntity.notFound().build();
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteAccount(@PathVariable Integer id) {
-        if (accountRepository.existsById(id)) {
-            accountRepository.deleteById(id);
+        Optional<Account> account = accountRepository.findById(id);
+        if (account.isPresent()) {
+            accountRepository.delete(account.get());
+            eventPublisher.publishEvent(new AccountChangedEvent(account.get(), null));
             return ResponseEntity.ok().build();
         }
         return ResponseEntity.notFound().build();
@@ -1,11 +1,27 @@
 package com.pblGEHU.Custlysis.controller;
 
+import com.pblGEHU.Custlysis.dto.CampaignMetrics;
+import com.pblGEHU.Custlysis.dto.PageResponse;
 import com.pblGEHU.Custlysis.entity.CampaignResponse;
+import com.pblGEHU.Custlysis.event.CampaignResponseChangedEvent;
 import com.pblGEHU.Custlysis.repository.CampaignResponseRepository;
+import com.pblGEHU.Custlysis.repository.Specs;
+import com.pblGEHU.Custlysis.service.CampaignAnalytics;
+import com.pblGEHU.Custlysis.service.CustomerSegmentIndex;
+import com.pblGEHU.Custlysis.service.NotReadyException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @RestController
@@ -15,9 +31,85 @@ public class CampaignResponseController {
     @Autowired
     private CampaignResponseRepository repo;
 
+    @Autowired
+    private CustomerSegmentIndex segmentIndex;
+
+    @Autowired
+    private CampaignAnalytics analytics;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${custlysis.campaigns.analytics.max-range-days:3660}")
+    private int maxRangeDays;
+
+    // Get a page of campaign responses, optionally filtered; "from" is inclusive, "to" exclusive
     @GetMapping
-    public List<CampaignResponse> getAll() {
-        return repo.findAll();
+    public PageResponse<CampaignResponse> getAll(
+            @RequestParam(required = false) Integer cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "asc") String sort,
+            @RequestParam(required = false) Integer campaignId,
+            @RequestParam(required = false) Integer customerId,
+            @RequestParam(required = false) Integer productId,
+            @RequestParam(required = false) String response,
+            @RequestParam(required = false) String channel,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String segment) {
+        Specification<CampaignResponse> filters = Specification.allOf(
+            Specs.equal("campaignId", campaignId),
+            Specs.equal("customer.customerId", customerId),
+            Specs.equal("product.productId", productId),
+            Specs.equal("response", response),
+            Specs.equal("channel", channel),
+            Specs.atLeast("timestamp", from),
+            Specs.before("timestamp", to),
+            Specs.inSegment("customer.customerId", segment, segmentIndex.getModelVersion()));
+        return KeysetPagination.page(repo, filters, "responseId", CampaignResponse::getResponseId,
+            cursor, limit, sort);
+    }
+
+    // Get conversion rate, mean conversion score and response breakdown per campaign, channel,
+    // product and segment; "from" is inclusive, "to" exclusive, all time when both are omitted
+    @GetMapping("/analytics")
+    public List<CampaignMetrics> getAnalytics(
+            @RequestParam(required = false) Integer campaignId,
+            @RequestParam(required = false) String channel,
+            @RequestParam(required = false) Integer productId,
+            @RequestParam(required = false) String segment,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return analytics.totals(campaignId, channel, productId, segment, from, to);
+        } catch (NotReadyException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+
+    // Get the same metrics as a time series of tumbling (default) or rolling windows of windowDays;
+    // the range defaults to the 90 days up to and including today
+    @GetMapping("/analytics/windows")
+    public ResponseEntity<List<CampaignMetrics>> getAnalyticsWindows(
+            @RequestParam(required = false) Integer campaignId,
+            @RequestParam(required = false) String channel,
+            @RequestParam(required = false) Integer productId,
+            @RequestParam(required = false) String segment,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "7") int windowDays,
+            @RequestParam(defaultValue = "false") boolean rolling) {
+        LocalDate end = to != null ? to : LocalDate.now().plusDays(1);
+        LocalDate start = from != null ? from : end.minusDays(90);
+        long rangeDays = ChronoUnit.DAYS.between(start, end);
+        if (windowDays <= 0 || rangeDays <= 0 || rangeDays > maxRangeDays) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(analytics.windows(campaignId, channel, productId, segment, start, end, windowDays, rolling));
+        } catch (NotReadyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
     }
 
     @GetMapping("/{id}")
@@ -27,19 +119,27 @@ public class CampaignResponseController {
 
     @PostMapping
     public CampaignResponse create(@RequestBody CampaignResponse response) {
-        return repo.save(response);
+        CampaignResponse saved = repo.save(response);
+        eventPublisher.publishEvent(new CampaignResponseChangedEvent(null, saved));
+        return saved;
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<CampaignResponse> update(@PathVariable Integer id, @RequestBody CampaignResponse updated) {
         return repo.findById(id).map(existing -> {
+            CampaignResponse before = existing.toBuilder().build();
             updated.setResponseId(id);
-            return ResponseEntity.ok(repo.save(updated));
+            CampaignResponse saved = repo.save(updated);
+            eventPublisher.publishEvent(new CampaignResponseChangedEvent(before, saved));
+            return ResponseEntity.ok(saved);
         }).orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{id}")
     public void delete(@PathVariable Integer id) {
-        repo.deleteById(id);
+        repo.findById(id).ifPresent(existing -> {
+            repo.delete(existing);
+            eventPublisher.publishEvent(new CampaignResponseChangedEvent(existing, null));
+        });
     }
 }
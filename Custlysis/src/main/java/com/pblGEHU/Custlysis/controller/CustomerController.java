@@ -1,11 +1,26 @@
 package com.pblGEHU.Custlysis.controller;
 
+import com.pblGEHU.Custlysis.dto.Customer360;
+import com.pblGEHU.Custlysis.dto.PageResponse;
+import com.pblGEHU.Custlysis.dto.TransactionActivity;
 import com.pblGEHU.Custlysis.entity.Customer;
+import com.pblGEHU.Custlysis.entity.Transactions;
+import com.pblGEHU.Custlysis.event.CustomerChangedEvent;
 import com.pblGEHU.Custlysis.repository.CustomerRepository;
+import com.pblGEHU.Custlysis.repository.Specs;
+import com.pblGEHU.Custlysis.service.Customer360Service;
+import com.pblGEHU.Custlysis.service.CustomerSegmentIndex;
+import com.pblGEHU.Custlysis.service.TransactionRollups;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,9 +32,42 @@ public class CustomerController {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CustomerSegmentIndex segmentIndex;
+
+    @Autowired
+    private TransactionRollups rollups;
+
+    @Autowired
+    private Customer360Service customer360;
+
+    @Value("${custlysis.rollups.max-range-days:3660}")
+    private long maxRangeDays;
+
+    // Get a page of customers, optionally filtered; page with ?cursor=<nextCursor>
     @GetMapping
-    public List<Customer> getAllCustomers() {
-        return customerRepository.findAll();
+    public PageResponse<Customer> getAllCustomers(
+            @RequestParam(required = false) Integer cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "asc") String sort,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) String incomeBracket,
+            @RequestParam(required = false) String riskProfile,
+            @RequestParam(required = false) String geoCluster,
+            @RequestParam(required = false) String segment) {
+        Specification<Customer> filters = Specification.allOf(
+            Specs.likeIgnoreCase("name", name),
+            Specs.equal("location", location),
+            Specs.equal("incomeBracket", incomeBracket),
+            Specs.equal("riskProfile", riskProfile),
+            Specs.equal("geoCluster", geoCluster),
+            Specs.inSegment("customerId", segment, segmentIndex.getModelVersion()));
+        return KeysetPagination.page(customerRepository, filters, "customerId", Customer::getCustomerId,
+            cursor, limit, sort);
     }
 
     @GetMapping("/{id}")
@@ -28,9 +76,53 @@ public class CustomerController {
         return customer.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
 
+    // Get the profile, accounts, a page of recent transactions (next page with ?txnCursor=), transaction
+    // summary, segment, active product interactions, latest campaign responses and recommendations in one
+    // call; sections that fail or miss the latency budget are null and listed under "unavailable"
+    @GetMapping("/{id}/360")
+    public ResponseEntity<Customer360> getCustomer360(@PathVariable Integer id,
+            @RequestParam(required = false) Integer txnCursor,
+            @RequestParam(defaultValue = "20") int txnLimit) {
+        Customer360 view = customer360.load(id, txnCursor, KeysetPagination.pageSize(txnLimit));
+        return view != null ? ResponseEntity.ok(view) : ResponseEntity.notFound().build();
+    }
+
+    // Get a page of the customer's transactions across all their accounts, newest first
+    @GetMapping("/{id}/transactions")
+    public ResponseEntity<PageResponse<Transactions>> getTransactions(@PathVariable Integer id,
+            @RequestParam(required = false) Integer cursor,
+            @RequestParam(required = false) Integer limit) {
+        int pageSize = KeysetPagination.pageSize(limit);
+        if (!customerRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(customer360.transactions(id, cursor, pageSize));
+    }
+
+    // Get monthly transaction counts, amounts and channel split across the customer's accounts;
+    // months as yyyy-MM, "from" inclusive and "to" exclusive, defaulting to the last 12 months including this one
+    @GetMapping("/{id}/activity")
+    public ResponseEntity<List<TransactionActivity>> getActivity(
+            @PathVariable Integer id,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+        YearMonth end = to != null ? to : YearMonth.now().plusMonths(1);
+        YearMonth start = from != null ? from : end.minusMonths(12);
+        long rangeDays = ChronoUnit.DAYS.between(start.atDay(1), end.atDay(1));
+        if (rangeDays <= 0 || rangeDays > maxRangeDays) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!customerRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(rollups.customerActivity(id, start, end));
+    }
+
     @PostMapping
     public Customer createCustomer(@RequestBody Customer customer) {
-        return customerRepository.save(customer);
+        Customer saved = customerRepository.save(customer);
+        eventPublisher.publishEvent(new CustomerChangedEvent(null, saved));
+        return saved;
     }
 
     @PutMapping("/{id}")
@@ -38,6 +130,7 @@ public class CustomerController {
         Optional<Customer> optionalCustomer = customerRepository.findById(id);
         if (optionalCustomer.isPresent()) {
             Customer customer = optionalCustomer.get();
+            Customer before = customer.toBuilder().build();
             customer.setName(customerDetails.getName());
             customer.setDob(customerDetails.getDob());
             customer.setGender(customerDetails.getGender());
@@ -52,17 +145,21 @@ public class CustomerController {
             customer.setPreferredLanguage(customerDetails.getPreferredLanguage());
             customer.setTenureDays(customerDetails.getTenureDays());
             customer.setChurnRiskScore(customerDetails.getChurnRiskScore());
-            return ResponseEntity.ok(customerRepository.save(customer));
+            Customer saved = customerRepository.save(customer);
+            eventPublisher.publishEvent(new CustomerChangedEvent(before, saved));
+            return ResponseEntity.ok(saved);
         }
         return ResponseEntity.notFound().build();
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteCustomer(@PathVariable Integer id) {
-        if (customerRepository.existsById(id)) {
-            customerRepository.deleteById(id);
+        Optional<Customer> customer = customerRepository.findById(id);
+        if (customer.isPresent()) {
+            customerRepository.delete(customer.get());
+            eventPublisher.publishEvent(new CustomerChangedEvent(customer.get(), null));
             return ResponseEntity.ok().build();
         }
         return ResponseEntity.notFound().build();
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,8 @@
 package com.pblGEHU.Custlysis.controller;
 
-import java.util.List;
-
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,10 +11,14 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.pblGEHU.Custlysis.dto.PageResponse;
 import com.pblGEHU.Custlysis.entity.CustomerProductInteraction;
+import com.pblGEHU.Custlysis.event.InteractionChangedEvent;
 import com.pblGEHU.Custlysis.repository.CustomerProductInteractionRepository;
+import com.pblGEHU.Custlysis.repository.Specs;
 
 @RestController
 @RequestMapping("/api/interactions")
@@ -23,9 +27,24 @@ public class CustomerProductInteractionController {
     @Autowired
     private CustomerProductInteractionRepository repo;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Get a page of interactions, optionally filtered; page with ?cursor=<nextCursor>
     @GetMapping
-    public List<CustomerProductInteraction> getAll() {
-        return repo.findAll();
+    public PageResponse<CustomerProductInteraction> getAll(
+            @RequestParam(required = false) Integer cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "asc") String sort,
+            @RequestParam(required = false) Integer customerId,
+            @RequestParam(required = false) Integer productId,
+            @RequestParam(required = false) Boolean active) {
+        Specification<CustomerProductInteraction> filters = Specification.allOf(
+            Specs.equal("customer.customerId", customerId),
+            Specs.equal("product.productId", productId),
+            Specs.equal("isActive", active));
+        return KeysetPagination.page(repo, filters, "interactionId", CustomerProductInteraction::getInteractionId,
+            cursor, limit, sort);
     }
 
     @GetMapping("/{id}")
@@ -35,19 +54,27 @@ public class CustomerProductInteractionController {
 
     @PostMapping
     public CustomerProductInteraction create(@RequestBody CustomerProductInteraction interaction) {
-        return repo.save(interaction);
+        CustomerProductInteraction saved = repo.save(interaction);
+        eventPublisher.publishEvent(new InteractionChangedEvent(null, saved));
+        return saved;
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<CustomerProductInteraction> update(@PathVariable Integer id, @RequestBody CustomerProductInteraction updated) {
         return repo.findById(id).map(existing -> {
+            CustomerProductInteraction before = existing.toBuilder().build();
             updated.setInteractionId(id);
-            return ResponseEntity.ok(repo.save(updated));
+            CustomerProductInteraction saved = repo.save(updated);
+            eventPublisher.publishEvent(new InteractionChangedEvent(before, saved));
+            return ResponseEntity.ok(saved);
         }).orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{id}")
     public void delete(@PathVariable Integer id) {
-        repo.deleteById(id);
+        repo.findById(id).ifPresent(existing -> {
+            repo.delete(existing);
+            eventPublisher.publishEvent(new InteractionChangedEvent(existing, null));
+        });
     }
 }
@@ -0,0 +1,21 @@
+package com.pblGEHU.Custlysis.controller;
+
+import com.pblGEHU.Custlysis.dto.DashboardSummary;
+import com.pblGEHU.Custlysis.service.DashboardCounters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/dashboard")
+@CrossOrigin(origins = "*")
+public class DashboardController {
+
+    @Autowired
+    private DashboardCounters counters;
+
+    // Get dashboard totals from the in-memory counters
+    @GetMapping("/summary")
+    public DashboardSummary getSummary() {
+        return counters.summary();
+    }
+}
@@ -0,0 +1,86 @@
+package com.pblGEHU.Custlysis.controller;
+
+import com.pblGEHU.Custlysis.service.ExportService;
+import com.pblGEHU.Custlysis.service.ExportService.Format;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@RequestMapping("/api/export")
+@CrossOrigin(origins = "*")
+public class ExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    @Autowired
+    private ExportService exportService;
+
+    // Stream every matching transaction as NDJSON or CSV, optionally gzipped
+    @GetMapping("/transactions")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) Integer accountId,
+            @RequestParam(required = false) String channel,
+            @RequestParam(required = false) String txnType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        Format exportFormat = parseFormat(format);
+        return download("transactions", exportFormat, gzip, out ->
+            exportService.exportTransactions(out, exportFormat, accountId, channel, txnType, from, to));
+    }
+
+    // Stream every matching customer as NDJSON or CSV, optionally gzipped
+    @GetMapping("/customers")
+    public ResponseEntity<StreamingResponseBody> exportCustomers(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) String incomeBracket,
+            @RequestParam(required = false) String riskProfile,
+            @RequestParam(required = false) String geoCluster) {
+        Format exportFormat = parseFormat(format);
+        return download("customers", exportFormat, gzip, out ->
+            exportService.exportCustomers(out, exportFormat, location, incomeBracket, riskProfile, geoCluster));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> download(String name, Format format, boolean gzip,
+                                                                  StreamingResponseBody export) {
+        String fileName = name + (format == Format.CSV ? ".csv" : ".ndjson") + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                export.writeTo(compressed);
+                compressed.finish();
+            } else {
+                export.writeTo(out);
+            }
+        };
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(gzip ? GZIP : format == Format.CSV ? CSV : NDJSON);
+        headers.setContentDisposition(ContentDisposition.attachment().filename(fileName).build());
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    private static Format parseFormat(String format) {
+        try {
+            return Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be ndjson or csv");
+        }
+    }
+}
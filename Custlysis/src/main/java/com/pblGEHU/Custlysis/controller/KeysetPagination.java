@@ -0,0 +1,62 @@
+package com.pblGEHU.Custlysis.controller;
+
+import com.pblGEHU.Custlysis.dto.PageResponse;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset pagination over an entity's identity column: each page is "id after the cursor,
+ * ordered by id, limit n", which stays an index range scan however deep the client pages,
+ * unlike OFFSET. One extra row is fetched to tell whether another page follows.
+ */
+final class KeysetPagination {
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    private KeysetPagination() {
+    }
+
+    static <T> PageResponse<T> page(JpaSpecificationExecutor<T> repository, Specification<T> filters,
+                                    String idAttribute, Function<T, Integer> idOf,
+                                    Integer cursor, Integer limit, String sort) {
+        int pageSize = pageSize(limit);
+        Sort.Direction direction = Sort.Direction.fromOptionalString(sort)
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "sort must be asc or desc"));
+
+        Specification<T> spec = filters;
+        if (cursor != null) {
+            Specification<T> afterCursor = (root, query, cb) -> direction.isAscending()
+                ? cb.greaterThan(root.get(idAttribute), cursor)
+                : cb.lessThan(root.get(idAttribute), cursor);
+            spec = spec == null ? afterCursor : spec.and(afterCursor);
+        }
+        if (spec == null) {
+            spec = Specification.unrestricted();
+        }
+
+        List<T> rows = repository.findBy(spec, query -> query
+            .sortBy(Sort.by(direction, idAttribute))
+            .limit(pageSize + 1)
+            .all());
+        if (rows.size() <= pageSize) {
+            return new PageResponse<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new PageResponse<>(items, idOf.apply(items.get(pageSize - 1)));
+    }
+
+    static int pageSize(Integer limit) {
+        int pageSize = limit == null ? DEFAULT_LIMIT : limit;
+        if (pageSize < 1 || pageSize > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT);
+        }
+        return pageSize;
+    }
+}
@@ -1,12 +1,25 @@
 package com.pblGEHU.Custlysis.controller;
 
+import com.pblGEHU.Custlysis.dto.PageResponse;
+import com.pblGEHU.Custlysis.dto.SimilarProduct;
 import com.pblGEHU.Custlysis.entity.Product;
+import com.pblGEHU.Custlysis.event.ProductChangedEvent;
 import com.pblGEHU.Custlysis.repository.ProductRepository;
+import com.pblGEHU.Custlysis.repository.Specs;
+import com.pblGEHU.Custlysis.service.NotReadyException;
+import com.pblGEHU.Custlysis.service.ProductCatalogCache;
+import com.pblGEHU.Custlysis.service.ProductSimilarityIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -17,9 +30,37 @@ public class ProductController {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
+    @Autowired
+    private ProductSimilarityIndex similarityIndex;
+
+    @Value("${custlysis.products.similarity.top-n:20}")
+    private int maxSimilar;
+
+    // Get a page of products, optionally filtered; page with ?cursor=<nextCursor>
     @GetMapping
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    public PageResponse<Product> getAllProducts(
+            @RequestParam(required = false) Integer cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "asc") String sort,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String riskLevel) {
+        Specification<Product> filters = Specification.allOf(
+            Specs.equal("category", category),
+            Specs.equal("riskLevel", riskLevel));
+        return KeysetPagination.page(productRepository, filters, "productId", Product::getProductId,
+            cursor, limit, sort);
+    }
+
+    // Get hit and miss counts of the product cache
+    @GetMapping("/cache/stats")
+    public Map<String, Object> getCacheStats() {
+        return catalogCache.stats();
     }
 
     @GetMapping("/{id}")
@@ -28,9 +69,34 @@ public class ProductController {
         return product.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
 
+    // Get products most often used by the same customers, best first
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<SimilarProduct>> getSimilarProducts(@PathVariable Integer id,
+                                                                  @RequestParam(defaultValue = "10") int limit) {
+        if (limit <= 0 || limit > maxSimilar) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (productRepository.findById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<Integer, Double> neighbors;
+        try {
+            neighbors = similarityIndex.similarTo(id, limit);
+        } catch (NotReadyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        List<SimilarProduct> similar = new ArrayList<>();
+        neighbors.forEach((productId, similarity) ->
+            productRepository.findById(productId).ifPresent(product -> similar.add(
+                new SimilarProduct(productId, product.getName(), product.getCategory(), similarity))));
+        return ResponseEntity.ok(similar);
+    }
+
     @PostMapping
     public Product createProduct(@RequestBody Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(null, saved));
+        return saved;
     }
 
     @PutMapping("/{id}")
@@ -38,6 +104,7 @@ public class ProductController {
         Optional<Product> optionalProduct = productRepository.findById(id);
         if (optionalProduct.isPresent()) {
             Product product = optionalProduct.get();
+            Product before = product.toBuilder().build();
             product.setName(productDetails.getName());
             product.setCategory(productDetails.getCategory());
             product.setSubCategory(productDetails.getSubCategory());
@@ -46,15 +113,19 @@ public class ProductController {
             product.setEligibilityRules(productDetails.getEligibilityRules());
             product.setAvgRating(productDetails.getAvgRating());
             product.setPopularityScore(productDetails.getPopularityScore());
-            return ResponseEntity.ok(productRepository.save(product));
+            Product saved = productRepository.save(product);
+            eventPublisher.publishEvent(new ProductChangedEvent(before, saved));
+            return ResponseEntity.ok(saved);
         }
         return ResponseEntity.notFound().build();
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProduct(@PathVariable Integer id) {
-        if (productRepository.existsById(id)) {
-            productRepository.deleteById(id);
+        Optional<Product> product = productRepository.findById(id);
+        if (product.isPresent()) {
+            productRepository.delete(product.get());
+            eventPublisher.publishEvent(new ProductChangedEvent(product.get(), null));
             return ResponseEntity.ok().build();
         }
         return ResponseEntity.notFound().build();
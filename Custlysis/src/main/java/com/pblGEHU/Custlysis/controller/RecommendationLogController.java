@@ -1,16 +1,32 @@
 package com.pblGEHU.Custlysis.controller;
 
+import com.pblGEHU.Custlysis.dto.PageResponse;
 import com.pblGEHU.Custlysis.dto.RecommendationDTO;
+import com.pblGEHU.Custlysis.dto.RecommendationRunStatus;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pblGEHU.Custlysis.entity.RecommendationLog;
-import com.pblGEHU.Custlysis.entity.SegmentationLabel;
 import com.pblGEHU.Custlysis.repository.RecommendationLogRepository;
-import com.pblGEHU.Custlysis.repository.SegmentationLabelRepository;
+import com.pblGEHU.Custlysis.repository.Specs;
+import com.pblGEHU.Custlysis.service.RecommendationEngine;
+import com.pblGEHU.Custlysis.service.RecommendationRun;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/recommendations")
@@ -21,63 +37,96 @@ public class RecommendationLogController {
     private RecommendationLogRepository repo;
     
     @Autowired
-    private SegmentationLabelRepository segmentRepo;
+    private ObjectMapper objectMapper;
 
-    // Get all recommendations
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RecommendationEngine engine;
+
+    @Value("${custlysis.recommendations.top-k:5}")
+    private int defaultTopK;
+
+    @Value("${custlysis.recommendations.max-top-k:50}")
+    private int maxTopK;
+
+    // Get a page of recommendations, optionally filtered; page with ?cursor=<nextCursor>
     @GetMapping
-    public List<RecommendationLog> getAll() {
-        return repo.findAll();
+    public PageResponse<RecommendationLog> getAll(
+            @RequestParam(required = false) Integer cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "asc") String sort,
+            @RequestParam(required = false) Integer productId,
+            @RequestParam(required = false) Boolean accepted,
+            @RequestParam(required = false) String modelVersion) {
+        Specification<RecommendationLog> filters = Specification.allOf(
+            Specs.equal("product.productId", productId),
+            Specs.equal("accepted", accepted),
+            Specs.equal("modelVersion", modelVersion));
+        return KeysetPagination.page(repo, filters, "recId", RecommendationLog::getRecId, cursor, limit, sort);
     }
 
-    // Get recommendations as DTOs with customer and segment info
+    // Get recommendations as DTOs with customer and segment info.
+    // Streams a JSON array straight from one projection query; page with ?afterId=<last recId>&limit=N.
     @GetMapping("/detailed")
-    public List<RecommendationDTO> getAllDetailed() {
-        List<RecommendationLog> logs = repo.findAll();
-        
-        return logs.stream()
-            .map(log -> {
-                RecommendationDTO dto = new RecommendationDTO();
-                dto.setCustomerId(log.getCustomer() != null ? log.getCustomer().getCustomerId() : null);
-                dto.setCustomerName(log.getCustomer() != null ? log.getCustomer().getName() : "Unknown");
-                dto.setProductId(log.getProduct() != null ? log.getProduct().getProductId() : null);
-                dto.setProductName(log.getProduct() != null ? log.getProduct().getName() : "Unknown");
-                dto.setProductCategory(log.getProduct() != null ? log.getProduct().getCategory() : "Unknown");
-                dto.setConfidence(log.getScore());
-                
-                // Get customer segment
-                if (log.getCustomer() != null) {
-                    List<SegmentationLabel> segments = segmentRepo.findAll().stream()
-                        .filter(s -> s.getCustomerId().equals(log.getCustomer().getCustomerId()))
-                        .collect(Collectors.toList());
-                    
-                    if (!segments.isEmpty()) {
-                        dto.setSegment(segments.get(0).getSegmentName());
-                    } else {
-                        dto.setSegment("Unassigned");
+    public ResponseEntity<StreamingResponseBody> getAllDetailed(
+            @RequestParam(defaultValue = "0") Integer afterId,
+            @RequestParam(required = false) Integer limit) {
+        if (limit != null && limit <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        Limit rowLimit = limit == null ? Limit.unlimited() : Limit.of(limit);
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.createGenerator(out)) {
+                json.writeStartArray();
+                // The stream holds the connection open, so it is consumed inside a transaction
+                transactionTemplate.executeWithoutResult(status -> {
+                    try (Stream<RecommendationDTO> rows = repo.streamDetailed(afterId, rowLimit)) {
+                        rows.forEach(dto -> {
+                            try {
+                                json.writeObject(enrich(dto));
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
                     }
-                }
-                
-                // Generate rationale based on segment and product
-                dto.setRationale(generateRationale(dto.getSegment(), dto.getProductCategory()));
-                
-                // Determine priority based on confidence
-                if (dto.getConfidence() != null && dto.getConfidence().doubleValue() > 85) {
-                    dto.setPriority("High");
-                } else {
-                    dto.setPriority("Medium");
-                }
-                
-                return dto;
-            })
-            .collect(Collectors.toList());
+                });
+                json.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // Fill in display defaults, rationale and priority for a projected row
+    RecommendationDTO enrich(RecommendationDTO dto) {
+        if (dto.getCustomerId() == null) {
+            dto.setCustomerName("Unknown");
+        } else if (dto.getSegment() == null) {
+            dto.setSegment("Unassigned");
+        }
+        if (dto.getProductId() == null) {
+            dto.setProductName("Unknown");
+            dto.setProductCategory("Unknown");
+        }
+
+        // Generate rationale based on segment and product
+        dto.setRationale(generateRationale(dto.getSegment(), dto.getProductCategory()));
+
+        // Determine priority based on confidence
+        if (dto.getConfidence() != null && dto.getConfidence().doubleValue() > 85) {
+            dto.setPriority("High");
+        } else {
+            dto.setPriority("Medium");
+        }
+        return dto;
     }
 
     // Get recommendations for a specific customer
     @GetMapping("/customer/{customerId}")
     public List<RecommendationLog> getByCustomer(@PathVariable Integer customerId) {
-        return repo.findAll().stream()
-            .filter(log -> log.getCustomer() != null && log.getCustomer().getCustomerId().equals(customerId))
-            .collect(Collectors.toList());
+        return repo.findByCustomer_CustomerId(customerId);
     }
 
     @GetMapping("/{id}")
@@ -85,6 +134,41 @@ public class RecommendationLogController {
         return repo.findById(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
 
+    // Start generating top-K recommendations for every customer in the background; updates the rows
+    // stored under modelVersion, keeping accepted/feedback on recommendations that stay in a customer's
+    // top K. Returns the run to poll (the running one if a run is in progress)
+    @PostMapping("/generate")
+    public ResponseEntity<RecommendationRunStatus> generate(
+            @RequestParam(required = false) Integer topK,
+            @RequestParam(required = false) String modelVersion) {
+        int k = topK == null ? defaultTopK : topK;
+        if (k <= 0 || k > maxTopK) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "topK must be between 1 and " + maxTopK);
+        }
+        String version = modelVersion == null || modelVersion.isBlank()
+            ? RecommendationEngine.DEFAULT_MODEL_VERSION : modelVersion;
+        RecommendationRun run = engine.submit(k, version);
+        return ResponseEntity.accepted()
+            .location(URI.create("/api/recommendations/generate/" + run.getId()))
+            .body(run.toStatus());
+    }
+
+    // Get recent recommendation runs, newest first
+    @GetMapping("/generate")
+    public List<RecommendationRunStatus> getRuns() {
+        return engine.list().stream().map(RecommendationRun::toStatus).toList();
+    }
+
+    // Get a recommendation run's progress and result
+    @GetMapping("/generate/{runId}")
+    public ResponseEntity<RecommendationRunStatus> getRun(@PathVariable String runId) {
+        RecommendationRun run = engine.get(runId);
+        if (run == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(run.toStatus());
+    }
+
     @PostMapping
     public RecommendationLog create(@RequestBody RecommendationLog log) {
         return repo.save(log);
@@ -104,7 +188,7 @@ public class RecommendationLogController {
     }
     
     // Helper method to generate rationale
-    private String generateRationale(String segment, String productCategory) {
+    String generateRationale(String segment, String productCategory) {
         if (segment == null || productCategory == null) {
             return "Recommended based on customer profile";
         }
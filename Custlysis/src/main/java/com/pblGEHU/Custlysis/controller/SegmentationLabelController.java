@@ -1,18 +1,33 @@
 package com.pblGEHU.Custlysis.controller;
 
 import com.pblGEHU.Custlysis.dto.SegmentInfo;
+import com.pblGEHU.Custlysis.dto.SegmentPrediction;
+import com.pblGEHU.Custlysis.dto.TrainingJobStatus;
 import com.pblGEHU.Custlysis.entity.SegmentationLabel;
 import com.pblGEHU.Custlysis.entity.SegmentKey;
+import com.pblGEHU.Custlysis.event.SegmentationLabelChangedEvent;
 import com.pblGEHU.Custlysis.repository.SegmentationLabelRepository;
-import com.pblGEHU.Custlysis.service.MLIntegrationService;
+import com.pblGEHU.Custlysis.service.CustomerSegmentIndex;
+import com.pblGEHU.Custlysis.service.MLBulkhead;
+import com.pblGEHU.Custlysis.service.MLSaturatedException;
+import com.pblGEHU.Custlysis.service.MLWorkerPool;
+import com.pblGEHU.Custlysis.service.NotReadyException;
+import com.pblGEHU.Custlysis.service.SegmentScorer;
+import com.pblGEHU.Custlysis.service.SegmentStatistics;
+import com.pblGEHU.Custlysis.service.TrainingJob;
+import com.pblGEHU.Custlysis.service.TrainingJobService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.math.BigDecimal;
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/segmentation")
@@ -23,7 +38,28 @@ public class SegmentationLabelController {
     private SegmentationLabelRepository repo;
     
     @Autowired
-    private MLIntegrationService mlService;
+    private SegmentScorer scorer;
+
+    @Autowired
+    private TrainingJobService trainingJobs;
+
+    @Autowired
+    private MLBulkhead bulkhead;
+
+    @Autowired
+    private MLWorkerPool workerPool;
+
+    @Autowired
+    private CustomerSegmentIndex segmentIndex;
+
+    @Autowired
+    private SegmentStatistics segmentStatistics;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${custlysis.ml.predict.max-batch:10000}")
+    private int maxPredictBatch;
 
     // Get all segment labels
     @GetMapping("/labels")
@@ -31,57 +67,106 @@ public class SegmentationLabelController {
         return repo.findAll();
     }
 
-    // Get segment statistics
+    // Get segment statistics, for one model version or across all of them
     @GetMapping("/segments")
-    public List<SegmentInfo> getSegmentStats() {
-        List<SegmentationLabel> allLabels = repo.findAll();
-        
-        // Group by segment and calculate statistics
-        Map<String, List<SegmentationLabel>> grouped = allLabels.stream()
-            .collect(Collectors.groupingBy(SegmentationLabel::getSegmentId));
-        
-        long totalCustomers = allLabels.size();
-        
-        return grouped.entrySet().stream()
-            .map(entry -> {
-                String segmentId = entry.getKey();
-                List<SegmentationLabel> labels = entry.getValue();
-                long count = labels.size();
-                double percentage = totalCustomers > 0 ? (count * 100.0 / totalCustomers) : 0;
-                
-                BigDecimal avgScore = labels.stream()
-                    .map(SegmentationLabel::getSegmentScore)
-                    .filter(score -> score != null)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add)
-                    .divide(BigDecimal.valueOf(count), 2, BigDecimal.ROUND_HALF_UP);
-                
-                String segmentName = labels.isEmpty() ? segmentId : labels.get(0).getSegmentName();
-                
-                return new SegmentInfo(segmentId, segmentName, count, percentage, avgScore);
-            })
-            .collect(Collectors.toList());
+    public List<SegmentInfo> getSegmentStats(@RequestParam(required = false) String modelVersion) {
+        try {
+            return segmentStatistics.segments(modelVersion);
+        } catch (NotReadyException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
     }
 
     // Get customer's segment
     @GetMapping("/customer/{customerId}")
     public ResponseEntity<SegmentationLabel> getCustomerSegment(@PathVariable Integer customerId) {
-        List<SegmentationLabel> labels = repo.findAll().stream()
-            .filter(label -> label.getCustomerId().equals(customerId))
-            .collect(Collectors.toList());
-        
-        if (labels.isEmpty()) {
+        // Return the most recent assignment
+        SegmentationLabel label = segmentIndex.get(customerId);
+        if (label == null) {
             return ResponseEntity.notFound().build();
         }
-        
-        // Return the most recent assignment
-        return ResponseEntity.ok(labels.get(0));
+        return ResponseEntity.ok(label);
     }
 
-    // Train ML model
+    // Start training in the background; returns the job to poll (the running one if a training is in progress)
     @PostMapping("/train")
-    public ResponseEntity<String> trainModel() {
-        String result = mlService.trainModel();
-        return ResponseEntity.ok(result);
+    public ResponseEntity<TrainingJobStatus> trainModel() {
+        TrainingJob job = trainingJobs.submit();
+        return ResponseEntity.accepted()
+            .location(URI.create("/api/segmentation/train/" + job.getId()))
+            .body(job.toStatus());
+    }
+
+    // Get recent training jobs, newest first
+    @GetMapping("/train")
+    public List<TrainingJobStatus> getTrainingJobs() {
+        return trainingJobs.list().stream().map(TrainingJob::toStatus).toList();
+    }
+
+    // Get training job status, step timings and results
+    @GetMapping("/train/{jobId}")
+    public ResponseEntity<TrainingJobStatus> getTrainingJob(@PathVariable String jobId) {
+        TrainingJob job = trainingJobs.get(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.toStatus());
+    }
+
+    // Cancel a queued or running training job
+    @DeleteMapping("/train/{jobId}")
+    public ResponseEntity<TrainingJobStatus> cancelTrainingJob(@PathVariable String jobId) {
+        TrainingJob job = trainingJobs.cancel(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.toStatus());
+    }
+
+    // Predict a customer's segment in-process from the exported model
+    @GetMapping("/predict/{customerId}")
+    public ResponseEntity<SegmentPrediction> predict(@PathVariable Integer customerId) {
+        if (!scorer.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        List<SegmentPrediction> predictions;
+        try {
+            predictions = bulkhead.call("score:" + customerId, () -> scorer.predict(List.of(customerId)));
+        } catch (MLSaturatedException e) {
+            return tooBusy(e);
+        }
+        if (predictions.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(predictions.get(0));
+    }
+
+    // Predict segments for a batch of customer ids; unknown ids are omitted
+    @PostMapping("/predict")
+    public ResponseEntity<List<SegmentPrediction>> predictBatch(@RequestBody List<Integer> customerIds) {
+        if (customerIds.size() > maxPredictBatch) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!scorer.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        try {
+            return ResponseEntity.ok(bulkhead.call(null, () -> scorer.predict(customerIds)));
+        } catch (MLSaturatedException e) {
+            return tooBusy(e);
+        }
+    }
+
+    // Get ML bulkhead saturation and queue depth, and the Python worker slots
+    @GetMapping("/ml/status")
+    public Map<String, Object> getMlStatus() {
+        return Map.of("bulkhead", bulkhead.status(), "workers", workerPool.status());
+    }
+
+    private static <T> ResponseEntity<T> tooBusy(MLSaturatedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+            .build();
     }
 
     // Get segment by key
@@ -93,22 +178,40 @@ public class SegmentationLabelController {
 
     @PostMapping
     public SegmentationLabel create(@RequestBody SegmentationLabel label) {
-        return repo.save(label);
+        SegmentationLabel before = null;
+        if (label.getCustomerId() != null && label.getSegmentId() != null) {
+            before = repo.findById(new SegmentKey(label.getCustomerId(), label.getSegmentId()))
+                .map(existing -> existing.toBuilder().build())
+                .orElse(null);
+        }
+        SegmentationLabel saved = repo.save(label);
+        segmentIndex.onSaved(saved);
+        eventPublisher.publishEvent(new SegmentationLabelChangedEvent(before, saved));
+        return saved;
     }
 
     @PutMapping("/{customerId}/{segmentId}")
     public ResponseEntity<SegmentationLabel> update(@PathVariable Integer customerId, @PathVariable String segmentId, @RequestBody SegmentationLabel updated) {
         SegmentKey key = new SegmentKey(customerId, segmentId);
         return repo.findById(key).map(existing -> {
+            SegmentationLabel before = existing.toBuilder().build();
             updated.setCustomerId(customerId);
             updated.setSegmentId(segmentId);
-            return ResponseEntity.ok(repo.save(updated));
+            SegmentationLabel saved = repo.save(updated);
+            segmentIndex.onSaved(saved);
+            eventPublisher.publishEvent(new SegmentationLabelChangedEvent(before, saved));
+            return ResponseEntity.ok(saved);
         }).orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{customerId}/{segmentId}")
     public void delete(@PathVariable Integer customerId, @PathVariable String segmentId) {
         SegmentKey key = new SegmentKey(customerId, segmentId);
-        repo.deleteById(key);
+        repo.findById(key).ifPresent(existing -> {
+            SegmentationLabel before = existing.toBuilder().build();
+            repo.delete(existing);
+            segmentIndex.onDeleted(customerId, segmentId);
+            eventPublisher.publishEvent(new SegmentationLabelChangedEvent(before, null));
+        });
     }
 }
@@ -1,13 +1,37 @@
 package com.pblGEHU.Custlysis.controller;
 
+import com.pblGEHU.Custlysis.dto.BatchIngestResult;
+import com.pblGEHU.Custlysis.dto.IngestPipelineStatus;
+import com.pblGEHU.Custlysis.dto.PageResponse;
+import com.pblGEHU.Custlysis.dto.TransactionAggregate;
+import com.pblGEHU.Custlysis.dto.TransactionFilter;
 import com.pblGEHU.Custlysis.entity.Transactions;
+import com.pblGEHU.Custlysis.event.TransactionChangedEvent;
+import com.pblGEHU.Custlysis.repository.Specs;
 import com.pblGEHU.Custlysis.repository.TransactionRepository;
+import com.pblGEHU.Custlysis.service.IngestSaturatedException;
+import com.pblGEHU.Custlysis.service.NotReadyException;
+import com.pblGEHU.Custlysis.service.TransactionBatchWriter;
+import com.pblGEHU.Custlysis.service.TransactionColumnStore;
+import com.pblGEHU.Custlysis.service.TransactionIngestPipeline;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/transactions")
@@ -17,9 +41,76 @@ public class TransactionController {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionBatchWriter batchWriter;
+
+    @Autowired
+    private TransactionIngestPipeline ingestPipeline;
+
+    @Autowired
+    private TransactionColumnStore columnStore;
+
+    // Get a page of transactions, optionally filtered; "from" is inclusive, "to" exclusive
     @GetMapping
-    public List<Transactions> getAllTransactions() {
-        return transactionRepository.findAll();
+    public PageResponse<Transactions> getAllTransactions(
+            @RequestParam(required = false) Integer cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "asc") String sort,
+            @RequestParam(required = false) Integer accountId,
+            @RequestParam(required = false) String txnType,
+            @RequestParam(required = false) String channel,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount) {
+        Specification<Transactions> filters = Specification.allOf(
+            Specs.equal("accountId", accountId),
+            Specs.equal("txnType", txnType),
+            Specs.equal("channel", channel),
+            Specs.atLeast("timestamp", from),
+            Specs.before("timestamp", to),
+            Specs.atLeast("amount", minAmount),
+            Specs.atMost("amount", maxAmount));
+        return KeysetPagination.page(transactionRepository, filters, "txnId", Transactions::getTxnId,
+            cursor, limit, sort);
+    }
+
+    // Get transaction count and amount statistics from the in-memory column store, optionally
+    // grouped by txnType, channel, merchantCategory, geoLocation, account, day, month, highValue or recurring
+    @GetMapping("/analytics")
+    public List<TransactionAggregate> getAnalytics(
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(required = false) Integer accountId,
+            @RequestParam(required = false) String txnType,
+            @RequestParam(required = false) String channel,
+            @RequestParam(required = false) String merchantCategory,
+            @RequestParam(required = false) String geoLocation,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) Boolean highValue,
+            @RequestParam(required = false) Boolean recurring,
+            @RequestParam(defaultValue = "1000") int limit) {
+        if (limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive");
+        }
+        TransactionColumnStore.Dimension dimension;
+        try {
+            dimension = TransactionColumnStore.Dimension.parse(groupBy);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        TransactionFilter filter = new TransactionFilter(from, to, accountId, txnType, channel, merchantCategory,
+            geoLocation, minAmount, maxAmount, highValue, recurring);
+        try {
+            return columnStore.aggregate(filter, dimension, limit);
+        } catch (NotReadyException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
     }
 
     @GetMapping("/{id}")
@@ -28,9 +119,53 @@ public class TransactionController {
         return transaction.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
 
+    // Accept a transaction once it is durable in the write-ahead log (202); the database row
+    // and its txnId follow asynchronously. With the pipeline disabled, save synchronously (200).
     @PostMapping
-    public Transactions createTransaction(@RequestBody Transactions transaction) {
-        return transactionRepository.save(transaction);
+    public ResponseEntity<Transactions> createTransaction(@RequestBody Transactions transaction) throws InterruptedException {
+        if (!ingestPipeline.isEnabled()) {
+            Transactions saved = transactionRepository.save(transaction);
+            eventPublisher.publishEvent(new TransactionChangedEvent(null, saved));
+            return ResponseEntity.ok(saved);
+        }
+        long sequence;
+        try {
+            sequence = ingestPipeline.submit(transaction);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IngestSaturatedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .build();
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+            .header("X-Ingest-Sequence", String.valueOf(sequence))
+            .body(transaction);
+    }
+
+    // Get ingest pipeline sequences: claimed, durable in the write-ahead log, applied to the database
+    @GetMapping("/pipeline")
+    public IngestPipelineStatus getPipelineStatus() {
+        return ingestPipeline.status();
+    }
+
+    // Bulk insert a JSON array of transactions; invalid rows are reported and skipped
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BatchIngestResult> createTransactionsFromJson(InputStream body) throws IOException {
+        return batchResponse(batchWriter.ingestJson(body));
+    }
+
+    // Bulk insert CSV with a header row; invalid rows are reported and skipped
+    @PostMapping(value = "/batch", consumes = "text/csv")
+    public ResponseEntity<BatchIngestResult> createTransactionsFromCsv(InputStream body) throws IOException {
+        return batchResponse(batchWriter.ingestCsv(body));
+    }
+
+    // A request that stopped early is a 400 that still reports the rows it committed
+    private static ResponseEntity<BatchIngestResult> batchResponse(BatchIngestResult result) {
+        return result.getError() != null ? ResponseEntity.badRequest().body(result) : ResponseEntity.ok(result);
     }
 
     @PutMapping("/{id}")
@@ -38,6 +173,7 @@ public class TransactionController {
         Optional<Transactions> optionalTransaction = transactionRepository.findById(id);
         if (optionalTransaction.isPresent()) {
             Transactions transaction = optionalTransaction.get();
+            Transactions before = transaction.toBuilder().build();
             transaction.setAccountId(transactionDetails.getAccountId());
             transaction.setTxnType(transactionDetails.getTxnType());
             transaction.setAmount(transactionDetails.getAmount());
@@ -47,15 +183,19 @@ public class TransactionController {
             transaction.setIsRecurring(transactionDetails.getIsRecurring());
             transaction.setIsHighValue(transactionDetails.getIsHighValue());
             transaction.setTxnScore(transactionDetails.getTxnScore());
-            return ResponseEntity.ok(transactionRepository.save(transaction));
+            Transactions saved = transactionRepository.save(transaction);
+            eventPublisher.publishEvent(new TransactionChangedEvent(before, saved));
+            return ResponseEntity.ok(saved);
         }
         return ResponseEntity.notFound().build();
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteTransaction(@PathVariable Integer id) {
-        if (transactionRepository.existsById(id)) {
-            transactionRepository.deleteById(id);
+        Optional<Transactions> transaction = transactionRepository.findById(id);
+        if (transaction.isPresent()) {
+            transactionRepository.delete(transaction.get());
+            eventPublisher.publishEvent(new TransactionChangedEvent(transaction.get(), null));
             return ResponseEntity.ok().build();
         }
         return ResponseEntity.notFound().build();
@@ -0,0 +1,30 @@
+package com.pblGEHU.Custlysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchIngestResult {
+    private int received;
+    private int inserted;
+    private int failed;
+    private List<RowError> errors;
+    // True when more rows failed than are listed in errors
+    private boolean errorsTruncated;
+    // Why the request stopped before its end; rows up to "received" were still processed and committed
+    private String error;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        // 1-based position of the row in the request (CSV header excluded)
+        private int row;
+        private String message;
+    }
+}
@@ -0,0 +1,31 @@
+package com.pblGEHU.Custlysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CampaignMetrics {
+    // Dimensions; null where the result spans all values
+    private Integer campaignId;
+    private String channel;
+    private Integer productId;
+    private String segment;
+
+    // Window bounds for time series, end exclusive; null for totals
+    private LocalDate windowStart;
+    private LocalDate windowEnd;
+
+    private long responses;
+    private long conversions;
+    private double conversionRate;
+    // Mean over responses that carry a conversion score, null if none do
+    private BigDecimal avgConversionScore;
+    private Map<String, Long> responseBreakdown;
+}
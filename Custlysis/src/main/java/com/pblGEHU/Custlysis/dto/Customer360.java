@@ -0,0 +1,35 @@
+package com.pblGEHU.Custlysis.dto;
+
+import com.pblGEHU.Custlysis.entity.Account;
+import com.pblGEHU.Custlysis.entity.CampaignResponse;
+import com.pblGEHU.Custlysis.entity.Customer;
+import com.pblGEHU.Custlysis.entity.CustomerProductInteraction;
+import com.pblGEHU.Custlysis.entity.RecommendationLog;
+import com.pblGEHU.Custlysis.entity.SegmentationLabel;
+import com.pblGEHU.Custlysis.entity.Transactions;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Customer360 {
+    private Customer customer;
+    private List<Account> accounts;
+    private PageResponse<Transactions> recentTransactions;
+    // All-time totals from the rollups; null if the customer has no transactions
+    private TransactionActivity transactionSummary;
+    private SegmentationLabel segment;
+    private List<CustomerProductInteraction> activeInteractions;
+    private List<CampaignResponse> campaignResponses;
+    private List<RecommendationLog> recommendations;
+
+    // Sections left null because they failed or missed the latency budget, with the reason
+    private Map<String, String> unavailable;
+    private boolean partial;
+    private long elapsedMs;
+}
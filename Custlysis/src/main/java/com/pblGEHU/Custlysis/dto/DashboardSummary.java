@@ -0,0 +1,34 @@
+package com.pblGEHU.Custlysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardSummary {
+    private long totalCustomers;
+    private long totalAccounts;
+    private long activeAccounts;
+    private long totalProducts;
+    private long totalTransactions;
+    private BigDecimal totalBalance;
+    private BigDecimal avgBalance;
+    private Map<String, ChannelVolume> transactionsByChannel;
+    private Map<String, Long> segmentDistribution;
+    private String modelVersion;
+    private LocalDateTime reconciledAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ChannelVolume {
+        private long count;
+        private BigDecimal amount;
+    }
+}
@@ -0,0 +1,29 @@
+package com.pblGEHU.Custlysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DormancyJobStatus {
+    private boolean running;
+    // Inactivity is measured up to this instant; a resumed run keeps the original one
+    private LocalDateTime asOf;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    // First account id of this run; above the lowest id when it resumed from a checkpoint
+    private Integer resumedFrom;
+    // Every account id up to this one is done
+    private Integer checkpoint;
+    private int partitions;
+    private int partitionsDone;
+    private long accountsScanned;
+    private long accountsUpdated;
+    private long markedDormant;
+    private long reactivated;
+    private String error;
+}
@@ -0,0 +1,20 @@
+package com.pblGEHU.Custlysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestPipelineStatus {
+    private boolean enabled;
+    private boolean accepting;
+    // Highest sequence handed out, forced to the write-ahead log, and committed to the database
+    private long lastSequence;
+    private long durableSequence;
+    private long appliedSequence;
+    private int capacity;
+    private int walSegments;
+    private long droppedRows;
+}
@@ -10,6 +10,7 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 @AllArgsConstructor
 public class RecommendationDTO {
+    private Integer recId;
     private Integer customerId;
     private String customerName;
     private String segment;
@@ -19,4 +20,17 @@ public class RecommendationDTO {
     private BigDecimal confidence;
     private String rationale;
     private String priority;
+
+    // Projection constructor for RecommendationLogRepository.streamDetailed; rationale and priority are derived
+    public RecommendationDTO(Integer recId, Integer customerId, String customerName, String segment,
+                             Integer productId, String productName, String productCategory, BigDecimal confidence) {
+        this.recId = recId;
+        this.customerId = customerId;
+        this.customerName = customerName;
+        this.segment = segment;
+        this.productId = productId;
+        this.productName = productName;
+        this.productCategory = productCategory;
+        this.confidence = confidence;
+    }
 }
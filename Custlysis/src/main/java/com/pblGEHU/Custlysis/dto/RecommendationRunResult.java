@@ -0,0 +1,18 @@
+package com.pblGEHU.Custlysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecommendationRunResult {
+    private String modelVersion;
+    private int topK;
+    private int customers;
+    private int products;
+    // Rows written to recommendation_log; customers with fewer eligible products get fewer
+    private long recommendations;
+    private long elapsedMs;
+}
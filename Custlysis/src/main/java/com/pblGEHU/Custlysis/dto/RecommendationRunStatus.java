@@ -0,0 +1,26 @@
+package com.pblGEHU.Custlysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecommendationRunStatus {
+    private String runId;
+    private String status;
+    private String modelVersion;
+    private int topK;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    // Customers to score, known once the inputs are loaded
+    private Integer customers;
+    // Customers whose recommendations are already committed
+    private int customersWritten;
+    private RecommendationRunResult result;
+    private String error;
+}
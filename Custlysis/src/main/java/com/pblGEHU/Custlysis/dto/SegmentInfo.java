@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
@@ -12,7 +13,14 @@ import java.math.BigDecimal;
 public class SegmentInfo {
     private String segmentId;
     private String segmentName;
+    private String modelVersion;
     private Long customerCount;
     private Double percentage;
     private BigDecimal avgSegmentScore;
+    private BigDecimal minSegmentScore;
+    private BigDecimal maxSegmentScore;
+    // Labels that carry a score; the average is taken over these only
+    private Long scoredCount;
+    // Label counts per score bin, equal-width bins over [0, 1]
+    private List<Long> scoreHistogram;
 }
@@ -0,0 +1,16 @@
+package com.pblGEHU.Custlysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SegmentPrediction {
+    private Integer customerId;
+    private String segmentId;
+    private String segmentName;
+    private Double confidence;
+    private String modelVersion;
+}
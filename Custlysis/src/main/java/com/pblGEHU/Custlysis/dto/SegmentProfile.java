@@ -0,0 +1,21 @@
+package com.pblGEHU.Custlysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SegmentProfile {
+    private int size;
+    private double percentage;
+    private double avgAge;
+    private double avgBalance;
+    private double avgDigitalScore;
+    private double avgChurnRisk;
+    private double avgTenure;
+    private double avgTxnFreq;
+    private double avgIncome;
+    private double avgRisk;
+}
@@ -0,0 +1,16 @@
+package com.pblGEHU.Custlysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimilarProduct {
+    private Integer productId;
+    private String name;
+    private String category;
+    // Cosine similarity of usage-weighted customer co-usage, 0..1
+    private Double similarity;
+}
@@ -0,0 +1,36 @@
+package com.pblGEHU.Custlysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrainingJobStatus {
+    private String jobId;
+    private String engine;
+    private String status;
+    private boolean cancelRequested;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private Long durationMs;
+    private String currentStep;
+    private List<StepTiming> steps;
+    private Object results;
+    private String error;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StepTiming {
+        private String step;
+        private String name;
+        private LocalDateTime startedAt;
+        private Long durationMs;
+    }
+}
@@ -0,0 +1,28 @@
+package com.pblGEHU.Custlysis.dto;
+
+import com.pblGEHU.Custlysis.dto.DashboardSummary.ChannelVolume;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionActivity {
+    // Bucket bounds, end exclusive
+    private LocalDate periodStart;
+    private LocalDate periodEnd;
+
+    private long count;
+    private BigDecimal totalAmount;
+    // Sum of absolute amounts
+    private BigDecimal volume;
+    // Null when the bucket has no transactions with an amount
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private Map<String, ChannelVolume> byChannel;
+}
@@ -0,0 +1,22 @@
+package com.pblGEHU.Custlysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionAggregate {
+    private String group;
+    private long count;
+    private BigDecimal totalAmount;
+    private BigDecimal averageAmount;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private long highValueCount;
+    private double highValueShare;
+    private long recurringCount;
+}
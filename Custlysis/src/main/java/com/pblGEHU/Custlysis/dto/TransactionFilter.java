@@ -0,0 +1,29 @@
+package com.pblGEHU.Custlysis.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Row filter for transaction analytics; null fields do not filter. "from" is inclusive and
+ * "to" exclusive; text fields match case-insensitively.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionFilter {
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Integer accountId;
+    private String txnType;
+    private String channel;
+    private String merchantCategory;
+    private String geoLocation;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private Boolean highValue;
+    private Boolean recurring;
+}
@@ -0,0 +1,54 @@
+package com.pblGEHU.Custlysis.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Transactions of one account on one day through one channel; maintained by
+ * {@code TransactionRollups}, never written through the API
+ */
+@Entity
+@Table(name = "account_daily_rollup")
+@IdClass(AccountDayKey.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountDailyRollup {
+
+    @Id
+    @Column(name = "account_id")
+    private Integer accountId;
+
+    @Id
+    @Column(name = "txn_date")
+    private LocalDate txnDate;
+
+    @Id
+    @Column(name = "channel")
+    private String channel;
+
+    @Column(name = "txn_count", nullable = false)
+    private Long txnCount;
+
+    @Column(name = "total_amount", precision = 19, scale = 2, nullable = false)
+    private BigDecimal totalAmount;
+
+    // Sum of absolute amounts, the transaction volume
+    @Column(name = "absolute_amount", precision = 19, scale = 2, nullable = false)
+    private BigDecimal absoluteAmount;
+
+    @Column(name = "min_amount", precision = 19, scale = 2)
+    private BigDecimal minAmount;
+
+    @Column(name = "max_amount", precision = 19, scale = 2)
+    private BigDecimal maxAmount;
+}
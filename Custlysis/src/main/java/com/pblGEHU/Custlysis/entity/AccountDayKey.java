@@ -0,0 +1,15 @@
+package com.pblGEHU.Custlysis.entity;
+
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountDayKey implements Serializable {
+    private Integer accountId;
+    private LocalDate txnDate;
+    private String channel;
+}
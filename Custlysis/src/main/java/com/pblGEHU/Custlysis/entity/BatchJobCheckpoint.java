@@ -0,0 +1,37 @@
+package com.pblGEHU.Custlysis.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of an unfinished run of a batch job that walks a table in id order; every id up to
+ * and including {@code lastId} has been processed. The row is deleted when the run completes.
+ */
+@Entity
+@Table(name = "batch_job_checkpoint")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchJobCheckpoint {
+
+    @Id
+    @Column(name = "job", length = 64)
+    private String job;
+
+    @Column(name = "last_id", nullable = false)
+    private Integer lastId;
+
+    // Reference time of the run, kept so a resumed run judges every row against the same instant
+    @Column(name = "as_of", nullable = false)
+    private LocalDateTime asOf;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
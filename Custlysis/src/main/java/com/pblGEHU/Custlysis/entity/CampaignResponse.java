@@ -11,6 +11,7 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@Builder(toBuilder = true)
 public class CampaignResponse {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
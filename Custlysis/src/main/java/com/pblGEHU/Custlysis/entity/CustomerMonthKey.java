@@ -0,0 +1,14 @@
+package com.pblGEHU.Custlysis.entity;
+
+import lombok.*;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerMonthKey implements Serializable {
+    private Integer customerId;
+    private Integer txnMonth;
+    private String channel;
+}
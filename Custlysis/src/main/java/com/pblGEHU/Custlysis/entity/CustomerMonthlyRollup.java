@@ -0,0 +1,53 @@
+package com.pblGEHU.Custlysis.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Transactions across a customer's accounts in one calendar month through one channel;
+ * maintained by {@code TransactionRollups}, never written through the API
+ */
+@Entity
+@Table(name = "customer_monthly_rollup")
+@IdClass(CustomerMonthKey.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerMonthlyRollup {
+
+    @Id
+    @Column(name = "customer_id")
+    private Integer customerId;
+
+    // Year * 100 + month, e.g. 202510
+    @Id
+    @Column(name = "txn_month")
+    private Integer txnMonth;
+
+    @Id
+    @Column(name = "channel")
+    private String channel;
+
+    @Column(name = "txn_count", nullable = false)
+    private Long txnCount;
+
+    @Column(name = "total_amount", precision = 19, scale = 2, nullable = false)
+    private BigDecimal totalAmount;
+
+    @Column(name = "absolute_amount", precision = 19, scale = 2, nullable = false)
+    private BigDecimal absoluteAmount;
+
+    @Column(name = "min_amount", precision = 19, scale = 2)
+    private BigDecimal minAmount;
+
+    @Column(name = "max_amount", precision = 19, scale = 2)
+    private BigDecimal maxAmount;
+}
@@ -10,6 +10,7 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@Builder(toBuilder = true)
 public class CustomerProductInteraction {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,33 @@
+package com.pblGEHU.Custlysis.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Last write-ahead log sequence applied to the database for an ingest stream; updated in
+ * the same database transaction as the rows it covers
+ */
+@Entity
+@Table(name = "ingest_checkpoint")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestCheckpoint {
+
+    @Id
+    @Column(name = "stream", length = 64)
+    private String stream;
+
+    @Column(name = "last_sequence", nullable = false)
+    private Long lastSequence;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,10 @@
+package com.pblGEHU.Custlysis.event;
+
+import com.pblGEHU.Custlysis.entity.Account;
+
+public class AccountChangedEvent extends EntityChangeEvent<Account> {
+
+    public AccountChangedEvent(Account before, Account after) {
+        super(before, after);
+    }
+}
@@ -0,0 +1,10 @@
+package com.pblGEHU.Custlysis.event;
+
+import com.pblGEHU.Custlysis.entity.CampaignResponse;
+
+public class CampaignResponseChangedEvent extends EntityChangeEvent<CampaignResponse> {
+
+    public CampaignResponseChangedEvent(CampaignResponse before, CampaignResponse after) {
+        super(before, after);
+    }
+}
@@ -0,0 +1,10 @@
+package com.pblGEHU.Custlysis.event;
+
+import com.pblGEHU.Custlysis.entity.Customer;
+
+public class CustomerChangedEvent extends EntityChangeEvent<Customer> {
+
+    public CustomerChangedEvent(Customer before, Customer after) {
+        super(before, after);
+    }
+}
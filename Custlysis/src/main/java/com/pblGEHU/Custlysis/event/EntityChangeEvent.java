@@ -0,0 +1,24 @@
+package com.pblGEHU.Custlysis.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published after an entity write has been committed. {@code before} is null for a
+ * create and {@code after} is null for a delete; both are detached snapshots.
+ */
+@Getter
+@AllArgsConstructor
+public abstract class EntityChangeEvent<T> {
+
+    private final T before;
+    private final T after;
+
+    public boolean isCreate() {
+        return before == null;
+    }
+
+    public boolean isDelete() {
+        return after == null;
+    }
+}
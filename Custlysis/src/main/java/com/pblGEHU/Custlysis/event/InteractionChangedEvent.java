@@ -0,0 +1,10 @@
+package com.pblGEHU.Custlysis.event;
+
+import com.pblGEHU.Custlysis.entity.CustomerProductInteraction;
+
+public class InteractionChangedEvent extends EntityChangeEvent<CustomerProductInteraction> {
+
+    public InteractionChangedEvent(CustomerProductInteraction before, CustomerProductInteraction after) {
+        super(before, after);
+    }
+}
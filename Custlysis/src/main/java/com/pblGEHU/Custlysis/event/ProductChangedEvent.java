@@ -0,0 +1,10 @@
+package com.pblGEHU.Custlysis.event;
+
+import com.pblGEHU.Custlysis.entity.Product;
+
+public class ProductChangedEvent extends EntityChangeEvent<Product> {
+
+    public ProductChangedEvent(Product before, Product after) {
+        super(before, after);
+    }
+}
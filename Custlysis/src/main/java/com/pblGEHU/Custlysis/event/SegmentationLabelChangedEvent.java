@@ -0,0 +1,10 @@
+package com.pblGEHU.Custlysis.event;
+
+import com.pblGEHU.Custlysis.entity.SegmentationLabel;
+
+public class SegmentationLabelChangedEvent extends EntityChangeEvent<SegmentationLabel> {
+
+    public SegmentationLabelChangedEvent(SegmentationLabel before, SegmentationLabel after) {
+        super(before, after);
+    }
+}
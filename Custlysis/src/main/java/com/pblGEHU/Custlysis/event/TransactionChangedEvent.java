@@ -0,0 +1,10 @@
+package com.pblGEHU.Custlysis.event;
+
+import com.pblGEHU.Custlysis.entity.Transactions;
+
+public class TransactionChangedEvent extends EntityChangeEvent<Transactions> {
+
+    public TransactionChangedEvent(Transactions before, Transactions after) {
+        super(before, after);
+    }
+}
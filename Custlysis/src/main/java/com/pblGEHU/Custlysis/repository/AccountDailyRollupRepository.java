@@ -0,0 +1,19 @@
+package com.pblGEHU.Custlysis.repository;
+
+import com.pblGEHU.Custlysis.entity.AccountDailyRollup;
+import com.pblGEHU.Custlysis.entity.AccountDayKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface AccountDailyRollupRepository extends JpaRepository<AccountDailyRollup, AccountDayKey> {
+
+    // from inclusive, to exclusive
+    @Query("SELECT r FROM AccountDailyRollup r WHERE r.accountId = :accountId "
+            + "AND r.txnDate >= :from AND r.txnDate < :to ORDER BY r.txnDate")
+    List<AccountDailyRollup> findRange(@Param("accountId") Integer accountId,
+                                       @Param("from") LocalDate from, @Param("to") LocalDate to);
+}
@@ -1,10 +1,39 @@
 package com.pblGEHU.Custlysis.repository;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pblGEHU.Custlysis.entity.Account;
 
 @Repository
-public interface AccountRepository extends JpaRepository<Account, Integer> {
-}
\ No newline at end of file
+public interface AccountRepository extends JpaRepository<Account, Integer>, JpaSpecificationExecutor<Account> {
+
+    // customerId, total balance, account count and distinct account types of non-dormant accounts
+    @Query("SELECT a.customerId, SUM(a.balance), COUNT(a.accountType), COUNT(DISTINCT a.accountType) "
+            + "FROM Account a WHERE a.dormantFlag = false AND a.customerId IS NOT NULL GROUP BY a.customerId")
+    List<Object[]> aggregateActiveAccountsByCustomer();
+
+    @Query("SELECT a.customerId, SUM(a.balance), COUNT(a.accountType), COUNT(DISTINCT a.accountType) "
+            + "FROM Account a WHERE a.dormantFlag = false AND a.customerId IN :ids GROUP BY a.customerId")
+    List<Object[]> aggregateActiveAccountsByCustomerIds(@Param("ids") Collection<Integer> ids);
+
+    List<Account> findByCustomerIdOrderByAccountId(Integer customerId);
+
+    // accountId, customerId, accountType, balance, dormantFlag for every account
+    @Query("SELECT a.accountId, a.customerId, a.accountType, a.balance, a.dormantFlag FROM Account a")
+    List<Object[]> findStateRows();
+
+    @Query("SELECT a.accountId, a.customerId, a.accountType, a.balance, a.dormantFlag FROM Account a "
+            + "WHERE a.accountId IN :ids")
+    List<Object[]> findStateRowsByIds(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT a.accountId, a.customerId, a.accountType, a.balance, a.dormantFlag FROM Account a "
+            + "WHERE a.customerId IN :ids")
+    List<Object[]> findStateRowsByCustomerIds(@Param("ids") Collection<Integer> ids);
+}
@@ -0,0 +1,7 @@
+package com.pblGEHU.Custlysis.repository;
+
+import com.pblGEHU.Custlysis.entity.BatchJobCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface BatchJobCheckpointRepository extends JpaRepository<BatchJobCheckpoint, String> {
+}
@@ -1,7 +1,14 @@
 package com.pblGEHU.Custlysis.repository;
 
 import com.pblGEHU.Custlysis.entity.CampaignResponse;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
-public interface CampaignResponseRepository extends JpaRepository<CampaignResponse, Integer> {
+import java.util.List;
+
+public interface CampaignResponseRepository extends JpaRepository<CampaignResponse, Integer>, JpaSpecificationExecutor<CampaignResponse> {
+
+    // Newest first
+    List<CampaignResponse> findByCustomer_CustomerIdOrderByResponseIdDesc(Integer customerId, Limit limit);
 }
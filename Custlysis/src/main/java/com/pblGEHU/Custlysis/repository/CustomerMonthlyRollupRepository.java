@@ -0,0 +1,20 @@
+package com.pblGEHU.Custlysis.repository;
+
+import com.pblGEHU.Custlysis.entity.CustomerMonthKey;
+import com.pblGEHU.Custlysis.entity.CustomerMonthlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface CustomerMonthlyRollupRepository extends JpaRepository<CustomerMonthlyRollup, CustomerMonthKey> {
+
+    List<CustomerMonthlyRollup> findByCustomerId(Integer customerId);
+
+    // Months as year * 100 + month; from inclusive, to exclusive
+    @Query("SELECT r FROM CustomerMonthlyRollup r WHERE r.customerId = :customerId "
+            + "AND r.txnMonth >= :from AND r.txnMonth < :to ORDER BY r.txnMonth")
+    List<CustomerMonthlyRollup> findRange(@Param("customerId") Integer customerId,
+                                          @Param("from") int from, @Param("to") int to);
+}
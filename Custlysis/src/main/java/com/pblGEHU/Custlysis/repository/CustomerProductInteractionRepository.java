@@ -2,6 +2,11 @@ package com.pblGEHU.Custlysis.repository;
 
 import com.pblGEHU.Custlysis.entity.CustomerProductInteraction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
-public interface CustomerProductInteractionRepository extends JpaRepository<CustomerProductInteraction, Integer> {
+import java.util.List;
+
+public interface CustomerProductInteractionRepository extends JpaRepository<CustomerProductInteraction, Integer>, JpaSpecificationExecutor<CustomerProductInteraction> {
+
+    List<CustomerProductInteraction> findByCustomer_CustomerIdAndIsActiveTrue(Integer customerId);
 }
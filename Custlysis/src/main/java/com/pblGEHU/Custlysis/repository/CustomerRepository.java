@@ -1,10 +1,26 @@
 package com.pblGEHU.Custlysis.repository;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pblGEHU.Custlysis.entity.Customer;
 
 @Repository
-public interface CustomerRepository extends JpaRepository<Customer, Integer> {
-}
\ No newline at end of file
+public interface CustomerRepository extends JpaRepository<Customer, Integer>, JpaSpecificationExecutor<Customer> {
+
+    // Columns used by the segmentation features, without hydrating Customer entities
+    @Query("SELECT c.customerId, c.dob, c.tenureDays, c.digitalScore, c.churnRiskScore, "
+            + "c.incomeBracket, c.riskProfile, c.geoCluster FROM Customer c ORDER BY c.customerId")
+    List<Object[]> findFeatureRows();
+
+    @Query("SELECT c.customerId, c.dob, c.tenureDays, c.digitalScore, c.churnRiskScore, "
+            + "c.incomeBracket, c.riskProfile, c.geoCluster FROM Customer c "
+            + "WHERE c.customerId IN :ids ORDER BY c.customerId")
+    List<Object[]> findFeatureRowsByIds(@Param("ids") Collection<Integer> ids);
+}
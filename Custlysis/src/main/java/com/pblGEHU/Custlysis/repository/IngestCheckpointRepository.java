@@ -0,0 +1,7 @@
+package com.pblGEHU.Custlysis.repository;
+
+import com.pblGEHU.Custlysis.entity.IngestCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface IngestCheckpointRepository extends JpaRepository<IngestCheckpoint, String> {
+}
@@ -1,10 +1,28 @@
 package com.pblGEHU.Custlysis.repository;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import com.pblGEHU.Custlysis.entity.Product;
 
+import java.util.function.Function;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Integer> {
-}
\ No newline at end of file
+public interface ProductRepository extends JpaRepository<Product, Integer>, JpaSpecificationExecutor<Product> {
+
+    // Catalog pages are served from the query cache; Hibernate invalidates it on any product write
+    @Override
+    @QueryHints({
+        @QueryHint(name = HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HINT_CACHE_REGION, value = "product-queries")
+    })
+    <S extends Product, R> R findBy(Specification<Product> spec,
+                                    Function<? super SpecificationFluentQuery<S>, R> queryFunction);
+}
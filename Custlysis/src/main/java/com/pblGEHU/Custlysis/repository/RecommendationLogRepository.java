@@ -1,7 +1,38 @@
 package com.pblGEHU.Custlysis.repository;
 
+import com.pblGEHU.Custlysis.dto.RecommendationDTO;
 import com.pblGEHU.Custlysis.entity.RecommendationLog;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface RecommendationLogRepository extends JpaRepository<RecommendationLog, Integer> {
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+public interface RecommendationLogRepository extends JpaRepository<RecommendationLog, Integer>, JpaSpecificationExecutor<RecommendationLog> {
+
+    List<RecommendationLog> findByCustomer_CustomerId(Integer customerId);
+
+    // Newest first
+    List<RecommendationLog> findByCustomer_CustomerIdOrderByRecIdDesc(Integer customerId, Limit limit);
+
+    // One row per log with customer, product and the customer's latest segment label, ordered by recId.
+    // Labels assigned at the same instant are tied by the highest segmentId, so each log joins one label.
+    // Fetch size MIN_VALUE makes MySQL Connector/J stream rows instead of buffering the result set.
+    @Query("SELECT new com.pblGEHU.Custlysis.dto.RecommendationDTO("
+            + "r.recId, c.customerId, c.name, sl.segmentName, p.productId, p.name, p.category, r.score) "
+            + "FROM RecommendationLog r LEFT JOIN r.customer c LEFT JOIN r.product p "
+            + "LEFT JOIN SegmentationLabel sl ON sl.customerId = c.customerId "
+            + "AND sl.assignedOn = (SELECT MAX(s2.assignedOn) FROM SegmentationLabel s2 WHERE s2.customerId = c.customerId) "
+            + "AND sl.segmentId = (SELECT MAX(s3.segmentId) FROM SegmentationLabel s3 "
+            + "WHERE s3.customerId = c.customerId AND s3.assignedOn = sl.assignedOn) "
+            + "WHERE r.recId > :afterId ORDER BY r.recId")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    Stream<RecommendationDTO> streamDetailed(@Param("afterId") Integer afterId, Limit limit);
 }
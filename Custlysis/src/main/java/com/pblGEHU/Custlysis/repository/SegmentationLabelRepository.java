@@ -4,5 +4,9 @@ import com.pblGEHU.Custlysis.entity.SegmentationLabel;
 import com.pblGEHU.Custlysis.entity.SegmentKey;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
+
 public interface SegmentationLabelRepository extends JpaRepository<SegmentationLabel, SegmentKey> {
+
+    List<SegmentationLabel> findByCustomerId(Integer customerId);
 }
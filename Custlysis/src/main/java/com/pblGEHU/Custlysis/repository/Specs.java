@@ -0,0 +1,84 @@
+package com.pblGEHU.Custlysis.repository;
+
+import com.pblGEHU.Custlysis.entity.SegmentationLabel;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Small building blocks for list filters. Every factory returns null when the filter
+ * value is absent, which Specification.allOf skips. Attribute names may be dotted
+ * paths such as "customer.customerId".
+ */
+public final class Specs {
+
+    private Specs() {
+    }
+
+    public static <T> Specification<T> equal(String attribute, Object value) {
+        if (value == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(path(root, attribute), value);
+    }
+
+    public static <T> Specification<T> likeIgnoreCase(String attribute, String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String pattern = "%" + value.toLowerCase().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (root, query, cb) -> cb.like(cb.lower(path(root, attribute)), pattern, '\\');
+    }
+
+    public static <T, Y extends Comparable<? super Y>> Specification<T> atLeast(String attribute, Y value) {
+        if (value == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(path(root, attribute), value);
+    }
+
+    public static <T, Y extends Comparable<? super Y>> Specification<T> before(String attribute, Y value) {
+        if (value == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.lessThan(path(root, attribute), value);
+    }
+
+    public static <T, Y extends Comparable<? super Y>> Specification<T> atMost(String attribute, Y value) {
+        if (value == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.lessThanOrEqualTo(path(root, attribute), value);
+    }
+
+    /**
+     * Rows whose customer holds a label in the given segment (matched on id or name),
+     * restricted to one model version when given
+     */
+    public static <T> Specification<T> inSegment(String customerIdAttribute, String segment, String modelVersion) {
+        if (segment == null || segment.isBlank()) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            Subquery<Integer> labelled = query.subquery(Integer.class);
+            Root<SegmentationLabel> label = labelled.from(SegmentationLabel.class);
+            Predicate matches = cb.or(cb.equal(label.get("segmentId"), segment), cb.equal(label.get("segmentName"), segment));
+            if (modelVersion != null) {
+                matches = cb.and(matches, cb.equal(label.get("modelVersion"), modelVersion));
+            }
+            labelled.select(label.get("customerId")).where(matches);
+            return path(root, customerIdAttribute).in(labelled);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    static <Y> Path<Y> path(Root<?> root, String attribute) {
+        Path<?> path = root;
+        for (String part : attribute.split("\\.")) {
+            path = path.get(part);
+        }
+        return (Path<Y>) path;
+    }
+}
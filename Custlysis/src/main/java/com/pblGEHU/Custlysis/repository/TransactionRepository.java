@@ -1,10 +1,49 @@
 package com.pblGEHU.Custlysis.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pblGEHU.Custlysis.entity.Transactions;
 
 @Repository
-public interface TransactionRepository extends JpaRepository<Transactions, Integer> {
-}
\ No newline at end of file
+public interface TransactionRepository extends JpaRepository<Transactions, Integer>, JpaSpecificationExecutor<Transactions> {
+
+    // customerId, transaction count and mean absolute amount since the given time
+    @Query("SELECT a.customerId, COUNT(t), AVG(ABS(t.amount)) FROM Transactions t "
+            + "JOIN Account a ON a.accountId = t.accountId "
+            + "WHERE t.timestamp >= :since AND a.customerId IS NOT NULL GROUP BY a.customerId")
+    List<Object[]> aggregateByCustomerSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT a.customerId, COUNT(t), AVG(ABS(t.amount)) FROM Transactions t "
+            + "JOIN Account a ON a.accountId = t.accountId "
+            + "WHERE t.timestamp >= :since AND a.customerId IN :ids GROUP BY a.customerId")
+    List<Object[]> aggregateByCustomerIdsSince(@Param("ids") Collection<Integer> ids,
+                                               @Param("since") LocalDateTime since);
+
+    // A customer's transactions with txnId below the keyset cursor, newest first
+    @Query("SELECT t FROM Transactions t WHERE t.accountId IN "
+            + "(SELECT a.accountId FROM Account a WHERE a.customerId = :customerId) "
+            + "AND t.txnId < :before ORDER BY t.txnId DESC")
+    List<Transactions> findByCustomerBefore(@Param("customerId") Integer customerId,
+                                            @Param("before") Integer before, Limit limit);
+
+    // accountId, year, month, transaction count, count of non-null amounts and sum of absolute amounts
+    @Query("SELECT t.accountId, YEAR(t.timestamp), MONTH(t.timestamp), COUNT(t), COUNT(t.amount), SUM(ABS(t.amount)) "
+            + "FROM Transactions t WHERE t.timestamp >= :since AND t.accountId IS NOT NULL "
+            + "GROUP BY t.accountId, YEAR(t.timestamp), MONTH(t.timestamp)")
+    List<Object[]> aggregateByAccountAndMonthSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT t.accountId, YEAR(t.timestamp), MONTH(t.timestamp), COUNT(t), COUNT(t.amount), SUM(ABS(t.amount)) "
+            + "FROM Transactions t WHERE t.timestamp >= :since AND t.accountId IN :ids "
+            + "GROUP BY t.accountId, YEAR(t.timestamp), MONTH(t.timestamp)")
+    List<Object[]> aggregateByAccountIdsAndMonthSince(@Param("ids") Collection<Integer> ids,
+                                                      @Param("since") LocalDateTime since);
+}
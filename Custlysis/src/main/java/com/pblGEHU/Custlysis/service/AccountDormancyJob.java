@@ -0,0 +1,387 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.dto.DormancyJobStatus;
+import com.pblGEHU.Custlysis.entity.Account;
+import com.pblGEHU.Custlysis.entity.BatchJobCheckpoint;
+import com.pblGEHU.Custlysis.event.AccountChangedEvent;
+import com.pblGEHU.Custlysis.repository.AccountRepository;
+import com.pblGEHU.Custlysis.repository.BatchJobCheckpointRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Batch job that recomputes {@code account.last_active_date} from the newest transaction and
+ * sets {@code dormant_flag} when that is older than the inactivity threshold for the account
+ * type, clearing it otherwise. Accounts are processed in id-range partitions on a worker pool,
+ * each partition in its own short database transaction writing only the rows that changed.
+ * The highest id below which every partition has finished is checkpointed, so a run that is
+ * interrupted resumes from there; partitions are idempotent, so redoing one is harmless.
+ */
+@Service
+public class AccountDormancyJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountDormancyJob.class);
+    private static final String JOB = "account-dormancy";
+
+    // Only rows still as read are written, so a concurrent edit through the API is not overwritten
+    private static final String UPDATE_SQL = "UPDATE account SET last_active_date = ?, dormant_flag = ? "
+        + "WHERE account_id = ? AND last_active_date <=> ? AND dormant_flag <=> ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private BatchJobCheckpointRepository checkpoints;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${custlysis.dormancy.enabled:true}")
+    private boolean enabled;
+
+    @Value("${custlysis.dormancy.inactive-days:365}")
+    private int inactiveDays;
+
+    // Per account type overrides, e.g. "Current:180,Savings:365"
+    @Value("${custlysis.dormancy.inactive-days-by-type:}")
+    private String inactiveDaysByType;
+
+    @Value("${custlysis.dormancy.parallelism:4}")
+    private int parallelism;
+
+    @Value("${custlysis.dormancy.partition-size:10000}")
+    private int partitionSize;
+
+    @Value("${custlysis.dormancy.batch-size:1000}")
+    private int batchSize;
+
+    private final Map<String, Integer> thresholds = new HashMap<>();
+    private ExecutorService workers;
+    private Run current;
+    private Run last;
+
+    @PostConstruct
+    void start() {
+        for (String entry : inactiveDaysByType.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length == 2) {
+                thresholds.put(parts[0].trim().toLowerCase(Locale.ROOT), Integer.parseInt(parts[1].trim()));
+            }
+        }
+        AtomicInteger threads = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(Math.max(1, parallelism), task -> {
+            Thread thread = new Thread(task, "account-dormancy-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        workers.shutdownNow();
+    }
+
+    // An interrupted run carries on after a restart rather than waiting for the next schedule
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        if (enabled && checkpoints.existsById(JOB)) {
+            logger.info("Resuming interrupted account dormancy run from its checkpoint");
+            submit();
+        }
+    }
+
+    @Scheduled(cron = "${custlysis.dormancy.cron:0 0 5 * * *}")
+    public void scheduledRun() {
+        if (enabled) {
+            submit();
+        }
+    }
+
+    /**
+     * Start a run in the background, resuming from the checkpoint if the last one did not
+     * finish. Returns the status of the new run, or of the one already in progress.
+     */
+    public synchronized DormancyJobStatus submit() {
+        if (current == null) {
+            Run run = new Run();
+            current = run;
+            Thread coordinator = new Thread(() -> execute(run), JOB);
+            coordinator.setDaemon(true);
+            coordinator.start();
+        }
+        return current.status();
+    }
+
+    /**
+     * Status of the run in progress, else of the last finished one; null if none has run
+     */
+    public synchronized DormancyJobStatus status() {
+        Run run = current != null ? current : last;
+        return run != null ? run.status() : null;
+    }
+
+    private void execute(Run run) {
+        try {
+            BatchJobCheckpoint checkpoint = checkpoints.findById(JOB).orElse(null);
+            Integer low;
+            if (checkpoint != null) {
+                run.asOf = checkpoint.getAsOf();
+                low = checkpoint.getLastId() + 1;
+                run.resumedFrom = low;
+            } else {
+                low = jdbcTemplate.queryForObject("SELECT MIN(account_id) FROM account", Integer.class);
+                if (low != null) {
+                    checkpoints.save(new BatchJobCheckpoint(JOB, low - 1, run.asOf, LocalDateTime.now()));
+                }
+            }
+            Integer high = jdbcTemplate.queryForObject("SELECT MAX(account_id) FROM account", Integer.class);
+            if (low == null || high == null || low > high) {
+                checkpoints.deleteById(JOB);
+                return;
+            }
+            run.checkpoint = low - 1;
+
+            List<Future<?>> tasks = new ArrayList<>();
+            long step = Math.max(1, partitionSize);
+            for (long from = low; from <= high; from += step) {
+                int start = (int) from;
+                int end = (int) Math.min(high, from + step - 1);
+                run.partitions++;
+                tasks.add(workers.submit(() -> {
+                    processPartition(run, start, end);
+                    partitionDone(run, start, end);
+                }));
+            }
+            List<String> failures = new ArrayList<>();
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause().getMessage());
+                }
+            }
+            if (!failures.isEmpty()) {
+                run.error = failures.size() + " partitions failed, the next run resumes from account "
+                    + (run.checkpoint + 1) + ": " + failures.get(0);
+                logger.warn("Account dormancy run incomplete: {}", run.error);
+                return;
+            }
+            checkpoints.deleteById(JOB);
+            logger.info("Account dormancy run finished in {} ms: {} accounts in {} partitions, {} updated "
+                    + "({} marked dormant, {} reactivated)", System.currentTimeMillis() - run.startedMillis,
+                run.scanned.sum(), run.partitions, run.updated.sum(), run.markedDormant.sum(), run.reactivated.sum());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.error = "interrupted";
+        } catch (RuntimeException e) {
+            run.error = e.getMessage();
+            logger.error("Account dormancy run failed", e);
+        } finally {
+            synchronized (this) {
+                run.finishedAt = LocalDateTime.now();
+                last = run;
+                current = null;
+            }
+        }
+    }
+
+    // The later of the stored date and the newest transaction, so the date never moves backwards
+    static LocalDateTime lastActive(Timestamp stored, Timestamp lastTxn) {
+        if (lastTxn == null || (stored != null && stored.after(lastTxn))) {
+            return stored != null ? stored.toLocalDateTime() : null;
+        }
+        return lastTxn.toLocalDateTime();
+    }
+
+    // Read the accounts of one id range with their newest transaction and write back what changed
+    private void processPartition(Run run, int from, int to) {
+        List<Change> changes = new ArrayList<>();
+        jdbcTemplate.query("SELECT a.account_id, a.account_type, a.last_active_date, a.dormant_flag, t.last_txn "
+                + "FROM account a LEFT JOIN (SELECT account_id, MAX(timestamp) AS last_txn FROM transactions "
+                + "WHERE account_id BETWEEN ? AND ? GROUP BY account_id) t ON t.account_id = a.account_id "
+                + "WHERE a.account_id BETWEEN ? AND ?",
+            rs -> {
+                run.scanned.increment();
+                Timestamp stored = rs.getTimestamp(3);
+                Boolean dormant = rs.getObject(4, Boolean.class);
+                Timestamp lastTxn = rs.getTimestamp(5);
+                LocalDateTime lastActive = lastActive(stored, lastTxn);
+                // Without any activity on record there is nothing to judge dormancy by
+                Boolean nowDormant = lastActive == null ? dormant
+                    : lastActive.isBefore(run.asOf.minusDays(thresholdFor(rs.getString(2))));
+                LocalDateTime previous = stored != null ? stored.toLocalDateTime() : null;
+                if (!Objects.equals(previous, lastActive) || !Objects.equals(dormant, nowDormant)) {
+                    changes.add(new Change(rs.getInt(1), previous, dormant, lastActive, nowDormant));
+                }
+            }, from, to, from, to);
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        List<Change> applied = new ArrayList<>(changes.size());
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int start = 0; start < changes.size(); start += batchSize) {
+                List<Change> batch = changes.subList(start, Math.min(changes.size(), start + batchSize));
+                int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, batch.stream().map(change -> new Object[]{
+                    timestamp(change.lastActive), change.dormant, change.accountId,
+                    timestamp(change.previousLastActive), change.previousDormant}).toList());
+                List<Change> unknown = new ArrayList<>();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] > 0) {
+                        applied.add(batch.get(i));
+                    } else if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                        unknown.add(batch.get(i));
+                    }
+                }
+                applied.addAll(verify(unknown));
+            }
+        });
+
+        for (Change change : applied) {
+            run.updated.increment();
+            if (!Boolean.TRUE.equals(change.previousDormant) && Boolean.TRUE.equals(change.dormant)) {
+                run.markedDormant.increment();
+            } else if (Boolean.TRUE.equals(change.previousDormant) && Boolean.FALSE.equals(change.dormant)) {
+                run.reactivated.increment();
+            }
+        }
+        publish(applied);
+    }
+
+    /**
+     * Changes whose rows now hold the written values. With rewriteBatchedStatements the driver
+     * can report SUCCESS_NO_INFO instead of a row count, which also covers rows skipped because
+     * a concurrent edit changed them first. Runs inside the partition's transaction, where the
+     * rows this job did update are still locked.
+     */
+    private List<Change> verify(List<Change> unknown) {
+        if (unknown.isEmpty()) {
+            return unknown;
+        }
+        Map<Integer, Change> byId = unknown.stream().collect(Collectors.toMap(change -> change.accountId, Function.identity()));
+        StringJoiner placeholders = new StringJoiner(", ", "(", ")");
+        unknown.forEach(change -> placeholders.add("?"));
+        List<Change> written = new ArrayList<>(unknown.size());
+        jdbcTemplate.query("SELECT account_id, last_active_date, dormant_flag FROM account WHERE account_id IN "
+                + placeholders, rs -> {
+            Change change = byId.get(rs.getInt(1));
+            Timestamp lastActive = rs.getTimestamp(2);
+            if (Objects.equals(lastActive != null ? lastActive.toLocalDateTime() : null, change.lastActive)
+                    && Objects.equals(rs.getObject(3, Boolean.class), change.dormant)) {
+                written.add(change);
+            }
+        }, byId.keySet().toArray());
+        return written;
+    }
+
+    // Let the in-memory views (dashboard, features, churn scores) see the changed accounts
+    private void publish(List<Change> applied) {
+        if (applied.isEmpty()) {
+            return;
+        }
+        Map<Integer, Change> byId = applied.stream().collect(Collectors.toMap(change -> change.accountId, Function.identity()));
+        for (Account after : accountRepository.findAllById(byId.keySet())) {
+            Change change = byId.get(after.getAccountId());
+            Account before = after.toBuilder()
+                .lastActiveDate(change.previousLastActive)
+                .dormantFlag(change.previousDormant)
+                .build();
+            eventPublisher.publishEvent(new AccountChangedEvent(before, after));
+        }
+    }
+
+    // Advance the checkpoint over every partition finished contiguously from the start
+    private void partitionDone(Run run, int from, int to) {
+        synchronized (run) {
+            run.finished.put(from, to);
+            run.partitionsDone++;
+            boolean advanced = false;
+            Integer end;
+            while ((end = run.finished.remove(run.checkpoint + 1)) != null) {
+                run.checkpoint = end;
+                advanced = true;
+            }
+            if (advanced) {
+                checkpoints.save(new BatchJobCheckpoint(JOB, run.checkpoint, run.asOf, LocalDateTime.now()));
+            }
+        }
+    }
+
+    private int thresholdFor(String accountType) {
+        return accountType == null ? inactiveDays
+            : thresholds.getOrDefault(accountType.toLowerCase(Locale.ROOT), inactiveDays);
+    }
+
+    private static Timestamp timestamp(LocalDateTime time) {
+        return time != null ? Timestamp.valueOf(time) : null;
+    }
+
+    private record Change(int accountId, LocalDateTime previousLastActive, Boolean previousDormant,
+                          LocalDateTime lastActive, Boolean dormant) {
+    }
+
+    /**
+     * Progress of one run; counters are updated by the worker threads
+     */
+    private static final class Run {
+        final long startedMillis = System.currentTimeMillis();
+        final LocalDateTime startedAt = LocalDateTime.now();
+        volatile LocalDateTime asOf = startedAt;
+        volatile Integer resumedFrom;
+        volatile LocalDateTime finishedAt;
+        volatile String error;
+        volatile int partitions;
+        // Guarded by the run's monitor: finished partitions not yet covered by the checkpoint
+        final TreeMap<Integer, Integer> finished = new TreeMap<>();
+        int checkpoint;
+        int partitionsDone;
+        final LongAdder scanned = new LongAdder();
+        final LongAdder updated = new LongAdder();
+        final LongAdder markedDormant = new LongAdder();
+        final LongAdder reactivated = new LongAdder();
+
+        DormancyJobStatus status() {
+            synchronized (this) {
+                return new DormancyJobStatus(finishedAt == null, asOf, startedAt, finishedAt, resumedFrom, checkpoint,
+                    partitions, partitionsDone, scanned.sum(), updated.sum(), markedDormant.sum(), reactivated.sum(), error);
+            }
+        }
+    }
+}
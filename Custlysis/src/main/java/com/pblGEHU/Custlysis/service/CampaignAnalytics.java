@@ -0,0 +1,434 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.dto.CampaignMetrics;
+import com.pblGEHU.Custlysis.entity.CampaignResponse;
+import com.pblGEHU.Custlysis.entity.SegmentationLabel;
+import com.pblGEHU.Custlysis.event.CampaignResponseChangedEvent;
+import com.pblGEHU.Custlysis.util.IntObjectHashMap;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Campaign performance per campaign × channel × product × customer segment, kept as daily
+ * cells so dashboards never scan campaign_response. The cells are built in one streaming
+ * pass over the table and then maintained from response writes; totals, tumbling windows
+ * and rolling windows are all folded from them. A customer's segment is their current one
+ * when the response is counted, so the cells are rebuilt after training. Each response id
+ * remembers the values it was counted with, so an update or delete is taken out of the
+ * cell it was added to even if the customer's segment has changed since.
+ */
+@Service
+public class CampaignAnalytics {
+
+    private static final Logger logger = LoggerFactory.getLogger(CampaignAnalytics.class);
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+    // Day bucket for responses without a timestamp: counted in all-time totals only
+    private static final int NO_DAY = Integer.MIN_VALUE;
+
+    public static final String UNASSIGNED = "Unassigned";
+    public static final String UNKNOWN = "Unknown";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CustomerSegmentIndex segmentIndex;
+
+    @Value("${custlysis.campaigns.converted-responses:Converted,Accepted,Purchased}")
+    private Set<String> convertedResponses;
+
+    // Response values that count as a conversion, lower-cased
+    private Set<String> conversions;
+
+    @Value("${custlysis.startup-load.enabled:true}")
+    private boolean startupLoad;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Table table;
+
+    private final SnapshotRebuild<Table> rebuilds = new SnapshotRebuild<>(lock);
+
+    @PostConstruct
+    void init() {
+        conversions = new HashSet<>();
+        convertedResponses.forEach(value -> conversions.add(value.trim().toLowerCase()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!startupLoad) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.warn("Could not build campaign analytics; retrying on first request: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${custlysis.campaigns.analytics.rebuild-cron:0 0 3 * * *}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.warn("Campaign analytics rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recompute every cell in one streaming pass over campaign_response and swap them in
+     */
+    public void rebuild() {
+        rebuilds.run(() -> {
+            long started = System.currentTimeMillis();
+            Table fresh = new Table();
+            // Segments come from the index; without it every row would look its label up in the database
+            if (!segmentIndex.isReady()) {
+                segmentIndex.rebuild();
+                if (!segmentIndex.isReady()) {
+                    throw new NotReadyException("Customer segment index is still loading");
+                }
+            }
+            long rows = jdbcTemplate.query((Connection connection) -> {
+                PreparedStatement statement = connection.prepareStatement(
+                    "SELECT response_id, campaign_id, channel, product_id, customer_id, response, conversion_score, "
+                        + "timestamp FROM campaign_response", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(STREAMING_FETCH_SIZE);
+                return statement;
+            }, (ResultSet rs) -> {
+                long count = 0;
+                while (rs.next()) {
+                    Timestamp timestamp = rs.getTimestamp(8);
+                    fresh.put(rs.getInt(1), new Response(
+                        (Integer) rs.getObject(2), rs.getString(3), (Integer) rs.getObject(4),
+                        segmentOf((Integer) rs.getObject(5)), rs.getString(6), rs.getBigDecimal(7),
+                        timestamp != null ? timestamp.toLocalDateTime() : null));
+                    count++;
+                }
+                return count;
+            });
+            logger.info("Campaign analytics built from {} responses into {} groups in {} ms", rows, fresh.cells.size(),
+                System.currentTimeMillis() - started);
+            return fresh;
+        }, fresh -> table = fresh);
+    }
+
+    /**
+     * Apply a committed write. The previous values are taken from what the response id was
+     * counted with, not from the event, so replaying a write the rebuild already read is a no-op.
+     */
+    @EventListener
+    public void onResponseChanged(CampaignResponseChangedEvent event) {
+        CampaignResponse changed = event.getAfter() != null ? event.getAfter() : event.getBefore();
+        if (changed == null || changed.getResponseId() == null) {
+            return;
+        }
+        int responseId = changed.getResponseId();
+        Response after = toResponse(event.getAfter());
+        lock.writeLock().lock();
+        try {
+            Consumer<Table> change = target -> {
+                target.remove(responseId);
+                if (after != null) {
+                    target.put(responseId, after);
+                }
+            };
+            if (table != null) {
+                change.accept(table);
+            }
+            rebuilds.record(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * One row per campaign, channel, product and segment matching the filters (null matches
+     * anything), over [from, to) or all time when both are null
+     */
+    public List<CampaignMetrics> totals(Integer campaignId, String channel, Integer productId, String segment,
+                                        LocalDate from, LocalDate to) {
+        List<CampaignMetrics> result = new ArrayList<>();
+        read(all -> all.forEach((dimensions, days) -> {
+            if (!dimensions.matches(campaignId, channel, productId, segment)) {
+                return;
+            }
+            Cell total = new Cell();
+            range(days, from, to).values().forEach(cell -> total.merge(cell, 1));
+            if (total.responses > 0) {
+                result.add(total.toMetrics(dimensions.campaignId, dimensions.channel, dimensions.productId,
+                    dimensions.segment, null, null));
+            }
+        }));
+        result.sort(Comparator.comparing(CampaignMetrics::getCampaignId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(CampaignMetrics::getChannel, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(CampaignMetrics::getProductId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(CampaignMetrics::getSegment, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return result;
+    }
+
+    /**
+     * Time series over [from, to) for everything matching the filters. Tumbling windows are
+     * consecutive, non-overlapping spans of {@code windowDays} starting at {@code from} (the
+     * last may be shorter); rolling windows span the {@code windowDays} days before each day
+     * boundary from {@code from + windowDays} to {@code to}.
+     */
+    public List<CampaignMetrics> windows(Integer campaignId, String channel, Integer productId, String segment,
+                                         LocalDate from, LocalDate to, int windowDays, boolean rolling) {
+        TreeMap<Integer, Cell> daily = new TreeMap<>();
+        read(all -> all.forEach((dimensions, days) -> {
+            if (dimensions.matches(campaignId, channel, productId, segment)) {
+                range(days, from, to).forEach((day, cell) -> daily.computeIfAbsent(day, d -> new Cell()).merge(cell, 1));
+            }
+        }));
+
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        List<CampaignMetrics> result = new ArrayList<>();
+        if (!rolling) {
+            for (int start = fromDay; start < toDay; start += windowDays) {
+                int end = Math.min(start + windowDays, toDay);
+                Cell window = new Cell();
+                daily.subMap(start, end).values().forEach(cell -> window.merge(cell, 1));
+                result.add(window.toMetrics(campaignId, channel, productId, segment,
+                    LocalDate.ofEpochDay(start), LocalDate.ofEpochDay(end)));
+            }
+            return result;
+        }
+
+        // Slide one day at a time: add the day entering the window, subtract the one leaving it
+        Cell window = new Cell();
+        daily.subMap(fromDay, fromDay + windowDays).values().forEach(cell -> window.merge(cell, 1));
+        for (int end = fromDay + windowDays; end <= toDay; end++) {
+            if (end > fromDay + windowDays) {
+                merge(window, daily.get(end - 1), 1);
+                merge(window, daily.get(end - 1 - windowDays), -1);
+            }
+            result.add(window.toMetrics(campaignId, channel, productId, segment,
+                LocalDate.ofEpochDay(end - windowDays), LocalDate.ofEpochDay(end)));
+        }
+        return result;
+    }
+
+    private void read(Consumer<Map<Dimensions, TreeMap<Integer, Cell>>> reader) {
+        lock.readLock().lock();
+        try {
+            if (table != null) {
+                reader.accept(table.cells);
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        rebuild();
+        lock.readLock().lock();
+        try {
+            // Null when another caller's rebuild is still reading the table
+            if (table == null) {
+                throw new NotReadyException("Campaign analytics are still loading");
+            }
+            reader.accept(table.cells);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static NavigableMap<Integer, Cell> range(TreeMap<Integer, Cell> days, LocalDate from, LocalDate to) {
+        if (from == null && to == null) {
+            return days;
+        }
+        int fromDay = from != null ? (int) from.toEpochDay() : NO_DAY + 1;
+        int toDay = to != null ? (int) to.toEpochDay() : Integer.MAX_VALUE;
+        return days.subMap(fromDay, true, toDay, false);
+    }
+
+    private static void merge(Cell target, Cell cell, int sign) {
+        if (cell != null) {
+            target.merge(cell, sign);
+        }
+    }
+
+    private boolean isConversion(String response) {
+        return response != null && conversions.contains(response.trim().toLowerCase());
+    }
+
+    private Response toResponse(CampaignResponse response) {
+        if (response == null) {
+            return null;
+        }
+        return new Response(response.getCampaignId(), response.getChannel(),
+            response.getProduct() != null ? response.getProduct().getProductId() : null,
+            segmentOf(response.getCustomer() != null ? response.getCustomer().getCustomerId() : null),
+            response.getResponse(), response.getConversionScore(), response.getTimestamp());
+    }
+
+    private String segmentOf(Integer customerId) {
+        SegmentationLabel label = customerId != null ? segmentIndex.get(customerId) : null;
+        if (label == null) {
+            return UNASSIGNED;
+        }
+        return label.getSegmentName() != null ? label.getSegmentName() : label.getSegmentId();
+    }
+
+    /**
+     * Daily cells plus, per response id, the values that response was counted with
+     */
+    private final class Table {
+        private final Map<Dimensions, TreeMap<Integer, Cell>> cells = new HashMap<>();
+        private final IntObjectHashMap<Response> counted = new IntObjectHashMap<>();
+
+        void put(int responseId, Response response) {
+            Response previous = counted.put(responseId, response);
+            if (previous != null) {
+                add(previous, -1);
+            }
+            add(response, 1);
+        }
+
+        void remove(int responseId) {
+            Response previous = counted.remove(responseId);
+            if (previous != null) {
+                add(previous, -1);
+            }
+        }
+
+        private void add(Response response, int sign) {
+            Dimensions dimensions = new Dimensions(response.campaignId, response.channel, response.productId, response.segment);
+            TreeMap<Integer, Cell> days = cells.computeIfAbsent(dimensions, d -> new TreeMap<>());
+            int day = response.timestamp != null ? (int) response.timestamp.toLocalDate().toEpochDay() : NO_DAY;
+            Cell cell = days.computeIfAbsent(day, d -> new Cell());
+            cell.add(response.response, response.conversionScore, isConversion(response.response), sign);
+            if (cell.responses <= 0) {
+                days.remove(day);
+                if (days.isEmpty()) {
+                    cells.remove(dimensions);
+                }
+            }
+        }
+    }
+
+    private static final class Response {
+        private final Integer campaignId;
+        private final String channel;
+        private final Integer productId;
+        private final String segment;
+        private final String response;
+        private final BigDecimal conversionScore;
+        private final LocalDateTime timestamp;
+
+        Response(Integer campaignId, String channel, Integer productId, String segment, String response,
+                 BigDecimal conversionScore, LocalDateTime timestamp) {
+            this.campaignId = campaignId;
+            this.channel = channel == null || channel.isBlank() ? UNKNOWN : channel;
+            this.productId = productId;
+            this.segment = segment;
+            this.response = response == null || response.isBlank() ? UNKNOWN : response;
+            this.conversionScore = conversionScore;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static final class Dimensions {
+        private final Integer campaignId;
+        private final String channel;
+        private final Integer productId;
+        private final String segment;
+
+        Dimensions(Integer campaignId, String channel, Integer productId, String segment) {
+            this.campaignId = campaignId;
+            this.channel = channel;
+            this.productId = productId;
+            this.segment = segment;
+        }
+
+        boolean matches(Integer campaignId, String channel, Integer productId, String segment) {
+            return (campaignId == null || campaignId.equals(this.campaignId))
+                && (channel == null || channel.equalsIgnoreCase(this.channel))
+                && (productId == null || productId.equals(this.productId))
+                && (segment == null || segment.equalsIgnoreCase(this.segment));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Dimensions other)) {
+                return false;
+            }
+            return Objects.equals(campaignId, other.campaignId) && channel.equals(other.channel)
+                && Objects.equals(productId, other.productId) && segment.equals(other.segment);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(campaignId, channel, productId, segment);
+        }
+    }
+
+    /**
+     * Response counts and conversion-score sum for one group and span of days
+     */
+    private static final class Cell {
+        private long responses;
+        private long conversions;
+        private long scored;
+        private BigDecimal scoreSum = BigDecimal.ZERO;
+        private final Map<String, Long> breakdown = new TreeMap<>();
+
+        void add(String response, BigDecimal score, boolean conversion, int sign) {
+            responses += sign;
+            if (conversion) {
+                conversions += sign;
+            }
+            if (score != null) {
+                scored += sign;
+                scoreSum = sign > 0 ? scoreSum.add(score) : scoreSum.subtract(score);
+            }
+            breakdown.merge(response, (long) sign, (a, b) -> a + b == 0 ? null : a + b);
+        }
+
+        void merge(Cell other, int sign) {
+            responses += sign * other.responses;
+            conversions += sign * other.conversions;
+            scored += sign * other.scored;
+            scoreSum = sign > 0 ? scoreSum.add(other.scoreSum) : scoreSum.subtract(other.scoreSum);
+            other.breakdown.forEach((response, count) ->
+                breakdown.merge(response, sign * count, (a, b) -> a + b == 0 ? null : a + b));
+        }
+
+        CampaignMetrics toMetrics(Integer campaignId, String channel, Integer productId, String segment,
+                                  LocalDate windowStart, LocalDate windowEnd) {
+            double rate = responses > 0 ? conversions * 100.0 / responses : 0;
+            BigDecimal avgScore = scored > 0 ? scoreSum.divide(BigDecimal.valueOf(scored), 2, RoundingMode.HALF_UP) : null;
+            return new CampaignMetrics(campaignId, channel, productId, segment, windowStart, windowEnd,
+                responses, conversions, rate, avgScore, new TreeMap<>(breakdown));
+        }
+    }
+}
@@ -0,0 +1,636 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.entity.Account;
+import com.pblGEHU.Custlysis.entity.Transactions;
+import com.pblGEHU.Custlysis.event.AccountChangedEvent;
+import com.pblGEHU.Custlysis.event.TransactionChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recomputes {@code customer.churn_risk_score} (0-100) whenever an account or transaction is
+ * written. Each customer keeps two exponentially decayed transaction counters (recent and
+ * baseline activity), a decayed average of their total balance, and their accounts' dormancy
+ * flags and last-active dates. A write rescores only the customers it touches; changed scores
+ * are coalesced per customer and flushed to the database in batches on a short interval.
+ */
+@Service
+public class ChurnRiskScorer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChurnRiskScorer.class);
+    private static final double SECONDS_PER_DAY = 86400;
+    private static final long NEVER = Long.MIN_VALUE;
+
+    // Component weights; each component is in [0, 1]
+    private static final double ACTIVITY_DROP_WEIGHT = 0.35;
+    private static final double RECENCY_WEIGHT = 0.25;
+    private static final double DORMANCY_WEIGHT = 0.25;
+    private static final double BALANCE_DECLINE_WEIGHT = 0.15;
+
+    private static final String UPDATE_SQL = "UPDATE customer SET churn_risk_score = ? WHERE customer_id = ?";
+    private static final int IN_CLAUSE_CHUNK = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CustomerFeatureStore featureStore;
+
+    @Value("${custlysis.churn.enabled:true}")
+    private boolean enabled;
+
+    @Value("${custlysis.churn.recent-half-life-days:7}")
+    private double recentHalfLifeDays;
+
+    @Value("${custlysis.churn.baseline-half-life-days:90}")
+    private double baselineHalfLifeDays;
+
+    @Value("${custlysis.churn.balance-half-life-days:30}")
+    private double balanceHalfLifeDays;
+
+    @Value("${custlysis.churn.inactive-days:90}")
+    private double inactiveDays;
+
+    @Value("${custlysis.churn.history-days:365}")
+    private int historyDays;
+
+    @Value("${custlysis.churn.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    // Decay rates per second, from the half-lives
+    private double recentRate;
+    private double baselineRate;
+    private double balanceRate;
+
+    private volatile Map<Integer, CustomerActivity> customers = new ConcurrentHashMap<>();
+    // accountId → owning customer and status, to attribute transactions
+    private volatile Map<Integer, AccountStatus> accounts = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // Latest unflushed score per customer; rescoring the same customer again replaces it
+    private final Map<Integer, BigDecimal> dirty = new ConcurrentHashMap<>();
+
+    // Ids written while a rebuild reads the database; their state is re-read before the swap
+    private final Object loadLock = new Object();
+    private boolean loading;
+    private Set<Integer> touchedCustomers = new HashSet<>();
+    private Set<Integer> touchedAccounts = new HashSet<>();
+
+    @PostConstruct
+    void init() {
+        recentRate = Math.log(2) / (recentHalfLifeDays * SECONDS_PER_DAY);
+        baselineRate = Math.log(2) / (baselineHalfLifeDays * SECONDS_PER_DAY);
+        balanceRate = Math.log(2) / (balanceHalfLifeDays * SECONDS_PER_DAY);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread loader = new Thread(this::load, "churn-scorer-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Reload state from the database and rescore every customer, so dormancy and decay that
+     * accrue without any write (and writes made outside the API) reach the stored scores
+     */
+    @Scheduled(cron = "${custlysis.churn.rescore-cron:0 15 3 * * *}")
+    public void scheduledRescore() {
+        if (enabled && load()) {
+            int changed = rescoreAll();
+            logger.info("Nightly churn rescoring queued {} changed scores", changed);
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * Rescore every known customer; returns how many scores changed and were queued for flushing
+     */
+    public int rescoreAll() {
+        int changed = 0;
+        for (Integer customerId : customers.keySet()) {
+            if (rescore(customerId)) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Current churn risk of a customer from in-memory state, or null if the customer is unknown
+     */
+    public BigDecimal score(int customerId) {
+        CustomerActivity activity = customers.get(customerId);
+        if (activity == null) {
+            return null;
+        }
+        synchronized (activity) {
+            return score(activity, nowSeconds());
+        }
+    }
+
+    @EventListener
+    public void onAccountChanged(AccountChangedEvent event) {
+        Account before = event.getBefore();
+        Account after = event.getAfter();
+        int accountId = after != null ? after.getAccountId() : before.getAccountId();
+        submit(() -> {
+            AccountStatus next = after != null ? new AccountStatus(after) : null;
+            AccountStatus previous = next != null ? accounts.put(accountId, next) : accounts.remove(accountId);
+            long now = nowSeconds();
+
+            Set<Integer> touched = new LinkedHashSet<>(2);
+            if (previous != null && previous.customerId != null) {
+                CustomerActivity activity = customers.get(previous.customerId);
+                if (activity != null) {
+                    synchronized (activity) {
+                        activity.removeAccount(accountId, now, balanceRate);
+                    }
+                    touched.add(previous.customerId);
+                }
+            }
+            if (next != null && next.customerId != null) {
+                CustomerActivity activity = customers.computeIfAbsent(next.customerId, id -> new CustomerActivity());
+                synchronized (activity) {
+                    activity.putAccount(accountId, next, now, balanceRate);
+                }
+                touched.add(next.customerId);
+            }
+            touched.forEach(this::rescore);
+        }, ids(before != null ? before.getCustomerId() : null, after != null ? after.getCustomerId() : null),
+            ids(accountId));
+    }
+
+    @EventListener
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        Transactions before = event.getBefore();
+        Transactions after = event.getAfter();
+        submit(() -> {
+            Set<Integer> touched = new LinkedHashSet<>(2);
+            applyTransaction(before, -1, touched);
+            applyTransaction(after, 1, touched);
+            touched.forEach(this::rescore);
+        }, ids(), ids(before != null ? before.getAccountId() : null, after != null ? after.getAccountId() : null));
+    }
+
+    /**
+     * Write queued scores with batched UPDATEs. Each customer is written at most once per
+     * flush however many events touched it since the last one.
+     */
+    @Scheduled(fixedDelayString = "${custlysis.churn.flush-interval-ms:5000}")
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>();
+        for (Integer customerId : dirty.keySet()) {
+            BigDecimal score = dirty.remove(customerId);
+            if (score != null) {
+                batch.add(new Object[]{score, customerId});
+            }
+        }
+        int written = 0;
+        for (int from = 0; from < batch.size(); from += flushBatchSize) {
+            List<Object[]> chunk = batch.subList(from, Math.min(batch.size(), from + flushBatchSize));
+            try {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, chunk);
+            } catch (RuntimeException e) {
+                // Requeue unless a newer score arrived meanwhile; the next flush retries
+                chunk.forEach(row -> dirty.putIfAbsent((Integer) row[1], (BigDecimal) row[0]));
+                logger.warn("Churn score flush failed for {} customers: {}", chunk.size(), e.getMessage());
+                continue;
+            }
+            chunk.forEach(row -> featureStore.onChurnRiskScored((Integer) row[1], ((BigDecimal) row[0]).doubleValue()));
+            written += chunk.size();
+        }
+        logger.debug("Flushed {} churn risk scores", written);
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warn("Final churn score flush failed: {}", e.getMessage());
+        }
+    }
+
+    private void applyTransaction(Transactions txn, int sign, Set<Integer> touched) {
+        if (txn == null || txn.getAccountId() == null) {
+            return;
+        }
+        AccountStatus account = accounts.get(txn.getAccountId());
+        if (account == null || account.customerId == null) {
+            return;
+        }
+        CustomerActivity activity = customers.computeIfAbsent(account.customerId, id -> new CustomerActivity());
+        long at = txn.getTimestamp() != null ? epochSeconds(txn.getTimestamp()) : nowSeconds();
+        synchronized (activity) {
+            activity.addActivity(at, sign, recentRate, baselineRate);
+        }
+        touched.add(account.customerId);
+    }
+
+    // Queue the customer's score for flushing if it differs from the last one queued or stored
+    private boolean rescore(int customerId) {
+        CustomerActivity activity = customers.get(customerId);
+        if (activity == null) {
+            return false;
+        }
+        BigDecimal score;
+        synchronized (activity) {
+            // Nothing to judge a customer by until they hold an account or transact
+            if (activity.accounts.isEmpty() && activity.activityAt == NEVER) {
+                return false;
+            }
+            score = score(activity, nowSeconds());
+            if (activity.lastScore != null && activity.lastScore.compareTo(score) == 0) {
+                return false;
+            }
+            activity.lastScore = score;
+        }
+        dirty.put(customerId, score);
+        return true;
+    }
+
+    private BigDecimal score(CustomerActivity activity, long now) {
+        // Steady activity keeps recent/baseline in proportion to their half-lives; a drop below it is risk
+        double recent = activity.recentActivity * decay(recentRate, now - activity.activityAt);
+        double baseline = activity.baselineActivity * decay(baselineRate, now - activity.activityAt);
+        double activityDrop = baseline * baselineRate < 1e-12 ? 1
+            : clamp(1 - (recent * recentRate) / (baseline * baselineRate));
+
+        long lastActive = activity.lastActiveAt();
+        double recency = lastActive == NEVER ? 1
+            : clamp((now - lastActive) / (inactiveDays * SECONDS_PER_DAY));
+
+        double dormancy = activity.accounts.isEmpty() ? 0
+            : (double) activity.dormantAccounts() / activity.accounts.size();
+
+        double averageBalance = activity.averageBalance(now, balanceRate);
+        double balanceDecline = averageBalance <= 0 ? 0
+            : clamp((averageBalance - activity.balance) / Math.max(averageBalance, 1));
+
+        double risk = ACTIVITY_DROP_WEIGHT * activityDrop + RECENCY_WEIGHT * recency
+            + DORMANCY_WEIGHT * dormancy + BALANCE_DECLINE_WEIGHT * balanceDecline;
+        return BigDecimal.valueOf(risk * 100).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private boolean load() {
+        synchronized (loadLock) {
+            if (loading) {
+                return false;
+            }
+            loading = true;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            long now = nowSeconds();
+            Map<Integer, CustomerActivity> freshCustomers = new ConcurrentHashMap<>();
+            Map<Integer, AccountStatus> freshAccounts = new ConcurrentHashMap<>();
+
+            jdbcTemplate.query("SELECT customer_id, churn_risk_score FROM customer", rs -> {
+                CustomerActivity activity = new CustomerActivity();
+                BigDecimal stored = rs.getBigDecimal(2);
+                activity.lastScore = stored != null ? stored.setScale(2, RoundingMode.HALF_UP) : null;
+                freshCustomers.put(rs.getInt(1), activity);
+            });
+            jdbcTemplate.query("SELECT account_id, customer_id, balance, dormant_flag, last_active_date FROM account", rs -> {
+                Timestamp lastActive = rs.getTimestamp(5);
+                AccountStatus account = new AccountStatus((Integer) rs.getObject(2), rs.getBigDecimal(3),
+                    rs.getObject(4, Boolean.class), lastActive != null ? lastActive.toLocalDateTime() : null);
+                freshAccounts.put(rs.getInt(1), account);
+                if (account.customerId != null) {
+                    freshCustomers.computeIfAbsent(account.customerId, id -> new CustomerActivity())
+                        .loadAccount(rs.getInt(1), account);
+                }
+            });
+            jdbcTemplate.query("SELECT account_id, CAST(timestamp AS DATE), COUNT(*) FROM transactions "
+                    + "WHERE timestamp >= ? GROUP BY account_id, CAST(timestamp AS DATE)",
+                rs -> {
+                    AccountStatus account = freshAccounts.get(rs.getInt(1));
+                    Date day = rs.getDate(2);
+                    if (account == null || account.customerId == null || day == null) {
+                        return;
+                    }
+                    // A day's transactions count at noon; close enough against half-lives of days
+                    long at = epochSeconds(day.toLocalDate().atTime(12, 0));
+                    freshCustomers.get(account.customerId).addActivity(at, rs.getLong(3), recentRate, baselineRate);
+                },
+                Timestamp.valueOf(LocalDateTime.now().minusDays(historyDays)));
+            // The nightly reload must not reset the balance history the decline is measured against
+            Map<Integer, CustomerActivity> previous = customers;
+            freshCustomers.forEach((customerId, activity) ->
+                activity.startBalanceAverage(previous.get(customerId), now, balanceRate));
+
+            // Writes keep being deferred until a reload round finds nothing new touched
+            Set<Integer> reloaded = new HashSet<>();
+            while (true) {
+                Set<Integer> customerIds;
+                Set<Integer> accountIds;
+                synchronized (loadLock) {
+                    if (touchedCustomers.isEmpty() && touchedAccounts.isEmpty()) {
+                        customers = freshCustomers;
+                        accounts = freshAccounts;
+                        ready = true;
+                        loading = false;
+                        break;
+                    }
+                    customerIds = touchedCustomers;
+                    accountIds = touchedAccounts;
+                    touchedCustomers = new HashSet<>();
+                    touchedAccounts = new HashSet<>();
+                }
+                reloaded.addAll(reload(freshCustomers, freshAccounts, customerIds, accountIds));
+            }
+            reloaded.forEach(this::rescore);
+            logger.info("Churn risk state loaded for {} customers and {} accounts in {} ms",
+                freshCustomers.size(), freshAccounts.size(), System.currentTimeMillis() - started);
+            return true;
+        } catch (RuntimeException e) {
+            synchronized (loadLock) {
+                loading = false;
+                touchedCustomers.clear();
+                touchedAccounts.clear();
+            }
+            logger.error("Churn risk state load failed; scores are not updated until the next load", e);
+            return false;
+        }
+    }
+
+    /**
+     * Replace the state of the given customers, and of every customer owning or having owned
+     * one of the given accounts, with what the database holds now. Runs while writes are still
+     * deferred and before the swap, so nothing else sees or mutates the fresh maps. Returns the
+     * customers it reloaded.
+     */
+    private Set<Integer> reload(Map<Integer, CustomerActivity> freshCustomers, Map<Integer, AccountStatus> freshAccounts,
+                                Set<Integer> customerIds, Set<Integer> accountIds) {
+        Set<Integer> affected = new HashSet<>(customerIds);
+        for (List<Integer> chunk : chunks(accountIds)) {
+            chunk.forEach(accountId -> {
+                AccountStatus previous = freshAccounts.remove(accountId);
+                if (previous != null && previous.customerId != null) {
+                    affected.add(previous.customerId);
+                }
+            });
+            jdbcTemplate.query("SELECT customer_id FROM account WHERE account_id IN " + placeholders(chunk)
+                + " AND customer_id IS NOT NULL", rs -> {
+                affected.add(rs.getInt(1));
+            }, chunk.toArray());
+        }
+
+        long now = nowSeconds();
+        Timestamp since = Timestamp.valueOf(LocalDateTime.now().minusDays(historyDays));
+        for (List<Integer> chunk : chunks(affected)) {
+            Map<Integer, CustomerActivity> reloaded = new HashMap<>();
+            jdbcTemplate.query("SELECT customer_id, churn_risk_score FROM customer WHERE customer_id IN "
+                + placeholders(chunk), rs -> {
+                CustomerActivity activity = new CustomerActivity();
+                BigDecimal stored = rs.getBigDecimal(2);
+                activity.lastScore = stored != null ? stored.setScale(2, RoundingMode.HALF_UP) : null;
+                reloaded.put(rs.getInt(1), activity);
+            }, chunk.toArray());
+            jdbcTemplate.query("SELECT account_id, customer_id, balance, dormant_flag, last_active_date FROM account "
+                + "WHERE customer_id IN " + placeholders(chunk), rs -> {
+                Timestamp lastActive = rs.getTimestamp(5);
+                AccountStatus account = new AccountStatus((Integer) rs.getObject(2), rs.getBigDecimal(3),
+                    rs.getObject(4, Boolean.class), lastActive != null ? lastActive.toLocalDateTime() : null);
+                freshAccounts.put(rs.getInt(1), account);
+                reloaded.computeIfAbsent(account.customerId, id -> new CustomerActivity()).loadAccount(rs.getInt(1), account);
+            }, chunk.toArray());
+            List<Object> args = new ArrayList<>(chunk);
+            args.add(since);
+            jdbcTemplate.query("SELECT a.customer_id, CAST(t.timestamp AS DATE), COUNT(*) FROM transactions t "
+                    + "JOIN account a ON a.account_id = t.account_id WHERE a.customer_id IN " + placeholders(chunk)
+                    + " AND t.timestamp >= ? GROUP BY a.customer_id, CAST(t.timestamp AS DATE)", rs -> {
+                CustomerActivity activity = reloaded.get(rs.getInt(1));
+                Date day = rs.getDate(2);
+                if (activity != null && day != null) {
+                    activity.addActivity(epochSeconds(day.toLocalDate().atTime(12, 0)), rs.getLong(3),
+                        recentRate, baselineRate);
+                }
+            }, args.toArray());
+            for (Integer customerId : chunk) {
+                CustomerActivity activity = reloaded.get(customerId);
+                if (activity != null) {
+                    activity.startBalanceAverage(freshCustomers.get(customerId), now, balanceRate);
+                    freshCustomers.put(customerId, activity);
+                } else {
+                    freshCustomers.remove(customerId);
+                }
+            }
+        }
+        return affected;
+    }
+
+    private void submit(Runnable update, Collection<Integer> customerIds, Collection<Integer> accountIds) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loading) {
+                touchedCustomers.addAll(customerIds);
+                touchedAccounts.addAll(accountIds);
+                return;
+            }
+        }
+        if (ready) {
+            update.run();
+        }
+    }
+
+    private static List<Integer> ids(Integer... ids) {
+        List<Integer> present = new ArrayList<>(ids.length);
+        for (Integer id : ids) {
+            if (id != null) {
+                present.add(id);
+            }
+        }
+        return present;
+    }
+
+    private static List<List<Integer>> chunks(Collection<Integer> ids) {
+        List<Integer> all = new ArrayList<>(ids);
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += IN_CLAUSE_CHUNK) {
+            chunks.add(all.subList(from, Math.min(from + IN_CLAUSE_CHUNK, all.size())));
+        }
+        return chunks;
+    }
+
+    private static String placeholders(List<Integer> chunk) {
+        StringJoiner placeholders = new StringJoiner(", ", "(", ")");
+        chunk.forEach(id -> placeholders.add("?"));
+        return placeholders.toString();
+    }
+
+    private static double decay(double rate, long seconds) {
+        return seconds <= 0 ? 1 : Math.exp(-rate * seconds);
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0, Math.min(1, value));
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private static long epochSeconds(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private static final class AccountStatus {
+        final Integer customerId;
+        final double balance;
+        final boolean dormant;
+        final long lastActiveAt;
+
+        AccountStatus(Account account) {
+            this(account.getCustomerId(), account.getBalance(), account.getDormantFlag(), account.getLastActiveDate());
+        }
+
+        AccountStatus(Integer customerId, BigDecimal balance, Boolean dormantFlag, LocalDateTime lastActiveDate) {
+            this.customerId = customerId;
+            this.balance = balance != null ? balance.doubleValue() : 0;
+            this.dormant = Boolean.TRUE.equals(dormantFlag);
+            this.lastActiveAt = lastActiveDate != null ? epochSeconds(lastActiveDate) : NEVER;
+        }
+    }
+
+    /**
+     * Per-customer scoring state; guarded by its own monitor
+     */
+    private static final class CustomerActivity {
+        // Decayed transaction counts, both anchored at activityAt
+        double recentActivity;
+        double baselineActivity;
+        long activityAt = NEVER;
+        long lastTransactionAt = NEVER;
+
+        final Map<Integer, AccountStatus> accounts = new HashMap<>(4);
+        double balance;
+        // Time-decayed average of past total balance, as of balanceAt
+        double balanceAverage;
+        long balanceAt = NEVER;
+
+        BigDecimal lastScore;
+
+        void addActivity(long at, double weight, double recentRate, double baselineRate) {
+            if (activityAt == NEVER || at > activityAt) {
+                long elapsed = activityAt == NEVER ? 0 : at - activityAt;
+                recentActivity = recentActivity * decay(recentRate, elapsed) + weight;
+                baselineActivity = baselineActivity * decay(baselineRate, elapsed) + weight;
+                activityAt = at;
+            } else {
+                recentActivity += weight * decay(recentRate, activityAt - at);
+                baselineActivity += weight * decay(baselineRate, activityAt - at);
+            }
+            // Removing a transaction can round a counter slightly below zero
+            recentActivity = Math.max(0, recentActivity);
+            baselineActivity = Math.max(0, baselineActivity);
+            if (weight > 0) {
+                lastTransactionAt = Math.max(lastTransactionAt, at);
+            }
+        }
+
+        void loadAccount(int accountId, AccountStatus account) {
+            accounts.put(accountId, account);
+            balance += account.balance;
+        }
+
+        // Continues the average of the customer's previous state up to now; only a customer
+        // with no balance history yet starts at the current total
+        void startBalanceAverage(CustomerActivity previous, long now, double balanceRate) {
+            if (previous != null) {
+                synchronized (previous) {
+                    if (previous.balanceAt != NEVER) {
+                        balanceAverage = previous.averageBalance(now, balanceRate);
+                        balanceAt = now;
+                        return;
+                    }
+                }
+            }
+            balanceAverage = balance;
+            balanceAt = now;
+        }
+
+        void putAccount(int accountId, AccountStatus account, long now, double balanceRate) {
+            AccountStatus previous = accounts.put(accountId, account);
+            setBalance(balance - (previous != null ? previous.balance : 0) + account.balance, now, balanceRate);
+        }
+
+        void removeAccount(int accountId, long now, double balanceRate) {
+            AccountStatus previous = accounts.remove(accountId);
+            if (previous != null) {
+                setBalance(balance - previous.balance, now, balanceRate);
+            }
+        }
+
+        private void setBalance(double total, long now, double balanceRate) {
+            // A customer's first balance has no history to decline from
+            balanceAverage = balanceAt == NEVER ? total : averageBalance(now, balanceRate);
+            balanceAt = now;
+            balance = total;
+        }
+
+        // The average moves towards the balance held since balanceAt at the balance half-life
+        double averageBalance(long now, double rate) {
+            if (balanceAt == NEVER) {
+                return balance;
+            }
+            return balance + (balanceAverage - balance) * decay(rate, now - balanceAt);
+        }
+
+        long lastActiveAt() {
+            long latest = lastTransactionAt;
+            for (AccountStatus account : accounts.values()) {
+                latest = Math.max(latest, account.lastActiveAt);
+            }
+            return latest;
+        }
+
+        int dormantAccounts() {
+            int dormant = 0;
+            for (AccountStatus account : accounts.values()) {
+                if (account.dormant) {
+                    dormant++;
+                }
+            }
+            return dormant;
+        }
+    }
+}
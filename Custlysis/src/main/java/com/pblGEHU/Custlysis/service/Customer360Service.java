@@ -0,0 +1,210 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.dto.Customer360;
+import com.pblGEHU.Custlysis.dto.PageResponse;
+import com.pblGEHU.Custlysis.entity.Transactions;
+import com.pblGEHU.Custlysis.repository.AccountRepository;
+import com.pblGEHU.Custlysis.repository.CampaignResponseRepository;
+import com.pblGEHU.Custlysis.repository.CustomerProductInteractionRepository;
+import com.pblGEHU.Custlysis.repository.CustomerRepository;
+import com.pblGEHU.Custlysis.repository.RecommendationLogRepository;
+import com.pblGEHU.Custlysis.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Assembles the single-customer view from per-customer queries run concurrently on a dedicated,
+ * bounded executor. The response waits at most the latency budget; sections that fail, miss
+ * the budget or find the executor saturated are left null and listed as unavailable, so a slow
+ * table degrades the view instead of holding the request.
+ */
+@Service
+public class Customer360Service {
+
+    private static final Logger logger = LoggerFactory.getLogger(Customer360Service.class);
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private CustomerProductInteractionRepository interactionRepository;
+
+    @Autowired
+    private CampaignResponseRepository campaignResponseRepository;
+
+    @Autowired
+    private RecommendationLogRepository recommendationRepository;
+
+    @Autowired
+    private CustomerSegmentIndex segmentIndex;
+
+    @Autowired
+    private TransactionRollups rollups;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${custlysis.customer360.threads:8}")
+    private int threads;
+
+    // Each section query holds a pooled connection; the executor must leave some for everything else
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Value("${custlysis.customer360.queue:256}")
+    private int queueCapacity;
+
+    @Value("${custlysis.customer360.budget-ms:800}")
+    private long budgetMs;
+
+    // Campaign responses and recommendations returned, newest first
+    @Value("${custlysis.customer360.list-limit:50}")
+    private int listLimit;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        int maxThreads = Math.max(1, connectionPoolSize / 2);
+        if (threads > maxThreads) {
+            logger.warn("custlysis.customer360.threads={} capped at {}, half the connection pool", threads, maxThreads);
+            threads = maxThreads;
+        }
+        AtomicInteger count = new AtomicInteger();
+        // Rejects rather than running on the caller once the queue is full, which would blow the budget
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), task -> {
+                Thread thread = new Thread(task, "customer360-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * The customer's view with the given page of recent transactions, or null if the customer
+     * does not exist. If the profile itself is unavailable the rest is still returned.
+     */
+    public Customer360 load(int customerId, Integer txnCursor, int txnLimit) {
+        long started = System.nanoTime();
+        CompletableFuture<?> profile = section("profile", () -> customerRepository.findById(customerId).orElse(null));
+        CompletableFuture<?> accounts = section("accounts", () -> accountRepository.findByCustomerIdOrderByAccountId(customerId));
+        CompletableFuture<?> transactions = section("recentTransactions", () -> transactions(customerId, txnCursor, txnLimit));
+        CompletableFuture<?> summary = section("transactionSummary", () -> rollups.customerSummary(customerId));
+        CompletableFuture<?> interactions = section("activeInteractions",
+            () -> interactionRepository.findByCustomer_CustomerIdAndIsActiveTrue(customerId));
+        CompletableFuture<?> responses = section("campaignResponses",
+            () -> campaignResponseRepository.findByCustomer_CustomerIdOrderByResponseIdDesc(customerId, Limit.of(listLimit)));
+        CompletableFuture<?> recommendations = section("recommendations",
+            () -> recommendationRepository.findByCustomer_CustomerIdOrderByRecIdDesc(customerId, Limit.of(listLimit)));
+        CompletableFuture<?>[] all = {profile, accounts, transactions, summary, interactions, responses, recommendations};
+
+        try {
+            CompletableFuture.allOf(all).get(budgetMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Each section is judged on its own below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Map<String, String> unavailable = new LinkedHashMap<>();
+        Customer360 view = new Customer360();
+        view.setCustomer(value("profile", profile, unavailable));
+        if (view.getCustomer() == null && !unavailable.containsKey("profile")) {
+            for (CompletableFuture<?> future : all) {
+                future.cancel(false);
+            }
+            return null;
+        }
+        view.setAccounts(value("accounts", accounts, unavailable));
+        view.setRecentTransactions(value("recentTransactions", transactions, unavailable));
+        view.setTransactionSummary(value("transactionSummary", summary, unavailable));
+        // In memory, so it needs no slot on the executor
+        view.setSegment(segmentIndex.get(customerId));
+        view.setActiveInteractions(value("activeInteractions", interactions, unavailable));
+        view.setCampaignResponses(value("campaignResponses", responses, unavailable));
+        view.setRecommendations(value("recommendations", recommendations, unavailable));
+        view.setUnavailable(unavailable);
+        view.setPartial(!unavailable.isEmpty());
+        view.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        if (view.isPartial()) {
+            logger.warn("Customer 360 for {} returned partial after {} ms, unavailable: {}",
+                customerId, view.getElapsedMs(), unavailable);
+        }
+        return view;
+    }
+
+    /**
+     * A page of the customer's transactions, newest first; pass nextCursor back as the cursor
+     */
+    public PageResponse<Transactions> transactions(int customerId, Integer cursor, int limit) {
+        List<Transactions> rows = transactionRepository.findByCustomerBefore(customerId,
+            cursor != null ? cursor : Integer.MAX_VALUE, Limit.of(limit + 1));
+        if (rows.size() <= limit) {
+            return new PageResponse<>(rows, null);
+        }
+        List<Transactions> items = rows.subList(0, limit);
+        return new PageResponse<>(items, items.get(limit - 1).getTxnId());
+    }
+
+    private <T> CompletableFuture<T> section(String name, Supplier<T> query) {
+        long queued = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(query, executor).whenComplete((result, error) ->
+                meterRegistry.timer("custlysis.customer360.section", "section", name, "outcome", error == null ? "ok" : "error")
+                    .record(System.nanoTime() - queued, TimeUnit.NANOSECONDS));
+        } catch (RejectedExecutionException e) {
+            meterRegistry.counter("custlysis.customer360.rejected", "section", name).increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T value(String name, CompletableFuture<?> future, Map<String, String> unavailable) {
+        if (!future.isDone()) {
+            // The query finishes in the background; only its result is dropped
+            future.cancel(false);
+            unavailable.put(name, "timeout");
+            return null;
+        }
+        try {
+            return (T) future.getNow(null);
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            unavailable.put(name, cause instanceof RejectedExecutionException ? "saturated" : "error");
+            logger.warn("Customer 360 section {} failed: {}", name, cause.toString());
+            return null;
+        }
+    }
+}
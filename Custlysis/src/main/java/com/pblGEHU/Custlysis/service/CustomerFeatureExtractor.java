@@ -0,0 +1,266 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.repository.AccountRepository;
+import com.pblGEHU.Custlysis.repository.CustomerRepository;
+import com.pblGEHU.Custlysis.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the 12 segmentation features for every customer, mirroring
+ * FeatureEngineer.extract_features in customer_segmentation_model.py.
+ */
+@Component
+public class CustomerFeatureExtractor {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerFeatureExtractor.class);
+
+    public static final List<String> FEATURE_NAMES = List.of(
+        "age", "tenure_days", "digital_score", "churn_risk_score",
+        "total_balance", "num_accounts", "txn_frequency", "avg_txn_amount",
+        "income_encoded", "risk_encoded", "geo_encoded", "account_diversity"
+    );
+
+    public static final int FEATURE_COUNT = 12;
+
+    static final int AGE = 0;
+    static final int TENURE_DAYS = 1;
+    static final int DIGITAL_SCORE = 2;
+    static final int CHURN_RISK_SCORE = 3;
+    static final int TOTAL_BALANCE = 4;
+    static final int NUM_ACCOUNTS = 5;
+    static final int TXN_FREQUENCY = 6;
+    static final int AVG_TXN_AMOUNT = 7;
+    static final int INCOME_ENCODED = 8;
+    static final int RISK_ENCODED = 9;
+    static final int GEO_ENCODED = 10;
+    static final int ACCOUNT_DIVERSITY = 11;
+
+    /** Transactions are counted over this many trailing months */
+    static final int TXN_WINDOW_MONTHS = 6;
+
+    private static final int IN_CLAUSE_CHUNK = 1000;
+
+    private static final Map<String, Integer> INCOME_ENCODING = Map.ofEntries(
+        Map.entry("₹40K-₹60K", 1), Map.entry("$40K-$60K", 1),
+        Map.entry("₹50K-₹70K", 2), Map.entry("$50K-$70K", 2),
+        Map.entry("₹60K-₹80K", 3), Map.entry("$60K-$80K", 3),
+        Map.entry("₹70K-₹90K", 4), Map.entry("$70K-$90K", 4),
+        Map.entry("₹80K-₹100K", 5), Map.entry("$80K-$100K", 5),
+        Map.entry("₹90K-₹120K", 6), Map.entry("$90K-$120K", 6),
+        Map.entry("₹100K+", 7), Map.entry("$100K+", 7)
+    );
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    public List<Object[]> fetchCustomerRows() {
+        List<Object[]> rows = customerRepository.findFeatureRows();
+        logger.info("Fetched {} customers from database", rows.size());
+        return rows;
+    }
+
+    /**
+     * customerId -> {total_balance, num_accounts, account_diversity} over non-dormant accounts
+     */
+    public Map<Integer, double[]> fetchAccountAggregates() {
+        List<Object[]> rows = accountRepository.aggregateActiveAccountsByCustomer();
+        Map<Integer, double[]> aggregates = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            aggregates.put((Integer) row[0], new double[] {
+                toDouble(row[1], 0), toDouble(row[2], 0), toDouble(row[3], 0)
+            });
+        }
+        logger.info("Fetched account aggregates for {} customers", aggregates.size());
+        return aggregates;
+    }
+
+    /**
+     * customerId -> {txn_count, avg_abs_amount} over the trailing transaction window
+     */
+    public Map<Integer, double[]> fetchTransactionAggregates() {
+        LocalDateTime since = LocalDateTime.now().minusMonths(TXN_WINDOW_MONTHS);
+        List<Object[]> rows = transactionRepository.aggregateByCustomerSince(since);
+        Map<Integer, double[]> aggregates = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            aggregates.put((Integer) row[0], new double[] { toDouble(row[1], 0), toDouble(row[2], 0) });
+        }
+        logger.info("Fetched transaction aggregates for {} customers", aggregates.size());
+        return aggregates;
+    }
+
+    /**
+     * Joins the customer rows with the account and transaction aggregates and imputes
+     * missing values with the column median.
+     */
+    public FeatureMatrix buildMatrix(List<Object[]> customerRows, Map<Integer, double[]> accounts,
+                                     Map<Integer, double[]> transactions) {
+        FeatureMatrix matrix = assemble(customerRows, accounts, transactions);
+        double[] medians = imputeMedians(matrix.getValues(), matrix.getRows(), FEATURE_COUNT);
+        logger.info("Feature extraction complete. Shape: ({}, {})", matrix.getRows(), FEATURE_COUNT);
+        return new FeatureMatrix(matrix.getCustomerIds(), matrix.getValues(), matrix.getRows(), FEATURE_COUNT, medians);
+    }
+
+    public FeatureMatrix extractAll() {
+        return buildMatrix(fetchCustomerRows(), fetchAccountAggregates(), fetchTransactionAggregates());
+    }
+
+    /**
+     * Features for the given customers only, with missing values left as NaN so the
+     * scorer can impute them with the training medians. Unknown ids are skipped.
+     */
+    public FeatureMatrix extractFor(Collection<Integer> customerIds) {
+        List<Object[]> customerRows = new ArrayList<>(customerIds.size());
+        Map<Integer, double[]> accounts = new HashMap<>(customerIds.size() * 2);
+        Map<Integer, double[]> transactions = new HashMap<>(customerIds.size() * 2);
+        LocalDateTime since = LocalDateTime.now().minusMonths(TXN_WINDOW_MONTHS);
+
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(customerIds));
+        for (int from = 0; from < ids.size(); from += IN_CLAUSE_CHUNK) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + IN_CLAUSE_CHUNK, ids.size()));
+            customerRows.addAll(customerRepository.findFeatureRowsByIds(chunk));
+            for (Object[] row : accountRepository.aggregateActiveAccountsByCustomerIds(chunk)) {
+                accounts.put((Integer) row[0], new double[] {
+                    toDouble(row[1], 0), toDouble(row[2], 0), toDouble(row[3], 0)
+                });
+            }
+            for (Object[] row : transactionRepository.aggregateByCustomerIdsSince(chunk, since)) {
+                transactions.put((Integer) row[0], new double[] { toDouble(row[1], 0), toDouble(row[2], 0) });
+            }
+        }
+        return assemble(customerRows, accounts, transactions);
+    }
+
+    private FeatureMatrix assemble(List<Object[]> customerRows, Map<Integer, double[]> accounts,
+                                   Map<Integer, double[]> transactions) {
+        int rows = customerRows.size();
+        int[] ids = new int[rows];
+        double[] values = new double[rows * FEATURE_COUNT];
+        LocalDate today = LocalDate.now();
+
+        for (int i = 0; i < rows; i++) {
+            Object[] row = customerRows.get(i);
+            ids[i] = (Integer) row[0];
+            int base = i * FEATURE_COUNT;
+
+            values[base + AGE] = calculateAge((LocalDate) row[1], today);
+            values[base + TENURE_DAYS] = toDouble(row[2], Double.NaN);
+            values[base + DIGITAL_SCORE] = toDouble(row[3], Double.NaN);
+            values[base + CHURN_RISK_SCORE] = toDouble(row[4], Double.NaN);
+            values[base + INCOME_ENCODED] = encodeIncomeBracket((String) row[5]);
+            values[base + RISK_ENCODED] = encodeRiskProfile((String) row[6]);
+            values[base + GEO_ENCODED] = encodeGeoCluster((String) row[7]);
+
+            double[] account = accounts.get(ids[i]);
+            if (account != null) {
+                values[base + TOTAL_BALANCE] = account[0];
+                values[base + NUM_ACCOUNTS] = account[1];
+                values[base + ACCOUNT_DIVERSITY] = account[2];
+            }
+
+            double[] txn = transactions.get(ids[i]);
+            if (txn != null) {
+                values[base + TXN_FREQUENCY] = txn[0] / TXN_WINDOW_MONTHS;
+                values[base + AVG_TXN_AMOUNT] = txn[1];
+            }
+        }
+
+        return new FeatureMatrix(ids, values, rows, FEATURE_COUNT, null);
+    }
+
+    // Replaces NaN cells with the median of the column's present values
+    static double[] imputeMedians(double[] values, int rows, int columns) {
+        double[] medians = new double[columns];
+        Arrays.fill(medians, Double.NaN);
+        double[] column = new double[rows];
+
+        for (int c = 0; c < columns; c++) {
+            int present = 0;
+            int missing = 0;
+            for (int r = 0; r < rows; r++) {
+                double v = values[r * columns + c];
+                if (Double.isNaN(v)) {
+                    missing++;
+                } else {
+                    column[present++] = v;
+                }
+            }
+            if (missing == 0) {
+                continue;
+            }
+
+            double median = 0;
+            if (present > 0) {
+                Arrays.sort(column, 0, present);
+                median = present % 2 == 1
+                    ? column[present / 2]
+                    : (column[present / 2 - 1] + column[present / 2]) / 2.0;
+            }
+            medians[c] = median;
+            for (int r = 0; r < rows; r++) {
+                if (Double.isNaN(values[r * columns + c])) {
+                    values[r * columns + c] = median;
+                }
+            }
+            logger.warn("Imputed {} missing values in {}", missing, FEATURE_NAMES.get(c));
+        }
+        return medians;
+    }
+
+    static int calculateAge(LocalDate dob, LocalDate today) {
+        if (dob == null) {
+            return 0;
+        }
+        return Period.between(dob, today).getYears();
+    }
+
+    static int encodeIncomeBracket(String income) {
+        // Default to middle bracket
+        return income == null ? 4 : INCOME_ENCODING.getOrDefault(income, 4);
+    }
+
+    static int encodeRiskProfile(String risk) {
+        if ("Low".equals(risk)) {
+            return 1;
+        } else if ("High".equals(risk)) {
+            return 3;
+        }
+        return 2;
+    }
+
+    static int encodeGeoCluster(String geo) {
+        if (geo == null) {
+            return 2;
+        }
+        String geoLower = geo.toLowerCase();
+        if (geoLower.contains("rural")) {
+            return 1;
+        } else if (geoLower.contains("suburban")) {
+            return 2;
+        }
+        return 3;
+    }
+
+    private static double toDouble(Object value, double fallback) {
+        return value instanceof Number ? ((Number) value).doubleValue() : fallback;
+    }
+}
@@ -0,0 +1,779 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.entity.Account;
+import com.pblGEHU.Custlysis.entity.Customer;
+import com.pblGEHU.Custlysis.entity.Transactions;
+import com.pblGEHU.Custlysis.event.AccountChangedEvent;
+import com.pblGEHU.Custlysis.event.CustomerChangedEvent;
+import com.pblGEHU.Custlysis.event.TransactionChangedEvent;
+import com.pblGEHU.Custlysis.repository.AccountRepository;
+import com.pblGEHU.Custlysis.repository.CustomerRepository;
+import com.pblGEHU.Custlysis.repository.TransactionRepository;
+import com.pblGEHU.Custlysis.util.IntObjectHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.pblGEHU.Custlysis.service.CustomerFeatureExtractor.*;
+
+/**
+ * Per-customer segmentation feature vectors kept up to date from account, transaction and
+ * customer writes, so training and scoring read running totals instead of re-aggregating
+ * every table. State lives in int-keyed maps split into lock stripes by id, with separate
+ * stripes for accounts and customers; transaction activity is kept in monthly buckets
+ * covering the feature window.
+ */
+@Service
+public class CustomerFeatureStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerFeatureStore.class);
+    private static final int NO_CUSTOMER = Integer.MIN_VALUE;
+    private static final long NO_DOB = Long.MIN_VALUE;
+    private static final int IN_CLAUSE_CHUNK = 1000;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Value("${custlysis.features.store.enabled:true}")
+    private boolean enabled;
+
+    @Value("${custlysis.features.store.stripes:64}")
+    private int stripeCount;
+
+    private volatile Stripes stripes;
+    private volatile boolean ready;
+
+    // Ids written while a rebuild is reading the database. The snapshot may or may not already
+    // include those writes, so they are reloaded from the database after the swap instead of
+    // having their deltas replayed.
+    private final Object loadLock = new Object();
+    private boolean loading;
+    private Set<Integer> touchedCustomers = new HashSet<>();
+    private Set<Integer> touchedAccounts = new HashSet<>();
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread loader = new Thread(this::rebuild, "feature-store-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Reload every customer from the database, e.g. nightly to absorb writes made outside the API
+     */
+    @Scheduled(cron = "${custlysis.features.store.rebuild-cron:0 30 2 * * *}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loading) {
+                return;
+            }
+            loading = true;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            Stripes fresh = newStripes();
+            loadCustomers(fresh);
+            loadAccounts(fresh);
+            loadTransactions(fresh);
+            stripes = fresh;
+
+            // Writes keep being deferred until a reload round finds nothing new touched
+            while (true) {
+                Set<Integer> customerIds;
+                Set<Integer> accountIds;
+                synchronized (loadLock) {
+                    if (touchedCustomers.isEmpty() && touchedAccounts.isEmpty()) {
+                        ready = true;
+                        loading = false;
+                        break;
+                    }
+                    customerIds = touchedCustomers;
+                    accountIds = touchedAccounts;
+                    touchedCustomers = new HashSet<>();
+                    touchedAccounts = new HashSet<>();
+                }
+                reload(fresh, customerIds, accountIds);
+            }
+            logger.info("Feature store loaded in {} ms", System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            synchronized (loadLock) {
+                loading = false;
+                touchedCustomers.clear();
+                touchedAccounts.clear();
+            }
+            logger.error("Feature store load failed; falling back to database aggregation", e);
+        }
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        Customer after = event.getAfter();
+        int customerId = after != null ? after.getCustomerId() : event.getBefore().getCustomerId();
+        submit(() -> {
+            if (after == null) {
+                removeCustomer(customerId);
+            } else {
+                CustomerStripe stripe = customerStripe(customerId);
+                synchronized (stripe) {
+                    stripe.customer(customerId).setAttributes(after);
+                }
+            }
+        }, ids(customerId), ids());
+    }
+
+    @EventListener
+    public void onAccountChanged(AccountChangedEvent event) {
+        Account before = event.getBefore();
+        Account after = event.getAfter();
+        int accountId = after != null ? after.getAccountId() : before.getAccountId();
+        submit(() -> {
+            AccountStripe accountStripe = accountStripe(accountId);
+            // Lock order is always account stripe then customer stripe
+            synchronized (accountStripe) {
+                AccountState previous = accountStripe.accounts.get(accountId);
+                AccountState next = null;
+                if (after != null) {
+                    next = new AccountState(after);
+                    if (previous != null) {
+                        next.window.addAll(previous.window, 1);
+                    }
+                    accountStripe.accounts.put(accountId, next);
+                } else {
+                    accountStripe.accounts.remove(accountId);
+                }
+                if (previous != null) {
+                    applyAccount(previous, -1);
+                }
+                if (next != null) {
+                    applyAccount(next, 1);
+                }
+            }
+        }, ids(before != null ? before.getCustomerId() : null, after != null ? after.getCustomerId() : null),
+            ids(accountId));
+    }
+
+    @EventListener
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        Transactions before = event.getBefore();
+        Transactions after = event.getAfter();
+        submit(() -> {
+            if (before != null) {
+                applyTransaction(before, -1);
+            }
+            if (after != null) {
+                applyTransaction(after, 1);
+            }
+        }, ids(), ids(before != null ? before.getAccountId() : null, after != null ? after.getAccountId() : null));
+    }
+
+    /**
+     * Churn risk score written to the database outside a customer save (see ChurnRiskScorer)
+     */
+    public void onChurnRiskScored(int customerId, double churnRiskScore) {
+        submit(() -> {
+            CustomerStripe stripe = customerStripe(customerId);
+            synchronized (stripe) {
+                CustomerState state = stripe.customers.get(customerId);
+                if (state != null && state.known) {
+                    state.churnRiskScore = churnRiskScore;
+                }
+            }
+        }, ids(customerId), ids());
+    }
+
+    /**
+     * Feature vector of one customer, or null if the customer is unknown
+     */
+    public double[] features(int customerId) {
+        CustomerStripe stripe = customerStripe(customerId);
+        int currentMonth = monthIndex(YearMonth.now());
+        long today = LocalDate.now().toEpochDay();
+        double oldestShare = oldestMonthShare(today);
+        synchronized (stripe) {
+            CustomerState state = stripe.customers.get(customerId);
+            if (state == null || !state.known) {
+                return null;
+            }
+            double[] vector = new double[FEATURE_COUNT];
+            state.write(vector, 0, currentMonth, today, oldestShare);
+            return vector;
+        }
+    }
+
+    /**
+     * Every known customer in ascending id order, with missing values imputed by column median
+     */
+    public FeatureMatrix snapshot() {
+        CustomerStripe[] current = stripes.customers;
+        int currentMonth = monthIndex(YearMonth.now());
+        long today = LocalDate.now().toEpochDay();
+        double oldestShare = oldestMonthShare(today);
+
+        List<int[]> idChunks = new ArrayList<>(current.length);
+        List<double[]> valueChunks = new ArrayList<>(current.length);
+        int total = 0;
+        for (CustomerStripe stripe : current) {
+            synchronized (stripe) {
+                int[] ids = new int[stripe.customers.size()];
+                double[] values = new double[ids.length * FEATURE_COUNT];
+                int[] count = {0};
+                stripe.customers.forEach((id, state) -> {
+                    if (state.known) {
+                        ids[count[0]] = id;
+                        state.write(values, count[0] * FEATURE_COUNT, currentMonth, today, oldestShare);
+                        count[0]++;
+                    }
+                    return true;
+                });
+                idChunks.add(Arrays.copyOf(ids, count[0]));
+                valueChunks.add(values);
+                total += count[0];
+            }
+        }
+
+        // Order rows by customer id, as the database-backed extraction does
+        long[] order = new long[total];
+        int at = 0;
+        for (int c = 0; c < idChunks.size(); c++) {
+            int[] ids = idChunks.get(c);
+            for (int r = 0; r < ids.length; r++) {
+                order[at++] = ((long) ids[r] << 32) | ((long) c << 20) | r;
+            }
+        }
+        Arrays.sort(order);
+
+        int[] ids = new int[total];
+        double[] values = new double[total * FEATURE_COUNT];
+        for (int i = 0; i < total; i++) {
+            int chunk = (int) ((order[i] >>> 20) & 0xFFF);
+            int row = (int) (order[i] & 0xFFFFF);
+            ids[i] = (int) (order[i] >> 32);
+            System.arraycopy(valueChunks.get(chunk), row * FEATURE_COUNT, values, i * FEATURE_COUNT, FEATURE_COUNT);
+        }
+        double[] medians = imputeMedians(values, total, FEATURE_COUNT);
+        return new FeatureMatrix(ids, values, total, FEATURE_COUNT, medians);
+    }
+
+    /**
+     * Vectors for the given customers in ascending id order; missing values stay NaN
+     */
+    public FeatureMatrix featuresFor(Collection<Integer> customerIds) {
+        TreeSet<Integer> sorted = new TreeSet<>(customerIds);
+        int[] ids = new int[sorted.size()];
+        double[] values = new double[sorted.size() * FEATURE_COUNT];
+        int currentMonth = monthIndex(YearMonth.now());
+        long today = LocalDate.now().toEpochDay();
+        double oldestShare = oldestMonthShare(today);
+
+        int rows = 0;
+        for (Integer customerId : sorted) {
+            if (customerId == null) {
+                continue;
+            }
+            CustomerStripe stripe = customerStripe(customerId);
+            synchronized (stripe) {
+                CustomerState state = stripe.customers.get(customerId);
+                if (state != null && state.known) {
+                    ids[rows] = customerId;
+                    state.write(values, rows * FEATURE_COUNT, currentMonth, today, oldestShare);
+                    rows++;
+                }
+            }
+        }
+        return new FeatureMatrix(Arrays.copyOf(ids, rows), Arrays.copyOf(values, rows * FEATURE_COUNT),
+            rows, FEATURE_COUNT, null);
+    }
+
+    private void submit(Runnable update, Collection<Integer> customerIds, Collection<Integer> accountIds) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loading) {
+                touchedCustomers.addAll(customerIds);
+                touchedAccounts.addAll(accountIds);
+                return;
+            }
+        }
+        if (ready) {
+            update.run();
+        }
+    }
+
+    private static List<Integer> ids(Integer... ids) {
+        List<Integer> present = new ArrayList<>(ids.length);
+        for (Integer id : ids) {
+            if (id != null) {
+                present.add(id);
+            }
+        }
+        return present;
+    }
+
+    /**
+     * Replace the state of the given accounts and customers with what the database holds now.
+     * Runs while writes are still deferred, so nothing else mutates the stripes meanwhile.
+     */
+    private void reload(Stripes target, Set<Integer> customerIds, Set<Integer> accountIds) {
+        // An account's transactions count towards whichever customer owned it before and after
+        for (Integer accountId : accountIds) {
+            AccountState known = target.account(accountId).accounts.get(accountId);
+            if (known != null && known.customerId != NO_CUSTOMER) {
+                customerIds.add(known.customerId);
+            }
+        }
+        Map<Integer, AccountState> fresh = new HashMap<>();
+        for (List<Integer> chunk : chunks(accountIds)) {
+            for (Object[] row : accountRepository.findStateRowsByIds(chunk)) {
+                fresh.put((Integer) row[0], accountState(row));
+            }
+        }
+        fresh.values().forEach(account -> {
+            if (account.customerId != NO_CUSTOMER) {
+                customerIds.add(account.customerId);
+            }
+        });
+        List<Object[]> customerRows = new ArrayList<>();
+        for (List<Integer> chunk : chunks(customerIds)) {
+            customerRows.addAll(customerRepository.findFeatureRowsByIds(chunk));
+            for (Object[] row : accountRepository.findStateRowsByCustomerIds(chunk)) {
+                fresh.put((Integer) row[0], accountState(row));
+            }
+        }
+        YearMonth first = YearMonth.now().minusMonths(TXN_WINDOW_MONTHS);
+        for (List<Integer> chunk : chunks(fresh.keySet())) {
+            for (Object[] row : transactionRepository.aggregateByAccountIdsAndMonthSince(chunk, first.atDay(1).atStartOfDay())) {
+                AccountState account = fresh.get((Integer) row[0]);
+                if (account != null) {
+                    addMonth(account.window, row);
+                }
+            }
+        }
+
+        for (Integer accountId : accountIds) {
+            if (!fresh.containsKey(accountId)) {
+                AccountStripe stripe = target.account(accountId);
+                synchronized (stripe) {
+                    stripe.accounts.remove(accountId);
+                }
+            }
+        }
+        Map<Integer, CustomerState> customers = new HashMap<>();
+        for (Object[] row : customerRows) {
+            CustomerState state = new CustomerState();
+            setAttributes(state, row);
+            customers.put((Integer) row[0], state);
+        }
+        fresh.forEach((accountId, account) -> {
+            AccountStripe stripe = target.account(accountId);
+            synchronized (stripe) {
+                stripe.accounts.put(accountId, account);
+            }
+            if (customerIds.contains(account.customerId)) {
+                CustomerState state = customers.computeIfAbsent(account.customerId, id -> new CustomerState());
+                state.addAccount(account, 1);
+                state.window.addAll(account.window, 1);
+            }
+        });
+        for (Integer customerId : customerIds) {
+            CustomerState state = customers.get(customerId);
+            CustomerStripe stripe = target.customer(customerId);
+            synchronized (stripe) {
+                if (state != null) {
+                    stripe.customers.put(customerId, state);
+                } else {
+                    stripe.customers.remove(customerId);
+                }
+            }
+        }
+        logger.info("Feature store reloaded {} customers and {} accounts written during the load",
+            customerIds.size(), accountIds.size());
+    }
+
+    private static List<List<Integer>> chunks(Collection<Integer> ids) {
+        List<Integer> all = new ArrayList<>(ids);
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += IN_CLAUSE_CHUNK) {
+            chunks.add(all.subList(from, Math.min(from + IN_CLAUSE_CHUNK, all.size())));
+        }
+        return chunks;
+    }
+
+    private void removeCustomer(int customerId) {
+        CustomerStripe stripe = customerStripe(customerId);
+        synchronized (stripe) {
+            CustomerState state = stripe.customers.get(customerId);
+            if (state != null) {
+                state.known = false;
+                if (state.activeAccounts == 0 && state.window.isEmpty()) {
+                    stripe.customers.remove(customerId);
+                }
+            }
+        }
+    }
+
+    private void applyAccount(AccountState account, int sign) {
+        if (account.customerId == NO_CUSTOMER) {
+            return;
+        }
+        CustomerStripe stripe = customerStripe(account.customerId);
+        synchronized (stripe) {
+            CustomerState state = stripe.customer(account.customerId);
+            state.addAccount(account, sign);
+            state.window.addAll(account.window, sign);
+        }
+    }
+
+    private void applyTransaction(Transactions txn, int sign) {
+        if (txn.getAccountId() == null || txn.getTimestamp() == null) {
+            return;
+        }
+        int month = monthIndex(YearMonth.from(txn.getTimestamp()));
+        int amountCount = txn.getAmount() != null ? 1 : 0;
+        double absAmount = txn.getAmount() != null ? txn.getAmount().abs().doubleValue() : 0;
+
+        AccountStripe accountStripe = accountStripe(txn.getAccountId());
+        synchronized (accountStripe) {
+            AccountState account = accountStripe.accounts.get(txn.getAccountId());
+            if (account == null) {
+                return;
+            }
+            account.window.add(month, sign, sign * amountCount, sign * absAmount);
+            if (account.customerId != NO_CUSTOMER) {
+                CustomerStripe customerStripe = customerStripe(account.customerId);
+                synchronized (customerStripe) {
+                    customerStripe.customer(account.customerId).window
+                        .add(month, sign, sign * amountCount, sign * absAmount);
+                }
+            }
+        }
+    }
+
+    private void loadCustomers(Stripes target) {
+        List<Object[]> rows = customerRepository.findFeatureRows();
+        for (Object[] row : rows) {
+            int customerId = (Integer) row[0];
+            setAttributes(target.customer(customerId).customer(customerId), row);
+        }
+        logger.info("Feature store loaded {} customers", rows.size());
+    }
+
+    private void loadAccounts(Stripes target) {
+        List<Object[]> rows = accountRepository.findStateRows();
+        for (Object[] row : rows) {
+            AccountState account = accountState(row);
+            target.account((Integer) row[0]).accounts.put((Integer) row[0], account);
+            if (account.customerId != NO_CUSTOMER) {
+                target.customer(account.customerId).customer(account.customerId).addAccount(account, 1);
+            }
+        }
+        logger.info("Feature store loaded {} accounts", rows.size());
+    }
+
+    private void loadTransactions(Stripes target) {
+        YearMonth first = YearMonth.now().minusMonths(TXN_WINDOW_MONTHS);
+        List<Object[]> rows = transactionRepository.aggregateByAccountAndMonthSince(first.atDay(1).atStartOfDay());
+        for (Object[] row : rows) {
+            int accountId = (Integer) row[0];
+            AccountState account = target.account(accountId).accounts.get(accountId);
+            if (account == null) {
+                continue;
+            }
+            addMonth(account.window, row);
+            if (account.customerId != NO_CUSTOMER) {
+                addMonth(target.customer(account.customerId).customer(account.customerId).window, row);
+            }
+        }
+        logger.info("Feature store loaded {} account-month transaction aggregates", rows.size());
+    }
+
+    // customerId, dob, tenureDays, digitalScore, churnRiskScore, incomeBracket, riskProfile, geoCluster
+    private static void setAttributes(CustomerState state, Object[] row) {
+        state.known = true;
+        state.dobEpochDay = row[1] != null ? ((LocalDate) row[1]).toEpochDay() : NO_DOB;
+        state.tenureDays = toDouble(row[2]);
+        state.digitalScore = toDouble(row[3]);
+        state.churnRiskScore = toDouble(row[4]);
+        state.income = encodeIncomeBracket((String) row[5]);
+        state.risk = encodeRiskProfile((String) row[6]);
+        state.geo = encodeGeoCluster((String) row[7]);
+    }
+
+    // accountId, customerId, accountType, balance, dormantFlag
+    private static AccountState accountState(Object[] row) {
+        return new AccountState((Integer) row[1], (String) row[2], (BigDecimal) row[3], (Boolean) row[4]);
+    }
+
+    // accountId, year, month, count, amountCount, absSum
+    private static void addMonth(MonthlyWindow window, Object[] row) {
+        int month = ((Number) row[1]).intValue() * 12 + ((Number) row[2]).intValue() - 1;
+        double absSum = row[5] != null ? ((Number) row[5]).doubleValue() : 0;
+        window.add(month, ((Number) row[3]).longValue(), ((Number) row[4]).longValue(), absSum);
+    }
+
+    /**
+     * Part of the month the rolling window starts in that lies inside it. The extraction queries
+     * and the Python model count transactions since NOW() - 6 months; monthly buckets cannot
+     * split that month, so its transactions are taken as spread evenly over its days.
+     */
+    static double oldestMonthShare(long today) {
+        LocalDate start = LocalDate.ofEpochDay(today).minusMonths(TXN_WINDOW_MONTHS);
+        return (start.lengthOfMonth() - start.getDayOfMonth() + 1) / (double) start.lengthOfMonth();
+    }
+
+    private Stripes newStripes() {
+        // Power of two; snapshot() packs the stripe index into 12 bits
+        int count = Integer.highestOneBit(Math.min(4096, Math.max(1, stripeCount)) * 2 - 1);
+        return new Stripes(count);
+    }
+
+    private CustomerStripe customerStripe(int customerId) {
+        return stripes.customer(customerId);
+    }
+
+    private AccountStripe accountStripe(int accountId) {
+        return stripes.account(accountId);
+    }
+
+    /**
+     * Stripe index from the high bits of the hash. IntObjectHashMap picks slots from the low
+     * bits of the same hash, so keys sharing a stripe still spread over the whole map.
+     */
+    static int stripeIndex(int id, int stripeCount) {
+        long h = (id * 0x9E3779B9) & 0xFFFFFFFFL;
+        return (int) ((h * stripeCount) >>> 32);
+    }
+
+    static int monthIndex(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    private static double toDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    /**
+     * Customer and account stripes are separate arrays, so the account-then-customer lock
+     * order in the write paths can never form a cycle
+     */
+    private static final class Stripes {
+        final CustomerStripe[] customers;
+        final AccountStripe[] accounts;
+
+        Stripes(int count) {
+            customers = new CustomerStripe[count];
+            accounts = new AccountStripe[count];
+            for (int i = 0; i < count; i++) {
+                customers[i] = new CustomerStripe();
+                accounts[i] = new AccountStripe();
+            }
+        }
+
+        CustomerStripe customer(int customerId) {
+            return customers[stripeIndex(customerId, customers.length)];
+        }
+
+        AccountStripe account(int accountId) {
+            return accounts[stripeIndex(accountId, accounts.length)];
+        }
+    }
+
+    private static final class AccountStripe {
+        final IntObjectHashMap<AccountState> accounts = new IntObjectHashMap<>();
+    }
+
+    private static final class CustomerStripe {
+        final IntObjectHashMap<CustomerState> customers = new IntObjectHashMap<>();
+
+        CustomerState customer(int customerId) {
+            CustomerState state = customers.get(customerId);
+            if (state == null) {
+                state = new CustomerState();
+                customers.put(customerId, state);
+            }
+            return state;
+        }
+    }
+
+    private static final class AccountState {
+        final int customerId;
+        final String accountType;
+        final double balance;
+        // Only accounts explicitly flagged non-dormant count, as in "WHERE dormant_flag = 0"
+        final boolean active;
+        final MonthlyWindow window = new MonthlyWindow();
+
+        AccountState(Account account) {
+            this(account.getCustomerId(), account.getAccountType(), account.getBalance(), account.getDormantFlag());
+        }
+
+        AccountState(Integer customerId, String accountType, BigDecimal balance, Boolean dormantFlag) {
+            this.customerId = customerId != null ? customerId : NO_CUSTOMER;
+            this.accountType = accountType;
+            this.balance = balance != null ? balance.doubleValue() : 0;
+            this.active = Boolean.FALSE.equals(dormantFlag);
+        }
+    }
+
+    private static final class CustomerState {
+        boolean known;
+        long dobEpochDay = NO_DOB;
+        double tenureDays = Double.NaN;
+        double digitalScore = Double.NaN;
+        double churnRiskScore = Double.NaN;
+        int income = 4;
+        int risk = 2;
+        int geo = 2;
+
+        double activeBalance;
+        int activeAccounts;
+        Map<String, Integer> activeTypeCounts;
+        final MonthlyWindow window = new MonthlyWindow();
+
+        void setAttributes(Customer customer) {
+            known = true;
+            dobEpochDay = customer.getDob() != null ? customer.getDob().toEpochDay() : NO_DOB;
+            tenureDays = customer.getTenureDays() != null ? customer.getTenureDays() : Double.NaN;
+            digitalScore = customer.getDigitalScore() != null ? customer.getDigitalScore().doubleValue() : Double.NaN;
+            churnRiskScore = customer.getChurnRiskScore() != null ? customer.getChurnRiskScore().doubleValue() : Double.NaN;
+            income = encodeIncomeBracket(customer.getIncomeBracket());
+            risk = encodeRiskProfile(customer.getRiskProfile());
+            geo = encodeGeoCluster(customer.getGeoCluster());
+        }
+
+        void addAccount(AccountState account, int sign) {
+            if (!account.active) {
+                return;
+            }
+            activeBalance += sign * account.balance;
+            if (account.accountType == null) {
+                return;
+            }
+            activeAccounts += sign;
+            if (activeTypeCounts == null) {
+                activeTypeCounts = new HashMap<>(4);
+            }
+            activeTypeCounts.merge(account.accountType, sign, (a, b) -> a + b == 0 ? null : a + b);
+        }
+
+        void write(double[] out, int offset, int currentMonth, long today, double oldestShare) {
+            out[offset + AGE] = dobEpochDay == NO_DOB ? 0
+                : calculateAge(LocalDate.ofEpochDay(dobEpochDay), LocalDate.ofEpochDay(today));
+            out[offset + TENURE_DAYS] = tenureDays;
+            out[offset + DIGITAL_SCORE] = digitalScore;
+            out[offset + CHURN_RISK_SCORE] = churnRiskScore;
+            out[offset + TOTAL_BALANCE] = activeBalance;
+            out[offset + NUM_ACCOUNTS] = activeAccounts;
+            out[offset + ACCOUNT_DIVERSITY] = activeTypeCounts == null ? 0 : activeTypeCounts.size();
+            out[offset + INCOME_ENCODED] = income;
+            out[offset + RISK_ENCODED] = risk;
+            out[offset + GEO_ENCODED] = geo;
+
+            double count = 0;
+            double amountCount = 0;
+            double absSum = 0;
+            for (int slot = 0; slot < MonthlyWindow.SLOTS; slot++) {
+                double weight = window.weight(slot, currentMonth, oldestShare);
+                if (weight > 0) {
+                    count += weight * window.counts[slot];
+                    amountCount += weight * window.amountCounts[slot];
+                    absSum += weight * window.absSums[slot];
+                }
+            }
+            out[offset + TXN_FREQUENCY] = count / (double) TXN_WINDOW_MONTHS;
+            out[offset + AVG_TXN_AMOUNT] = amountCount > 0 ? absSum / amountCount : 0;
+        }
+    }
+
+    /**
+     * Ring of monthly transaction buckets covering the trailing feature window. A slot is
+     * reused when a newer month maps onto it, which ages out months that left the window.
+     * The extra slot holds the month the rolling window starts in.
+     */
+    private static final class MonthlyWindow {
+        static final int SLOTS = TXN_WINDOW_MONTHS + 1;
+
+        final int[] months = new int[SLOTS];
+        final long[] counts = new long[SLOTS];
+        final long[] amountCounts = new long[SLOTS];
+        final double[] absSums = new double[SLOTS];
+
+        void add(int month, long count, long amountCount, double absSum) {
+            int slot = Math.floorMod(month, SLOTS);
+            if (months[slot] != month) {
+                if (months[slot] > month) {
+                    // Older than what the slot holds, so already outside the window
+                    return;
+                }
+                months[slot] = month;
+                counts[slot] = 0;
+                amountCounts[slot] = 0;
+                absSums[slot] = 0;
+            }
+            counts[slot] += count;
+            amountCounts[slot] += amountCount;
+            absSums[slot] += absSum;
+        }
+
+        void addAll(MonthlyWindow other, int sign) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                if (other.counts[slot] != 0 || other.amountCounts[slot] != 0) {
+                    add(other.months[slot], sign * other.counts[slot], sign * other.amountCounts[slot],
+                        sign * other.absSums[slot]);
+                }
+            }
+        }
+
+        // 1 for the current month and the ones before it in the window, oldestShare for the month it starts in
+        double weight(int slot, int currentMonth, double oldestShare) {
+            if (months[slot] > currentMonth || months[slot] < currentMonth - TXN_WINDOW_MONTHS) {
+                return 0;
+            }
+            return months[slot] == currentMonth - TXN_WINDOW_MONTHS ? oldestShare : 1;
+        }
+
+        boolean isEmpty() {
+            for (long count : counts) {
+                if (count != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
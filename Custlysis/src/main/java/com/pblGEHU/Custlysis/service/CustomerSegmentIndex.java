@@ -0,0 +1,250 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.entity.SegmentationLabel;
+import com.pblGEHU.Custlysis.repository.SegmentationLabelRepository;
+import com.pblGEHU.Custlysis.util.IntObjectHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory customerId → current segment label index, so per-customer segment lookups
+ * don't scan segmentation_label. The current label is the customer's most recently
+ * assigned one. The index is rebuilt in bulk after training and swapped in whole;
+ * single-label writes through the API are applied in place.
+ */
+@Service
+public class CustomerSegmentIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerSegmentIndex.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SegmentationLabelRepository repo;
+
+    @Value("${custlysis.startup-load.enabled:true}")
+    private boolean startupLoad;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private LabelTable labels;
+    private String modelVersion;
+
+    private final SnapshotRebuild<LabelTable> rebuilds = new SnapshotRebuild<>(lock);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!startupLoad) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.warn("Could not build customer segment index; lookups fall back to the database: {}", e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return labels != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reload every label from the database and swap the new index in atomically
+     */
+    public void rebuild() {
+        // Model version of the snapshot being loaded, installed along with it
+        String[] latestVersion = {null};
+        rebuilds.run(() -> {
+            LabelTable fresh = new LabelTable();
+            LocalDateTime[] latestAssigned = {null};
+            latestVersion[0] = null;
+            jdbcTemplate.query("SELECT customer_id, segment_id, segment_name, assigned_on, model_version, segment_score "
+                    + "FROM segmentation_label", rs -> {
+                Timestamp assignedOn = rs.getTimestamp(4);
+                SegmentationLabel label = new SegmentationLabel(rs.getInt(1), rs.getString(2), rs.getString(3),
+                    assignedOn != null ? assignedOn.toLocalDateTime() : null, rs.getString(5), rs.getBigDecimal(6));
+                offer(fresh, label);
+                if (label.getAssignedOn() != null
+                        && (latestAssigned[0] == null || label.getAssignedOn().isAfter(latestAssigned[0]))) {
+                    latestAssigned[0] = label.getAssignedOn();
+                    latestVersion[0] = label.getModelVersion();
+                }
+            });
+            logger.info("Customer segment index built for {} customers (model {})", fresh.size(), latestVersion[0]);
+            return fresh;
+        }, fresh -> {
+            labels = fresh;
+            modelVersion = latestVersion[0];
+        });
+    }
+
+    /**
+     * Current label of a customer, or null if the customer has none.
+     * Returned labels are shared; callers must not modify them.
+     */
+    public SegmentationLabel get(int customerId) {
+        lock.readLock().lock();
+        try {
+            if (labels != null) {
+                return labels.get(customerId);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return latestOf(repo.findByCustomerId(customerId));
+    }
+
+    /**
+     * Model version of the most recent bulk assignment, or null before the first build
+     */
+    public String getModelVersion() {
+        lock.readLock().lock();
+        try {
+            return modelVersion;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of customers whose current label is in each segment, keyed by segment name
+     */
+    public Map<String, Long> segmentSizes() {
+        lock.readLock().lock();
+        try {
+            return labels == null ? Map.of() : new TreeMap<>(labels.segmentSizes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Record a label created or updated through the API
+     */
+    public void onSaved(SegmentationLabel saved) {
+        SegmentationLabel copy = new SegmentationLabel(saved.getCustomerId(), saved.getSegmentId(),
+            saved.getSegmentName(), saved.getAssignedOn(), saved.getModelVersion(), saved.getSegmentScore());
+        apply(index -> {
+            SegmentationLabel current = index.get(copy.getCustomerId());
+            if (current != null && current.getSegmentId().equals(copy.getSegmentId())) {
+                index.put(copy.getCustomerId(), copy);
+            } else {
+                offer(index, copy);
+            }
+        });
+    }
+
+    /**
+     * Record a deleted label; if it was the customer's current one, fall back to their next latest
+     */
+    public void onDeleted(Integer customerId, String segmentId) {
+        if (customerId == null) {
+            return;
+        }
+        SegmentationLabel replacement = latestOf(repo.findByCustomerId(customerId));
+        apply(index -> {
+            SegmentationLabel current = index.get(customerId);
+            if (current != null && current.getSegmentId().equals(segmentId)) {
+                if (replacement != null) {
+                    index.put(customerId, replacement);
+                } else {
+                    index.remove(customerId);
+                }
+            }
+        });
+    }
+
+    private void apply(Consumer<LabelTable> change) {
+        lock.writeLock().lock();
+        try {
+            if (labels != null) {
+                change.accept(labels);
+            }
+            rebuilds.record(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Keep the label if it is newer than the customer's current one
+    private static void offer(LabelTable index, SegmentationLabel label) {
+        SegmentationLabel current = index.get(label.getCustomerId());
+        if (current == null || isNewer(label, current)) {
+            index.put(label.getCustomerId(), label);
+        }
+    }
+
+    // Labels assigned at the same instant are tied by the highest segmentId, as in streamDetailed
+    private static boolean isNewer(SegmentationLabel candidate, SegmentationLabel current) {
+        if (candidate.getAssignedOn() == null) {
+            return false;
+        }
+        if (current.getAssignedOn() == null || candidate.getAssignedOn().isAfter(current.getAssignedOn())) {
+            return true;
+        }
+        return candidate.getAssignedOn().isEqual(current.getAssignedOn())
+            && candidate.getSegmentId().compareTo(current.getSegmentId()) > 0;
+    }
+
+    private static SegmentationLabel latestOf(List<SegmentationLabel> candidates) {
+        SegmentationLabel latest = null;
+        for (SegmentationLabel label : candidates) {
+            if (latest == null || isNewer(label, latest)) {
+                latest = label;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Current label per customer plus the per-segment customer counts derived from it
+     */
+    private static final class LabelTable {
+        private final IntObjectHashMap<SegmentationLabel> byCustomer = new IntObjectHashMap<>();
+        private final Map<String, Long> segmentSizes = new HashMap<>();
+
+        SegmentationLabel get(int customerId) {
+            return byCustomer.get(customerId);
+        }
+
+        void put(int customerId, SegmentationLabel label) {
+            count(byCustomer.put(customerId, label), -1);
+            count(label, 1);
+        }
+
+        void remove(int customerId) {
+            count(byCustomer.remove(customerId), -1);
+        }
+
+        int size() {
+            return byCustomer.size();
+        }
+
+        private void count(SegmentationLabel label, long delta) {
+            if (label != null) {
+                String segment = label.getSegmentName() != null ? label.getSegmentName() : label.getSegmentId();
+                segmentSizes.merge(segment, delta, (a, b) -> a + b == 0 ? null : a + b);
+            }
+        }
+    }
+}
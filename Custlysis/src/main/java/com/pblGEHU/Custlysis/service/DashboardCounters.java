@@ -0,0 +1,219 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.dto.DashboardSummary;
+import com.pblGEHU.Custlysis.dto.DashboardSummary.ChannelVolume;
+import com.pblGEHU.Custlysis.entity.Account;
+import com.pblGEHU.Custlysis.entity.Transactions;
+import com.pblGEHU.Custlysis.event.AccountChangedEvent;
+import com.pblGEHU.Custlysis.event.CustomerChangedEvent;
+import com.pblGEHU.Custlysis.event.ProductChangedEvent;
+import com.pblGEHU.Custlysis.event.TransactionChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dashboard totals kept in memory and updated from entity change events, so the summary
+ * costs the same however large the tables grow. Money is counted in cents to keep the sums
+ * exact. A scheduled reconciliation re-reads the aggregates from the database and folds the
+ * difference into the counters, correcting drift from writes that bypass the API.
+ */
+@Service
+public class DashboardCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardCounters.class);
+    private static final String UNKNOWN_CHANNEL = "Unknown";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CustomerSegmentIndex segmentIndex;
+
+    @Value("${custlysis.startup-load.enabled:true}")
+    private boolean startupLoad;
+
+    private final LongAdder customers = new LongAdder();
+    private final LongAdder accounts = new LongAdder();
+    private final LongAdder activeAccounts = new LongAdder();
+    private final LongAdder products = new LongAdder();
+    private final LongAdder transactions = new LongAdder();
+    private final LongAdder balanceCents = new LongAdder();
+    private final Map<String, ChannelTotals> channels = new ConcurrentHashMap<>();
+    private volatile LocalDateTime reconciledAt;
+
+    public DashboardSummary summary() {
+        long accountCount = accounts.sum();
+        BigDecimal totalBalance = BigDecimal.valueOf(balanceCents.sum(), 2);
+        BigDecimal avgBalance = accountCount == 0 ? BigDecimal.ZERO.setScale(2)
+            : totalBalance.divide(BigDecimal.valueOf(accountCount), 2, RoundingMode.HALF_UP);
+
+        Map<String, ChannelVolume> byChannel = new TreeMap<>();
+        channels.forEach((channel, totals) -> {
+            long count = totals.count.sum();
+            if (count != 0) {
+                byChannel.put(channel, new ChannelVolume(count, BigDecimal.valueOf(totals.amountCents.sum(), 2)));
+            }
+        });
+
+        return new DashboardSummary(customers.sum(), accountCount, activeAccounts.sum(), products.sum(),
+            transactions.sum(), totalBalance, avgBalance, byChannel, segmentIndex.segmentSizes(),
+            segmentIndex.getModelVersion(), reconciledAt);
+    }
+
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        customers.add(delta(event.isCreate(), event.isDelete()));
+    }
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        products.add(delta(event.isCreate(), event.isDelete()));
+    }
+
+    @EventListener
+    public void onAccountChanged(AccountChangedEvent event) {
+        accounts.add(delta(event.isCreate(), event.isDelete()));
+        addAccount(event.getBefore(), -1);
+        addAccount(event.getAfter(), 1);
+    }
+
+    @EventListener
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        transactions.add(delta(event.isCreate(), event.isDelete()));
+        addTransaction(event.getBefore(), -1);
+        addTransaction(event.getAfter(), 1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!startupLoad) {
+            return;
+        }
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            logger.warn("Could not load dashboard counters: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Re-read the totals from the database and correct the counters. Each counter is marked
+     * before its query and moved by the difference between the query and the mark, which
+     * keeps the events applied while the query runs on top of its result. Those are writes
+     * committed after the query's snapshot, except for a write committed just before it whose
+     * event, published after the commit, is applied only after the mark: that one is counted
+     * twice. The error is bounded by the writes in flight when the query starts, and the next
+     * pass corrects it, as the write is then in both the counter and the table.
+     */
+    @Scheduled(fixedDelayString = "${custlysis.dashboard.reconcile-interval-ms:600000}",
+        initialDelayString = "${custlysis.dashboard.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        long started = System.currentTimeMillis();
+        long drift = 0;
+
+        drift += correct(customers, "SELECT COUNT(*) FROM customer");
+        drift += correct(products, "SELECT COUNT(*) FROM product");
+        drift += correct(accounts, "SELECT COUNT(*) FROM account");
+        drift += correct(activeAccounts, "SELECT COUNT(*) FROM account WHERE dormant_flag IS NULL OR dormant_flag = 0");
+        drift += correct(balanceCents, "SELECT COALESCE(SUM(ROUND(balance * 100)), 0) FROM account");
+        drift += correct(transactions, "SELECT COUNT(*) FROM transactions");
+
+        Map<String, long[]> marks = new HashMap<>();
+        channels.forEach((channel, totals) ->
+            marks.put(channel, new long[]{totals.count.sum(), totals.amountCents.sum()}));
+        Map<String, long[]> db = new HashMap<>();
+        jdbcTemplate.query("SELECT channel, COUNT(*), COALESCE(SUM(ROUND(amount * 100)), 0) FROM transactions "
+            + "GROUP BY channel", rs -> {
+            db.merge(channelKey(rs.getString(1)), new long[]{rs.getLong(2), rs.getLong(3)},
+                (a, b) -> new long[]{a[0] + b[0], a[1] + b[1]});
+        });
+        for (String channel : union(marks.keySet(), db.keySet())) {
+            long[] mark = marks.getOrDefault(channel, new long[2]);
+            long[] actual = db.getOrDefault(channel, new long[2]);
+            ChannelTotals totals = channel(channel);
+            totals.count.add(actual[0] - mark[0]);
+            totals.amountCents.add(actual[1] - mark[1]);
+            drift += Math.abs(actual[0] - mark[0]);
+        }
+
+        reconciledAt = LocalDateTime.now();
+        if (drift != 0) {
+            logger.info("Dashboard counters reconciled in {} ms, corrected drift of {}", System.currentTimeMillis() - started, drift);
+        } else {
+            logger.debug("Dashboard counters reconciled in {} ms, no drift", System.currentTimeMillis() - started);
+        }
+    }
+
+    // Marking after the query instead would lose writes committed after its snapshot, unbounded
+    private long correct(LongAdder counter, String sql) {
+        long mark = counter.sum();
+        Long actual = jdbcTemplate.queryForObject(sql, Long.class);
+        long diff = (actual != null ? actual : 0) - mark;
+        counter.add(diff);
+        return Math.abs(diff);
+    }
+
+    private void addAccount(Account account, int sign) {
+        if (account == null) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(account.getDormantFlag())) {
+            activeAccounts.add(sign);
+        }
+        balanceCents.add(sign * cents(account.getBalance()));
+    }
+
+    private void addTransaction(Transactions txn, int sign) {
+        if (txn == null) {
+            return;
+        }
+        ChannelTotals totals = channel(channelKey(txn.getChannel()));
+        totals.count.add(sign);
+        totals.amountCents.add(sign * cents(txn.getAmount()));
+    }
+
+    private ChannelTotals channel(String channel) {
+        return channels.computeIfAbsent(channel, c -> new ChannelTotals());
+    }
+
+    private static String channelKey(String channel) {
+        return channel == null || channel.isBlank() ? UNKNOWN_CHANNEL : channel;
+    }
+
+    private static long delta(boolean create, boolean delete) {
+        return create ? 1 : delete ? -1 : 0;
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private static Set<String> union(Set<String> a, Set<String> b) {
+        Set<String> all = new HashSet<>(a);
+        all.addAll(b);
+        return all;
+    }
+
+    private static final class ChannelTotals {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder amountCents = new LongAdder();
+    }
+}
@@ -0,0 +1,292 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams full-table exports straight from a forward-only JDBC cursor to the client, one
+ * row at a time, so memory stays constant and no entities are hydrated. With MySQL
+ * Connector/J a fetch size of Integer.MIN_VALUE switches the driver to row streaming.
+ */
+@Service
+public class ExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private static final String TRANSACTION_COLUMNS = "txn_id, account_id, txn_type, amount, timestamp, channel, "
+        + "merchant_category, geo_location, is_recurring, is_high_value, txn_score";
+    private static final String CUSTOMER_COLUMNS = "customer_id, name, dob, gender, marital_status, educational_level, "
+        + "occupation, income_bracket, location, geo_cluster, digital_score, risk_profile, preferred_language, "
+        + "tenure_days, churn_risk_score, created_at";
+
+    public enum Format { NDJSON, CSV }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Export transactions in txn_id order; null filters are ignored, "to" is exclusive
+     */
+    public long exportTransactions(OutputStream out, Format format, Integer accountId, String channel,
+                                   String txnType, LocalDateTime from, LocalDateTime to) {
+        Query query = new Query("SELECT " + TRANSACTION_COLUMNS + " FROM transactions");
+        query.where("account_id = ?", accountId);
+        query.where("channel = ?", channel);
+        query.where("txn_type = ?", txnType);
+        query.where("timestamp >= ?", from == null ? null : Timestamp.valueOf(from));
+        query.where("timestamp < ?", to == null ? null : Timestamp.valueOf(to));
+        return stream("transactions", query.orderBy("txn_id"), out, format);
+    }
+
+    /**
+     * Export customers in customer_id order; null filters are ignored
+     */
+    public long exportCustomers(OutputStream out, Format format, String location, String incomeBracket,
+                                String riskProfile, String geoCluster) {
+        Query query = new Query("SELECT " + CUSTOMER_COLUMNS + " FROM customer");
+        query.where("location = ?", location);
+        query.where("income_bracket = ?", incomeBracket);
+        query.where("risk_profile = ?", riskProfile);
+        query.where("geo_cluster = ?", geoCluster);
+        return stream("customers", query.orderBy("customer_id"), out, format);
+    }
+
+    private long stream(String dataset, Query query, OutputStream out, Format format) {
+        long started = System.currentTimeMillis();
+        RowWriter writer = format == Format.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out, objectMapper);
+        long rows = jdbcTemplate.query((Connection connection) -> {
+            PreparedStatement statement = connection.prepareStatement(query.sql(),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAMING_FETCH_SIZE);
+            for (int i = 0; i < query.params.size(); i++) {
+                statement.setObject(i + 1, query.params.get(i));
+            }
+            return statement;
+        }, (ResultSet rs) -> {
+            long count = 0;
+            try {
+                writer.start(rs.getMetaData());
+                while (rs.next()) {
+                    writer.write(rs);
+                    count++;
+                }
+                writer.finish();
+            } catch (IOException e) {
+                // Client went away. Closing a streaming result set makes Connector/J read every
+                // remaining row, so cancel the query on the server first.
+                cancel(rs);
+                throw new UncheckedIOException(e);
+            }
+            return count;
+        });
+
+        meterRegistry.summary("custlysis.export.rows", "dataset", dataset, "format", format.name()).record(rows);
+        logger.info("Exported {} rows as {} in {} ms", rows, format, System.currentTimeMillis() - started);
+        return rows;
+    }
+
+    private static void cancel(ResultSet rs) {
+        try {
+            rs.getStatement().cancel();
+        } catch (SQLException e) {
+            logger.warn("Could not cancel abandoned export query: {}", e.getMessage());
+        }
+    }
+
+    // snake_case column label to the camelCase property name the JSON API uses
+    static String propertyName(String column) {
+        StringBuilder name = new StringBuilder(column.length());
+        boolean upper = false;
+        for (char c : column.toLowerCase().toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                name.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return name.toString();
+    }
+
+    // JDBC value in the form Jackson and CSV should see it
+    static Object value(ResultSet rs, int column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        if (value instanceof java.sql.Date) {
+            return ((java.sql.Date) value).toLocalDate();
+        }
+        return value;
+    }
+
+    private static final class Query {
+        private final StringBuilder sql;
+        private final List<Object> params = new ArrayList<>();
+        private boolean hasWhere;
+
+        Query(String select) {
+            this.sql = new StringBuilder(select);
+        }
+
+        void where(String condition, Object param) {
+            if (param == null) {
+                return;
+            }
+            sql.append(hasWhere ? " AND " : " WHERE ").append(condition);
+            params.add(param);
+            hasWhere = true;
+        }
+
+        Query orderBy(String column) {
+            sql.append(" ORDER BY ").append(column);
+            return this;
+        }
+
+        String sql() {
+            return sql.toString();
+        }
+    }
+
+    private interface RowWriter {
+        void start(ResultSetMetaData meta) throws SQLException, IOException;
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator json;
+        private String[] names;
+        private boolean wroteRow;
+
+        NdjsonRowWriter(OutputStream out, ObjectMapper mapper) {
+            try {
+                this.json = mapper.createGenerator(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // One object per line; the caller owns and closes the output stream
+            json.setRootValueSeparator(new SerializedString("\n"));
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void start(ResultSetMetaData meta) throws SQLException {
+            names = new String[meta.getColumnCount()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = propertyName(meta.getColumnLabel(i + 1));
+            }
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            json.writeStartObject();
+            for (int i = 0; i < names.length; i++) {
+                json.writeFieldName(names[i]);
+                json.writeObject(value(rs, i + 1));
+            }
+            json.writeEndObject();
+            wroteRow = true;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (wroteRow) {
+                json.writeRaw('\n');
+            }
+            json.close();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+        private int columns;
+
+        CsvRowWriter(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        @Override
+        public void start(ResultSetMetaData meta) throws SQLException, IOException {
+            columns = meta.getColumnCount();
+            for (int i = 1; i <= columns; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                writer.write(meta.getColumnLabel(i).toLowerCase());
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            for (int i = 1; i <= columns; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                Object value = value(rs, i);
+                if (value instanceof BigDecimal) {
+                    writer.write(((BigDecimal) value).toPlainString());
+                } else if (value != null) {
+                    writeField(value.toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        // RFC 4180 quoting: only when the field contains a delimiter, quote or line break
+        private void writeField(String field) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < field.length() && !quote; i++) {
+                char c = field.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(field);
+                return;
+            }
+            writer.write('"');
+            writer.write(field.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.pblGEHU.Custlysis.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Row-major customer × feature matrix backed by a single primitive array.
+ * Row i holds the features of customerIds[i] at values[i * columns .. (i + 1) * columns).
+ */
+@Getter
+@AllArgsConstructor
+public class FeatureMatrix {
+
+    private final int[] customerIds;
+    private final double[] values;
+    private final int rows;
+    private final int columns;
+
+    /** Per-column medians used to impute missing values, NaN when the column had none; null if not imputed */
+    private final double[] medians;
+
+    public double get(int row, int column) {
+        return values[row * columns + column];
+    }
+}
@@ -0,0 +1,19 @@
+package com.pblGEHU.Custlysis.service;
+
+/**
+ * Thrown when the ingest ring buffer stays full for the whole wait, i.e. the database writer
+ * is behind by a full buffer of transactions, or when the pipeline is not accepting writes
+ */
+public class IngestSaturatedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public IngestSaturatedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,515 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.dto.SegmentProfile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import static com.pblGEHU.Custlysis.service.CustomerFeatureExtractor.*;
+
+/**
+ * Pure-Java replacement for CustomerSegmentationModel.train in customer_segmentation_model.py.
+ * Features are standardised like sklearn's StandardScaler, every K in the sweep is fitted
+ * concurrently with k-means++ seeding and fork-join Lloyd iterations over a flat double[]
+ * matrix, and K is chosen with the same elbow/silhouette rule as find_optimal_k.
+ */
+@Service
+public class KMeansSegmentationEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(KMeansSegmentationEngine.class);
+
+    static final int MIN_CUSTOMERS = 30;
+    private static final int ROWS_PER_TASK = 2048;
+    private static final double MIN_SILHOUETTE = 0.3;
+
+    @Value("${custlysis.ml.kmeans.min-k:3}")
+    private int minK;
+
+    @Value("${custlysis.ml.kmeans.max-k:8}")
+    private int maxK;
+
+    @Value("${custlysis.ml.kmeans.n-init:10}")
+    private int nInit;
+
+    @Value("${custlysis.ml.kmeans.max-iter:300}")
+    private int maxIter;
+
+    @Value("${custlysis.ml.kmeans.tolerance:1e-4}")
+    private double tolerance;
+
+    @Value("${custlysis.ml.kmeans.silhouette-sample:5000}")
+    private int silhouetteSample;
+
+    @Value("${custlysis.ml.kmeans.random-seed:42}")
+    private long randomSeed;
+
+    @Value("${custlysis.ml.kmeans.parallelism:0}")
+    private int parallelism;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    void start() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    void stop() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Fit the segmentation on the given features and assign every row to a segment
+     */
+    public SegmentationResult train(FeatureMatrix features, String modelVersion) {
+        int n = features.getRows();
+        int d = features.getColumns();
+        if (n < MIN_CUSTOMERS) {
+            throw new IllegalStateException("Insufficient data: " + n + " customers. Need at least " + MIN_CUSTOMERS + ".");
+        }
+
+        double[] mean = new double[d];
+        double[] scale = new double[d];
+        double[] x = standardize(features.getValues(), n, d, mean, scale);
+
+        int lastK = Math.min(maxK, n - 1);
+        logger.info("Finding optimal K between {} and {}...", minK, lastK);
+
+        List<ForkJoinTask<Fit>> sweep = new ArrayList<>();
+        for (int k = minK; k <= lastK; k++) {
+            final int clusters = k;
+            sweep.add(pool.submit(() -> fitBest(x, n, d, clusters)));
+        }
+        Fit[] fits = new Fit[sweep.size()];
+        Map<Integer, Double> silhouetteByK = new LinkedHashMap<>();
+        Map<Integer, Double> inertiaByK = new LinkedHashMap<>();
+        for (int i = 0; i < fits.length; i++) {
+            fits[i] = sweep.get(i).join();
+            silhouetteByK.put(fits[i].k, fits[i].silhouette);
+            inertiaByK.put(fits[i].k, fits[i].inertia);
+        }
+
+        Fit best = fits[chooseK(fits)];
+        logger.info("Optimal K determined: {}", best.k);
+        logger.info("Silhouette scores: {}", silhouetteByK);
+
+        double[] distances = new double[n];
+        double maxDistance = 0;
+        for (int i = 0; i < n; i++) {
+            distances[i] = Math.sqrt(squaredDistance(x, i * d, best.centers, best.labels[i] * d, d));
+            maxDistance = Math.max(maxDistance, distances[i]);
+        }
+        double[] confidences = new double[n];
+        for (int i = 0; i < n; i++) {
+            confidences[i] = maxDistance > 0 ? 1 - distances[i] / maxDistance : 1;
+        }
+
+        List<SegmentProfile> profiles = profileSegments(features, best.labels, best.k);
+        String[] names = new String[best.k];
+        for (int s = 0; s < best.k; s++) {
+            names[s] = nameSegment(s, profiles.get(s));
+            logger.info("Segment {}: {} ({} customers, {}%)", s, names[s], profiles.get(s).getSize(),
+                String.format("%.1f", profiles.get(s).getPercentage()));
+        }
+
+        SegmentationModel model = new SegmentationModel(modelVersion, LocalDateTime.now(), FEATURE_NAMES, best.k,
+            mean, scale, features.getMedians(), best.centers, maxDistance, names, profiles);
+        logger.info("Training complete. Silhouette score: {}", String.format("%.3f", best.silhouette));
+        return new SegmentationResult(model, features.getCustomerIds(), best.labels, confidences,
+            best.silhouette, silhouetteByK, inertiaByK);
+    }
+
+    // StandardScaler: zero mean, unit population variance; constant columns keep scale 1
+    static double[] standardize(double[] values, int n, int d, double[] mean, double[] scale) {
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < d; j++) {
+                mean[j] += values[i * d + j];
+            }
+        }
+        for (int j = 0; j < d; j++) {
+            mean[j] /= n;
+        }
+        double[] variance = new double[d];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < d; j++) {
+                double diff = values[i * d + j] - mean[j];
+                variance[j] += diff * diff;
+            }
+        }
+        for (int j = 0; j < d; j++) {
+            double std = Math.sqrt(variance[j] / n);
+            scale[j] = std > 1e-12 ? std : 1.0;
+        }
+
+        double[] scaled = new double[n * d];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < d; j++) {
+                scaled[i * d + j] = (values[i * d + j] - mean[j]) / scale[j];
+            }
+        }
+        return scaled;
+    }
+
+    // Elbow on inertia, falling back to the best silhouette when the elbow K separates poorly
+    private static int chooseK(Fit[] fits) {
+        int m = fits.length;
+        int best;
+        if (m > 2) {
+            double[] diffs = new double[m - 1];
+            for (int i = 0; i < m - 1; i++) {
+                diffs[i] = fits[i + 1].inertia - fits[i].inertia;
+            }
+            best = 0;
+            double bestRatio = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < m - 2; i++) {
+                double ratio = (diffs[i + 1] - diffs[i]) / diffs[i];
+                if (ratio > bestRatio) {
+                    bestRatio = ratio;
+                    best = i;
+                }
+            }
+        } else {
+            best = Math.min(1, m - 1);
+        }
+
+        if (fits[best].silhouette < MIN_SILHOUETTE && m > 2) {
+            for (int i = 0; i < m; i++) {
+                if (fits[i].silhouette > fits[best].silhouette) {
+                    best = i;
+                }
+            }
+        }
+        return best;
+    }
+
+    // Best of nInit k-means++ seeded Lloyd runs, scored by sampled silhouette
+    private Fit fitBest(double[] x, int n, int d, int k) {
+        Fit best = null;
+        for (int run = 0; run < nInit; run++) {
+            Random random = new Random(randomSeed + 1_000L * k + run);
+            Fit fit = lloyd(x, n, d, k, initPlusPlus(x, n, d, k, random));
+            if (best == null || fit.inertia < best.inertia) {
+                best = fit;
+            }
+        }
+        best.silhouette = sampledSilhouette(x, n, d, k, best.labels, new Random(randomSeed + k));
+        return best;
+    }
+
+    private static double[] initPlusPlus(double[] x, int n, int d, int k, Random random) {
+        double[] centers = new double[k * d];
+        System.arraycopy(x, random.nextInt(n) * d, centers, 0, d);
+
+        double[] closest = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            closest[i] = squaredDistance(x, i * d, centers, 0, d);
+            total += closest[i];
+        }
+
+        for (int c = 1; c < k; c++) {
+            int chosen = n - 1;
+            if (total > 0) {
+                double target = random.nextDouble() * total;
+                for (int i = 0; i < n; i++) {
+                    target -= closest[i];
+                    if (target <= 0) {
+                        chosen = i;
+                        break;
+                    }
+                }
+            } else {
+                chosen = random.nextInt(n);
+            }
+            System.arraycopy(x, chosen * d, centers, c * d, d);
+
+            total = 0;
+            for (int i = 0; i < n; i++) {
+                closest[i] = Math.min(closest[i], squaredDistance(x, i * d, centers, c * d, d));
+                total += closest[i];
+            }
+        }
+        return centers;
+    }
+
+    private Fit lloyd(double[] x, int n, int d, int k, double[] centers) {
+        int[] labels = new int[n];
+        for (int iter = 0; iter < maxIter; iter++) {
+            Partial partial = new AssignTask(x, d, centers, k, labels, 0, n).invoke();
+            double[] next = new double[k * d];
+            double shift = 0;
+            for (int c = 0; c < k; c++) {
+                for (int j = 0; j < d; j++) {
+                    int at = c * d + j;
+                    // An empty cluster keeps its previous centre
+                    next[at] = partial.counts[c] > 0 ? partial.sums[at] / partial.counts[c] : centers[at];
+                    double diff = next[at] - centers[at];
+                    shift += diff * diff;
+                }
+            }
+            centers = next;
+            if (shift <= tolerance) {
+                break;
+            }
+        }
+        Partial last = new AssignTask(x, d, centers, k, labels, 0, n).invoke();
+        return new Fit(k, centers, labels, last.inertia);
+    }
+
+    private double sampledSilhouette(double[] x, int n, int d, int k, int[] labels, Random random) {
+        int m = Math.min(n, silhouetteSample);
+        int[] sample = new int[n];
+        for (int i = 0; i < n; i++) {
+            sample[i] = i;
+        }
+        if (m < n) {
+            // Partial Fisher-Yates: the first m slots become a uniform sample
+            for (int i = 0; i < m; i++) {
+                int j = i + random.nextInt(n - i);
+                int tmp = sample[i];
+                sample[i] = sample[j];
+                sample[j] = tmp;
+            }
+        }
+        int[] counts = new int[k];
+        for (int s = 0; s < m; s++) {
+            counts[labels[sample[s]]]++;
+        }
+        return new SilhouetteTask(x, d, k, labels, sample, m, counts, 0, m).invoke() / m;
+    }
+
+    private static List<SegmentProfile> profileSegments(FeatureMatrix features, int[] labels, int k) {
+        int n = features.getRows();
+        double[][] sums = new double[k][8];
+        int[] sizes = new int[k];
+        for (int i = 0; i < n; i++) {
+            double[] s = sums[labels[i]];
+            sizes[labels[i]]++;
+            s[0] += features.get(i, AGE);
+            s[1] += features.get(i, TOTAL_BALANCE);
+            s[2] += features.get(i, DIGITAL_SCORE);
+            s[3] += features.get(i, CHURN_RISK_SCORE);
+            s[4] += features.get(i, TENURE_DAYS);
+            s[5] += features.get(i, TXN_FREQUENCY);
+            s[6] += features.get(i, INCOME_ENCODED);
+            s[7] += features.get(i, RISK_ENCODED);
+        }
+
+        List<SegmentProfile> profiles = new ArrayList<>(k);
+        for (int c = 0; c < k; c++) {
+            double size = Math.max(sizes[c], 1);
+            double[] s = sums[c];
+            profiles.add(new SegmentProfile(sizes[c], sizes[c] * 100.0 / n,
+                s[0] / size, s[1] / size, s[2] / size, s[3] / size,
+                s[4] / size, s[5] / size, s[6] / size, s[7] / size));
+        }
+        return profiles;
+    }
+
+    // Same naming rules as _generate_segment_names in the Python model
+    static String nameSegment(int segmentId, SegmentProfile p) {
+        if (p.getAvgBalance() > 50000 && p.getAvgDigitalScore() > 80) {
+            return "Digital Elite";
+        } else if (p.getAvgBalance() > 50000 && p.getAvgDigitalScore() < 60) {
+            return "Traditional Affluent";
+        } else if (p.getAvgAge() < 35 && p.getAvgDigitalScore() > 75) {
+            return "Digital Natives";
+        } else if (p.getAvgChurnRisk() > 20) {
+            return "At-Risk Customers";
+        } else if (p.getAvgTenure() < 365) {
+            return "New Customers";
+        } else if (p.getAvgBalance() < 20000 && p.getAvgTxnFreq() < 5) {
+            return "Dormant Savers";
+        } else if (p.getAvgBalance() > 30000 && p.getAvgDigitalScore() > 65) {
+            return "Growing Professionals";
+        }
+        return "Standard Segment " + (segmentId + 1);
+    }
+
+    static double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int d) {
+        double sum = 0;
+        for (int j = 0; j < d; j++) {
+            double diff = a[aOffset + j] - b[bOffset + j];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    private static final class Fit {
+        final int k;
+        final double[] centers;
+        final int[] labels;
+        final double inertia;
+        double silhouette;
+
+        Fit(int k, double[] centers, int[] labels, double inertia) {
+            this.k = k;
+            this.centers = centers;
+            this.labels = labels;
+            this.inertia = inertia;
+        }
+    }
+
+    private static final class Partial {
+        final double[] sums;
+        final long[] counts;
+        double inertia;
+
+        Partial(int k, int d) {
+            sums = new double[k * d];
+            counts = new long[k];
+        }
+
+        Partial merge(Partial other) {
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += other.sums[i];
+            }
+            for (int c = 0; c < counts.length; c++) {
+                counts[c] += other.counts[c];
+            }
+            inertia += other.inertia;
+            return this;
+        }
+    }
+
+    /**
+     * One Lloyd assignment step over rows [from, to): labels each row with its nearest
+     * centre and accumulates per-cluster sums for the centre update.
+     */
+    private static final class AssignTask extends RecursiveTask<Partial> {
+        private final double[] x;
+        private final int d;
+        private final double[] centers;
+        private final int k;
+        private final int[] labels;
+        private final int from;
+        private final int to;
+
+        AssignTask(double[] x, int d, double[] centers, int k, int[] labels, int from, int to) {
+            this.x = x;
+            this.d = d;
+            this.centers = centers;
+            this.k = k;
+            this.labels = labels;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > ROWS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                AssignTask left = new AssignTask(x, d, centers, k, labels, from, mid);
+                left.fork();
+                Partial right = new AssignTask(x, d, centers, k, labels, mid, to).compute();
+                return left.join().merge(right);
+            }
+
+            Partial partial = new Partial(k, d);
+            for (int i = from; i < to; i++) {
+                int offset = i * d;
+                int nearest = 0;
+                double nearestDistance = Double.MAX_VALUE;
+                for (int c = 0; c < k; c++) {
+                    double distance = squaredDistance(x, offset, centers, c * d, d);
+                    if (distance < nearestDistance) {
+                        nearestDistance = distance;
+                        nearest = c;
+                    }
+                }
+                labels[i] = nearest;
+                partial.counts[nearest]++;
+                partial.inertia += nearestDistance;
+                int sumOffset = nearest * d;
+                for (int j = 0; j < d; j++) {
+                    partial.sums[sumOffset + j] += x[offset + j];
+                }
+            }
+            return partial;
+        }
+    }
+
+    /**
+     * Sum of silhouette coefficients for sample positions [from, to), measured against the whole sample.
+     */
+    private static final class SilhouetteTask extends RecursiveTask<Double> {
+        private static final int SAMPLES_PER_TASK = 64;
+
+        private final double[] x;
+        private final int d;
+        private final int k;
+        private final int[] labels;
+        private final int[] sample;
+        private final int sampleSize;
+        private final int[] counts;
+        private final int from;
+        private final int to;
+
+        SilhouetteTask(double[] x, int d, int k, int[] labels, int[] sample, int sampleSize,
+                       int[] counts, int from, int to) {
+            this.x = x;
+            this.d = d;
+            this.k = k;
+            this.labels = labels;
+            this.sample = sample;
+            this.sampleSize = sampleSize;
+            this.counts = counts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from > SAMPLES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                SilhouetteTask left = new SilhouetteTask(x, d, k, labels, sample, sampleSize, counts, from, mid);
+                left.fork();
+                double right = new SilhouetteTask(x, d, k, labels, sample, sampleSize, counts, mid, to).compute();
+                return left.join() + right;
+            }
+
+            double total = 0;
+            double[] distanceSums = new double[k];
+            for (int s = from; s < to; s++) {
+                int i = sample[s];
+                int own = labels[i];
+                if (counts[own] <= 1) {
+                    continue;
+                }
+                Arrays.fill(distanceSums, 0);
+                for (int t = 0; t < sampleSize; t++) {
+                    if (t != s) {
+                        int j = sample[t];
+                        distanceSums[labels[j]] += Math.sqrt(squaredDistance(x, i * d, x, j * d, d));
+                    }
+                }
+                double a = distanceSums[own] / (counts[own] - 1);
+                double b = Double.MAX_VALUE;
+                for (int c = 0; c < k; c++) {
+                    if (c != own && counts[c] > 0) {
+                        b = Math.min(b, distanceSums[c] / counts[c]);
+                    }
+                }
+                double denominator = Math.max(a, b);
+                if (b != Double.MAX_VALUE && denominator > 0) {
+                    total += (b - a) / denominator;
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.pblGEHU.Custlysis.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead around ML calls: a fixed number of calls run at once, a bounded number wait
+ * for a permit up to a timeout, and the rest are rejected with {@link MLSaturatedException}.
+ * Concurrent calls with the same key share a single computation.
+ */
+@Service
+public class MLBulkhead {
+
+    private static final Logger logger = LoggerFactory.getLogger(MLBulkhead.class);
+
+    @Value("${custlysis.ml.bulkhead.permits:4}")
+    private int permitCount;
+
+    @Value("${custlysis.ml.bulkhead.queue:16}")
+    private int queueCapacity;
+
+    @Value("${custlysis.ml.bulkhead.wait-timeout-ms:2000}")
+    private long waitTimeoutMs;
+
+    @Value("${custlysis.ml.bulkhead.retry-after-seconds:2}")
+    private long retryAfterSeconds;
+
+    private Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    void start() {
+        permits = new Semaphore(permitCount, true);
+        Gauge.builder("custlysis.ml.bulkhead.running", running, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("custlysis.ml.bulkhead.queue.depth", waiting, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("custlysis.ml.bulkhead.saturation", this, MLBulkhead::getSaturation).register(meterRegistry);
+        FunctionCounter.builder("custlysis.ml.bulkhead.calls", completed, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("custlysis.ml.bulkhead.coalesced", coalesced, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("custlysis.ml.bulkhead.rejected", rejected, LongAdder::sum)
+            .tag("reason", "queue_full").register(meterRegistry);
+        FunctionCounter.builder("custlysis.ml.bulkhead.rejected", timedOut, LongAdder::sum)
+            .tag("reason", "timeout").register(meterRegistry);
+    }
+
+    /**
+     * Run the work under a permit. A non-null key joins an identical call already in flight
+     * instead of starting another one; waiting for that call is bounded by the same wait
+     * timeout as waiting for a permit.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T call(Object key, Supplier<T> work) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMs);
+        if (key == null) {
+            return execute(work, deadline);
+        }
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            coalesced.increment();
+            return (T) await(leader, deadline);
+        }
+        try {
+            T result = execute(work, deadline);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private <T> T execute(Supplier<T> work, long deadline) {
+        acquire(deadline);
+        running.incrementAndGet();
+        try {
+            return work.get();
+        } finally {
+            running.decrementAndGet();
+            permits.release();
+            completed.increment();
+        }
+    }
+
+    private void acquire(long deadline) {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (waiting.incrementAndGet() > queueCapacity) {
+            waiting.decrementAndGet();
+            rejected.increment();
+            logger.debug("Rejected ML call: {} already waiting", queueCapacity);
+            throw new MLSaturatedException("ML capacity exhausted: " + queueCapacity + " calls already waiting",
+                retryAfterSeconds);
+        }
+        try {
+            if (!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                timedOut.increment();
+                logger.debug("ML call timed out waiting {} ms for a permit", waitTimeoutMs);
+                throw new MLSaturatedException("Timed out after " + waitTimeoutMs + " ms waiting for ML capacity",
+                    retryAfterSeconds);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for ML capacity", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private Object await(CompletableFuture<Object> leader, long deadline) {
+        try {
+            return leader.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timedOut.increment();
+            logger.debug("Shared ML call did not finish within {} ms", waitTimeoutMs);
+            throw new MLSaturatedException("Timed out after " + waitTimeoutMs + " ms waiting for a shared ML call",
+                retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shared ML call", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    public int getRunning() {
+        return running.get();
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * Share of permits in use, from 0 to 1
+     */
+    public double getSaturation() {
+        return permitCount == 0 ? 1.0 : (double) (permitCount - permits.availablePermits()) / permitCount;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("permits", permitCount);
+        status.put("running", running.get());
+        status.put("saturation", getSaturation());
+        status.put("queueCapacity", queueCapacity);
+        status.put("queueDepth", waiting.get());
+        status.put("inFlightKeys", inFlight.size());
+        status.put("completed", completed.sum());
+        status.put("coalesced", coalesced.sum());
+        status.put("rejected", rejected.sum());
+        status.put("timedOut", timedOut.sum());
+        return status;
+    }
+}
@@ -1,65 +1,150 @@
 package com.pblGEHU.Custlysis.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
 
 @Service
 public class MLIntegrationService {
     
     private static final Logger logger = LoggerFactory.getLogger(MLIntegrationService.class);
     private static final String PYTHON_SCRIPT = "customer_segmentation_model.py";
+
+    @Autowired
+    private SegmentationTrainingService trainingService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MLWorkerPool workerPool;
+
+    @Autowired
+    private SegmentScorer scorer;
+
+    @Autowired
+    private CustomerSegmentIndex segmentIndex;
+
+    @Autowired
+    private SegmentStatistics segmentStatistics;
+
+    @Autowired
+    private CampaignAnalytics campaignAnalytics;
+
+    @Autowired
+    private MLBulkhead bulkhead;
+
+    @Autowired
+    private MLProcessLauncher processLauncher;
+
+    // "native" trains in the JVM, "python" falls back to the customer_segmentation_model.py subprocess
+    @Value("${custlysis.ml.training-engine:native}")
+    private String trainingEngine;
     
+    /**
+     * Train the ML model with the configured training engine, reporting progress to the job.
+     * Returns the training results document; throws if training fails or is cancelled.
+     */
+    public Object train(TrainingJob job) throws Exception {
+        if ("python".equalsIgnoreCase(trainingEngine)) {
+            return trainWithPython(job);
+        }
+        logger.info("Starting native ML model training...");
+        Map<String, Object> results = trainingService.train(job::onLogLine);
+        logger.info("ML model training completed successfully");
+        // The trainer already published the artifact to the scorer; the workers pick it up on reload
+        refreshAfterTraining();
+        return results;
+    }
+
     /**
      * Train the ML model by calling the Python script
      */
-    public String trainModel() {
-        try {
-            logger.info("Starting ML model training...");
-            
-            ProcessBuilder processBuilder = new ProcessBuilder(
-                "python", PYTHON_SCRIPT, "--action", "train"
-            );
-            processBuilder.redirectErrorStream(true);
-            
-            Process process = processBuilder.start();
-            
-            // Read output
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                    logger.info(line);
-                }
+    private Object trainWithPython(TrainingJob job) throws Exception {
+        logger.info("Starting ML model training...");
+
+        ProcessBuilder processBuilder = new ProcessBuilder(
+            "python", PYTHON_SCRIPT, "--action", "train"
+        );
+        processBuilder.redirectErrorStream(true);
+
+        Process process = processLauncher.start("train", processBuilder);
+        job.attach(process);
+
+        // Read output; the results document is the JSON object printed last
+        List<String> output = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.add(line);
+                logger.info(line);
+                job.onLogLine(line);
             }
-            
-            int exitCode = process.waitFor();
-            
-            if (exitCode == 0) {
-                logger.info("ML model training completed successfully");
-                return output.toString();
-            } else {
-                logger.error("ML model training failed with exit code: " + exitCode);
-                return "Training failed: " + output.toString();
+        } catch (CancellationException e) {
+            process.destroy();
+            throw e;
+        }
+
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            String lastLine = output.isEmpty() ? "" : ": " + output.get(output.size() - 1);
+            throw new IllegalStateException("Training failed with exit code " + exitCode + lastLine);
+        }
+
+        logger.info("ML model training completed successfully");
+        scorer.reload();
+        refreshAfterTraining();
+        return parseResults(output);
+    }
+
+    // Every successful training run, native or Python, swaps the model the workers and views serve from
+    private void refreshAfterTraining() {
+        workerPool.reloadModels();
+        segmentIndex.rebuild();
+        segmentStatistics.rebuild();
+        campaignAnalytics.rebuild();
+    }
+
+    private JsonNode parseResults(List<String> output) throws IOException {
+        for (int start = output.size() - 1; start >= 0; start--) {
+            if (output.get(start).equals("{")) {
+                return objectMapper.readTree(String.join("\n", output.subList(start, output.size())));
             }
-            
-        } catch (Exception e) {
-            logger.error("Error training ML model", e);
-            return "Error: " + e.getMessage();
         }
+        throw new IllegalStateException("Training finished but printed no results");
     }
-    
+
     /**
-     * Get prediction for a specific customer
+     * Get prediction for a specific customer; concurrent requests for the same customer share one call
      */
     public String predictCustomerSegment(Integer customerId) {
+        return bulkhead.call("predict:" + customerId, () -> runPrediction(customerId));
+    }
+
+    private String runPrediction(Integer customerId) {
+        if (workerPool.isEnabled()) {
+            try {
+                logger.info("Predicting segment for customer: " + customerId);
+                return objectMapper.writerWithDefaultPrettyPrinter()
+                    .writeValueAsString(workerPool.call("predict", Map.of("customer_id", customerId)));
+            } catch (Exception e) {
+                logger.error("Error predicting customer segment", e);
+                return "Error: " + e.getMessage();
+            }
+        }
         try {
             logger.info("Predicting segment for customer: " + customerId);
             
@@ -68,7 +153,7 @@ public class MLIntegrationService {
             );
             processBuilder.redirectErrorStream(true);
             
-            Process process = processBuilder.start();
+            Process process = processLauncher.start("predict", processBuilder);
             
             // Read output
             StringBuilder output = new StringBuilder();
@@ -99,6 +184,20 @@ public class MLIntegrationService {
      * Get all segments information
      */
     public String getSegments() {
+        return bulkhead.call("get_segments", this::fetchSegments);
+    }
+
+    private String fetchSegments() {
+        if (workerPool.isEnabled()) {
+            try {
+                logger.info("Fetching all segments...");
+                return objectMapper.writerWithDefaultPrettyPrinter()
+                    .writeValueAsString(workerPool.call("get_segments", Map.of()));
+            } catch (Exception e) {
+                logger.error("Error getting segments", e);
+                return "Error: " + e.getMessage();
+            }
+        }
         try {
             logger.info("Fetching all segments...");
             
@@ -107,7 +206,7 @@ public class MLIntegrationService {
             );
             processBuilder.redirectErrorStream(true);
             
-            Process process = processBuilder.start();
+            Process process = processLauncher.start("get_segments", processBuilder);
             
             // Read output
             StringBuilder output = new StringBuilder();
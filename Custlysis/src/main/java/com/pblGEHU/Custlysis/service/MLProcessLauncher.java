@@ -0,0 +1,46 @@
+package com.pblGEHU.Custlysis.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the Python ML processes and records how long each spawn took, how long the
+ * process ran and the exit code it ended with, tagged by action.
+ */
+@Component
+public class MLProcessLauncher {
+
+    private static final Logger logger = LoggerFactory.getLogger(MLProcessLauncher.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public Process start(String action, ProcessBuilder builder) throws IOException {
+        long started = System.nanoTime();
+        Process process;
+        try {
+            process = builder.start();
+        } catch (IOException e) {
+            meterRegistry.counter("custlysis.ml.process.spawn.failures", "action", action).increment();
+            throw e;
+        }
+        long spawned = System.nanoTime();
+        Timer.builder("custlysis.ml.process.spawn").tag("action", action)
+            .register(meterRegistry).record(spawned - started, TimeUnit.NANOSECONDS);
+
+        process.onExit().thenAccept(exited -> {
+            int exitCode = exited.exitValue();
+            Timer.builder("custlysis.ml.process.runtime").tag("action", action).tag("exit_code", String.valueOf(exitCode))
+                .register(meterRegistry).record(System.nanoTime() - spawned, TimeUnit.NANOSECONDS);
+            logger.debug("ML process {} (pid {}) exited with code {}", action, exited.pid(), exitCode);
+        });
+        return process;
+    }
+}
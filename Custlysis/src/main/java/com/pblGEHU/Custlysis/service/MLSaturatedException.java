@@ -0,0 +1,18 @@
+package com.pblGEHU.Custlysis.service;
+
+/**
+ * Thrown when the ML bulkhead has no free permit and its wait queue is full or the wait timed out
+ */
+public class MLSaturatedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public MLSaturatedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,189 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One long-lived "customer_segmentation_model.py --action serve" process.
+ * Requests are written as length-prefixed JSON frames and matched to their responses
+ * by id, so several callers can have requests in flight on the same pipe.
+ */
+class MLWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(MLWorker.class);
+    private static final int MAX_FRAME_BYTES = 64 * 1024 * 1024;
+
+    private final int slot;
+    private final ObjectMapper objectMapper;
+    private final Process process;
+    private final DataOutputStream out;
+    private final Map<Long, CompletableFuture<JsonNode>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final long startedAt = System.currentTimeMillis();
+    // Last time a response arrived, or a request was sent to an idle worker
+    private volatile long lastProgressAt = startedAt;
+    private volatile boolean alive = true;
+
+    MLWorker(int slot, Process process, ObjectMapper objectMapper) {
+        this.slot = slot;
+        this.objectMapper = objectMapper;
+        this.process = process;
+        this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+
+        Thread reader = new Thread(this::readResponses, "ml-worker-" + slot + "-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        Thread stderr = new Thread(this::drainStderr, "ml-worker-" + slot + "-stderr");
+        stderr.setDaemon(true);
+        stderr.start();
+    }
+
+    /**
+     * Send one request; the future completes with the worker's "result" document
+     */
+    CompletableFuture<JsonNode> send(String action, Map<String, Object> args) {
+        CompletableFuture<JsonNode> future = new CompletableFuture<>();
+        if (!alive) {
+            future.completeExceptionally(new IllegalStateException("ML worker " + slot + " is not running"));
+            return future;
+        }
+
+        long id = nextId.incrementAndGet();
+        ObjectNode request = objectMapper.createObjectNode();
+        request.put("id", id);
+        request.put("action", action);
+        args.forEach((key, value) -> request.set(key, objectMapper.valueToTree(value)));
+
+        if (pending.isEmpty()) {
+            lastProgressAt = System.currentTimeMillis();
+        }
+        pending.put(id, future);
+        try {
+            byte[] payload = objectMapper.writeValueAsBytes(request);
+            synchronized (out) {
+                out.writeInt(payload.length);
+                out.write(payload);
+                out.flush();
+            }
+        } catch (IOException e) {
+            pending.remove(id);
+            future.completeExceptionally(e);
+            markDead("write failed: " + e.getMessage());
+        }
+        return future;
+    }
+
+    /**
+     * Stop waiting for a request the caller gave up on; a late response is then dropped
+     */
+    void abandon(CompletableFuture<JsonNode> future) {
+        pending.values().remove(future);
+    }
+
+    long getLastProgressAt() {
+        return lastProgressAt;
+    }
+
+    boolean isAlive() {
+        return alive && process.isAlive();
+    }
+
+    int inFlight() {
+        return pending.size();
+    }
+
+    int getSlot() {
+        return slot;
+    }
+
+    long getStartedAt() {
+        return startedAt;
+    }
+
+    void stop() {
+        alive = false;
+        try {
+            out.close();
+        } catch (IOException ignored) {
+            // The process is being torn down anyway
+        }
+        process.destroy();
+        failPending(new IllegalStateException("ML worker " + slot + " stopped"));
+    }
+
+    private void readResponses() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(process.getInputStream()))) {
+            while (true) {
+                int length = in.readInt();
+                if (length < 0 || length > MAX_FRAME_BYTES) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                dispatch(objectMapper.readTree(payload));
+            }
+        } catch (EOFException e) {
+            markDead("process exited");
+        } catch (IOException e) {
+            markDead(e.getMessage());
+        }
+    }
+
+    private void dispatch(JsonNode response) {
+        JsonNode id = response.get("id");
+        lastProgressAt = System.currentTimeMillis();
+        CompletableFuture<JsonNode> future = id == null || id.isNull() ? null : pending.remove(id.asLong());
+        if (future == null) {
+            logger.debug("ML worker {} answered request {} after its caller gave up", slot, id);
+            return;
+        }
+        if (response.path("ok").asBoolean(false)) {
+            future.complete(response.get("result"));
+        } else {
+            future.completeExceptionally(new IllegalStateException(response.path("error").asText("ML worker error")));
+        }
+    }
+
+    private void drainStderr() {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                logger.debug("[ml-worker-{}] {}", slot, line);
+            }
+        } catch (IOException ignored) {
+            // Stream closes with the process
+        }
+    }
+
+    private void markDead(String reason) {
+        if (alive) {
+            logger.warn("ML worker {} is down: {}", slot, reason);
+        }
+        alive = false;
+        failPending(new IllegalStateException("ML worker " + slot + " is down: " + reason));
+    }
+
+    private void failPending(Exception cause) {
+        pending.values().forEach(future -> future.completeExceptionally(cause));
+        pending.clear();
+    }
+}
@@ -0,0 +1,215 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pool of warm Python workers that load the segmentation model once and serve
+ * predict/get_segments requests over stdin/stdout. Workers are started on first use,
+ * health-checked on a schedule and restarted when they crash or stop answering.
+ */
+@Service
+public class MLWorkerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(MLWorkerPool.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MLProcessLauncher processLauncher;
+
+    @Value("${custlysis.ml.workers.enabled:true}")
+    private boolean enabled;
+
+    @Value("${custlysis.ml.workers.size:2}")
+    private int size;
+
+    @Value("${custlysis.ml.workers.python:python}")
+    private String python;
+
+    @Value("${custlysis.ml.workers.script:customer_segmentation_model.py}")
+    private String script;
+
+    @Value("${custlysis.ml.workers.request-timeout-ms:30000}")
+    private long requestTimeoutMs;
+
+    @Value("${custlysis.ml.workers.health-check-timeout-ms:5000}")
+    private long healthCheckTimeoutMs;
+
+    // Minimum time between restarts of the same slot, so a broken setup doesn't fork in a loop
+    @Value("${custlysis.ml.workers.restart-backoff-ms:5000}")
+    private long restartBackoffMs;
+
+    private volatile AtomicReferenceArray<MLWorker> workers;
+    private long[] lastStartAttempt;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Run one action on the least busy worker and wait for its result
+     */
+    public JsonNode call(String action, Map<String, Object> args) throws Exception {
+        MLWorker worker = acquire();
+        CompletableFuture<JsonNode> response = worker.send(action, args);
+        try {
+            return response.get(requestTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } catch (TimeoutException e) {
+            worker.abandon(response);
+            throw new TimeoutException("ML worker " + worker.getSlot() + " did not answer within " + requestTimeoutMs + " ms");
+        }
+    }
+
+    /**
+     * Ask every running worker to reload the model files after a training run
+     */
+    public void reloadModels() {
+        if (workers == null) {
+            return;
+        }
+        for (int slot = 0; slot < workers.length(); slot++) {
+            MLWorker worker = workers.get(slot);
+            if (worker != null && worker.isAlive()) {
+                worker.send("reload", Map.of());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${custlysis.ml.workers.health-check-interval-ms:30000}")
+    public void healthCheck() {
+        if (workers == null) {
+            return;
+        }
+        for (int slot = 0; slot < workers.length(); slot++) {
+            MLWorker worker = workers.get(slot);
+            if (worker == null) {
+                continue;
+            }
+            boolean healthy = worker.isAlive();
+            // A worker answers requests in order, so a ping would queue behind a slow predict.
+            // Busy workers that keep answering within the request timeout count as healthy.
+            if (healthy && worker.inFlight() > 0
+                    && System.currentTimeMillis() - worker.getLastProgressAt() < requestTimeoutMs) {
+                continue;
+            }
+            if (healthy) {
+                CompletableFuture<JsonNode> pong = worker.send("ping", Map.of());
+                try {
+                    pong.get(healthCheckTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (Exception e) {
+                    worker.abandon(pong);
+                    logger.warn("ML worker {} failed health check: {}", slot, e.getMessage());
+                    healthy = false;
+                }
+            }
+            if (!healthy) {
+                restart(slot, worker);
+            }
+        }
+    }
+
+    public List<Map<String, Object>> status() {
+        List<Map<String, Object>> status = new ArrayList<>();
+        if (workers == null) {
+            return status;
+        }
+        for (int slot = 0; slot < workers.length(); slot++) {
+            MLWorker worker = workers.get(slot);
+            status.add(Map.of(
+                "slot", slot,
+                "alive", worker != null && worker.isAlive(),
+                "inFlight", worker == null ? 0 : worker.inFlight(),
+                "startedAt", worker == null ? 0 : worker.getStartedAt()
+            ));
+        }
+        return status;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (workers == null) {
+            return;
+        }
+        for (int slot = 0; slot < workers.length(); slot++) {
+            MLWorker worker = workers.getAndSet(slot, null);
+            if (worker != null) {
+                worker.stop();
+            }
+        }
+    }
+
+    private MLWorker acquire() throws IOException {
+        initSlots();
+        MLWorker best = null;
+        for (int slot = 0; slot < workers.length(); slot++) {
+            MLWorker worker = workers.get(slot);
+            if (worker == null || !worker.isAlive()) {
+                worker = restart(slot, worker);
+            }
+            if (worker != null && (best == null || worker.inFlight() < best.inFlight())) {
+                best = worker;
+            }
+        }
+        if (best == null) {
+            throw new IOException("No ML worker is available");
+        }
+        return best;
+    }
+
+    private synchronized void initSlots() {
+        if (workers == null) {
+            // Publish workers last; readers check it without the lock
+            lastStartAttempt = new long[Math.max(1, size)];
+            workers = new AtomicReferenceArray<>(lastStartAttempt.length);
+        }
+    }
+
+    private synchronized MLWorker restart(int slot, MLWorker dead) {
+        MLWorker current = workers.get(slot);
+        if (current != dead && current != null && current.isAlive()) {
+            // Another caller already replaced it
+            return current;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastStartAttempt[slot] < restartBackoffMs) {
+            return null;
+        }
+        lastStartAttempt[slot] = now;
+        if (current != null) {
+            current.stop();
+        }
+
+        try {
+            Process process = processLauncher.start("serve", new ProcessBuilder(python, script, "--action", "serve"));
+            MLWorker worker = new MLWorker(slot, process, objectMapper);
+            workers.set(slot, worker);
+            logger.info("Started ML worker {}", slot);
+            return worker;
+        } catch (IOException e) {
+            logger.error("Could not start ML worker {}: {}", slot, e.getMessage());
+            workers.set(slot, null);
+            return null;
+        }
+    }
+}
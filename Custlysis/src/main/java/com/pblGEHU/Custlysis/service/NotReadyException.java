@@ -0,0 +1,12 @@
+package com.pblGEHU.Custlysis.service;
+
+/**
+ * Thrown when a read needs an in-memory index whose first build is still running in another
+ * thread, e.g. during the startup load; the request can be retried once the build finishes
+ */
+public class NotReadyException extends RuntimeException {
+
+    public NotReadyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,71 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.entity.Product;
+import com.pblGEHU.Custlysis.event.ProductChangedEvent;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the second-level cache of the product catalog consistent with ProductController
+ * writes and reports its hit and miss counts. Hibernate already updates the cached entity
+ * on a write through the session; evicting after the commit also covers the query results
+ * and any copy that raced with the write.
+ */
+@Service
+public class ProductCatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogCache.class);
+
+    public static final String ENTITY_REGION = "product";
+    public static final String QUERY_REGION = "product-queries";
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        Product changed = event.getAfter() != null ? event.getAfter() : event.getBefore();
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        if (changed != null && changed.getProductId() != null) {
+            sessionFactory.getCache().evictEntityData(Product.class, changed.getProductId());
+        }
+        sessionFactory.getCache().evictQueryRegion(QUERY_REGION);
+        logger.debug("Evicted cached catalog data for product {}", changed != null ? changed.getProductId() : null);
+    }
+
+    /**
+     * Hit, miss and put counts of the product cache regions since startup
+     */
+    public Map<String, Object> stats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        stats.put(ENTITY_REGION, region(statistics.getDomainDataRegionStatistics(ENTITY_REGION)));
+        stats.put(QUERY_REGION, region(statistics.getQueryRegionStatistics(QUERY_REGION)));
+        return stats;
+    }
+
+    private static Map<String, Object> region(CacheRegionStatistics region) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (region == null) {
+            return stats;
+        }
+        long hits = region.getHitCount();
+        long misses = region.getMissCount();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("puts", region.getPutCount());
+        stats.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return stats;
+    }
+}
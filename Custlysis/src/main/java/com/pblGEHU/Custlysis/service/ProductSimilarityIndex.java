@@ -0,0 +1,422 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.entity.CustomerProductInteraction;
+import com.pblGEHU.Custlysis.event.InteractionChangedEvent;
+import com.pblGEHU.Custlysis.util.IntDoubleHashMap;
+import com.pblGEHU.Custlysis.util.IntObjectHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Item-to-item product similarity from customer co-usage ("customers who use X also use Y").
+ * Each customer is a sparse vector of usage-score weights over products; the index keeps
+ * the product × product dot products and per-product norms of those vectors, so the cosine
+ * similarity of any pair is one lookup. Interaction writes adjust the affected sums in place,
+ * recompute the written product's neighbor list and drop only the lists whose top N the
+ * write can change; those are recomputed by the next lookup under the read lock.
+ */
+@Service
+public class ProductSimilarityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSimilarityIndex.class);
+
+    // Sums that cancel out to within this are treated as zero and dropped
+    private static final double EPSILON = 1e-9;
+    private static final int IN_CLAUSE_CHUNK = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${custlysis.products.similarity.top-n:20}")
+    private int topN;
+
+    @Value("${custlysis.startup-load.enabled:true}")
+    private boolean startupLoad;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private CoUsage coUsage;
+
+    // Customers written while a rebuild reads the table. The scan may or may not have seen those
+    // writes, so their vectors are re-read from the database before the swap instead of replayed.
+    private Set<Integer> touchedDuringRebuild;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!startupLoad) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.warn("Could not build product similarity index; retrying on first lookup: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${custlysis.products.similarity.rebuild-cron:0 45 2 * * *}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.warn("Product similarity rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuild co-usage sums and every neighbor list from customer_product_interaction
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (touchedDuringRebuild != null) {
+                return;
+            }
+            touchedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long started = System.currentTimeMillis();
+        CoUsage fresh = new CoUsage(topN);
+        int reloaded = 0;
+        try {
+            jdbcTemplate.query("SELECT customer_id, product_id, usage_score FROM customer_product_interaction "
+                    + "WHERE customer_id IS NOT NULL AND product_id IS NOT NULL", rs -> {
+                fresh.add(rs.getInt(1), rs.getInt(2), weight(rs.getBigDecimal(3)));
+            });
+            fresh.precomputeNeighbors();
+
+            // Swap once a reload round finds no customer written since it started
+            while (true) {
+                Set<Integer> customerIds;
+                lock.writeLock().lock();
+                try {
+                    if (touchedDuringRebuild.isEmpty()) {
+                        touchedDuringRebuild = null;
+                        coUsage = fresh;
+                        break;
+                    }
+                    customerIds = touchedDuringRebuild;
+                    touchedDuringRebuild = new HashSet<>();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                reload(fresh, customerIds);
+                reloaded += customerIds.size();
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                touchedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        logger.info("Product similarity index built for {} products from {} customers in {} ms "
+                + "({} customers re-read after concurrent writes)",
+            fresh.norms.size(), fresh.customers.size(), System.currentTimeMillis() - started, reloaded);
+    }
+
+    /**
+     * Up to {@code limit} products most similar to {@code productId} with their cosine
+     * similarity, best first; empty when no customer uses it together with another product.
+     * Throws NotReadyException while another thread is still building the first index.
+     */
+    public Map<Integer, Double> similarTo(int productId, int limit) {
+        if (!isReady()) {
+            rebuild();
+            if (!isReady()) {
+                throw new NotReadyException("Product similarity index is still loading");
+            }
+        }
+        Neighbors neighbors;
+        // A list dropped by a write is recomputed here; writers are excluded, other readers are not
+        lock.readLock().lock();
+        try {
+            neighbors = coUsage.neighbors(productId);
+        } finally {
+            lock.readLock().unlock();
+        }
+        Map<Integer, Double> result = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(limit, neighbors.size); i++) {
+            result.put(neighbors.productIds[i], neighbors.similarities[i]);
+        }
+        return result;
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return coUsage != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onInteractionChanged(InteractionChangedEvent event) {
+        CustomerProductInteraction before = event.getBefore();
+        CustomerProductInteraction after = event.getAfter();
+        lock.writeLock().lock();
+        try {
+            if (coUsage != null) {
+                add(coUsage, before, -1);
+                add(coUsage, after, 1);
+            }
+            if (touchedDuringRebuild != null) {
+                touch(before);
+                touch(after);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean counts(CustomerProductInteraction interaction) {
+        return interaction != null && interaction.getCustomer() != null && interaction.getProduct() != null
+            && interaction.getCustomer().getCustomerId() != null && interaction.getProduct().getProductId() != null;
+    }
+
+    private static void add(CoUsage index, CustomerProductInteraction interaction, int sign) {
+        if (counts(interaction)) {
+            index.add(interaction.getCustomer().getCustomerId(), interaction.getProduct().getProductId(),
+                sign * weight(interaction.getUsageScore()));
+        }
+    }
+
+    private void touch(CustomerProductInteraction interaction) {
+        if (counts(interaction)) {
+            touchedDuringRebuild.add(interaction.getCustomer().getCustomerId());
+        }
+    }
+
+    // Set each customer's vector in the unpublished index to what the database holds now
+    private void reload(CoUsage index, Set<Integer> customerIds) {
+        List<Integer> ids = new ArrayList<>(customerIds);
+        for (int from = 0; from < ids.size(); from += IN_CLAUSE_CHUNK) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + IN_CLAUSE_CHUNK, ids.size()));
+            IntObjectHashMap<IntDoubleHashMap> vectors = new IntObjectHashMap<>(chunk.size());
+            chunk.forEach(id -> vectors.put(id, new IntDoubleHashMap(4)));
+            StringJoiner placeholders = new StringJoiner(", ", "(", ")");
+            chunk.forEach(id -> placeholders.add("?"));
+            jdbcTemplate.query("SELECT customer_id, product_id, usage_score FROM customer_product_interaction "
+                    + "WHERE customer_id IN " + placeholders + " AND product_id IS NOT NULL", rs -> {
+                vectors.get(rs.getInt(1)).add(rs.getInt(2), weight(rs.getBigDecimal(3)));
+            }, chunk.toArray());
+            vectors.forEach((customerId, vector) -> {
+                index.setCustomer(customerId, vector);
+                return true;
+            });
+        }
+    }
+
+    // An interaction without a usage score still counts as plain use
+    static double weight(BigDecimal usageScore) {
+        return usageScore == null ? 1.0 : Math.max(0, usageScore.doubleValue());
+    }
+
+    /**
+     * Customer usage vectors and the co-usage sums derived from them
+     */
+    private static final class CoUsage {
+        private final int topN;
+        // customerId → productId → summed usage weight
+        private final IntObjectHashMap<IntDoubleHashMap> customers = new IntObjectHashMap<>();
+        // productId → productId → Σ over customers of weight × weight, kept symmetric
+        private final IntObjectHashMap<IntDoubleHashMap> dots = new IntObjectHashMap<>();
+        // productId → Σ over customers of weight²
+        private final IntDoubleHashMap norms = new IntDoubleHashMap();
+        // Filled by readers under the read lock, so it must be safe for concurrent puts
+        private final Map<Integer, Neighbors> cached = new ConcurrentHashMap<>();
+
+        CoUsage(int topN) {
+            this.topN = topN;
+        }
+
+        void add(int customerId, int productId, double delta) {
+            if (delta == 0) {
+                return;
+            }
+            IntDoubleHashMap vector = customers.get(customerId);
+            if (vector == null) {
+                vector = new IntDoubleHashMap(4);
+                customers.put(customerId, vector);
+            }
+            double old = vector.get(productId);
+            double updated = old + delta;
+            double change = updated - old;
+
+            List<Integer> coUsed = new ArrayList<>(vector.size());
+            vector.forEach((other, weight) -> {
+                if (other != productId) {
+                    addDot(productId, other, change * weight);
+                    addDot(other, productId, change * weight);
+                    coUsed.add(other);
+                }
+            });
+            if (Math.abs(updated) < EPSILON) {
+                vector.remove(productId);
+                if (vector.isEmpty()) {
+                    customers.remove(customerId);
+                }
+            } else {
+                vector.put(productId, updated);
+            }
+            addNorm(productId, updated * updated - old * old);
+
+            // Every cosine involving this product changed with its norm, and only those.
+            // Nothing is cached yet while a rebuild scans the table.
+            if (cached.isEmpty()) {
+                return;
+            }
+            if (cached.remove(productId) != null) {
+                neighbors(productId);
+            }
+            IntDoubleHashMap row = dots.get(productId);
+            if (row != null) {
+                row.forEach((other, dot) -> invalidate(other, productId));
+            }
+            // Co-used products whose dot product just dropped to zero are no longer in the row
+            for (int other : coUsed) {
+                if (row == null || !row.containsKey(other)) {
+                    invalidate(other, productId);
+                }
+            }
+        }
+
+        // Replace a customer's usage vector, applying only the differences
+        void setCustomer(int customerId, IntDoubleHashMap target) {
+            IntDoubleHashMap changes = new IntDoubleHashMap(4);
+            IntDoubleHashMap current = customers.get(customerId);
+            if (current != null) {
+                current.forEach((product, weight) -> changes.put(product, -weight));
+            }
+            target.forEach(changes::add);
+            changes.forEach((product, change) -> add(customerId, product, change));
+        }
+
+        // Drop other's cached list if product is on it or its changed similarity now makes the cut
+        private void invalidate(int other, int product) {
+            Neighbors list = cached.get(other);
+            if (list != null && (list.contains(product) || list.admits(similarity(other, product)))) {
+                cached.remove(other);
+            }
+        }
+
+        private double similarity(int product, int other) {
+            IntDoubleHashMap row = dots.get(product);
+            double dot = row != null ? row.get(other) : 0;
+            double norm = norms.get(product);
+            double otherNorm = norms.get(other);
+            return dot > 0 && norm > 0 && otherNorm > 0 ? dot / Math.sqrt(norm * otherNorm) : 0;
+        }
+
+        private void addDot(int product, int other, double delta) {
+            IntDoubleHashMap row = dots.get(product);
+            if (row == null) {
+                row = new IntDoubleHashMap();
+                dots.put(product, row);
+            }
+            if (Math.abs(row.add(other, delta)) < EPSILON) {
+                row.remove(other);
+                if (row.isEmpty()) {
+                    dots.remove(product);
+                }
+            }
+        }
+
+        private void addNorm(int product, double delta) {
+            if (norms.add(product, delta) < EPSILON) {
+                norms.remove(product);
+            }
+        }
+
+        void precomputeNeighbors() {
+            for (int product : dots.keys()) {
+                neighbors(product);
+            }
+        }
+
+        // Top-N cosine neighbors of a product, cached until a write touches them
+        Neighbors neighbors(int product) {
+            Neighbors existing = cached.get(product);
+            if (existing != null) {
+                return existing;
+            }
+            Neighbors neighbors = new Neighbors(topN);
+            IntDoubleHashMap row = dots.get(product);
+            double norm = norms.get(product);
+            if (row != null && norm > 0) {
+                row.forEach((other, dot) -> {
+                    double otherNorm = norms.get(other);
+                    if (dot > 0 && otherNorm > 0) {
+                        neighbors.offer(other, dot / Math.sqrt(norm * otherNorm));
+                    }
+                });
+            }
+            cached.put(product, neighbors);
+            return neighbors;
+        }
+    }
+
+    /**
+     * Neighbor ids and similarities sorted best first, at most topN of them
+     */
+    private static final class Neighbors {
+        private final int[] productIds;
+        private final double[] similarities;
+        private int size;
+
+        Neighbors(int capacity) {
+            productIds = new int[capacity];
+            similarities = new double[capacity];
+        }
+
+        boolean contains(int productId) {
+            for (int i = 0; i < size; i++) {
+                if (productIds[i] == productId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Whether offering this similarity would change the list
+        boolean admits(double similarity) {
+            return similarity > 0 && (size < productIds.length || similarity > similarities[size - 1]);
+        }
+
+        // Insertion into the sorted arrays; N is small, so this beats a heap plus a final sort
+        void offer(int productId, double similarity) {
+            if (size == productIds.length && (size == 0 || similarity <= similarities[size - 1])) {
+                return;
+            }
+            int at = size < productIds.length ? size++ : size - 1;
+            while (at > 0 && similarities[at - 1] < similarity) {
+                productIds[at] = productIds[at - 1];
+                similarities[at] = similarities[at - 1];
+                at--;
+            }
+            productIds[at] = productId;
+            similarities[at] = Math.min(1.0, similarity);
+        }
+    }
+}
@@ -0,0 +1,610 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.dto.RecommendationRunResult;
+import com.pblGEHU.Custlysis.entity.SegmentationLabel;
+import com.pblGEHU.Custlysis.util.IntObjectHashMap;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Generates top-K product recommendations for every customer and writes them to
+ * recommendation_log under one model version. A product's score blends how strongly the
+ * customer's segment engages with it (usage score and satisfaction of segment members),
+ * its popularity and rating, and the customer's own past use, scaled by how well the
+ * product's risk level fits the customer's risk profile. Products the customer actively
+ * holds are never recommended.
+ *
+ * Runs are background jobs on a single thread, polled by id. Inputs are loaded once into
+ * primitive arrays; customers are scored in chunks on a fork-join pool, each chunk reusing
+ * one score array and a bounded min-heap, and each chunk's rows are committed on their own.
+ */
+@Service
+public class RecommendationEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationEngine.class);
+
+    static final double SEGMENT_WEIGHT = 0.40;
+    static final double POPULARITY_WEIGHT = 0.25;
+    static final double RATING_WEIGHT = 0.20;
+    static final double HISTORY_WEIGHT = 0.15;
+
+    private static final double MAX_RATING = 5.0;
+    private static final double MAX_SATISFACTION = 5.0;
+    // Risk levels and profiles map onto 0 (low/conservative) .. 2 (high/aggressive)
+    private static final int RISK_LEVELS = 3;
+    private static final int CHUNK_SIZE = 4096;
+    private static final int BATCH_SIZE = 1000;
+
+    /** Runs without an explicit version all write, and replace, this one */
+    public static final String DEFAULT_MODEL_VERSION = "rec-v1";
+
+    private static final String INSERT_SQL = "INSERT INTO recommendation_log "
+        + "(customer_id, product_id, score, model_version, timestamp) VALUES (?, ?, ?, ?, ?)";
+    // Score and timestamp only: accepted and feedback are outcomes recorded by users
+    private static final String UPDATE_SQL = "UPDATE recommendation_log SET score = ?, timestamp = ? WHERE rec_id = ?";
+    private static final String DELETE_SQL = "DELETE FROM recommendation_log WHERE rec_id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CustomerSegmentIndex segmentIndex;
+
+    @Value("${custlysis.recommendations.parallelism:0}")
+    private int parallelism;
+
+    // Finished runs kept for status lookups; the oldest are dropped first
+    @Value("${custlysis.recommendations.runs.history:20}")
+    private int history;
+
+    private ForkJoinPool pool;
+    private ExecutorService executor;
+    private final Map<String, RecommendationRun> runs = new LinkedHashMap<>();
+    private RecommendationRun active;
+
+    @PostConstruct
+    void start() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "recommendation-run");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Queue a run that replaces the recommendations stored under {@code modelVersion} with each
+     * customer's top {@code topK} products, or return the run already queued or running
+     */
+    public synchronized RecommendationRun submit(int topK, String modelVersion) {
+        if (active != null && !active.isFinished()) {
+            logger.info("Recommendation run {} is already in progress; not starting another", active.getId());
+            return active;
+        }
+        RecommendationRun run = new RecommendationRun(topK, modelVersion);
+        active = run;
+        runs.put(run.getId(), run);
+        trimHistory();
+        executor.execute(() -> execute(run));
+        logger.info("Queued recommendation run {} (model {})", run.getId(), modelVersion);
+        return run;
+    }
+
+    public synchronized RecommendationRun get(String runId) {
+        return runs.get(runId);
+    }
+
+    /**
+     * Most recent runs first
+     */
+    public synchronized List<RecommendationRun> list() {
+        List<RecommendationRun> recent = new ArrayList<>(runs.values());
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    private void execute(RecommendationRun run) {
+        run.start();
+        try {
+            run.succeeded(generate(run));
+        } catch (RuntimeException e) {
+            run.failed(e);
+            logger.error("Recommendation run {} failed", run.getId(), e);
+        }
+    }
+
+    private RecommendationRunResult generate(RecommendationRun run) {
+        int topK = run.getTopK();
+        String modelVersion = run.getModelVersion();
+        long started = System.currentTimeMillis();
+        Catalog catalog = loadCatalog();
+        Customers customers = loadCustomers();
+        IntObjectHashMap<History> histories = loadHistories(catalog);
+        double[] affinity = segmentAffinity(catalog, customers, histories);
+        run.loaded(customers.size);
+        logger.info("Scoring {} customers against {} products ({} segments)", customers.size,
+            catalog.size, customers.segmentCount);
+
+        List<ForkJoinTask<ChunkResult>> tasks = new ArrayList<>();
+        for (int from = 0; from < customers.size; from += CHUNK_SIZE) {
+            int chunkFrom = from;
+            int chunkTo = Math.min(from + CHUNK_SIZE, customers.size);
+            tasks.add(pool.submit(() -> scoreChunk(catalog, customers, histories, affinity, topK, chunkFrom, chunkTo)));
+        }
+        Timestamp timestamp = Timestamp.valueOf(LocalDateTime.now());
+        long written = 0;
+        // Chunks cover ascending customer id ranges; each brings the version's rows in its range up to date
+        int previousLastId = Integer.MIN_VALUE;
+        for (int i = 0; i < tasks.size(); i++) {
+            int chunkFrom = i * CHUNK_SIZE;
+            int chunkTo = Math.min(chunkFrom + CHUNK_SIZE, customers.size);
+            boolean last = i == tasks.size() - 1;
+            int fromId = previousLastId;
+            int toId = last ? Integer.MAX_VALUE : customers.ids[chunkTo - 1];
+            ChunkResult chunk = tasks.get(i).join();
+            tasks.set(i, null);
+            written += write(chunk, modelVersion, timestamp, fromId, toId);
+            run.written(chunkTo - chunkFrom);
+            previousLastId = toId;
+        }
+        if (tasks.isEmpty()) {
+            jdbcTemplate.update("DELETE FROM recommendation_log WHERE model_version = ?", modelVersion);
+        }
+
+        long elapsed = System.currentTimeMillis() - started;
+        logger.info("Generated {} recommendations for {} customers in {} ms (model {})", written,
+            customers.size, elapsed, modelVersion);
+        return new RecommendationRunResult(modelVersion, topK, customers.size, catalog.size, written, elapsed);
+    }
+
+    private void trimHistory() {
+        Iterator<RecommendationRun> it = runs.values().iterator();
+        while (runs.size() > history && it.hasNext()) {
+            RecommendationRun oldest = it.next();
+            if (oldest.isFinished()) {
+                it.remove();
+            }
+        }
+    }
+
+    private Catalog loadCatalog() {
+        Catalog catalog = new Catalog();
+        jdbcTemplate.query("SELECT product_id, risk_level, avg_rating, popularity_score FROM product ORDER BY product_id",
+            rs -> {
+                BigDecimal rating = rs.getBigDecimal(3);
+                BigDecimal popularity = rs.getBigDecimal(4);
+                catalog.add(rs.getInt(1), riskLevel(rs.getString(2)),
+                    rating != null ? rating.doubleValue() : 0, popularity != null ? popularity.doubleValue() : 0);
+            });
+        catalog.finish();
+        return catalog;
+    }
+
+    private Customers loadCustomers() {
+        Customers customers = new Customers();
+        jdbcTemplate.query("SELECT customer_id, risk_profile FROM customer ORDER BY customer_id", rs -> {
+            int customerId = rs.getInt(1);
+            SegmentationLabel label = segmentIndex.get(customerId);
+            String segment = label == null ? null
+                : label.getSegmentName() != null ? label.getSegmentName() : label.getSegmentId();
+            customers.add(customerId, riskTolerance(rs.getString(2)), segment);
+        });
+        return customers;
+    }
+
+    // Interactions per customer, with usage score and satisfaction folded into one 0..1 engagement
+    private IntObjectHashMap<History> loadHistories(Catalog catalog) {
+        Double maxUsage = jdbcTemplate.queryForObject(
+            "SELECT MAX(usage_score) FROM customer_product_interaction", Double.class);
+        double usageScale = maxUsage != null && maxUsage > 0 ? maxUsage : 1;
+
+        IntObjectHashMap<History> histories = new IntObjectHashMap<>();
+        jdbcTemplate.query("SELECT customer_id, product_id, usage_score, satisfaction, is_active "
+                + "FROM customer_product_interaction WHERE customer_id IS NOT NULL AND product_id IS NOT NULL", rs -> {
+            Integer product = catalog.indexOf.get(rs.getInt(2));
+            if (product == null) {
+                return;
+            }
+            BigDecimal usage = rs.getBigDecimal(3);
+            int satisfaction = rs.getInt(4);
+            boolean hasSatisfaction = !rs.wasNull();
+            double engagement = engagement(usage != null ? usage.doubleValue() / usageScale : Double.NaN,
+                hasSatisfaction ? satisfaction / MAX_SATISFACTION : Double.NaN);
+
+            int customerId = rs.getInt(1);
+            History history = histories.get(customerId);
+            if (history == null) {
+                history = new History();
+                histories.put(customerId, history);
+            }
+            history.add(product, engagement, rs.getBoolean(5));
+        });
+        return histories;
+    }
+
+    static double engagement(double usage, double satisfaction) {
+        boolean hasUsage = !Double.isNaN(usage);
+        boolean hasSatisfaction = !Double.isNaN(satisfaction);
+        if (hasUsage && hasSatisfaction) {
+            return clamp((usage + satisfaction) / 2);
+        }
+        if (hasUsage || hasSatisfaction) {
+            return clamp(hasUsage ? usage : satisfaction);
+        }
+        // An interaction with nothing recorded still shows some interest
+        return 0.5;
+    }
+
+    // Mean member engagement per (segment, product), scaled so each segment's best product is 1
+    private static double[] segmentAffinity(Catalog catalog, Customers customers, IntObjectHashMap<History> histories) {
+        int products = catalog.size;
+        double[] affinity = new double[customers.segmentCount * products];
+        int[] members = new int[customers.segmentCount];
+        for (int c = 0; c < customers.size; c++) {
+            int segment = customers.segments[c];
+            if (segment < 0) {
+                continue;
+            }
+            members[segment]++;
+            History history = histories.get(customers.ids[c]);
+            if (history != null) {
+                for (int i = 0; i < history.size; i++) {
+                    affinity[segment * products + history.products[i]] += history.engagement[i];
+                }
+            }
+        }
+        for (int s = 0; s < customers.segmentCount; s++) {
+            double max = 0;
+            for (int p = 0; p < products; p++) {
+                affinity[s * products + p] /= Math.max(1, members[s]);
+                max = Math.max(max, affinity[s * products + p]);
+            }
+            if (max > 0) {
+                for (int p = 0; p < products; p++) {
+                    affinity[s * products + p] /= max;
+                }
+            }
+        }
+        return affinity;
+    }
+
+    private static ChunkResult scoreChunk(Catalog catalog, Customers customers, IntObjectHashMap<History> histories,
+                                          double[] affinity, int topK, int from, int to) {
+        int products = catalog.size;
+        int k = Math.min(topK, products);
+        ChunkResult result = new ChunkResult((to - from) * k);
+        double[] scores = new double[products];
+        TopK heap = new TopK(k);
+
+        for (int c = from; c < to; c++) {
+            int segment = customers.segments[c];
+            int fitOffset = customers.tolerance[c] * products;
+            int affinityOffset = segment * products;
+            for (int p = 0; p < products; p++) {
+                double score = catalog.base[p];
+                if (segment >= 0) {
+                    score += SEGMENT_WEIGHT * affinity[affinityOffset + p];
+                }
+                scores[p] = score;
+            }
+
+            History history = histories.get(customers.ids[c]);
+            if (history != null) {
+                for (int i = 0; i < history.size; i++) {
+                    int p = history.products[i];
+                    scores[p] = history.active[i] ? Double.NEGATIVE_INFINITY
+                        : scores[p] + HISTORY_WEIGHT * history.engagement[i];
+                }
+            }
+
+            heap.clear();
+            for (int p = 0; p < products; p++) {
+                double fit = catalog.riskFit[fitOffset + p];
+                if (fit > 0 && scores[p] != Double.NEGATIVE_INFINITY) {
+                    heap.offer(p, scores[p] * fit);
+                }
+            }
+            heap.drainDescending(customers.ids[c], catalog.ids, result);
+        }
+        return result;
+    }
+
+    /**
+     * Bring this model version's rows for customers in (fromId, toId] in line with the chunk, in
+     * one transaction, so a reader sees each customer's old or new list but never a mix. A
+     * (customer, product) pair already recommended keeps its row and only gets the new score and
+     * timestamp, so accepted and feedback recorded against it survive; new pairs are inserted and
+     * pairs that left the top-K are deleted. The first chunk's range starts at Integer.MIN_VALUE
+     * and the last one's ends at Integer.MAX_VALUE, which drops rows of customers deleted since
+     * the previous run.
+     */
+    private long write(ChunkResult chunk, String modelVersion, Timestamp timestamp, int fromId, int toId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // (customer, product) → ids of the version's existing rows for the pair
+            Map<Long, List<Integer>> existing = new HashMap<>();
+            jdbcTemplate.query("SELECT rec_id, customer_id, product_id FROM recommendation_log "
+                    + "WHERE model_version = ? AND customer_id > ? AND customer_id <= ? FOR UPDATE", rs -> {
+                existing.computeIfAbsent(pair(rs.getInt(2), rs.getInt(3)), key -> new ArrayList<>(1)).add(rs.getInt(1));
+            }, modelVersion, fromId, toId);
+
+            List<Object[]> updates = new ArrayList<>();
+            List<Object[]> inserts = new ArrayList<>();
+            for (int row = 0; row < chunk.size; row++) {
+                BigDecimal score = BigDecimal.valueOf(chunk.scores[row] * 100).setScale(2, RoundingMode.HALF_UP);
+                List<Integer> recIds = existing.remove(pair(chunk.customerIds[row], chunk.productIds[row]));
+                if (recIds == null) {
+                    inserts.add(new Object[]{chunk.customerIds[row], chunk.productIds[row], score, modelVersion, timestamp});
+                } else {
+                    recIds.forEach(recId -> updates.add(new Object[]{score, timestamp, recId}));
+                }
+            }
+            List<Object[]> deletes = new ArrayList<>();
+            existing.values().forEach(recIds -> recIds.forEach(recId -> deletes.add(new Object[]{recId})));
+
+            batch(DELETE_SQL, deletes);
+            batch(UPDATE_SQL, updates);
+            batch(INSERT_SQL, inserts);
+        });
+        return chunk.size;
+    }
+
+    private void batch(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(rows.size(), from + BATCH_SIZE)));
+        }
+    }
+
+    private static long pair(int customerId, int productId) {
+        return ((long) customerId << 32) | (productId & 0xFFFFFFFFL);
+    }
+
+    static int riskLevel(String level) {
+        if (level == null) {
+            return 1;
+        }
+        String normalized = level.trim().toLowerCase();
+        if (normalized.startsWith("low")) {
+            return 0;
+        }
+        return normalized.startsWith("high") ? 2 : 1;
+    }
+
+    static int riskTolerance(String profile) {
+        if (profile == null) {
+            return 1;
+        }
+        String normalized = profile.trim().toLowerCase();
+        if (normalized.startsWith("conservative") || normalized.startsWith("low")) {
+            return 0;
+        }
+        return normalized.startsWith("aggressive") || normalized.startsWith("high") ? 2 : 1;
+    }
+
+    private static double clamp(double value) {
+        return Math.max(0, Math.min(1, value));
+    }
+
+    /**
+     * Product columns the scorer reads, indexed by position in the catalog
+     */
+    private static final class Catalog {
+        private final Map<Integer, Integer> indexOf = new HashMap<>();
+        private int[] ids = new int[64];
+        private int[] risk = new int[64];
+        private double[] rating = new double[64];
+        private double[] popularity = new double[64];
+        private int size;
+
+        // Derived by finish(): customer-independent part of the score, and risk fit per tolerance level
+        private double[] base;
+        private double[] riskFit;
+
+        void add(int id, int riskLevel, double avgRating, double popularityScore) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                risk = Arrays.copyOf(risk, size * 2);
+                rating = Arrays.copyOf(rating, size * 2);
+                popularity = Arrays.copyOf(popularity, size * 2);
+            }
+            indexOf.put(id, size);
+            ids[size] = id;
+            risk[size] = riskLevel;
+            rating[size] = avgRating;
+            popularity[size] = popularityScore;
+            size++;
+        }
+
+        void finish() {
+            double maxPopularity = 0;
+            for (int p = 0; p < size; p++) {
+                maxPopularity = Math.max(maxPopularity, popularity[p]);
+            }
+            base = new double[size];
+            for (int p = 0; p < size; p++) {
+                double pop = maxPopularity > 0 ? popularity[p] / maxPopularity : 0;
+                base[p] = POPULARITY_WEIGHT * clamp(pop) + RATING_WEIGHT * clamp(rating[p] / MAX_RATING);
+            }
+            // Full score within the customer's tolerance, half one level above it; products further
+            // above get 0 and are left out, so a customer may get fewer than topK recommendations
+            riskFit = new double[RISK_LEVELS * size];
+            for (int t = 0; t < RISK_LEVELS; t++) {
+                for (int p = 0; p < size; p++) {
+                    riskFit[t * size + p] = Math.max(0, 1 - 0.5 * Math.max(0, risk[p] - t));
+                }
+            }
+        }
+    }
+
+    private static final class Customers {
+        private final Map<String, Integer> segmentIds = new HashMap<>();
+        private int[] ids = new int[1024];
+        private int[] tolerance = new int[1024];
+        // Index into segmentIds, or -1 for customers without a label
+        private int[] segments = new int[1024];
+        private int segmentCount;
+        private int size;
+
+        void add(int id, int riskTolerance, String segment) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                tolerance = Arrays.copyOf(tolerance, size * 2);
+                segments = Arrays.copyOf(segments, size * 2);
+            }
+            ids[size] = id;
+            tolerance[size] = riskTolerance;
+            segments[size] = segment == null ? -1 : segmentIds.computeIfAbsent(segment, s -> segmentCount++);
+            size++;
+        }
+    }
+
+    private static final class History {
+        private int[] products = new int[4];
+        private double[] engagement = new double[4];
+        private boolean[] active = new boolean[4];
+        private int size;
+
+        void add(int product, double value, boolean isActive) {
+            if (size == products.length) {
+                products = Arrays.copyOf(products, size * 2);
+                engagement = Arrays.copyOf(engagement, size * 2);
+                active = Arrays.copyOf(active, size * 2);
+            }
+            products[size] = product;
+            engagement[size] = value;
+            active[size] = isActive;
+            size++;
+        }
+    }
+
+    private static final class ChunkResult {
+        private final int[] customerIds;
+        private final int[] productIds;
+        private final double[] scores;
+        private int size;
+
+        ChunkResult(int capacity) {
+            customerIds = new int[capacity];
+            productIds = new int[capacity];
+            scores = new double[capacity];
+        }
+    }
+
+    /**
+     * Bounded min-heap of (product index, score): keeps the k best offers seen since the last clear
+     */
+    static final class TopK {
+        private final int[] products;
+        private final double[] scores;
+        private int size;
+
+        TopK(int k) {
+            products = new int[k];
+            scores = new double[k];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void offer(int product, double score) {
+            if (size < products.length) {
+                products[size] = product;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (size > 0 && score > scores[0]) {
+                products[0] = product;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        // Append the kept products to the result, best first; empties the heap
+        private void drainDescending(int customerId, int[] productIds, ChunkResult result) {
+            int count = size;
+            int end = result.size + count;
+            while (size > 0) {
+                int slot = result.size + size - 1;
+                result.customerIds[slot] = customerId;
+                result.productIds[slot] = productIds[products[0]];
+                result.scores[slot] = scores[0];
+                size--;
+                products[0] = products[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+            result.size = end;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (scores[parent] <= scores[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && scores[left] < scores[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && scores[right] < scores[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int product = products[a];
+            products[a] = products[b];
+            products[b] = product;
+            double score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
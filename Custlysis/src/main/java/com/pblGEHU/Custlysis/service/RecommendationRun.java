@@ -0,0 +1,83 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.dto.RecommendationRunResult;
+import com.pblGEHU.Custlysis.dto.RecommendationRunStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * State of one recommendation generation run, updated by the engine as each chunk of
+ * customers is committed
+ */
+public class RecommendationRun {
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    private final String id = UUID.randomUUID().toString();
+    private final int topK;
+    private final String modelVersion;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+
+    private Status status = Status.QUEUED;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private Integer customers;
+    private int customersWritten;
+    private RecommendationRunResult result;
+    private String error;
+
+    RecommendationRun(int topK, String modelVersion) {
+        this.topK = topK;
+        this.modelVersion = modelVersion;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public String getModelVersion() {
+        return modelVersion;
+    }
+
+    public synchronized boolean isFinished() {
+        return status == Status.SUCCEEDED || status == Status.FAILED;
+    }
+
+    synchronized void start() {
+        status = Status.RUNNING;
+        startedAt = LocalDateTime.now();
+    }
+
+    synchronized void loaded(int customers) {
+        this.customers = customers;
+    }
+
+    synchronized void written(int customers) {
+        customersWritten += customers;
+    }
+
+    synchronized void succeeded(RecommendationRunResult result) {
+        finish(Status.SUCCEEDED);
+        this.result = result;
+    }
+
+    synchronized void failed(Throwable cause) {
+        finish(Status.FAILED);
+        error = cause.getMessage() != null ? cause.getMessage() : cause.toString();
+    }
+
+    private void finish(Status outcome) {
+        status = outcome;
+        finishedAt = LocalDateTime.now();
+    }
+
+    public synchronized RecommendationRunStatus toStatus() {
+        return new RecommendationRunStatus(id, status.name(), modelVersion, topK, submittedAt, startedAt, finishedAt,
+            customers, customersWritten, result, error);
+    }
+}
@@ -0,0 +1,178 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pblGEHU.Custlysis.dto.SegmentPrediction;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Assigns customers to segments in-process from the exported model artifact, without
+ * going through Python. Only the scaler parameters and centroids are needed, so a
+ * prediction is a handful of distance computations over primitive arrays.
+ */
+@Service
+public class SegmentScorer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentScorer.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CustomerFeatureExtractor featureExtractor;
+
+    @Autowired
+    private CustomerFeatureStore featureStore;
+
+    @Value("${custlysis.ml.model-artifact:segmentation_model.json}")
+    private String artifactPath;
+
+    private volatile Scoring scoring;
+
+    @PostConstruct
+    void loadOnStartup() {
+        try {
+            if (!reload()) {
+                logger.info("No model artifact at {}; predictions are unavailable until a model is trained", artifactPath);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not load model artifact {}: {}", artifactPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Re-read the artifact from disk, e.g. after the Python trainer replaced it
+     */
+    public boolean reload() throws IOException {
+        Path path = Path.of(artifactPath);
+        if (!Files.exists(path)) {
+            return false;
+        }
+        install(SegmentationModelArtifact.read(path, objectMapper));
+        return true;
+    }
+
+    /**
+     * Export a freshly trained model and start scoring with it
+     */
+    public void publish(SegmentationModel model) throws IOException {
+        SegmentationModelArtifact.write(model, Path.of(artifactPath), objectMapper);
+        install(model);
+    }
+
+    public boolean isReady() {
+        return scoring != null;
+    }
+
+    public SegmentationModel getModel() {
+        Scoring current = scoring;
+        return current == null ? null : current.model;
+    }
+
+    /**
+     * Predict segments for the given customers, in ascending customer id order.
+     * Ids that don't exist are left out of the result.
+     */
+    public List<SegmentPrediction> predict(Collection<Integer> customerIds) {
+        Scoring current = scoring;
+        if (current == null) {
+            throw new IllegalStateException("No segmentation model has been trained yet");
+        }
+
+        FeatureMatrix features = featureStore.isReady()
+            ? featureStore.featuresFor(customerIds)
+            : featureExtractor.extractFor(customerIds);
+        int rows = features.getRows();
+        int[] labels = new int[rows];
+        double[] confidences = new double[rows];
+        current.score(features.getValues(), rows, labels, confidences);
+
+        SegmentationModel model = current.model;
+        List<SegmentPrediction> predictions = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            predictions.add(new SegmentPrediction(features.getCustomerIds()[i], String.valueOf(labels[i]),
+                model.getSegmentNames()[labels[i]], confidences[i], model.getModelVersion()));
+        }
+        return predictions;
+    }
+
+    private void install(SegmentationModel model) {
+        if (model.getFeatureCount() != CustomerFeatureExtractor.FEATURE_COUNT) {
+            throw new IllegalArgumentException("Model expects " + model.getFeatureCount()
+                + " features, extractor produces " + CustomerFeatureExtractor.FEATURE_COUNT);
+        }
+        scoring = new Scoring(model);
+        logger.info("Segment scorer using model {} ({} segments)", model.getModelVersion(), model.getClusters());
+    }
+
+    /**
+     * Immutable scoring view of a model with the per-feature constants precomputed.
+     */
+    static final class Scoring {
+        final SegmentationModel model;
+        final int k;
+        final int d;
+        final double[] mean;
+        final double[] inverseScale;
+        final double[] fill;
+        final double[] centroids;
+        final double maxDistance;
+
+        Scoring(SegmentationModel model) {
+            this.model = model;
+            this.k = model.getClusters();
+            this.d = model.getFeatureCount();
+            this.mean = model.getMean().clone();
+            this.centroids = model.getCentroids().clone();
+            this.maxDistance = model.getMaxDistance();
+            this.inverseScale = new double[d];
+            this.fill = new double[d];
+            for (int j = 0; j < d; j++) {
+                inverseScale[j] = 1.0 / model.getScale()[j];
+                double median = model.getMedians()[j];
+                // Columns that never needed imputation in training fall back to the mean
+                fill[j] = Double.isNaN(median) ? mean[j] : median;
+            }
+        }
+
+        /**
+         * Score rows of a row-major feature array into the caller's output arrays
+         */
+        void score(double[] x, int rows, int[] labels, double[] confidences) {
+            for (int i = 0; i < rows; i++) {
+                int offset = i * d;
+                int nearest = 0;
+                double nearestDistance = Double.MAX_VALUE;
+                for (int c = 0; c < k; c++) {
+                    int centroidOffset = c * d;
+                    double distance = 0;
+                    for (int j = 0; j < d; j++) {
+                        double value = x[offset + j];
+                        if (Double.isNaN(value)) {
+                            value = fill[j];
+                        }
+                        double z = (value - mean[j]) * inverseScale[j] - centroids[centroidOffset + j];
+                        distance += z * z;
+                    }
+                    if (distance < nearestDistance) {
+                        nearestDistance = distance;
+                        nearest = c;
+                    }
+                }
+                labels[i] = nearest;
+                confidences[i] = maxDistance > 0 ? Math.max(0, 1 - Math.sqrt(nearestDistance) / maxDistance) : 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.dto.SegmentInfo;
+import com.pblGEHU.Custlysis.entity.SegmentationLabel;
+import com.pblGEHU.Custlysis.event.SegmentationLabelChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Per-segment label statistics (count, share, average/min/max score, score histogram),
+ * kept per model version and across all versions, so the segments endpoint never scans
+ * segmentation_label. Built in bulk from a grouped query after training and applied
+ * incrementally on label writes through the API; a periodic rebuild corrects any drift
+ * from writes that race a bulk rebuild.
+ */
+@Service
+public class SegmentStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentStatistics.class);
+    static final int HISTOGRAM_BINS = 10;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${custlysis.startup-load.enabled:true}")
+    private boolean startupLoad;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private StatsTable table;
+
+    private final SnapshotRebuild<StatsTable> rebuilds = new SnapshotRebuild<>(lock);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!startupLoad) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.warn("Could not build segment statistics; retrying on first request: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${custlysis.segments.stats-rebuild-interval-ms:600000}",
+        initialDelayString = "${custlysis.segments.stats-rebuild-interval-ms:600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.warn("Segment statistics rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recompute every statistic from the database and swap the new table in atomically.
+     * Reads one row per distinct (model version, segment, score) rather than one per label.
+     */
+    public void rebuild() {
+        rebuilds.run(() -> {
+            long started = System.currentTimeMillis();
+            StatsTable fresh = new StatsTable();
+            jdbcTemplate.query("SELECT model_version, segment_id, MAX(segment_name), segment_score, COUNT(*) "
+                    + "FROM segmentation_label GROUP BY model_version, segment_id, segment_score",
+                rs -> {
+                    fresh.add(rs.getString(1), rs.getString(2), rs.getString(3), rs.getBigDecimal(4), rs.getLong(5));
+                });
+            logger.info("Segment statistics built for {} labels in {} ms", fresh.all.total,
+                System.currentTimeMillis() - started);
+            return fresh;
+        }, fresh -> table = fresh);
+    }
+
+    /**
+     * Statistics per segment for one model version, or across all versions when null.
+     * Throws NotReadyException while another thread is still building the first table.
+     */
+    public List<SegmentInfo> segments(String modelVersion) {
+        if (!isReady()) {
+            rebuild();
+            if (!isReady()) {
+                throw new NotReadyException("Segment statistics are still loading");
+            }
+        }
+        lock.readLock().lock();
+        try {
+            View view = modelVersion == null ? table.all : table.byVersion.get(modelVersion);
+            List<SegmentInfo> result = new ArrayList<>();
+            if (view != null) {
+                view.segments.forEach((segmentId, segment) ->
+                    result.add(segment.toInfo(segmentId, modelVersion, view.total)));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return table != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onLabelChanged(SegmentationLabelChangedEvent event) {
+        SegmentationLabel before = event.getBefore();
+        SegmentationLabel after = event.getAfter();
+        apply(stats -> {
+            stats.add(before, -1);
+            stats.add(after, 1);
+        });
+    }
+
+    private void apply(Consumer<StatsTable> change) {
+        lock.writeLock().lock();
+        try {
+            if (table != null) {
+                change.accept(table);
+            }
+            rebuilds.record(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static int bin(BigDecimal score) {
+        int bin = (int) Math.floor(score.doubleValue() * HISTOGRAM_BINS);
+        return Math.max(0, Math.min(HISTOGRAM_BINS - 1, bin));
+    }
+
+    /**
+     * One view over all versions plus one per model version; every label counts in both
+     */
+    private static final class StatsTable {
+        private final View all = new View();
+        private final Map<String, View> byVersion = new HashMap<>();
+
+        void add(SegmentationLabel label, long delta) {
+            if (label != null) {
+                add(label.getModelVersion(), label.getSegmentId(), label.getSegmentName(), label.getSegmentScore(), delta);
+            }
+        }
+
+        void add(String modelVersion, String segmentId, String segmentName, BigDecimal score, long delta) {
+            all.add(segmentId, segmentName, score, delta);
+            View version = byVersion.computeIfAbsent(modelVersion, v -> new View());
+            version.add(segmentId, segmentName, score, delta);
+            if (version.total == 0) {
+                byVersion.remove(modelVersion);
+            }
+        }
+    }
+
+    private static final class View {
+        private final Map<String, SegmentAccumulator> segments = new TreeMap<>();
+        private long total;
+
+        void add(String segmentId, String segmentName, BigDecimal score, long delta) {
+            SegmentAccumulator segment = segments.computeIfAbsent(segmentId, id -> new SegmentAccumulator());
+            segment.add(segmentName, score, delta);
+            total += delta;
+            if (segment.count <= 0) {
+                segments.remove(segmentId);
+            }
+        }
+    }
+
+    /**
+     * Running totals for one segment. Scores are kept as a value → count multiset so
+     * min and max stay exact when labels are removed.
+     */
+    private static final class SegmentAccumulator {
+        private String segmentName;
+        private long count;
+        private long scoredCount;
+        private BigDecimal scoreSum = BigDecimal.ZERO;
+        private final TreeMap<BigDecimal, Long> scores = new TreeMap<>();
+        private final long[] histogram = new long[HISTOGRAM_BINS];
+
+        void add(String name, BigDecimal score, long delta) {
+            if (delta > 0 && name != null) {
+                segmentName = name;
+            }
+            count += delta;
+            if (score == null) {
+                return;
+            }
+            scoredCount += delta;
+            scoreSum = scoreSum.add(score.multiply(BigDecimal.valueOf(delta)));
+            scores.merge(score, delta, (a, b) -> a + b <= 0 ? null : a + b);
+            histogram[bin(score)] += delta;
+        }
+
+        SegmentInfo toInfo(String segmentId, String modelVersion, long total) {
+            double percentage = total > 0 ? count * 100.0 / total : 0;
+            BigDecimal avgScore = scoredCount > 0
+                ? scoreSum.divide(BigDecimal.valueOf(scoredCount), 2, RoundingMode.HALF_UP)
+                : null;
+            List<Long> bins = new ArrayList<>(HISTOGRAM_BINS);
+            for (long bin : histogram) {
+                bins.add(bin);
+            }
+            return new SegmentInfo(segmentId, segmentName != null ? segmentName : segmentId, modelVersion, count,
+                percentage, avgScore, scores.isEmpty() ? null : scores.firstKey(),
+                scores.isEmpty() ? null : scores.lastKey(), scoredCount, bins);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.dto.SegmentProfile;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Fitted K-Means segmentation: StandardScaler parameters, centroids in scaled space
+ * and the per-segment profile used to name each cluster.
+ */
+@Getter
+@AllArgsConstructor
+public class SegmentationModel {
+
+    private final String modelVersion;
+    private final LocalDateTime trainedAt;
+    private final List<String> featureNames;
+    private final int clusters;
+
+    /** StandardScaler mean_ and scale_ per feature */
+    private final double[] mean;
+    private final double[] scale;
+
+    /** Training medians for features that needed imputation, NaN otherwise */
+    private final double[] medians;
+
+    /** clusters × features, row-major, in scaled space */
+    private final double[] centroids;
+
+    /** Largest distance of a training customer to its own centroid, used to normalise confidence */
+    private final double maxDistance;
+
+    private final String[] segmentNames;
+    private final List<SegmentProfile> segmentProfiles;
+
+    public int getFeatureCount() {
+        return mean.length;
+    }
+}
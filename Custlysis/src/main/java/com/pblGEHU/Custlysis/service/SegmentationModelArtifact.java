@@ -0,0 +1,133 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.pblGEHU.Custlysis.dto.SegmentProfile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and writes the portable model artifact (segmentation_model.json) shared by the
+ * native trainer and customer_segmentation_model.py. It holds everything needed to score
+ * a customer: scaler parameters, imputation medians, centroids and segment names.
+ */
+public final class SegmentationModelArtifact {
+
+    /** Bumped whenever the layout changes incompatibly */
+    public static final int FORMAT_VERSION = 1;
+
+    private SegmentationModelArtifact() {
+    }
+
+    public static void write(SegmentationModel model, Path path, ObjectMapper mapper) throws IOException {
+        int d = model.getFeatureCount();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("format_version", FORMAT_VERSION);
+        root.put("model_version", model.getModelVersion());
+        root.put("trained_at", model.getTrainedAt().toString());
+        root.set("feature_names", mapper.valueToTree(model.getFeatureNames()));
+
+        ObjectNode scaler = root.putObject("scaler");
+        scaler.set("mean", doubles(mapper, model.getMean()));
+        scaler.set("scale", doubles(mapper, model.getScale()));
+        root.set("medians", doubles(mapper, model.getMedians()));
+        root.put("max_distance", model.getMaxDistance());
+
+        ArrayNode centroids = root.putArray("centroids");
+        ArrayNode segments = root.putArray("segments");
+        for (int c = 0; c < model.getClusters(); c++) {
+            double[] centroid = new double[d];
+            System.arraycopy(model.getCentroids(), c * d, centroid, 0, d);
+            centroids.add(doubles(mapper, centroid));
+
+            ObjectNode segment = segments.addObject();
+            segment.put("id", String.valueOf(c));
+            segment.put("name", model.getSegmentNames()[c]);
+            segment.set("profile", mapper.valueToTree(model.getSegmentProfiles().get(c)));
+        }
+
+        // Write next to the target and rename so readers never see a half-written file
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        mapper.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), root);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static SegmentationModel read(Path path, ObjectMapper mapper) throws IOException {
+        JsonNode root = mapper.readTree(path.toFile());
+        int format = root.path("format_version").asInt(-1);
+        if (format != FORMAT_VERSION) {
+            throw new IOException("Unsupported model artifact format " + format + " in " + path);
+        }
+
+        List<String> featureNames = new ArrayList<>();
+        root.path("feature_names").forEach(name -> featureNames.add(name.asText()));
+        double[] mean = toDoubles(root.path("scaler").path("mean"));
+        double[] scale = toDoubles(root.path("scaler").path("scale"));
+        double[] medians = toDoubles(root.path("medians"));
+        int d = mean.length;
+        if (scale.length != d || featureNames.size() != d) {
+            throw new IOException("Inconsistent feature dimensions in " + path);
+        }
+
+        JsonNode centroidNodes = root.path("centroids");
+        int k = centroidNodes.size();
+        double[] centroids = new double[k * d];
+        String[] names = new String[k];
+        List<SegmentProfile> profiles = new ArrayList<>(k);
+        for (int c = 0; c < k; c++) {
+            double[] centroid = toDoubles(centroidNodes.get(c));
+            if (centroid.length != d) {
+                throw new IOException("Centroid " + c + " has " + centroid.length + " features, expected " + d);
+            }
+            System.arraycopy(centroid, 0, centroids, c * d, d);
+            JsonNode segment = root.path("segments").path(c);
+            names[c] = segment.path("name").asText("Segment " + (c + 1));
+            profiles.add(segment.has("profile")
+                ? mapper.treeToValue(segment.get("profile"), SegmentProfile.class)
+                : new SegmentProfile());
+        }
+
+        return new SegmentationModel(
+            root.path("model_version").asText(),
+            root.hasNonNull("trained_at") ? LocalDateTime.parse(root.get("trained_at").asText()) : null,
+            featureNames, k, mean, scale, medians.length == d ? medians : nanArray(d), centroids,
+            root.path("max_distance").asDouble(), names, profiles);
+    }
+
+    // NaN has no JSON form, so it is written as null
+    private static ArrayNode doubles(ObjectMapper mapper, double[] values) {
+        ArrayNode array = mapper.createArrayNode();
+        for (double value : values) {
+            if (Double.isNaN(value)) {
+                array.addNull();
+            } else {
+                array.add(value);
+            }
+        }
+        return array;
+    }
+
+    private static double[] toDoubles(JsonNode array) {
+        double[] values = new double[array.size()];
+        for (int i = 0; i < values.length; i++) {
+            JsonNode value = array.get(i);
+            values[i] = value == null || value.isNull() ? Double.NaN : value.asDouble();
+        }
+        return values;
+    }
+
+    private static double[] nanArray(int length) {
+        double[] values = new double[length];
+        Arrays.fill(values, Double.NaN);
+        return values;
+    }
+}
@@ -0,0 +1,24 @@
+package com.pblGEHU.Custlysis.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Outcome of a training run: the fitted model plus the assignment of every training customer.
+ */
+@Getter
+@AllArgsConstructor
+public class SegmentationResult {
+
+    private final SegmentationModel model;
+    private final int[] customerIds;
+    private final int[] labels;
+    private final double[] confidences;
+    private final double silhouetteScore;
+
+    /** Sampled silhouette and inertia of the best run for each K in the sweep */
+    private final Map<Integer, Double> silhouetteByK;
+    private final Map<Integer, Double> inertiaByK;
+}
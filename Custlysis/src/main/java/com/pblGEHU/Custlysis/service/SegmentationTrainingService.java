@@ -0,0 +1,158 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.dto.SegmentProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Runs the segmentation training pipeline inside the JVM: features from the maintained
+ * feature store (or the repositories while it is loading), K-Means on the fork-join
+ * engine and a batched write of the assignments.
+ */
+@Service
+public class SegmentationTrainingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentationTrainingService.class);
+    private static final int BATCH_SIZE = 1000;
+
+    @Autowired
+    private CustomerFeatureExtractor featureExtractor;
+
+    @Autowired
+    private CustomerFeatureStore featureStore;
+
+    @Autowired
+    private KMeansSegmentationEngine engine;
+
+    @Autowired
+    private SegmentScorer scorer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Train on every customer and persist the segment assignments; returns the same
+     * results document the Python train action prints. Each step line is also passed to
+     * {@code progress}, which may throw to abort before the next step.
+     */
+    public Map<String, Object> train(Consumer<String> progress) throws IOException {
+        logger.info("============================================================");
+        logger.info("CUSTOMER SEGMENTATION MODEL TRAINING");
+        logger.info("============================================================");
+
+        FeatureMatrix features;
+        if (featureStore.isReady()) {
+            step(progress, "STEP 1-4: Reading maintained customer features...");
+            features = featureStore.snapshot();
+        } else {
+            step(progress, "STEP 1: Fetching customer data...");
+            List<Object[]> customers = featureExtractor.fetchCustomerRows();
+            if (customers.isEmpty()) {
+                throw new IllegalStateException("No customer data found in database");
+            }
+
+            step(progress, "STEP 2: Fetching account data...");
+            Map<Integer, double[]> accounts = featureExtractor.fetchAccountAggregates();
+
+            step(progress, "STEP 3: Fetching transaction data...");
+            Map<Integer, double[]> transactions = featureExtractor.fetchTransactionAggregates();
+
+            step(progress, "STEP 4: Feature extraction...");
+            features = featureExtractor.buildMatrix(customers, accounts, transactions);
+        }
+        if (features.getRows() == 0) {
+            throw new IllegalStateException("No customer data found in database");
+        }
+
+        step(progress, "STEP 5: Training model...");
+        String modelVersion = "v1.0_" + LocalDateTime.now().format(DateTimeFormatter.BASIC_ISO_DATE);
+        SegmentationResult result = engine.train(features, modelVersion);
+
+        // Last step boundary: once saving starts the run completes, so labels and artifact agree
+        step(progress, "STEP 6: Saving assignments and exporting model artifact...");
+        saveAssignments(result);
+        scorer.publish(result.getModel());
+
+        logger.info("TRAINING COMPLETED SUCCESSFULLY");
+        return summarize(result);
+    }
+
+    private static void step(Consumer<String> progress, String line) {
+        logger.info(line);
+        progress.accept(line);
+    }
+
+    // Replaces this model version's labels, mirroring save_segment_assignments
+    private void saveAssignments(SegmentationResult result) {
+        SegmentationModel model = result.getModel();
+        Timestamp assignedOn = Timestamp.valueOf(LocalDateTime.now());
+        int[] ids = result.getCustomerIds();
+
+        List<Object[]> rows = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            int label = result.getLabels()[i];
+            rows.add(new Object[] {
+                ids[i], String.valueOf(label), model.getSegmentNames()[label], assignedOn,
+                model.getModelVersion(),
+                BigDecimal.valueOf(result.getConfidences()[i]).setScale(2, RoundingMode.HALF_UP)
+            });
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM segmentation_label WHERE model_version = ?", model.getModelVersion());
+            for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(
+                    "INSERT INTO segmentation_label "
+                        + "(customer_id, segment_id, segment_name, assigned_on, model_version, segment_score) "
+                        + "VALUES (?, ?, ?, ?, ?, ?) "
+                        + "ON DUPLICATE KEY UPDATE segment_name = VALUES(segment_name), "
+                        + "assigned_on = VALUES(assigned_on), model_version = VALUES(model_version), "
+                        + "segment_score = VALUES(segment_score)",
+                    rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+            }
+        });
+        logger.info("Saved {} segment assignments to database", rows.size());
+    }
+
+    private static Map<String, Object> summarize(SegmentationResult result) {
+        SegmentationModel model = result.getModel();
+        Map<String, Object> segments = new LinkedHashMap<>();
+        for (int s = 0; s < model.getClusters(); s++) {
+            SegmentProfile profile = model.getSegmentProfiles().get(s);
+            Map<String, Object> segment = new LinkedHashMap<>();
+            segment.put("name", model.getSegmentNames()[s]);
+            segment.put("size", profile.getSize());
+            segment.put("percentage", profile.getPercentage());
+            segments.put(String.valueOf(s), segment);
+        }
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("status", "success");
+        results.put("model_version", model.getModelVersion());
+        results.put("clusters", model.getClusters());
+        results.put("customers_processed", result.getCustomerIds().length);
+        results.put("silhouette_score", result.getSilhouetteScore());
+        results.put("silhouette_by_k", result.getSilhouetteByK());
+        results.put("segments", segments);
+        return results;
+    }
+}
@@ -0,0 +1,85 @@
+package com.pblGEHU.Custlysis.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Full rebuilds of an in-memory snapshot that write events also keep current. Writes made
+ * while a rebuild reads the database are recorded and replayed onto the new snapshot before
+ * it is swapped in. Only one rebuild reads at a time; a rebuild requested meanwhile is not
+ * dropped but makes the running one do another pass, so data committed before the request
+ * (e.g. labels saved by a training run) is always picked up.
+ */
+final class SnapshotRebuild<T> {
+
+    // Guards the owner's snapshot as well as the fields below
+    private final ReentrantReadWriteLock lock;
+
+    private List<Consumer<T>> pending;
+    private boolean rerunRequested;
+
+    SnapshotRebuild(ReentrantReadWriteLock lock) {
+        this.lock = lock;
+    }
+
+    /**
+     * Read a fresh snapshot with {@code load} and hand it to {@code install} under the write
+     * lock, after replaying the writes made during the read. If another rebuild is reading,
+     * ask it for one more pass and return at once.
+     */
+    void run(Supplier<T> load, Consumer<T> install) {
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                rerunRequested = true;
+                return;
+            }
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        while (true) {
+            T fresh;
+            try {
+                fresh = load.get();
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    pending = null;
+                    rerunRequested = false;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                pending.forEach(change -> change.accept(fresh));
+                install.accept(fresh);
+                if (!rerunRequested) {
+                    pending = null;
+                    return;
+                }
+                rerunRequested = false;
+                pending = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Keep a write for replay if a rebuild is reading. Callers hold the write lock and apply
+     * the change to the current snapshot themselves.
+     */
+    void record(Consumer<T> change) {
+        if (pending != null) {
+            pending.add(change);
+        }
+    }
+}
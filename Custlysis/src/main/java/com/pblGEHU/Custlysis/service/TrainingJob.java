@@ -0,0 +1,161 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.dto.TrainingJobStatus;
+import com.pblGEHU.Custlysis.dto.TrainingJobStatus.StepTiming;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * State of one segmentation training run. The training code reports its "STEP n: ..." log
+ * lines through {@link #onLogLine}, which turns them into per-step timings and is also where
+ * a requested cancellation takes effect.
+ */
+public class TrainingJob {
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED }
+
+    // "STEP 5: Training model..." or "STEP 1-4: Reading ..." anywhere in a log line
+    private static final Pattern STEP_LINE = Pattern.compile("STEP (\\d+(?:-\\d+)?): (.*?)\\.*\\s*$");
+
+    private final String id = UUID.randomUUID().toString();
+    private final String engine;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private final List<Step> steps = new ArrayList<>();
+
+    private Status status = Status.QUEUED;
+    private boolean cancelRequested;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private Object results;
+    private String error;
+    private Process process;
+
+    TrainingJob(String engine) {
+        this.engine = engine;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public synchronized boolean isFinished() {
+        return status != Status.QUEUED && status != Status.RUNNING;
+    }
+
+    /**
+     * Record a line of training output; throws CancellationException at a step boundary
+     * once cancellation has been requested.
+     */
+    public synchronized void onLogLine(String line) {
+        Matcher matcher = STEP_LINE.matcher(line);
+        if (!matcher.find()) {
+            return;
+        }
+        if (cancelRequested) {
+            throw new CancellationException("Training cancelled before " + matcher.group(2));
+        }
+        LocalDateTime now = LocalDateTime.now();
+        endCurrentStep(now);
+        steps.add(new Step(matcher.group(1), matcher.group(2), now));
+    }
+
+    /**
+     * Let cancellation stop an external training process
+     */
+    public synchronized void attach(Process process) {
+        this.process = process;
+        if (cancelRequested) {
+            process.destroy();
+        }
+    }
+
+    synchronized boolean start() {
+        if (cancelRequested) {
+            finish(Status.CANCELLED, null, "Cancelled before start");
+            return false;
+        }
+        status = Status.RUNNING;
+        startedAt = LocalDateTime.now();
+        return true;
+    }
+
+    synchronized void cancel() {
+        if (isFinished()) {
+            return;
+        }
+        cancelRequested = true;
+        if (status == Status.QUEUED) {
+            finish(Status.CANCELLED, null, "Cancelled before start");
+        } else if (process != null) {
+            process.destroy();
+        }
+    }
+
+    synchronized void succeeded(Object results) {
+        finish(Status.SUCCEEDED, results, null);
+    }
+
+    synchronized void failed(Throwable cause) {
+        if (cancelRequested || cause instanceof CancellationException) {
+            finish(Status.CANCELLED, null, cause.getMessage());
+        } else {
+            finish(Status.FAILED, null, cause.getMessage() != null ? cause.getMessage() : cause.toString());
+        }
+    }
+
+    private void finish(Status outcome, Object results, String error) {
+        finishedAt = LocalDateTime.now();
+        endCurrentStep(finishedAt);
+        this.status = outcome;
+        this.results = results;
+        this.error = error;
+        this.process = null;
+    }
+
+    private void endCurrentStep(LocalDateTime now) {
+        if (!steps.isEmpty()) {
+            Step last = steps.get(steps.size() - 1);
+            if (last.endedAt == null) {
+                last.endedAt = now;
+            }
+        }
+    }
+
+    public synchronized TrainingJobStatus toStatus() {
+        List<StepTiming> timings = new ArrayList<>(steps.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (Step step : steps) {
+            timings.add(new StepTiming(step.step, step.name, step.startedAt,
+                millis(step.startedAt, step.endedAt != null ? step.endedAt : now)));
+        }
+        String currentStep = status == Status.RUNNING && !steps.isEmpty()
+            ? steps.get(steps.size() - 1).name : null;
+        Long durationMs = startedAt == null ? null : millis(startedAt, finishedAt != null ? finishedAt : now);
+        return new TrainingJobStatus(id, engine, status.name(), cancelRequested, submittedAt, startedAt,
+            finishedAt, durationMs, currentStep, timings, results, error);
+    }
+
+    private static long millis(LocalDateTime from, LocalDateTime to) {
+        return Duration.between(from, to).toMillis();
+    }
+
+    private static final class Step {
+        private final String step;
+        private final String name;
+        private final LocalDateTime startedAt;
+        private LocalDateTime endedAt;
+
+        Step(String step, String name, LocalDateTime startedAt) {
+            this.step = step;
+            this.name = name;
+            this.startedAt = startedAt;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.dto.TrainingJobStatus;
+import com.pblGEHU.Custlysis.dto.TrainingJobStatus.StepTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs segmentation training as background jobs on a single thread, so at most one
+ * training writes assignments at a time. Submitting while a job is queued or running
+ * returns that job instead of starting another one.
+ */
+@Service
+public class TrainingJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrainingJobService.class);
+
+    @Autowired
+    private MLIntegrationService mlService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${custlysis.ml.training-engine:native}")
+    private String trainingEngine;
+
+    // Finished jobs kept for status lookups; the oldest are dropped first
+    @Value("${custlysis.ml.training-jobs.history:20}")
+    private int history;
+
+    private final Map<String, TrainingJob> jobs = new LinkedHashMap<>();
+    private TrainingJob active;
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() {
+        executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "training-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        TrainingJob running = current();
+        if (running != null) {
+            running.cancel();
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queue a training run, or return the one already queued or running
+     */
+    public synchronized TrainingJob submit() {
+        if (active != null && !active.isFinished()) {
+            logger.info("Training job {} is already in progress; not starting another", active.getId());
+            return active;
+        }
+        TrainingJob job = new TrainingJob(trainingEngine.toLowerCase());
+        active = job;
+        jobs.put(job.getId(), job);
+        trimHistory();
+        executor.execute(() -> run(job));
+        logger.info("Queued training job {}", job.getId());
+        return job;
+    }
+
+    public synchronized TrainingJob get(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * Most recent jobs first
+     */
+    public synchronized List<TrainingJob> list() {
+        List<TrainingJob> recent = new ArrayList<>(jobs.values());
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    /**
+     * Request cancellation; a running job stops at its next step boundary, or right away
+     * when it runs the Python script
+     */
+    public TrainingJob cancel(String jobId) {
+        TrainingJob job = get(jobId);
+        if (job != null) {
+            job.cancel();
+            logger.info("Cancellation requested for training job {}", jobId);
+        }
+        return job;
+    }
+
+    private void run(TrainingJob job) {
+        if (!job.start()) {
+            return;
+        }
+        logger.info("Starting training job {}", job.getId());
+        try {
+            job.succeeded(mlService.train(job));
+            logger.info("Training job {} completed", job.getId());
+        } catch (Exception e) {
+            job.failed(e);
+            logger.warn("Training job {} ended: {}", job.getId(), e.getMessage());
+        }
+        record(job.toStatus());
+    }
+
+    // Training and per-step durations, tagged by engine and outcome
+    private void record(TrainingJobStatus status) {
+        if (status.getDurationMs() != null) {
+            meterRegistry.timer("custlysis.ml.training.duration", "engine", status.getEngine(), "status", status.getStatus())
+                .record(status.getDurationMs(), TimeUnit.MILLISECONDS);
+        }
+        for (StepTiming step : status.getSteps()) {
+            meterRegistry.timer("custlysis.ml.training.step", "engine", status.getEngine(), "step", step.getStep(),
+                "name", step.getName()).record(step.getDurationMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized TrainingJob current() {
+        return active;
+    }
+
+    private void trimHistory() {
+        Iterator<TrainingJob> it = jobs.values().iterator();
+        while (jobs.size() > history && it.hasNext()) {
+            TrainingJob oldest = it.next();
+            if (oldest.isFinished()) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pblGEHU.Custlysis.dto.BatchIngestResult;
+import com.pblGEHU.Custlysis.entity.Transactions;
+import com.pblGEHU.Custlysis.event.TransactionChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.BiConsumer;
+
+/**
+ * Bulk transaction ingestion. Rows are parsed from the request stream, validated, and
+ * inserted with plain JDBC batches: with rewriteBatchedStatements on the connection URL
+ * Connector/J sends each batch as one multi-row INSERT and still returns the
+ * AUTO_INCREMENT keys, which Hibernate's IDENTITY generation cannot batch.
+ */
+@Service
+public class TransactionBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionBatchWriter.class);
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_SQL = "INSERT INTO transactions "
+        + "(account_id, txn_type, amount, timestamp, channel, merchant_category, geo_location, "
+        + "is_recurring, is_high_value, txn_score) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // CSV header names (lower case, underscores dropped) to setters
+    private static final Map<String, BiConsumer<Transactions, String>> CSV_COLUMNS = new HashMap<>();
+
+    static {
+        CSV_COLUMNS.put("accountid", (t, v) -> t.setAccountId(Integer.valueOf(v)));
+        CSV_COLUMNS.put("txntype", Transactions::setTxnType);
+        CSV_COLUMNS.put("amount", (t, v) -> t.setAmount(new BigDecimal(v)));
+        CSV_COLUMNS.put("timestamp", (t, v) -> t.setTimestamp(parseTimestamp(v)));
+        CSV_COLUMNS.put("channel", Transactions::setChannel);
+        CSV_COLUMNS.put("merchantcategory", Transactions::setMerchantCategory);
+        CSV_COLUMNS.put("geolocation", Transactions::setGeoLocation);
+        CSV_COLUMNS.put("isrecurring", (t, v) -> t.setIsRecurring(parseBoolean(v)));
+        CSV_COLUMNS.put("ishighvalue", (t, v) -> t.setIsHighValue(parseBoolean(v)));
+        CSV_COLUMNS.put("txnscore", (t, v) -> t.setTxnScore(new BigDecimal(v)));
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${custlysis.ingest.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${custlysis.ingest.max-rows:200000}")
+    private int maxRows;
+
+    /**
+     * Ingest a JSON array of transaction objects. Batches commit as they fill, so a request that
+     * stops early (malformed JSON, too many rows) returns what was committed with the error set.
+     */
+    public BatchIngestResult ingestJson(InputStream body) throws IOException {
+        Ingest ingest = new Ingest();
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Request body must be a JSON array of transactions");
+            }
+            int row = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() == null) {
+                    throw new IllegalArgumentException("Unexpected end of JSON array");
+                }
+                row++;
+                JsonNode node = parser.readValueAsTree();
+                try {
+                    ingest.add(row, objectMapper.treeToValue(node, Transactions.class));
+                } catch (JsonProcessingException e) {
+                    ingest.reject(row, "Invalid transaction: " + e.getOriginalMessage());
+                }
+            }
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            return ingest.abort(e.getMessage());
+        }
+        return ingest.finish();
+    }
+
+    /**
+     * Ingest CSV with a header row naming the columns, e.g. account_id,txn_type,amount,timestamp.
+     * Stops early like {@link #ingestJson} on an unknown column or too many rows.
+     */
+    public BatchIngestResult ingestCsv(InputStream body) throws IOException {
+        Ingest ingest = new Ingest();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                return ingest.finish();
+            }
+            List<String> header = parseCsvLine(headerLine.replace("\uFEFF", ""));
+            List<BiConsumer<Transactions, String>> setters = new ArrayList<>(header.size());
+            for (String name : header) {
+                BiConsumer<Transactions, String> setter = CSV_COLUMNS.get(name.trim().toLowerCase().replace("_", ""));
+                if (setter == null) {
+                    throw new IllegalArgumentException("Unknown CSV column: " + name);
+                }
+                setters.add(setter);
+            }
+
+            int row = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                row++;
+                List<String> fields = parseCsvLine(line);
+                if (fields.size() != setters.size()) {
+                    ingest.reject(row, "Expected " + setters.size() + " fields but found " + fields.size());
+                    continue;
+                }
+                Transactions txn = new Transactions();
+                try {
+                    for (int i = 0; i < fields.size(); i++) {
+                        String value = fields.get(i).trim();
+                        if (!value.isEmpty()) {
+                            setters.get(i).accept(txn, value);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    ingest.reject(row, "Invalid value: " + e.getMessage());
+                    continue;
+                }
+                ingest.add(row, txn);
+            }
+        } catch (IllegalArgumentException e) {
+            return ingest.abort(e.getMessage());
+        }
+        return ingest.finish();
+    }
+
+    /**
+     * Accumulates parsed rows and writes them a batch at a time
+     */
+    private final class Ingest {
+        private final List<Integer> rowNumbers = new ArrayList<>(batchSize);
+        private final List<Transactions> pending = new ArrayList<>(batchSize);
+        private final Set<Integer> knownAccounts = new HashSet<>();
+        private final List<BatchIngestResult.RowError> errors = new ArrayList<>();
+        private final long started = System.currentTimeMillis();
+        private int received;
+        private int inserted;
+        private int failed;
+
+        void add(int row, Transactions txn) {
+            countRow();
+            txn.setTxnId(null);
+            rowNumbers.add(row);
+            pending.add(txn);
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(int row, String message) {
+            countRow();
+            fail(row, message);
+        }
+
+        BatchIngestResult finish() {
+            return finish(null);
+        }
+
+        // The rows read so far are still written, so "received" tells the client where to resume
+        BatchIngestResult abort(String error) {
+            logger.warn("Transaction ingest stopped after {} rows: {}", received, error);
+            return finish(error);
+        }
+
+        private BatchIngestResult finish(String error) {
+            flush();
+            errors.sort(Comparator.comparingInt(BatchIngestResult.RowError::getRow));
+            logger.info("Ingested {} of {} transactions in {} ms ({} failed)",
+                inserted, received, System.currentTimeMillis() - started, failed);
+            return new BatchIngestResult(received, inserted, failed, errors, failed > errors.size(), error);
+        }
+
+        private void countRow() {
+            if (received >= maxRows) {
+                throw new IllegalArgumentException("A batch may contain at most " + maxRows + " rows");
+            }
+            received++;
+        }
+
+        private void fail(int row, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new BatchIngestResult.RowError(row, message));
+            }
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            resolveAccounts();
+
+            List<Transactions> valid = new ArrayList<>(pending.size());
+            List<Integer> validRows = new ArrayList<>(pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                String problem = validate(pending.get(i));
+                if (problem != null) {
+                    fail(rowNumbers.get(i), problem);
+                } else {
+                    valid.add(pending.get(i));
+                    validRows.add(rowNumbers.get(i));
+                }
+            }
+            pending.clear();
+            rowNumbers.clear();
+            if (valid.isEmpty()) {
+                return;
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(valid));
+                inserted += valid.size();
+            } catch (DataAccessException e) {
+                String message = "Batch insert failed: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                logger.warn("{} ({} rows)", message, valid.size());
+                validRows.forEach(row -> fail(row, message));
+                return;
+            }
+            // Published after commit so listeners only see rows that exist
+            for (Transactions txn : valid) {
+                eventPublisher.publishEvent(new TransactionChangedEvent(null, txn));
+            }
+        }
+
+        // Look up account ids not seen earlier in this request with one IN query
+        private void resolveAccounts() {
+            Set<Integer> unknown = new HashSet<>();
+            for (Transactions txn : pending) {
+                if (txn.getAccountId() != null && !knownAccounts.contains(txn.getAccountId())) {
+                    unknown.add(txn.getAccountId());
+                }
+            }
+            if (unknown.isEmpty()) {
+                return;
+            }
+            StringJoiner placeholders = new StringJoiner(", ", "(", ")");
+            unknown.forEach(id -> placeholders.add("?"));
+            knownAccounts.addAll(jdbcTemplate.queryForList(
+                "SELECT account_id FROM account WHERE account_id IN " + placeholders, Integer.class, unknown.toArray()));
+        }
+
+        private String validate(Transactions txn) {
+            if (txn.getAccountId() == null) {
+                return "accountId is required";
+            }
+            if (!knownAccounts.contains(txn.getAccountId())) {
+                return "Account " + txn.getAccountId() + " does not exist";
+            }
+            return validateFields(txn);
+        }
+    }
+
+    /**
+     * Checks that need no database lookup; a missing timestamp defaults to now.
+     * Returns the problem, or null if the row is valid.
+     */
+    static String validateFields(Transactions txn) {
+        if (txn.getTxnType() == null || txn.getTxnType().isBlank()) {
+            return "txnType is required";
+        }
+        if (txn.getAmount() == null) {
+            return "amount is required";
+        }
+        for (String text : new String[] {txn.getTxnType(), txn.getChannel(), txn.getMerchantCategory(), txn.getGeoLocation()}) {
+            if (text != null && text.length() > MAX_TEXT_LENGTH) {
+                return "Text fields are limited to " + MAX_TEXT_LENGTH + " characters";
+            }
+        }
+        if (txn.getTimestamp() == null) {
+            txn.setTimestamp(LocalDateTime.now());
+        }
+        return null;
+    }
+
+    // Insert in one JDBC batch and set each row's generated txnId; runs in the caller's transaction
+    void insert(List<Transactions> rows) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Transactions txn : rows) {
+                    statement.setInt(1, txn.getAccountId());
+                    statement.setString(2, txn.getTxnType());
+                    statement.setBigDecimal(3, txn.getAmount());
+                    statement.setTimestamp(4, Timestamp.valueOf(txn.getTimestamp()));
+                    statement.setString(5, txn.getChannel());
+                    statement.setString(6, txn.getMerchantCategory());
+                    statement.setString(7, txn.getGeoLocation());
+                    statement.setBoolean(8, Boolean.TRUE.equals(txn.getIsRecurring()));
+                    statement.setBoolean(9, Boolean.TRUE.equals(txn.getIsHighValue()));
+                    if (txn.getTxnScore() != null) {
+                        statement.setBigDecimal(10, txn.getTxnScore());
+                    } else {
+                        statement.setNull(10, Types.DECIMAL);
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int i = 0; i < rows.size() && keys.next(); i++) {
+                        rows.get(i).setTxnId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    // Minimal RFC 4180 field splitting for a single line
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static LocalDateTime parseTimestamp(String value) {
+        // Accept both ISO "2024-01-31T10:15:00" and SQL "2024-01-31 10:15:00"
+        return LocalDateTime.parse(value.replace(' ', 'T'));
+    }
+
+    private static Boolean parseBoolean(String value) {
+        return "1".equals(value) || "true".equalsIgnoreCase(value) || "yes".equalsIgnoreCase(value);
+    }
+}
@@ -0,0 +1,678 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.dto.TransactionAggregate;
+import com.pblGEHU.Custlysis.dto.TransactionFilter;
+import com.pblGEHU.Custlysis.entity.Transactions;
+import com.pblGEHU.Custlysis.event.TransactionChangedEvent;
+import com.pblGEHU.Custlysis.util.IntIntHashMap;
+import com.pblGEHU.Custlysis.util.IntObjectHashMap;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Column-oriented in-memory copy of the transactions table for analytical queries.
+ * Rows are stored in fixed-size chunks of primitive columns:
+ * <ul>
+ *   <li>epoch-millisecond timestamps and amounts in cents as longs</li>
+ *   <li>account ids as ints</li>
+ *   <li>txnType, channel, merchantCategory and geoLocation as dictionary codes</li>
+ *   <li>isRecurring, isHighValue and deleted as bitsets</li>
+ * </ul>
+ * Queries scan chunks in parallel. Each filter narrows a 64-row selection mask one column
+ * at a time before the surviving rows are grouped. Loaded at startup and kept current from
+ * transaction events; an update or delete tombstones the old row, and the nightly rebuild
+ * compacts them away.
+ */
+@Service
+public class TransactionColumnStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionColumnStore.class);
+
+    // Connector/J streams rows instead of buffering the whole result set at this fetch size
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_WORDS = CHUNK_SIZE / 64;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final long NO_AMOUNT = Long.MIN_VALUE;
+    private static final int NO_ACCOUNT = Integer.MIN_VALUE;
+    private static final int NO_CODE = -1;
+    private static final int NO_ROW = -1;
+    private static final int NO_GROUP = Integer.MIN_VALUE;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final String UNKNOWN = "Unknown";
+
+    /**
+     * Columns a query can group by
+     */
+    public enum Dimension {
+        NONE, TXN_TYPE, CHANNEL, MERCHANT_CATEGORY, GEO_LOCATION, ACCOUNT, DAY, MONTH, HIGH_VALUE, RECURRING;
+
+        /**
+         * Parse "channel", "merchantCategory", "merchant_category" etc.; null or blank means NONE
+         */
+        public static Dimension parse(String value) {
+            if (value == null || value.isBlank()) {
+                return NONE;
+            }
+            String normalized = value.replace("_", "").replace("-", "").toLowerCase(Locale.ROOT);
+            if (normalized.equals("accountid")) {
+                return ACCOUNT;
+            }
+            for (Dimension dimension : values()) {
+                if (dimension.name().replace("_", "").toLowerCase(Locale.ROOT).equals(normalized)) {
+                    return dimension;
+                }
+            }
+            throw new IllegalArgumentException("Unknown groupBy '" + value + "'; expected one of txnType, channel, "
+                + "merchantCategory, geoLocation, account, day, month, highValue, recurring");
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${custlysis.transactions.columns.parallelism:0}")
+    private int parallelism;
+
+    private ForkJoinPool pool;
+
+    @Value("${custlysis.startup-load.enabled:true}")
+    private boolean startupLoad;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Columns columns;
+
+    private final SnapshotRebuild<Columns> rebuilds = new SnapshotRebuild<>(lock);
+
+    @PostConstruct
+    void start() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    void stop() {
+        pool.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!startupLoad) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.warn("Could not load transaction column store; retrying on first query: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${custlysis.transactions.columns.rebuild-cron:0 0 4 * * *}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.warn("Transaction column store rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reload every column in one streaming pass over transactions and swap them in
+     */
+    public void rebuild() {
+        rebuilds.run(() -> {
+            long started = System.currentTimeMillis();
+            Columns fresh = new Columns();
+            jdbcTemplate.query((Connection connection) -> {
+                PreparedStatement statement = connection.prepareStatement(
+                    "SELECT txn_id, account_id, timestamp, amount, txn_type, channel, merchant_category, geo_location, "
+                        + "is_recurring, is_high_value FROM transactions ORDER BY txn_id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(STREAMING_FETCH_SIZE);
+                return statement;
+            }, (ResultSet rs) -> {
+                while (rs.next()) {
+                    Timestamp timestamp = rs.getTimestamp(3);
+                    fresh.append(rs.getInt(1), (Integer) rs.getObject(2),
+                        timestamp != null ? epochMillis(timestamp.toLocalDateTime()) : NO_TIME,
+                        cents(rs.getBigDecimal(4)), rs.getString(5), rs.getString(6), rs.getString(7),
+                        rs.getString(8), rs.getBoolean(9), rs.getBoolean(10));
+                }
+                return null;
+            });
+            logger.info("Transaction column store loaded {} rows in {} chunks in {} ms", fresh.rows,
+                fresh.chunks.size(), System.currentTimeMillis() - started);
+            return fresh;
+        }, fresh -> columns = fresh);
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return columns != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        Transactions before = event.getBefore();
+        Transactions after = event.getAfter();
+        lock.writeLock().lock();
+        try {
+            Consumer<Columns> change = target -> {
+                if (before != null && before.getTxnId() != null) {
+                    target.delete(before.getTxnId());
+                }
+                if (after != null && after.getTxnId() != null) {
+                    target.append(after.getTxnId(), after.getAccountId(),
+                        after.getTimestamp() != null ? epochMillis(after.getTimestamp()) : NO_TIME,
+                        cents(after.getAmount()), after.getTxnType(), after.getChannel(), after.getMerchantCategory(),
+                        after.getGeoLocation(), Boolean.TRUE.equals(after.getIsRecurring()),
+                        Boolean.TRUE.equals(after.getIsHighValue()));
+                }
+            };
+            if (columns != null) {
+                change.accept(columns);
+            }
+            rebuilds.record(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Count, amount statistics and high-value/recurring counts of the transactions matching
+     * {@code filter}, per value of {@code groupBy}. Time groups come back in time order, all
+     * others by descending count; at most {@code limit} groups.
+     * Throws NotReadyException while another caller is still loading the columns.
+     */
+    public List<TransactionAggregate> aggregate(TransactionFilter filter, Dimension groupBy, int limit) {
+        if (!isReady()) {
+            rebuild();
+        }
+        Map<Integer, Acc> merged = new HashMap<>();
+        Map<Integer, String> labels = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            Columns current = columns;
+            // Null when another caller's rebuild is still reading the table
+            if (current == null) {
+                throw new NotReadyException("Transaction column store is still loading");
+            }
+            Plan plan = current.plan(filter, groupBy);
+            if (plan == null) {
+                return List.of();
+            }
+            List<ForkJoinTask<Partial>> tasks = new ArrayList<>(current.chunks.size());
+            for (Chunk chunk : current.chunks) {
+                int size = chunk.size;
+                tasks.add(pool.submit(() -> scan(chunk, size, plan)));
+            }
+            for (ForkJoinTask<Partial> task : tasks) {
+                task.join().forEach((key, acc) -> merged.merge(key, acc, Acc::merge));
+            }
+            merged.keySet().forEach(key -> labels.put(key, current.label(groupBy, key)));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Comparator<Map.Entry<Integer, Acc>> order = groupBy == Dimension.DAY || groupBy == Dimension.MONTH
+            ? Map.Entry.comparingByKey()
+            : Comparator.<Map.Entry<Integer, Acc>>comparingLong(entry -> entry.getValue().count).reversed()
+                .thenComparing(entry -> labels.get(entry.getKey()));
+        return merged.entrySet().stream()
+            .sorted(order)
+            .limit(limit)
+            .map(entry -> entry.getValue().toAggregate(labels.get(entry.getKey())))
+            .toList();
+    }
+
+    // Select one chunk's matching rows word by word, then fold them into per-group accumulators
+    private static Partial scan(Chunk chunk, int size, Plan plan) {
+        int words = (size + 63) >>> 6;
+        long[] selected = new long[words];
+        for (int w = 0; w < words; w++) {
+            selected[w] = ~chunk.deleted[w];
+        }
+        if ((size & 63) != 0) {
+            selected[words - 1] &= (1L << (size & 63)) - 1;
+        }
+
+        if (plan.timeFiltered) {
+            for (int w = 0; w < words; w++) {
+                if (selected[w] != 0) {
+                    selected[w] &= rangeMask(chunk.timestamps, w, size, plan.fromMillis, plan.toMillis);
+                }
+            }
+        }
+        if (plan.amountFiltered) {
+            for (int w = 0; w < words; w++) {
+                if (selected[w] != 0) {
+                    selected[w] &= rangeMask(chunk.amounts, w, size, plan.minCents, plan.maxCentsExclusive);
+                }
+            }
+        }
+        if (plan.accountId != null) {
+            int accountId = plan.accountId;
+            for (int w = 0; w < words; w++) {
+                if (selected[w] != 0) {
+                    selected[w] &= equalMask(chunk.accountIds, w, size, accountId);
+                }
+            }
+        }
+        codeFilter(selected, chunk.txnTypes, size, plan.txnTypes);
+        codeFilter(selected, chunk.channels, size, plan.channels);
+        codeFilter(selected, chunk.merchantCategories, size, plan.merchantCategories);
+        codeFilter(selected, chunk.geoLocations, size, plan.geoLocations);
+        if (plan.highValue != null) {
+            for (int w = 0; w < words; w++) {
+                selected[w] &= plan.highValue ? chunk.highValue[w] : ~chunk.highValue[w];
+            }
+        }
+        if (plan.recurring != null) {
+            for (int w = 0; w < words; w++) {
+                selected[w] &= plan.recurring ? chunk.recurring[w] : ~chunk.recurring[w];
+            }
+        }
+
+        Partial partial = new Partial(plan.denseGroups);
+        long cachedDay = Long.MIN_VALUE;
+        int cachedMonth = NO_GROUP;
+        for (int w = 0; w < words; w++) {
+            long bits = selected[w];
+            while (bits != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                int key;
+                switch (plan.groupBy) {
+                    case TXN_TYPE -> key = chunk.txnTypes[i] + 1;
+                    case CHANNEL -> key = chunk.channels[i] + 1;
+                    case MERCHANT_CATEGORY -> key = chunk.merchantCategories[i] + 1;
+                    case GEO_LOCATION -> key = chunk.geoLocations[i] + 1;
+                    case ACCOUNT -> key = chunk.accountIds[i];
+                    case HIGH_VALUE -> key = (int) (chunk.highValue[w] >>> i) & 1;
+                    case RECURRING -> key = (int) (chunk.recurring[w] >>> i) & 1;
+                    case DAY -> key = chunk.timestamps[i] == NO_TIME ? NO_GROUP
+                        : (int) Math.floorDiv(chunk.timestamps[i], MILLIS_PER_DAY);
+                    case MONTH -> {
+                        if (chunk.timestamps[i] == NO_TIME) {
+                            key = NO_GROUP;
+                        } else {
+                            long day = Math.floorDiv(chunk.timestamps[i], MILLIS_PER_DAY);
+                            if (day != cachedDay) {
+                                LocalDate date = LocalDate.ofEpochDay(day);
+                                cachedDay = day;
+                                cachedMonth = date.getYear() * 12 + date.getMonthValue() - 1;
+                            }
+                            key = cachedMonth;
+                        }
+                    }
+                    default -> key = 0;
+                }
+                partial.accumulator(key).add(chunk.amounts[i], (int) (chunk.highValue[w] >>> i) & 1,
+                    (int) (chunk.recurring[w] >>> i) & 1);
+            }
+        }
+        return partial;
+    }
+
+    // Bit j set where lo <= column[row] < hi for the 64 rows of word w
+    private static long rangeMask(long[] column, int w, int size, long lo, long hi) {
+        int base = w << 6;
+        int end = Math.min(64, size - base);
+        long bits = 0;
+        for (int j = 0; j < end; j++) {
+            long value = column[base + j];
+            bits |= (value >= lo & value < hi ? 1L : 0L) << j;
+        }
+        return bits;
+    }
+
+    private static long equalMask(int[] column, int w, int size, int target) {
+        int base = w << 6;
+        int end = Math.min(64, size - base);
+        long bits = 0;
+        for (int j = 0; j < end; j++) {
+            bits |= (column[base + j] == target ? 1L : 0L) << j;
+        }
+        return bits;
+    }
+
+    // accepted is indexed by code + 1 so NO_CODE maps to slot 0; null means the column is not filtered
+    private static void codeFilter(long[] selected, int[] column, int size, boolean[] accepted) {
+        if (accepted == null) {
+            return;
+        }
+        for (int w = 0; w < selected.length; w++) {
+            if (selected[w] == 0) {
+                continue;
+            }
+            int base = w << 6;
+            int end = Math.min(64, size - base);
+            long bits = 0;
+            for (int j = 0; j < end; j++) {
+                bits |= (accepted[column[base + j] + 1] ? 1L : 0L) << j;
+            }
+            selected[w] &= bits;
+        }
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        // Local date-times are encoded as if UTC so day and month boundaries stay those of the stored value
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount != null ? amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue() : NO_AMOUNT;
+    }
+
+    /**
+     * A filter resolved against the dictionaries of one Columns instance
+     */
+    private static final class Plan {
+        Dimension groupBy;
+        // Number of dense group keys, or 0 when keys are sparse (account, day, month)
+        int denseGroups;
+        boolean timeFiltered;
+        long fromMillis;
+        long toMillis;
+        boolean amountFiltered;
+        long minCents;
+        long maxCentsExclusive;
+        Integer accountId;
+        boolean[] txnTypes;
+        boolean[] channels;
+        boolean[] merchantCategories;
+        boolean[] geoLocations;
+        Boolean highValue;
+        Boolean recurring;
+    }
+
+    private static final class Columns {
+        final List<Chunk> chunks = new ArrayList<>();
+        // txnId → global row of its live version
+        final IntIntHashMap rowOfTxn = new IntIntHashMap(NO_ROW);
+        final Dictionary txnTypes = new Dictionary();
+        final Dictionary channels = new Dictionary();
+        final Dictionary merchantCategories = new Dictionary();
+        final Dictionary geoLocations = new Dictionary();
+        int rows;
+
+        void append(int txnId, Integer accountId, long timestamp, long amount, String txnType, String channel,
+                    String merchantCategory, String geoLocation, boolean recurring, boolean highValue) {
+            delete(txnId);
+            if (chunks.isEmpty() || chunks.get(chunks.size() - 1).size == CHUNK_SIZE) {
+                chunks.add(new Chunk());
+            }
+            Chunk chunk = chunks.get(chunks.size() - 1);
+            int i = chunk.size;
+            chunk.txnIds[i] = txnId;
+            chunk.accountIds[i] = accountId != null ? accountId : NO_ACCOUNT;
+            chunk.timestamps[i] = timestamp;
+            chunk.amounts[i] = amount;
+            chunk.txnTypes[i] = txnTypes.encode(txnType);
+            chunk.channels[i] = channels.encode(channel);
+            chunk.merchantCategories[i] = merchantCategories.encode(merchantCategory);
+            chunk.geoLocations[i] = geoLocations.encode(geoLocation);
+            if (recurring) {
+                chunk.recurring[i >>> 6] |= 1L << i;
+            }
+            if (highValue) {
+                chunk.highValue[i >>> 6] |= 1L << i;
+            }
+            chunk.size = i + 1;
+            rowOfTxn.put(txnId, rows++);
+        }
+
+        void delete(int txnId) {
+            int row = rowOfTxn.get(txnId);
+            if (row == NO_ROW) {
+                return;
+            }
+            int i = row & (CHUNK_SIZE - 1);
+            chunks.get(row >>> CHUNK_SHIFT).deleted[i >>> 6] |= 1L << i;
+            rowOfTxn.remove(txnId);
+        }
+
+        // Null if a filter value is absent from its dictionary, i.e. nothing can match
+        Plan plan(TransactionFilter filter, Dimension groupBy) {
+            Plan plan = new Plan();
+            plan.groupBy = groupBy;
+            plan.denseGroups = switch (groupBy) {
+                case TXN_TYPE -> txnTypes.size() + 1;
+                case CHANNEL -> channels.size() + 1;
+                case MERCHANT_CATEGORY -> merchantCategories.size() + 1;
+                case GEO_LOCATION -> geoLocations.size() + 1;
+                case HIGH_VALUE, RECURRING -> 2;
+                case NONE -> 1;
+                default -> 0;
+            };
+            if (filter.getFrom() != null || filter.getTo() != null) {
+                plan.timeFiltered = true;
+                plan.fromMillis = filter.getFrom() != null ? epochMillis(filter.getFrom()) : NO_TIME + 1;
+                plan.toMillis = filter.getTo() != null ? epochMillis(filter.getTo()) : Long.MAX_VALUE;
+            }
+            if (filter.getMinAmount() != null || filter.getMaxAmount() != null) {
+                plan.amountFiltered = true;
+                plan.minCents = filter.getMinAmount() != null
+                    ? filter.getMinAmount().movePointRight(2).setScale(0, RoundingMode.CEILING).longValue()
+                    : NO_AMOUNT + 1;
+                plan.maxCentsExclusive = filter.getMaxAmount() != null
+                    ? filter.getMaxAmount().movePointRight(2).setScale(0, RoundingMode.FLOOR).longValue() + 1
+                    : Long.MAX_VALUE;
+            }
+            plan.accountId = filter.getAccountId();
+            plan.highValue = filter.getHighValue();
+            plan.recurring = filter.getRecurring();
+            plan.txnTypes = txnTypes.accepting(filter.getTxnType());
+            plan.channels = channels.accepting(filter.getChannel());
+            plan.merchantCategories = merchantCategories.accepting(filter.getMerchantCategory());
+            plan.geoLocations = geoLocations.accepting(filter.getGeoLocation());
+            if (isEmpty(plan.txnTypes) || isEmpty(plan.channels) || isEmpty(plan.merchantCategories)
+                    || isEmpty(plan.geoLocations)) {
+                return null;
+            }
+            return plan;
+        }
+
+        String label(Dimension groupBy, int key) {
+            return switch (groupBy) {
+                case TXN_TYPE -> txnTypes.decode(key - 1);
+                case CHANNEL -> channels.decode(key - 1);
+                case MERCHANT_CATEGORY -> merchantCategories.decode(key - 1);
+                case GEO_LOCATION -> geoLocations.decode(key - 1);
+                case ACCOUNT -> key == NO_ACCOUNT ? UNKNOWN : String.valueOf(key);
+                case HIGH_VALUE, RECURRING -> String.valueOf(key == 1);
+                case DAY -> key == NO_GROUP ? UNKNOWN : LocalDate.ofEpochDay(key).toString();
+                case MONTH -> key == NO_GROUP ? UNKNOWN : YearMonth.of(Math.floorDiv(key, 12), Math.floorMod(key, 12) + 1).toString();
+                case NONE -> "all";
+            };
+        }
+
+        private static boolean isEmpty(boolean[] accepted) {
+            if (accepted == null) {
+                return false;
+            }
+            for (boolean accept : accepted) {
+                if (accept) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Chunk {
+        final int[] txnIds = new int[CHUNK_SIZE];
+        final int[] accountIds = new int[CHUNK_SIZE];
+        final long[] timestamps = new long[CHUNK_SIZE];
+        final long[] amounts = new long[CHUNK_SIZE];
+        final int[] txnTypes = new int[CHUNK_SIZE];
+        final int[] channels = new int[CHUNK_SIZE];
+        final int[] merchantCategories = new int[CHUNK_SIZE];
+        final int[] geoLocations = new int[CHUNK_SIZE];
+        final long[] recurring = new long[CHUNK_WORDS];
+        final long[] highValue = new long[CHUNK_WORDS];
+        final long[] deleted = new long[CHUNK_WORDS];
+        int size;
+    }
+
+    /**
+     * Distinct values of a text column; codes are positions in insertion order
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            if (value == null) {
+                return NO_CODE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        String decode(int code) {
+            return code == NO_CODE ? UNKNOWN : values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        // Codes (offset by one) equal to value ignoring case, as the database collation compares
+        boolean[] accepting(String value) {
+            if (value == null) {
+                return null;
+            }
+            boolean[] accepted = new boolean[values.size() + 1];
+            for (int code = 0; code < values.size(); code++) {
+                accepted[code + 1] = values.get(code).equalsIgnoreCase(value);
+            }
+            return accepted;
+        }
+    }
+
+    /**
+     * Per-group accumulators of one chunk: an array for small dense keys, a hash map otherwise
+     */
+    private static final class Partial {
+        private final Acc[] dense;
+        private final IntObjectHashMap<Acc> sparse;
+
+        Partial(int denseGroups) {
+            dense = denseGroups > 0 ? new Acc[denseGroups] : null;
+            sparse = denseGroups > 0 ? null : new IntObjectHashMap<>();
+        }
+
+        Acc accumulator(int key) {
+            Acc acc = dense != null ? dense[key] : sparse.get(key);
+            if (acc == null) {
+                acc = new Acc();
+                if (dense != null) {
+                    dense[key] = acc;
+                } else {
+                    sparse.put(key, acc);
+                }
+            }
+            return acc;
+        }
+
+        void forEach(BiConsumer<Integer, Acc> action) {
+            if (dense != null) {
+                for (int key = 0; key < dense.length; key++) {
+                    if (dense[key] != null) {
+                        action.accept(key, dense[key]);
+                    }
+                }
+            } else {
+                sparse.forEach((key, acc) -> {
+                    action.accept(key, acc);
+                    return true;
+                });
+            }
+        }
+    }
+
+    private static final class Acc {
+        long count;
+        long amountCount;
+        long sum;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long highValue;
+        long recurring;
+
+        void add(long amount, int highValueBit, int recurringBit) {
+            count++;
+            highValue += highValueBit;
+            recurring += recurringBit;
+            if (amount != NO_AMOUNT) {
+                amountCount++;
+                sum += amount;
+                min = Math.min(min, amount);
+                max = Math.max(max, amount);
+            }
+        }
+
+        Acc merge(Acc other) {
+            count += other.count;
+            amountCount += other.amountCount;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            highValue += other.highValue;
+            recurring += other.recurring;
+            return this;
+        }
+
+        TransactionAggregate toAggregate(String group) {
+            boolean anyAmount = amountCount > 0;
+            return new TransactionAggregate(group, count,
+                BigDecimal.valueOf(sum, 2),
+                anyAmount ? BigDecimal.valueOf(sum, 2).divide(BigDecimal.valueOf(amountCount), 2, RoundingMode.HALF_UP) : null,
+                anyAmount ? BigDecimal.valueOf(min, 2) : null,
+                anyAmount ? BigDecimal.valueOf(max, 2) : null,
+                highValue, count > 0 ? (double) highValue / count : 0, recurring);
+        }
+    }
+}
@@ -0,0 +1,525 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pblGEHU.Custlysis.dto.IngestPipelineStatus;
+import com.pblGEHU.Custlysis.entity.IngestCheckpoint;
+import com.pblGEHU.Custlysis.entity.Account;
+import com.pblGEHU.Custlysis.entity.Transactions;
+import com.pblGEHU.Custlysis.event.AccountChangedEvent;
+import com.pblGEHU.Custlysis.event.TransactionChangedEvent;
+import com.pblGEHU.Custlysis.repository.IngestCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind ingestion for single transactions. A request claims the next sequence in a
+ * bounded ring buffer and is acknowledged once a WAL thread has forced its record to the
+ * write-ahead log; one fsync covers every record claimed since the previous one. A single
+ * writer thread then inserts durable records into MySQL in batches, advancing the
+ * ingest_checkpoint row in the same transaction, and publishes TransactionChangedEvents in
+ * sequence order. On startup, records after the checkpoint are replayed before the web
+ * server accepts requests, so a crash loses no acknowledged transaction and applies none twice.
+ * Account ids are checked against an in-memory set kept current from account writes, so
+ * acknowledging a transaction needs no database round trip.
+ */
+@Service
+public class TransactionIngestPipeline implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionIngestPipeline.class);
+    private static final String STREAM = "transactions";
+    private static final long MAX_RETRY_BACKOFF_MS = 30000;
+
+    @Autowired
+    private TransactionBatchWriter batchWriter;
+
+    @Autowired
+    private IngestCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${custlysis.ingest.pipeline.enabled:true}")
+    private boolean enabled;
+
+    @Value("${custlysis.ingest.pipeline.capacity:8192}")
+    private int capacity;
+
+    @Value("${custlysis.ingest.pipeline.ack-timeout-ms:5000}")
+    private long ackTimeoutMs;
+
+    @Value("${custlysis.ingest.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${custlysis.ingest.wal.dir:wal}")
+    private String walDirectory;
+
+    @Value("${custlysis.ingest.wal.segment-bytes:67108864}")
+    private long segmentBytes;
+
+    private WriteAheadLog wal;
+    private Thread walThread;
+    private Thread writerThread;
+    private final AtomicLong droppedRows = new AtomicLong();
+
+    // Ring of claimed slots; a slot is reused once its sequence is applied
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition claimedMore = lock.newCondition();
+    private final Condition durableMore = lock.newCondition();
+    private Slot[] ring;
+    private long claimed;
+    private long durable;
+    private long applied;
+    private volatile boolean running;
+    // Set on shutdown: retries give up and leave unapplied records to the next start's replay
+    private volatile boolean stopping;
+
+    // Ids of existing accounts, loaded on start and kept current by account change events
+    private final BitSet accountIds = new BitSet();
+
+    private record Slot(Transactions txn, byte[] payload) {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Validate a transaction, append it to the pipeline and wait until it is durable in the
+     * write-ahead log. Returns its sequence; the row reaches the database shortly afterwards.
+     *
+     * @throws IllegalArgumentException if the transaction is invalid
+     * @throws IngestSaturatedException if the buffer stayed full for the acknowledgement timeout
+     * @throws TimeoutException if the log did not confirm the record in time; it may still be applied
+     */
+    public long submit(Transactions txn) throws TimeoutException, InterruptedException {
+        String problem = validate(txn);
+        if (problem != null) {
+            throw new IllegalArgumentException(problem);
+        }
+        txn.setTxnId(null);
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(txn);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid transaction: " + e.getOriginalMessage());
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs);
+        long sequence;
+        lock.lock();
+        try {
+            while (running && claimed - applied >= ring.length) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new IngestSaturatedException("Ingest buffer is full", 1);
+                }
+                notFull.awaitNanos(remaining);
+            }
+            if (!running) {
+                throw new IngestSaturatedException("Ingest pipeline is not accepting writes", 5);
+            }
+            sequence = ++claimed;
+            // The writer sets txnId on its own copy while the caller may still be serializing txn
+            ring[index(sequence)] = new Slot(txn.toBuilder().build(), payload);
+            claimedMore.signal();
+
+            while (durable < sequence) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException("Transaction " + sequence + " was not confirmed by the write-ahead log in time");
+                }
+                durableMore.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return sequence;
+    }
+
+    public IngestPipelineStatus status() {
+        lock.lock();
+        try {
+            return new IngestPipelineStatus(enabled, running, claimed, durable, applied,
+                ring != null ? ring.length : 0, wal != null ? wal.segmentCount() : 0, droppedRows.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Starts before the web server and stops after it, so recovery completes before the first request
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        ring = new Slot[size];
+        long checkpoint = checkpointRepository.findById(STREAM)
+            .orElseGet(() -> checkpointRepository.save(new IngestCheckpoint(STREAM, 0L, LocalDateTime.now())))
+            .getLastSequence();
+        wal = new WriteAheadLog(Path.of(walDirectory), segmentBytes);
+        try {
+            replay(checkpoint, wal.open(checkpoint));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open transaction write-ahead log in " + walDirectory, e);
+        }
+        claimed = durable = applied = wal.lastSequence();
+        wal.release(applied);
+        loadAccountIds();
+
+        running = true;
+        walThread = new Thread(this::appendLoop, "txn-wal-appender");
+        writerThread = new Thread(this::writeLoop, "txn-db-writer");
+        walThread.setDaemon(true);
+        writerThread.setDaemon(true);
+        walThread.start();
+        writerThread.start();
+        logger.info("Transaction ingest pipeline started at sequence {} with {} slots", applied, ring.length);
+    }
+
+    /**
+     * Stop accepting writes and drain: everything claimed is made durable and, if the database
+     * is reachable, applied. Anything left is replayed from the log on the next start.
+     */
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        lock.lock();
+        try {
+            running = false;
+            stopping = true;
+            notFull.signalAll();
+            claimedMore.signalAll();
+            durableMore.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            walThread.join(TimeUnit.SECONDS.toMillis(30));
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            wal.close();
+        } catch (IOException e) {
+            logger.warn("Could not close transaction write-ahead log: {}", e.getMessage());
+        }
+        logger.info("Transaction ingest pipeline stopped at sequence {} (applied through {})", claimed, applied);
+    }
+
+    @EventListener
+    public void onAccountChanged(AccountChangedEvent event) {
+        Account after = event.getAfter();
+        Integer accountId = after != null ? after.getAccountId() : event.getBefore().getAccountId();
+        if (accountId == null || accountId < 0) {
+            return;
+        }
+        synchronized (accountIds) {
+            accountIds.set(accountId, after != null);
+        }
+    }
+
+    private void loadAccountIds() {
+        BitSet loaded = new BitSet();
+        jdbcTemplate.query("SELECT account_id FROM account WHERE account_id >= 0", rs -> {
+            loaded.set(rs.getInt(1));
+        });
+        synchronized (accountIds) {
+            accountIds.or(loaded);
+        }
+        logger.info("Transaction ingest pipeline knows {} accounts", loaded.cardinality());
+    }
+
+    private String validate(Transactions txn) {
+        Integer accountId = txn.getAccountId();
+        if (accountId == null) {
+            return "accountId is required";
+        }
+        if (!accountExists(accountId)) {
+            return "Account " + accountId + " does not exist";
+        }
+        return TransactionBatchWriter.validateFields(txn);
+    }
+
+    private boolean accountExists(int accountId) {
+        if (accountId < 0) {
+            return false;
+        }
+        synchronized (accountIds) {
+            if (accountIds.get(accountId)) {
+                return true;
+            }
+        }
+        // Only unknown ids reach the database: accounts created outside the API are learned here
+        Integer accounts = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM account WHERE account_id = ?",
+            Integer.class, accountId);
+        if (accounts == null || accounts == 0) {
+            return false;
+        }
+        synchronized (accountIds) {
+            accountIds.set(accountId);
+        }
+        return true;
+    }
+
+    // Records acknowledged before a crash but not yet in the database
+    private void replay(long checkpoint, List<WriteAheadLog.Record> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        logger.info("Replaying {} transactions from the write-ahead log after sequence {}", records.size(), checkpoint);
+        List<Long> sequences = new ArrayList<>(batchSize);
+        List<Transactions> rows = new ArrayList<>(batchSize);
+        for (WriteAheadLog.Record record : records) {
+            sequences.add(record.sequence());
+            rows.add(objectMapper.readValue(record.payload(), Transactions.class));
+            if (rows.size() >= batchSize) {
+                publish(apply(sequences, rows));
+                sequences.clear();
+                rows.clear();
+            }
+        }
+        publish(apply(sequences, rows));
+    }
+
+    // WAL thread: group commit of everything claimed since the last fsync
+    private void appendLoop() {
+        long backoff = 10;
+        while (true) {
+            long from;
+            long to;
+            List<WriteAheadLog.Record> records;
+            lock.lock();
+            try {
+                while (running && claimed == durable) {
+                    claimedMore.awaitUninterruptibly();
+                }
+                if (claimed == durable) {
+                    return;
+                }
+                from = durable + 1;
+                to = claimed;
+                records = new ArrayList<>((int) (to - from + 1));
+                for (long sequence = from; sequence <= to; sequence++) {
+                    records.add(new WriteAheadLog.Record(sequence, ring[index(sequence)].payload()));
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                wal.append(records);
+                backoff = 10;
+            } catch (IOException e) {
+                if (stopping) {
+                    logger.error("Write-ahead log append failed during shutdown; sequences {}-{} are lost", from, to, e);
+                    return;
+                }
+                logger.error("Write-ahead log append failed for sequences {}-{}; retrying", from, to, e);
+                sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MS);
+                continue;
+            }
+
+            lock.lock();
+            try {
+                durable = to;
+                durableMore.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Writer thread: durable records to MySQL in batches, then events in sequence order
+    private void writeLoop() {
+        while (true) {
+            List<Long> sequences;
+            List<Transactions> rows;
+            lock.lock();
+            try {
+                while (applied == durable && (running || claimed != durable)) {
+                    durableMore.awaitUninterruptibly();
+                }
+                if (applied == durable) {
+                    return;
+                }
+                long to = Math.min(durable, applied + batchSize);
+                sequences = new ArrayList<>((int) (to - applied));
+                rows = new ArrayList<>((int) (to - applied));
+                for (long sequence = applied + 1; sequence <= to; sequence++) {
+                    sequences.add(sequence);
+                    rows.add(ring[index(sequence)].txn());
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            List<Transactions> inserted;
+            try {
+                inserted = apply(sequences, rows);
+            } catch (RuntimeException e) {
+                logger.warn("Stopping with sequences {}-{} unapplied; they are replayed on the next start",
+                    sequences.get(0), durable);
+                return;
+            }
+
+            long last = sequences.get(sequences.size() - 1);
+            lock.lock();
+            try {
+                for (long sequence : sequences) {
+                    ring[index(sequence)] = null;
+                }
+                applied = last;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            publish(inserted);
+            wal.release(last);
+        }
+    }
+
+    /**
+     * Insert rows and advance the checkpoint atomically, retrying while the database is
+     * unavailable. If the batch violates a constraint, rows are applied one at a time and
+     * any row that still fails is dropped and logged. Returns the inserted rows.
+     */
+    private List<Transactions> apply(List<Long> sequences, List<Transactions> rows) {
+        if (rows.isEmpty()) {
+            return rows;
+        }
+        long last = sequences.get(sequences.size() - 1);
+        try {
+            return withRetry(() -> {
+                transactionTemplate.executeWithoutResult(status -> {
+                    batchWriter.insert(rows);
+                    checkpoint(last);
+                });
+                return rows;
+            });
+        } catch (DataIntegrityViolationException e) {
+            List<Transactions> inserted = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                Transactions row = rows.get(i);
+                long sequence = sequences.get(i);
+                try {
+                    withRetry(() -> {
+                        transactionTemplate.executeWithoutResult(status -> {
+                            batchWriter.insert(List.of(row));
+                            checkpoint(sequence);
+                        });
+                        return null;
+                    });
+                    inserted.add(row);
+                } catch (DataIntegrityViolationException rowError) {
+                    droppedRows.incrementAndGet();
+                    logger.warn("Dropping logged transaction {} for account {}: {}", sequence, row.getAccountId(),
+                        NestedExceptionUtils.getMostSpecificCause(rowError).getMessage());
+                    withRetry(() -> {
+                        transactionTemplate.executeWithoutResult(status -> checkpoint(sequence));
+                        return null;
+                    });
+                }
+            }
+            return inserted;
+        }
+    }
+
+    // Constraint violations are permanent and rethrown; anything else is retried with backoff
+    private <T> T withRetry(Supplier<T> write) {
+        long backoff = 100;
+        while (true) {
+            try {
+                return write.get();
+            } catch (DataIntegrityViolationException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                if (stopping) {
+                    throw e;
+                }
+                logger.warn("Transaction write-behind failed, retrying in {} ms: {}", backoff,
+                    NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MS);
+            }
+        }
+    }
+
+    private void checkpoint(long sequence) {
+        jdbcTemplate.update("UPDATE ingest_checkpoint SET last_sequence = ?, updated_at = ? WHERE stream = ?",
+            sequence, Timestamp.valueOf(LocalDateTime.now()), STREAM);
+    }
+
+    // Published after commit, in sequence order, so listeners see the same stream as the log
+    private void publish(List<Transactions> inserted) {
+        for (Transactions txn : inserted) {
+            try {
+                eventPublisher.publishEvent(new TransactionChangedEvent(null, txn));
+            } catch (RuntimeException e) {
+                logger.warn("Transaction {} listener failed: {}", txn.getTxnId(), e.getMessage());
+            }
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence & (ring.length - 1));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
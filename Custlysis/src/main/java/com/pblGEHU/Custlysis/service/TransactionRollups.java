@@ -0,0 +1,647 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.dto.DashboardSummary.ChannelVolume;
+import com.pblGEHU.Custlysis.dto.TransactionActivity;
+import com.pblGEHU.Custlysis.entity.AccountDailyRollup;
+import com.pblGEHU.Custlysis.entity.CustomerMonthlyRollup;
+import com.pblGEHU.Custlysis.entity.Transactions;
+import com.pblGEHU.Custlysis.event.AccountChangedEvent;
+import com.pblGEHU.Custlysis.event.TransactionChangedEvent;
+import com.pblGEHU.Custlysis.repository.AccountDailyRollupRepository;
+import com.pblGEHU.Custlysis.repository.CustomerMonthlyRollupRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Maintains the {@code account_daily_rollup} (account × day × channel) and
+ * {@code customer_monthly_rollup} (customer × month × channel) tables and derives
+ * {@code account.avg_monthly_txn} from them.
+ * <p>
+ * Transaction events are coalesced per account, day and channel and flushed on a short interval.
+ * Inserts become additive upserts. Updates and deletes recompute the touched buckets from the
+ * source rows, since a minimum or maximum cannot be subtracted. A backfill rebuilds both tables
+ * in parallel account and customer id ranges on startup when they are empty and nightly, which
+ * also corrects drift from writes that bypass the API.
+ */
+@Service
+public class TransactionRollups {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionRollups.class);
+    static final String UNKNOWN_CHANNEL = "Unknown";
+    private static final String CHANNEL_SQL = "COALESCE(channel, '" + UNKNOWN_CHANNEL + "')";
+    private static final String MONTH_SQL = "YEAR(r.txn_date) * 100 + MONTH(r.txn_date)";
+    private static final int IN_CLAUSE_CHUNK = 1000;
+
+    private static final String ROLLUP_COLUMNS =
+        "txn_count, total_amount, absolute_amount, min_amount, max_amount";
+    // Null amounts count as transactions but leave the sums and extremes alone
+    private static final String MERGE_SQL = " ON DUPLICATE KEY UPDATE txn_count = txn_count + VALUES(txn_count), "
+        + "total_amount = total_amount + VALUES(total_amount), "
+        + "absolute_amount = absolute_amount + VALUES(absolute_amount), "
+        + "min_amount = COALESCE(LEAST(min_amount, VALUES(min_amount)), min_amount, VALUES(min_amount)), "
+        + "max_amount = COALESCE(GREATEST(max_amount, VALUES(max_amount)), max_amount, VALUES(max_amount))";
+
+    private static final String ACCOUNT_UPSERT_SQL = "INSERT INTO account_daily_rollup "
+        + "(account_id, txn_date, channel, " + ROLLUP_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)" + MERGE_SQL;
+    private static final String CUSTOMER_UPSERT_SQL = "INSERT INTO customer_monthly_rollup "
+        + "(customer_id, txn_month, channel, " + ROLLUP_COLUMNS + ") "
+        + "SELECT customer_id, ?, ?, ?, ?, ?, ?, ? FROM account WHERE account_id = ? AND customer_id IS NOT NULL"
+        + MERGE_SQL;
+
+    private static final String ACCOUNT_AGGREGATE_SQL = "INSERT INTO account_daily_rollup "
+        + "(account_id, txn_date, channel, " + ROLLUP_COLUMNS + ") "
+        + "SELECT account_id, CAST(timestamp AS DATE), " + CHANNEL_SQL + ", COUNT(*), COALESCE(SUM(amount), 0), "
+        + "COALESCE(SUM(ABS(amount)), 0), MIN(amount), MAX(amount) FROM transactions ";
+    private static final String ACCOUNT_GROUP_SQL = " GROUP BY account_id, CAST(timestamp AS DATE), " + CHANNEL_SQL;
+    private static final String CUSTOMER_AGGREGATE_SQL = "INSERT INTO customer_monthly_rollup "
+        + "(customer_id, txn_month, channel, " + ROLLUP_COLUMNS + ") "
+        + "SELECT a.customer_id, " + MONTH_SQL + ", r.channel, SUM(r.txn_count), SUM(r.total_amount), "
+        + "SUM(r.absolute_amount), MIN(r.min_amount), MAX(r.max_amount) "
+        + "FROM account_daily_rollup r JOIN account a ON a.account_id = r.account_id ";
+    private static final String CUSTOMER_GROUP_SQL = " GROUP BY a.customer_id, " + MONTH_SQL + ", r.channel";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AccountDailyRollupRepository accountRollups;
+
+    @Autowired
+    private CustomerMonthlyRollupRepository customerRollups;
+
+    @Value("${custlysis.rollups.enabled:true}")
+    private boolean enabled;
+
+    @Value("${custlysis.rollups.avg-window-months:6}")
+    private int avgWindowMonths;
+
+    @Value("${custlysis.rollups.backfill-parallelism:4}")
+    private int parallelism;
+
+    @Value("${custlysis.rollups.backfill-chunk-ids:500}")
+    private int chunkIds;
+
+    @Value("${custlysis.rollups.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    private ForkJoinPool pool;
+
+    // Unflushed changes per account, day and channel
+    private final Map<BucketKey, Delta> dirty = new ConcurrentHashMap<>();
+    // Buckets being recomputed by the current flush; changes arriving meanwhile recompute again
+    private final Set<BucketKey> recomputing = ConcurrentHashMap.newKeySet();
+    // Customers that gained or lost an account and need every month rebuilt
+    private final Set<Integer> customersToRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean backfilling;
+
+    @PostConstruct
+    void start() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    void stop() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warn("Final rollup flush failed: {}", e.getMessage());
+        }
+        pool.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (!enabled || !jdbcTemplate.queryForList("SELECT account_id FROM account_daily_rollup LIMIT 1").isEmpty()) {
+            return;
+        }
+        Thread loader = new Thread(this::backfill, "rollup-backfill");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @Scheduled(cron = "${custlysis.rollups.backfill-cron:0 30 4 * * *}")
+    public void scheduledBackfill() {
+        if (enabled) {
+            backfill();
+        }
+    }
+
+    @EventListener
+    public void onTransactionChanged(TransactionChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        record(event.getBefore(), true);
+        record(event.getAfter(), false);
+    }
+
+    @EventListener
+    public void onAccountChanged(AccountChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Integer before = event.getBefore() != null ? event.getBefore().getCustomerId() : null;
+        Integer after = event.getAfter() != null ? event.getAfter().getCustomerId() : null;
+        if (!Objects.equals(before, after)) {
+            if (before != null) {
+                customersToRebuild.add(before);
+            }
+            if (after != null) {
+                customersToRebuild.add(after);
+            }
+        }
+    }
+
+    /**
+     * Daily or monthly activity of an account between {@code from} (inclusive) and {@code to}
+     * (exclusive), one entry per bucket including empty ones. Monthly buckets are clipped to the range.
+     */
+    public List<TransactionActivity> accountActivity(int accountId, LocalDate from, LocalDate to, boolean monthly) {
+        Map<LocalDate, TransactionActivity> buckets = new TreeMap<>();
+        for (LocalDate start = from; start.isBefore(to); ) {
+            LocalDate end = monthly ? min(YearMonth.from(start).plusMonths(1).atDay(1), to) : start.plusDays(1);
+            buckets.put(start, emptyActivity(start, end));
+            start = end;
+        }
+        for (AccountDailyRollup row : accountRollups.findRange(accountId, from, to)) {
+            LocalDate key = monthly ? max(YearMonth.from(row.getTxnDate()).atDay(1), from) : row.getTxnDate();
+            add(buckets.get(key), row.getChannel(), row.getTxnCount(), row.getTotalAmount(), row.getAbsoluteAmount(),
+                row.getMinAmount(), row.getMaxAmount());
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    /**
+     * Monthly activity across a customer's accounts from {@code from} up to but excluding
+     * {@code to}, one entry per month including empty ones
+     */
+    public List<TransactionActivity> customerActivity(int customerId, YearMonth from, YearMonth to) {
+        Map<Integer, TransactionActivity> buckets = new TreeMap<>();
+        for (YearMonth month = from; month.isBefore(to); month = month.plusMonths(1)) {
+            buckets.put(monthKey(month), emptyActivity(month.atDay(1), month.plusMonths(1).atDay(1)));
+        }
+        for (CustomerMonthlyRollup row : customerRollups.findRange(customerId, monthKey(from), monthKey(to))) {
+            add(buckets.get(row.getTxnMonth()), row.getChannel(), row.getTxnCount(), row.getTotalAmount(),
+                row.getAbsoluteAmount(), row.getMinAmount(), row.getMaxAmount());
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    /**
+     * All-time totals across a customer's accounts, spanning their first to last month with
+     * transactions; null when they have none
+     */
+    public TransactionActivity customerSummary(int customerId) {
+        List<CustomerMonthlyRollup> rows = customerRollups.findByCustomerId(customerId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        int first = Integer.MAX_VALUE;
+        int last = Integer.MIN_VALUE;
+        for (CustomerMonthlyRollup row : rows) {
+            first = Math.min(first, row.getTxnMonth());
+            last = Math.max(last, row.getTxnMonth());
+        }
+        TransactionActivity summary = emptyActivity(YearMonth.of(first / 100, first % 100).atDay(1),
+            YearMonth.of(last / 100, last % 100).plusMonths(1).atDay(1));
+        for (CustomerMonthlyRollup row : rows) {
+            add(summary, row.getChannel(), row.getTxnCount(), row.getTotalAmount(), row.getAbsoluteAmount(),
+                row.getMinAmount(), row.getMaxAmount());
+        }
+        return summary;
+    }
+
+    /**
+     * Write coalesced changes: additive upserts for buckets that only gained transactions,
+     * recomputation for the rest, then rebuild customers whose accounts moved and refresh
+     * {@code avg_monthly_txn} of every account touched. Held back while a backfill runs.
+     */
+    @Scheduled(fixedDelayString = "${custlysis.rollups.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        if (backfilling || (dirty.isEmpty() && customersToRebuild.isEmpty())) {
+            return;
+        }
+        Map<BucketKey, Delta> additions = new HashMap<>();
+        Set<BucketKey> recompute = new HashSet<>();
+        for (BucketKey key : dirty.keySet()) {
+            Delta[] taken = new Delta[1];
+            dirty.computeIfPresent(key, (k, delta) -> {
+                if (delta.recompute) {
+                    // Marked as it is taken, so a change arriving before the recompute reads is recomputed again, not added
+                    recomputing.add(k);
+                }
+                taken[0] = delta;
+                return null;
+            });
+            if (taken[0] == null) {
+                continue;
+            }
+            if (taken[0].recompute) {
+                recompute.add(key);
+            } else {
+                additions.put(key, taken[0]);
+            }
+        }
+        Set<Integer> customers = drain(customersToRebuild);
+        Set<Integer> touchedAccounts = new HashSet<>();
+
+        try {
+            if (!additions.isEmpty()) {
+                applyAdditions(additions);
+                additions.keySet().forEach(key -> touchedAccounts.add(key.accountId));
+            }
+        } catch (RuntimeException e) {
+            additions.forEach((key, delta) -> dirty.merge(key, delta, Delta::merge));
+            logger.warn("Rollup flush failed for {} additive buckets: {}", additions.size(), e.getMessage());
+        }
+        try {
+            if (!recompute.isEmpty()) {
+                recomputeBuckets(recompute);
+                recompute.forEach(key -> touchedAccounts.add(key.accountId));
+            }
+        } catch (RuntimeException e) {
+            recompute.forEach(key -> dirty.computeIfAbsent(key, k -> new Delta()).recompute = true);
+            logger.warn("Rollup flush failed for {} recomputed buckets: {}", recompute.size(), e.getMessage());
+        } finally {
+            recomputing.removeAll(recompute);
+        }
+        try {
+            if (!customers.isEmpty()) {
+                rebuildCustomers(customers);
+            }
+        } catch (RuntimeException e) {
+            customersToRebuild.addAll(customers);
+            logger.warn("Rollup rebuild failed for {} customers: {}", customers.size(), e.getMessage());
+        }
+        try {
+            refreshAverages(touchedAccounts);
+        } catch (RuntimeException e) {
+            logger.warn("avg_monthly_txn refresh failed for {} accounts: {}", touchedAccounts.size(), e.getMessage());
+        }
+        logger.debug("Flushed {} added and {} recomputed rollup buckets, rebuilt {} customers",
+            additions.size(), recompute.size(), customers.size());
+    }
+
+    /**
+     * Rebuild both rollup tables from the transactions table in parallel id ranges, then refresh
+     * {@code avg_monthly_txn} for every account. Changes arriving meanwhile are held and their
+     * buckets recomputed by the first flush afterwards, so none is counted twice or lost.
+     * Returns false if a backfill was already running or this one failed.
+     */
+    public boolean backfill() {
+        synchronized (this) {
+            if (backfilling) {
+                return false;
+            }
+            backfilling = true;
+        }
+        // Pending additions may already be in the rows the backfill reads
+        dirty.keySet().forEach(key -> dirty.computeIfPresent(key, (k, delta) -> delta.markRecompute()));
+        try {
+            long started = System.currentTimeMillis();
+            int accountChunks = rebuildRanges("account_daily_rollup", "account_id",
+                "SELECT MIN(account_id), MAX(account_id) FROM transactions",
+                (range) -> {
+                    jdbcTemplate.update("DELETE FROM account_daily_rollup WHERE account_id BETWEEN ? AND ?", range[0], range[1]);
+                    jdbcTemplate.update(ACCOUNT_AGGREGATE_SQL + "WHERE account_id BETWEEN ? AND ? AND timestamp IS NOT NULL"
+                        + ACCOUNT_GROUP_SQL, range[0], range[1]);
+                });
+            int customerChunks = rebuildRanges("customer_monthly_rollup", "customer_id",
+                "SELECT MIN(customer_id), MAX(customer_id) FROM account",
+                (range) -> {
+                    jdbcTemplate.update("DELETE FROM customer_monthly_rollup WHERE customer_id BETWEEN ? AND ?", range[0], range[1]);
+                    jdbcTemplate.update(CUSTOMER_AGGREGATE_SQL + "WHERE a.customer_id BETWEEN ? AND ?" + CUSTOMER_GROUP_SQL,
+                        range[0], range[1]);
+                });
+            int averages = refreshAverages(null);
+            logger.info("Rollups backfilled in {} ms: {} account and {} customer id ranges, {} averages changed",
+                System.currentTimeMillis() - started, accountChunks, customerChunks, averages);
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Rollup backfill failed; incremental updates resume from the partial tables", e);
+            return false;
+        } finally {
+            backfilling = false;
+        }
+    }
+
+    private void record(Transactions txn, boolean removed) {
+        if (txn == null || txn.getAccountId() == null || txn.getTimestamp() == null) {
+            return;
+        }
+        BucketKey key = new BucketKey(txn.getAccountId(), txn.getTimestamp().toLocalDate(), channelKey(txn.getChannel()));
+        dirty.compute(key, (k, delta) -> {
+            Delta next = delta != null ? delta : new Delta();
+            if (removed || backfilling || recomputing.contains(k)) {
+                return next.markRecompute();
+            }
+            next.add(txn.getAmount());
+            return next;
+        });
+    }
+
+    private void applyAdditions(Map<BucketKey, Delta> additions) {
+        List<Object[]> accountRows = new ArrayList<>(additions.size());
+        // Days fold into months, per account, before the customer upsert
+        Map<BucketKey, Delta> months = new HashMap<>();
+        additions.forEach((key, delta) -> {
+            accountRows.add(new Object[]{key.accountId, Date.valueOf(key.day), key.channel, delta.count,
+                delta.total, delta.absolute, delta.min, delta.max});
+            months.merge(new BucketKey(key.accountId, key.day.withDayOfMonth(1), key.channel), delta.copy(), Delta::merge);
+        });
+        List<Object[]> customerRows = new ArrayList<>(months.size());
+        months.forEach((key, delta) -> customerRows.add(new Object[]{monthKey(YearMonth.from(key.day)), key.channel,
+            delta.count, delta.total, delta.absolute, delta.min, delta.max, key.accountId}));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (List<Object[]> chunk : chunks(accountRows, flushBatchSize)) {
+                jdbcTemplate.batchUpdate(ACCOUNT_UPSERT_SQL, chunk);
+            }
+            for (List<Object[]> chunk : chunks(customerRows, flushBatchSize)) {
+                jdbcTemplate.batchUpdate(CUSTOMER_UPSERT_SQL, chunk);
+            }
+        });
+    }
+
+    // Recompute account buckets from transactions, then their customer months from account buckets
+    private void recomputeBuckets(Set<BucketKey> keys) {
+        Map<Integer, Integer> owners = customersOf(keys.stream().map(key -> key.accountId).distinct().toList());
+        List<Object[]> accountKeys = new ArrayList<>(keys.size());
+        List<Object[]> accountSources = new ArrayList<>(keys.size());
+        Set<List<Object>> customerMonths = new HashSet<>();
+        for (BucketKey key : keys) {
+            accountKeys.add(new Object[]{key.accountId, Date.valueOf(key.day), key.channel});
+            accountSources.add(new Object[]{key.accountId, Timestamp.valueOf(key.day.atStartOfDay()),
+                Timestamp.valueOf(key.day.plusDays(1).atStartOfDay()), key.channel});
+            Integer customerId = owners.get(key.accountId);
+            if (customerId != null) {
+                customerMonths.add(List.of(customerId, YearMonth.from(key.day), key.channel));
+            }
+        }
+        List<Object[]> customerKeys = new ArrayList<>(customerMonths.size());
+        List<Object[]> customerSources = new ArrayList<>(customerMonths.size());
+        for (List<Object> month : customerMonths) {
+            YearMonth yearMonth = (YearMonth) month.get(1);
+            customerKeys.add(new Object[]{month.get(0), monthKey(yearMonth), month.get(2)});
+            customerSources.add(new Object[]{month.get(0), Date.valueOf(yearMonth.atDay(1)),
+                Date.valueOf(yearMonth.plusMonths(1).atDay(1)), month.get(2)});
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (List<Object[]> chunk : chunks(accountKeys, flushBatchSize)) {
+                jdbcTemplate.batchUpdate("DELETE FROM account_daily_rollup WHERE account_id = ? AND txn_date = ? AND channel = ?", chunk);
+            }
+            for (List<Object[]> chunk : chunks(accountSources, flushBatchSize)) {
+                jdbcTemplate.batchUpdate(ACCOUNT_AGGREGATE_SQL + "WHERE account_id = ? AND timestamp >= ? AND timestamp < ? "
+                    + "AND " + CHANNEL_SQL + " = ?" + ACCOUNT_GROUP_SQL, chunk);
+            }
+            for (List<Object[]> chunk : chunks(customerKeys, flushBatchSize)) {
+                jdbcTemplate.batchUpdate("DELETE FROM customer_monthly_rollup WHERE customer_id = ? AND txn_month = ? AND channel = ?", chunk);
+            }
+            for (List<Object[]> chunk : chunks(customerSources, flushBatchSize)) {
+                jdbcTemplate.batchUpdate(CUSTOMER_AGGREGATE_SQL + "WHERE a.customer_id = ? AND r.txn_date >= ? AND r.txn_date < ? "
+                    + "AND r.channel = ?" + CUSTOMER_GROUP_SQL, chunk);
+            }
+        });
+    }
+
+    private void rebuildCustomers(Set<Integer> customerIds) {
+        List<Object[]> ids = customerIds.stream().map(id -> new Object[]{id}).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (List<Object[]> chunk : chunks(ids, flushBatchSize)) {
+                jdbcTemplate.batchUpdate("DELETE FROM customer_monthly_rollup WHERE customer_id = ?", chunk);
+                jdbcTemplate.batchUpdate(CUSTOMER_AGGREGATE_SQL + "WHERE a.customer_id = ?" + CUSTOMER_GROUP_SQL, chunk);
+            }
+        });
+    }
+
+    /**
+     * Split [min, max] of the id column into ranges and rebuild each in its own database
+     * transaction on the backfill pool; rows outside the overall range are deleted first.
+     * Returns the number of ranges.
+     */
+    private int rebuildRanges(String table, String idColumn, String boundsSql, Consumer<int[]> rebuild) {
+        int[] bounds = jdbcTemplate.queryForObject(boundsSql, (rs, row) -> {
+            int low = rs.getInt(1);
+            return rs.wasNull() ? null : new int[]{low, rs.getInt(2)};
+        });
+        if (bounds == null) {
+            jdbcTemplate.update("DELETE FROM " + table);
+            return 0;
+        }
+        int low = bounds[0];
+        int high = bounds[1];
+        jdbcTemplate.update("DELETE FROM " + table + " WHERE " + idColumn + " < ? OR " + idColumn + " > ?", low, high);
+
+        int step = Math.max(1, chunkIds);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (long from = low; from <= high; from += step) {
+            int[] range = {(int) from, (int) Math.min(high, from + step - 1)};
+            tasks.add(pool.submit(() -> transactionTemplate.executeWithoutResult(status -> rebuild.accept(range))));
+        }
+        tasks.forEach(ForkJoinTask::join);
+        return tasks.size();
+    }
+
+    /**
+     * Set {@code avg_monthly_txn} to the volume over the trailing window divided by the months the
+     * account has been transacting within it (at least one), so young accounts are not diluted.
+     * Accounts with no transactions get zero. All accounts when {@code accountIds} is null;
+     * returns how many values changed.
+     */
+    private int refreshAverages(Set<Integer> accountIds) {
+        if (accountIds != null && accountIds.isEmpty()) {
+            return 0;
+        }
+        LocalDate today = LocalDate.now();
+        LocalDate windowStart = today.minusMonths(avgWindowMonths);
+        List<Object[]> updates = new ArrayList<>();
+        Consumer<List<Integer>> collect = ids -> {
+            String in = ids == null ? "" : " IN (" + String.join(",", Collections.nCopies(ids.size(), "?")) + ")";
+            List<Object> args = new ArrayList<>();
+            args.add(Date.valueOf(windowStart));
+            if (ids != null) {
+                args.addAll(ids);
+                args.addAll(ids);
+            }
+            jdbcTemplate.query("SELECT a.account_id, a.avg_monthly_txn, r.first_day, r.window_volume FROM account a "
+                + "LEFT JOIN (SELECT account_id, MIN(txn_date) AS first_day, "
+                + "SUM(CASE WHEN txn_date >= ? THEN absolute_amount ELSE 0 END) AS window_volume "
+                + "FROM account_daily_rollup" + (ids == null ? "" : " WHERE account_id" + in)
+                + " GROUP BY account_id) r ON r.account_id = a.account_id"
+                + (ids == null ? "" : " WHERE a.account_id" + in), rs -> {
+                Date firstDay = rs.getDate(3);
+                BigDecimal average = BigDecimal.ZERO.setScale(2);
+                if (firstDay != null) {
+                    long months = ChronoUnit.MONTHS.between(YearMonth.from(firstDay.toLocalDate()), YearMonth.from(today)) + 1;
+                    BigDecimal volume = rs.getBigDecimal(4);
+                    average = (volume != null ? volume : BigDecimal.ZERO)
+                        .divide(BigDecimal.valueOf(Math.max(1, Math.min(avgWindowMonths, months))), 2, RoundingMode.HALF_UP);
+                }
+                BigDecimal stored = rs.getBigDecimal(2);
+                if (stored == null || stored.compareTo(average) != 0) {
+                    updates.add(new Object[]{average, rs.getInt(1)});
+                }
+            }, args.toArray());
+        };
+        if (accountIds == null) {
+            collect.accept(null);
+        } else {
+            chunks(new ArrayList<>(accountIds), IN_CLAUSE_CHUNK).forEach(collect);
+        }
+        for (List<Object[]> chunk : chunks(updates, flushBatchSize)) {
+            jdbcTemplate.batchUpdate("UPDATE account SET avg_monthly_txn = ? WHERE account_id = ?", chunk);
+        }
+        return updates.size();
+    }
+
+    private Map<Integer, Integer> customersOf(List<Integer> accountIds) {
+        Map<Integer, Integer> owners = new HashMap<>(accountIds.size() * 2);
+        for (List<Integer> chunk : chunks(accountIds, IN_CLAUSE_CHUNK)) {
+            jdbcTemplate.query("SELECT account_id, customer_id FROM account WHERE customer_id IS NOT NULL AND account_id IN ("
+                    + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")",
+                rs -> {
+                    owners.put(rs.getInt(1), rs.getInt(2));
+                }, chunk.toArray());
+        }
+        return owners;
+    }
+
+    private static TransactionActivity emptyActivity(LocalDate start, LocalDate end) {
+        return new TransactionActivity(start, end, 0, BigDecimal.ZERO.setScale(2), BigDecimal.ZERO.setScale(2),
+            null, null, new TreeMap<>());
+    }
+
+    private static void add(TransactionActivity bucket, String channel, long count, BigDecimal total,
+                            BigDecimal absolute, BigDecimal min, BigDecimal max) {
+        bucket.setCount(bucket.getCount() + count);
+        bucket.setTotalAmount(bucket.getTotalAmount().add(total));
+        bucket.setVolume(bucket.getVolume().add(absolute));
+        if (min != null && (bucket.getMinAmount() == null || min.compareTo(bucket.getMinAmount()) < 0)) {
+            bucket.setMinAmount(min);
+        }
+        if (max != null && (bucket.getMaxAmount() == null || max.compareTo(bucket.getMaxAmount()) > 0)) {
+            bucket.setMaxAmount(max);
+        }
+        bucket.getByChannel().merge(channel, new ChannelVolume(count, total),
+            (a, b) -> new ChannelVolume(a.getCount() + b.getCount(), a.getAmount().add(b.getAmount())));
+    }
+
+    static int monthKey(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    private static String channelKey(String channel) {
+        return channel == null ? UNKNOWN_CHANNEL : channel;
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static <T> Set<T> drain(Set<T> source) {
+        Set<T> drained = new HashSet<>();
+        for (T item : source) {
+            if (source.remove(item)) {
+                drained.add(item);
+            }
+        }
+        return drained;
+    }
+
+    private static <T> List<List<T>> chunks(List<T> list, int size) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += size) {
+            chunks.add(list.subList(from, Math.min(list.size(), from + size)));
+        }
+        return chunks;
+    }
+
+    // An account's transactions on one day (or, folded for customers, one month) through one channel
+    private record BucketKey(int accountId, LocalDate day, String channel) {
+    }
+
+    /**
+     * Coalesced additions to a bucket, or a request to recompute it from the source rows
+     */
+    private static final class Delta {
+        long count;
+        BigDecimal total = BigDecimal.ZERO;
+        BigDecimal absolute = BigDecimal.ZERO;
+        BigDecimal min;
+        BigDecimal max;
+        boolean recompute;
+
+        void add(BigDecimal amount) {
+            count++;
+            if (amount != null) {
+                total = total.add(amount);
+                absolute = absolute.add(amount.abs());
+                min = min == null || amount.compareTo(min) < 0 ? amount : min;
+                max = max == null || amount.compareTo(max) > 0 ? amount : max;
+            }
+        }
+
+        Delta markRecompute() {
+            recompute = true;
+            return this;
+        }
+
+        Delta copy() {
+            Delta copy = new Delta();
+            return copy.merge(this);
+        }
+
+        Delta merge(Delta other) {
+            count += other.count;
+            total = total.add(other.total);
+            absolute = absolute.add(other.absolute);
+            if (other.min != null && (min == null || other.min.compareTo(min) < 0)) {
+                min = other.min;
+            }
+            if (other.max != null && (max == null || other.max.compareTo(max) > 0)) {
+                max = other.max;
+            }
+            recompute |= other.recompute;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.pblGEHU.Custlysis.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of sequenced records in segment files named by their first sequence.
+ * Each record is [payload length][sequence][CRC32 of sequence and payload][payload]; a torn
+ * record at the tail after a crash fails its length or checksum and is truncated on open.
+ */
+final class WriteAheadLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+    private static final String SUFFIX = ".wal";
+    private static final int HEADER_BYTES = 4 + 8 + 4;
+    private static final int MAX_PAYLOAD_BYTES = 16 * 1024 * 1024;
+
+    record Record(long sequence, byte[] payload) {
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    // First sequence → segment file, oldest first
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private FileChannel current;
+    private long lastSequence;
+
+    WriteAheadLog(Path directory, long segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Open the log for appending and return every intact record after {@code appliedThrough},
+     * oldest first. Sequences continue from the last record or {@code appliedThrough},
+     * whichever is higher.
+     */
+    synchronized List<Record> open(long appliedThrough) throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                .forEach(file -> segments.put(firstSequence(file), file));
+        }
+
+        List<Record> unapplied = new ArrayList<>();
+        lastSequence = appliedThrough;
+        for (Iterator<Map.Entry<Long, Path>> it = segments.entrySet().iterator(); it.hasNext(); ) {
+            Path file = it.next().getValue();
+            long validBytes = read(file, appliedThrough, unapplied);
+            if (validBytes < Files.size(file)) {
+                logger.warn("Truncating {} bytes of torn or corrupt records from {}", Files.size(file) - validBytes, file);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(validBytes);
+                    channel.force(true);
+                }
+                // Anything after a bad record cannot be trusted, including later segments
+                while (it.hasNext()) {
+                    Path later = it.next().getValue();
+                    logger.warn("Discarding write-ahead log segment {} after corrupt record", later);
+                    Files.delete(later);
+                    it.remove();
+                }
+            }
+        }
+        if (!unapplied.isEmpty()) {
+            lastSequence = Math.max(lastSequence, unapplied.get(unapplied.size() - 1).sequence());
+        }
+
+        if (segments.isEmpty()) {
+            roll();
+        } else {
+            current = FileChannel.open(segments.lastEntry().getValue(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return unapplied;
+    }
+
+    /**
+     * Append records in sequence order and force them to disk with a single fsync.
+     * On failure the segment is truncated back to where the append started.
+     */
+    synchronized void append(List<Record> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        int size = 0;
+        for (Record record : records) {
+            size += HEADER_BYTES + record.payload().length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (Record record : records) {
+            crc.reset();
+            crc.update(ByteBuffer.allocate(8).putLong(0, record.sequence()));
+            crc.update(record.payload());
+            buffer.putInt(record.payload().length).putLong(record.sequence()).putInt((int) crc.getValue())
+                .put(record.payload());
+        }
+        buffer.flip();
+
+        long start = current.size();
+        try {
+            while (buffer.hasRemaining()) {
+                current.write(buffer);
+            }
+            current.force(false);
+        } catch (IOException e) {
+            current.truncate(start);
+            throw e;
+        }
+        lastSequence = records.get(records.size() - 1).sequence();
+        if (current.size() >= segmentBytes) {
+            roll();
+        }
+    }
+
+    /**
+     * Delete closed segments whose records are all at or before {@code appliedThrough}
+     */
+    synchronized void release(long appliedThrough) {
+        while (segments.size() > 1) {
+            Map.Entry<Long, Path> oldest = segments.firstEntry();
+            Long next = segments.higherKey(oldest.getKey());
+            if (next - 1 > appliedThrough) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(oldest.getValue());
+            } catch (IOException e) {
+                logger.warn("Could not delete write-ahead log segment {}: {}", oldest.getValue(), e.getMessage());
+                return;
+            }
+            segments.remove(oldest.getKey());
+        }
+    }
+
+    synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (current != null) {
+            current.force(true);
+            current.close();
+            current = null;
+        }
+    }
+
+    private void roll() throws IOException {
+        if (current != null) {
+            current.force(true);
+            current.close();
+        }
+        long first = lastSequence + 1;
+        Path file = directory.resolve(String.format("%020d%s", first, SUFFIX));
+        current = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segments.put(first, file);
+    }
+
+    // Collect records after appliedThrough; returns the length of the intact prefix of the file
+    private static long read(Path file, long appliedThrough, List<Record> out) throws IOException {
+        long valid = 0;
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ)), 1 << 16))) {
+            while (true) {
+                int length;
+                long sequence;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    if (length < 0 || length > MAX_PAYLOAD_BYTES) {
+                        return valid;
+                    }
+                    sequence = in.readLong();
+                    checksum = in.readInt();
+                    payload = in.readNBytes(length);
+                } catch (EOFException e) {
+                    return valid;
+                }
+                if (payload.length < length) {
+                    return valid;
+                }
+                crc.reset();
+                crc.update(ByteBuffer.allocate(8).putLong(0, sequence));
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    return valid;
+                }
+                valid += HEADER_BYTES + length;
+                if (sequence > appliedThrough) {
+                    out.add(new Record(sequence, payload));
+                }
+            }
+        }
+    }
+
+    private static long firstSequence(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,190 @@
+package com.pblGEHU.Custlysis.util;
+
+/**
+ * Open-addressing hash map from primitive int keys to primitive double values, for sparse
+ * numeric rows that would otherwise box both sides. Absent keys read as 0. Not thread-safe;
+ * callers guard it with their own lock.
+ */
+public class IntDoubleHashMap {
+
+    private static final int EMPTY = 0;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    // Key 0 is stored out of band so 0 can mark empty slots
+    private int[] keys;
+    private double[] values;
+    private boolean hasZeroKey;
+    private double zeroValue;
+    private int size;
+    private int resizeAt;
+
+    public IntDoubleHashMap() {
+        this(8);
+    }
+
+    public IntDoubleHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new int[capacity];
+        values = new double[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    public double get(int key) {
+        if (key == EMPTY) {
+            return hasZeroKey ? zeroValue : 0;
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            int existing = keys[slot];
+            if (existing == key) {
+                return values[slot];
+            }
+            if (existing == EMPTY) {
+                return 0;
+            }
+        }
+    }
+
+    public boolean containsKey(int key) {
+        if (key == EMPTY) {
+            return hasZeroKey;
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            int existing = keys[slot];
+            if (existing == key) {
+                return true;
+            }
+            if (existing == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    public void put(int key, double value) {
+        if (key == EMPTY) {
+            if (!hasZeroKey) {
+                size++;
+            }
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            int existing = keys[slot];
+            if (existing == key) {
+                values[slot] = value;
+                return;
+            }
+            if (existing == EMPTY) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size > resizeAt) {
+                    rehash(keys.length << 1);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Add {@code delta} to the value of {@code key} and return the new value
+     */
+    public double add(int key, double delta) {
+        double value = get(key) + delta;
+        put(key, value);
+        return value;
+    }
+
+    public void remove(int key) {
+        if (key == EMPTY) {
+            if (hasZeroKey) {
+                size--;
+            }
+            hasZeroKey = false;
+            zeroValue = 0;
+            return;
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            int existing = keys[slot];
+            if (existing == EMPTY) {
+                return;
+            }
+            if (existing == key) {
+                shiftBack(slot);
+                size--;
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Visit every mapping. The map must not be modified during the visit.
+     */
+    public void forEach(Visitor visitor) {
+        if (hasZeroKey) {
+            visitor.visit(EMPTY, zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                visitor.visit(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(int key, double value);
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void shiftBack(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int ideal = mix(keys[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+        values[gap] = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        double[] oldValues = values;
+        keys = new int[capacity];
+        values = new double[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != EMPTY) {
+                int slot = mix(key) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
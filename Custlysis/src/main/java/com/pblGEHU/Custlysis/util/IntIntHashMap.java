@@ -0,0 +1,183 @@
+package com.pblGEHU.Custlysis.util;
+
+/**
+ * Open-addressing hash map from primitive int keys to primitive int values, e.g. id → row
+ * position, without boxing either side. Absent keys read as the missing value given at
+ * construction. Not thread-safe; callers guard it with their own lock.
+ */
+public class IntIntHashMap {
+
+    private static final int EMPTY = 0;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    // Key 0 is stored out of band so 0 can mark empty slots
+    private int[] keys;
+    private int[] values;
+    private boolean hasZeroKey;
+    private int zeroValue;
+    private final int missingValue;
+    private int size;
+    private int resizeAt;
+
+    public IntIntHashMap(int missingValue) {
+        this(missingValue, 8);
+    }
+
+    public IntIntHashMap(int missingValue, int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.missingValue = missingValue;
+        keys = new int[capacity];
+        values = new int[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    public int get(int key) {
+        if (key == EMPTY) {
+            return hasZeroKey ? zeroValue : missingValue;
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            int existing = keys[slot];
+            if (existing == key) {
+                return values[slot];
+            }
+            if (existing == EMPTY) {
+                return missingValue;
+            }
+        }
+    }
+
+    public boolean containsKey(int key) {
+        if (key == EMPTY) {
+            return hasZeroKey;
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            int existing = keys[slot];
+            if (existing == key) {
+                return true;
+            }
+            if (existing == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    public void put(int key, int value) {
+        if (key == EMPTY) {
+            if (!hasZeroKey) {
+                size++;
+            }
+            hasZeroKey = true;
+            zeroValue = value;
+            return;
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            int existing = keys[slot];
+            if (existing == key) {
+                values[slot] = value;
+                return;
+            }
+            if (existing == EMPTY) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size > resizeAt) {
+                    rehash(keys.length << 1);
+                }
+                return;
+            }
+        }
+    }
+
+    public void remove(int key) {
+        if (key == EMPTY) {
+            if (hasZeroKey) {
+                size--;
+            }
+            hasZeroKey = false;
+            zeroValue = missingValue;
+            return;
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            int existing = keys[slot];
+            if (existing == EMPTY) {
+                return;
+            }
+            if (existing == key) {
+                shiftBack(slot);
+                size--;
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Visit every mapping. The map must not be modified during the visit.
+     */
+    public void forEach(Visitor visitor) {
+        if (hasZeroKey) {
+            visitor.visit(EMPTY, zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                visitor.visit(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(int key, int value);
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void shiftBack(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int ideal = mix(keys[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+        values[gap] = missingValue;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != EMPTY) {
+                int slot = mix(key) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,214 @@
+package com.pblGEHU.Custlysis.util;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Open-addressing hash map from primitive int keys to objects, so lookups by id
+ * don't box the key or allocate an entry per mapping. Not thread-safe; callers
+ * guard it with their own lock or publish it immutably.
+ */
+public class IntObjectHashMap<V> {
+
+    private static final int EMPTY = 0;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    // Key 0 is stored out of band so 0 can mark empty slots
+    private int[] keys;
+    private Object[] values;
+    private boolean hasZeroKey;
+    private Object zeroValue;
+    private int size;
+    private int resizeAt;
+
+    public IntObjectHashMap() {
+        this(16);
+    }
+
+    public IntObjectHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == EMPTY) {
+            return hasZeroKey ? (V) zeroValue : null;
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            int existing = keys[slot];
+            if (existing == key) {
+                return (V) values[slot];
+            }
+            if (existing == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (key == EMPTY) {
+            V previous = hasZeroKey ? (V) zeroValue : null;
+            if (!hasZeroKey) {
+                size++;
+            }
+            hasZeroKey = true;
+            zeroValue = value;
+            return previous;
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            int existing = keys[slot];
+            if (existing == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            if (existing == EMPTY) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size > resizeAt) {
+                    rehash(keys.length << 1);
+                }
+                return null;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key == EMPTY) {
+            V previous = hasZeroKey ? (V) zeroValue : null;
+            if (hasZeroKey) {
+                size--;
+            }
+            hasZeroKey = false;
+            zeroValue = null;
+            return previous;
+        }
+        int mask = keys.length - 1;
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            int existing = keys[slot];
+            if (existing == EMPTY) {
+                return null;
+            }
+            if (existing == key) {
+                V previous = (V) values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        hasZeroKey = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    /**
+     * Visit every mapping; stops early when the visitor returns false
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<V> visitor) {
+        if (hasZeroKey && !visitor.visit(EMPTY, (V) zeroValue)) {
+            return;
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY && !visitor.visit(keys[slot], (V) values[slot])) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove every mapping whose key matches the predicate
+     */
+    public void removeIf(IntPredicate predicate) {
+        int[] snapshot = keys();
+        for (int key : snapshot) {
+            if (predicate.test(key)) {
+                remove(key);
+            }
+        }
+    }
+
+    public int[] keys() {
+        int[] result = new int[size];
+        int at = 0;
+        if (hasZeroKey) {
+            result[at++] = EMPTY;
+        }
+        for (int key : keys) {
+            if (key != EMPTY) {
+                result[at++] = key;
+            }
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    public interface Visitor<V> {
+        boolean visit(int key, V value);
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void shiftBack(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int ideal = mix(keys[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+        values[gap] = null;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != EMPTY) {
+                int slot = mix(key) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,105 @@
+package com.pblGEHU.Custlysis.controller;
+
+import com.pblGEHU.Custlysis.dto.PageResponse;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KeysetPaginationTest {
+
+    @Test
+    void returnsCursorOfLastItemWhenAnotherPageFollows() {
+        Query query = new Query(List.of(1, 2, 3));
+        PageResponse<Integer> page = KeysetPagination.page(query.repository, null, "id", id -> id, null, 2, "asc");
+
+        assertThat(page.getItems()).containsExactly(1, 2);
+        assertThat(page.getNextCursor()).isEqualTo(2);
+        // One extra row tells whether another page follows
+        verify(query.fluent).limit(3);
+        verify(query.fluent).sortBy(Sort.by(Sort.Direction.ASC, "id"));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        Query query = new Query(List.of(7, 8));
+        PageResponse<Integer> page = KeysetPagination.page(query.repository, null, "id", id -> id, 6, 2, "asc");
+
+        assertThat(page.getItems()).containsExactly(7, 8);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void descendingCursorSelectsLowerIds() {
+        Query query = new Query(List.of(4));
+        KeysetPagination.page(query.repository, null, "id", id -> id, 5, null, "desc");
+
+        verify(query.fluent).sortBy(Sort.by(Sort.Direction.DESC, "id"));
+        verify(query.fluent).limit(KeysetPagination.DEFAULT_LIMIT + 1);
+        Root<Integer> root = mock(Root.class);
+        Path<Integer> id = mock(Path.class);
+        CriteriaBuilder cb = mock(CriteriaBuilder.class);
+        when(root.<Integer>get("id")).thenReturn(id);
+        query.spec.toPredicate(root, mock(CriteriaQuery.class), cb);
+        verify(cb).lessThan(id, 5);
+    }
+
+    @Test
+    void rejectsLimitOutOfRange() {
+        assertThat(KeysetPagination.pageSize(null)).isEqualTo(KeysetPagination.DEFAULT_LIMIT);
+        assertThat(KeysetPagination.pageSize(KeysetPagination.MAX_LIMIT)).isEqualTo(KeysetPagination.MAX_LIMIT);
+        assertBadRequest(() -> KeysetPagination.pageSize(0));
+        assertBadRequest(() -> KeysetPagination.pageSize(KeysetPagination.MAX_LIMIT + 1));
+    }
+
+    @Test
+    void rejectsUnknownSortDirection() {
+        Query query = new Query(List.of());
+        assertBadRequest(() -> KeysetPagination.page(query.repository, null, "id", id -> id, null, 10, "sideways"));
+    }
+
+    private static void assertBadRequest(Runnable call) {
+        assertThatThrownBy(call::run)
+            .isInstanceOfSatisfying(ResponseStatusException.class,
+                e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    /**
+     * Repository whose fluent query returns the given rows and records the specification it was given
+     */
+    private static final class Query {
+        final JpaSpecificationExecutor<Integer> repository;
+        final JpaSpecificationExecutor.SpecificationFluentQuery<Integer> fluent;
+        Specification<Integer> spec;
+
+        @SuppressWarnings("unchecked")
+        Query(List<Integer> rows) {
+            repository = mock(JpaSpecificationExecutor.class);
+            fluent = mock(JpaSpecificationExecutor.SpecificationFluentQuery.class, RETURNS_SELF);
+            when(fluent.all()).thenReturn(rows);
+            when(repository.findBy(any(Specification.class), any())).thenAnswer(invocation -> {
+                spec = invocation.getArgument(0);
+                Function<JpaSpecificationExecutor.SpecificationFluentQuery<Integer>, Object> queryFunction = invocation.getArgument(1);
+                return queryFunction.apply(fluent);
+            });
+        }
+    }
+}
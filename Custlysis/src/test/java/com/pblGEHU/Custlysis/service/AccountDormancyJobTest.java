@@ -0,0 +1,33 @@
+package com.pblGEHU.Custlysis.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountDormancyJobTest {
+
+    private static final LocalDateTime EARLIER = LocalDateTime.of(2026, 3, 1, 9, 30);
+    private static final LocalDateTime LATER = LocalDateTime.of(2026, 9, 14, 17, 5);
+
+    @Test
+    void newerTransactionMovesLastActiveForward() {
+        assertThat(AccountDormancyJob.lastActive(Timestamp.valueOf(EARLIER), Timestamp.valueOf(LATER)))
+            .isEqualTo(LATER);
+    }
+
+    @Test
+    void storedDateNewerThanLastTransactionIsKept() {
+        assertThat(AccountDormancyJob.lastActive(Timestamp.valueOf(LATER), Timestamp.valueOf(EARLIER)))
+            .isEqualTo(LATER);
+    }
+
+    @Test
+    void usesWhicheverIsKnown() {
+        assertThat(AccountDormancyJob.lastActive(null, Timestamp.valueOf(EARLIER))).isEqualTo(EARLIER);
+        assertThat(AccountDormancyJob.lastActive(Timestamp.valueOf(EARLIER), null)).isEqualTo(EARLIER);
+        assertThat(AccountDormancyJob.lastActive(null, null)).isNull();
+    }
+}
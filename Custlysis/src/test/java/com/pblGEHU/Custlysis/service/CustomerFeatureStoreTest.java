@@ -0,0 +1,161 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.entity.Transactions;
+import com.pblGEHU.Custlysis.event.TransactionChangedEvent;
+import com.pblGEHU.Custlysis.repository.AccountRepository;
+import com.pblGEHU.Custlysis.repository.CustomerRepository;
+import com.pblGEHU.Custlysis.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.pblGEHU.Custlysis.service.CustomerFeatureExtractor.AVG_TXN_AMOUNT;
+import static com.pblGEHU.Custlysis.service.CustomerFeatureExtractor.NUM_ACCOUNTS;
+import static com.pblGEHU.Custlysis.service.CustomerFeatureExtractor.TOTAL_BALANCE;
+import static com.pblGEHU.Custlysis.service.CustomerFeatureExtractor.TXN_FREQUENCY;
+import static com.pblGEHU.Custlysis.service.CustomerFeatureExtractor.TXN_WINDOW_MONTHS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CustomerFeatureStoreTest {
+
+    private static final int CUSTOMER = 1;
+    private static final int ACCOUNT = 10;
+
+    private final CustomerRepository customers = mock(CustomerRepository.class);
+    private final AccountRepository accounts = mock(AccountRepository.class);
+    private final TransactionRepository transactions = mock(TransactionRepository.class);
+    private final CustomerFeatureStore store = new CustomerFeatureStore();
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(store, "customerRepository", customers);
+        ReflectionTestUtils.setField(store, "accountRepository", accounts);
+        ReflectionTestUtils.setField(store, "transactionRepository", transactions);
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "stripeCount", 4);
+
+        when(customers.findFeatureRows()).thenReturn(rows(customerRow()));
+        when(accounts.findStateRows()).thenReturn(rows(accountRow()));
+    }
+
+    @Test
+    void loadsFeaturesFromDatabase() {
+        when(transactions.aggregateByAccountAndMonthSince(any())).thenReturn(rows(monthRow(3, 300)));
+        store.rebuild();
+
+        assertThat(store.isReady()).isTrue();
+        double[] features = store.features(CUSTOMER);
+        assertThat(features[NUM_ACCOUNTS]).isEqualTo(1);
+        assertThat(features[TOTAL_BALANCE]).isEqualTo(500);
+        assertThat(features[TXN_FREQUENCY]).isEqualTo(3.0 / TXN_WINDOW_MONTHS);
+        assertThat(features[AVG_TXN_AMOUNT]).isEqualTo(100);
+        assertThat(store.features(2)).isNull();
+    }
+
+    @Test
+    void appliesWritesAfterLoad() {
+        when(transactions.aggregateByAccountAndMonthSince(any())).thenReturn(rows(monthRow(3, 300)));
+        store.rebuild();
+
+        Transactions txn = transaction(new BigDecimal("-100"));
+        store.onTransactionChanged(new TransactionChangedEvent(null, txn));
+        assertThat(store.features(CUSTOMER)[TXN_FREQUENCY]).isEqualTo(4.0 / TXN_WINDOW_MONTHS);
+
+        store.onTransactionChanged(new TransactionChangedEvent(txn, null));
+        assertThat(store.features(CUSTOMER)[TXN_FREQUENCY]).isEqualTo(3.0 / TXN_WINDOW_MONTHS);
+    }
+
+    @Test
+    void writeDuringLoadIsReloadedNotReplayed() {
+        // The write commits while the bulk read runs, and the read already sees it
+        when(transactions.aggregateByAccountAndMonthSince(any())).thenAnswer(invocation -> {
+            store.onTransactionChanged(new TransactionChangedEvent(null, transaction(new BigDecimal("100"))));
+            return rows(monthRow(4, 400));
+        });
+        when(accounts.findStateRowsByIds(anyCollection())).thenReturn(rows(accountRow()));
+        when(accounts.findStateRowsByCustomerIds(anyCollection())).thenReturn(rows(accountRow()));
+        when(customers.findFeatureRowsByIds(anyCollection())).thenReturn(rows(customerRow()));
+        when(transactions.aggregateByAccountIdsAndMonthSince(anyCollection(), any())).thenReturn(rows(monthRow(4, 400)));
+
+        store.rebuild();
+
+        double[] features = store.features(CUSTOMER);
+        assertThat(features[TXN_FREQUENCY]).isEqualTo(4.0 / TXN_WINDOW_MONTHS);
+        assertThat(features[NUM_ACCOUNTS]).isEqualTo(1);
+        assertThat(features[TOTAL_BALANCE]).isEqualTo(500);
+    }
+
+    @Test
+    void countsOnlyTheRollingPartOfTheOldestMonth() {
+        LocalDateTime oldest = now.minusMonths(TXN_WINDOW_MONTHS);
+        LocalDateTime tooOld = now.minusMonths(TXN_WINDOW_MONTHS + 1);
+        when(transactions.aggregateByAccountAndMonthSince(any())).thenReturn(rows(monthRow(3, 300),
+            new Object[]{ACCOUNT, oldest.getYear(), oldest.getMonthValue(), 30L, 30L, 3000.0},
+            new Object[]{ACCOUNT, tooOld.getYear(), tooOld.getMonthValue(), 1000L, 1000L, 1000.0}));
+        store.rebuild();
+
+        double share = CustomerFeatureStore.oldestMonthShare(now.toLocalDate().toEpochDay());
+        assertThat(share).isGreaterThan(0).isLessThanOrEqualTo(1);
+        double[] features = store.features(CUSTOMER);
+        assertThat(features[TXN_FREQUENCY]).isCloseTo((3 + 30 * share) / TXN_WINDOW_MONTHS, within(1e-9));
+        assertThat(features[AVG_TXN_AMOUNT]).isCloseTo(100, within(1e-9));
+    }
+
+    @Test
+    void oldestMonthShareCoversDaysFromTheWindowStart() {
+        // Window from 2026-04-18 covers 13 of April's 30 days
+        assertThat(CustomerFeatureStore.oldestMonthShare(LocalDate.of(2026, 10, 18).toEpochDay()))
+            .isCloseTo(13 / 30.0, within(1e-12));
+        assertThat(CustomerFeatureStore.oldestMonthShare(LocalDate.of(2026, 10, 1).toEpochDay())).isEqualTo(1);
+    }
+
+    @Test
+    void stripeIndexStaysInRangeAndSpreadsConsecutiveIds() {
+        int stripeCount = 64;
+        int[] hits = new int[stripeCount];
+        for (int id = 0; id < stripeCount * 100; id++) {
+            int index = CustomerFeatureStore.stripeIndex(id, stripeCount);
+            assertThat(index).isBetween(0, stripeCount - 1);
+            hits[index]++;
+        }
+        for (int count : hits) {
+            assertThat(count).isBetween(50, 150);
+        }
+    }
+
+    private Transactions transaction(BigDecimal amount) {
+        return Transactions.builder().txnId(99).accountId(ACCOUNT).amount(amount).timestamp(now).build();
+    }
+
+    // customerId, dob, tenureDays, digitalScore, churnRiskScore, incomeBracket, riskProfile, geoCluster
+    private static Object[] customerRow() {
+        return new Object[]{CUSTOMER, LocalDate.of(1990, 1, 1), 400, new BigDecimal("0.5"), new BigDecimal("10"),
+            null, null, null};
+    }
+
+    // accountId, customerId, accountType, balance, dormantFlag
+    private static Object[] accountRow() {
+        return new Object[]{ACCOUNT, CUSTOMER, "Savings", new BigDecimal("500"), false};
+    }
+
+    // accountId, year, month, count, amountCount, absSum
+    private Object[] monthRow(long count, double absSum) {
+        return new Object[]{ACCOUNT, now.getYear(), now.getMonthValue(), count, count, absSum};
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+}
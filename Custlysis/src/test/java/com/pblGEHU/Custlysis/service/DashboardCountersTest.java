@@ -0,0 +1,67 @@
+package com.pblGEHU.Custlysis.service;
+
+import com.pblGEHU.Custlysis.entity.Customer;
+import com.pblGEHU.Custlysis.event.CustomerChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DashboardCountersTest {
+
+    private static final String CUSTOMER_COUNT = "SELECT COUNT(*) FROM customer";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final CustomerSegmentIndex segmentIndex = mock(CustomerSegmentIndex.class);
+    private final DashboardCounters counters = new DashboardCounters();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(counters, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(counters, "segmentIndex", segmentIndex);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+    }
+
+    @Test
+    void writeCommittedAfterTheQuerySnapshotIsKept() {
+        // The query sees 10 customers; a create is applied while it runs
+        when(jdbcTemplate.queryForObject(CUSTOMER_COUNT, Long.class)).thenAnswer(invocation -> {
+            createCustomer();
+            return 10L;
+        });
+
+        counters.reconcile();
+
+        assertThat(customers()).isEqualTo(11);
+    }
+
+    @Test
+    void writeCountedTwiceIsCorrectedByTheNextPass() {
+        // The create committed before the snapshot but its event lands after the mark
+        when(jdbcTemplate.queryForObject(CUSTOMER_COUNT, Long.class)).thenAnswer(invocation -> {
+            createCustomer();
+            return 11L;
+        });
+        counters.reconcile();
+        assertThat(customers()).isEqualTo(12);
+
+        when(jdbcTemplate.queryForObject(CUSTOMER_COUNT, Long.class)).thenReturn(11L);
+        counters.reconcile();
+
+        assertThat(customers()).isEqualTo(11);
+    }
+
+    private void createCustomer() {
+        counters.onCustomerChanged(new CustomerChangedEvent(null, new Customer()));
+    }
+
+    private long customers() {
+        return counters.summary().getTotalCustomers();
+    }
+}
@@ -0,0 +1,82 @@
+package com.pblGEHU.Custlysis.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MLBulkheadTest {
+
+    private final MLBulkhead bulkhead = new MLBulkhead();
+    private final CountDownLatch leaderStarted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(bulkhead, "permitCount", 2);
+        ReflectionTestUtils.setField(bulkhead, "queueCapacity", 2);
+        ReflectionTestUtils.setField(bulkhead, "waitTimeoutMs", 100L);
+        ReflectionTestUtils.setField(bulkhead, "retryAfterSeconds", 2L);
+        ReflectionTestUtils.setField(bulkhead, "meterRegistry", new SimpleMeterRegistry());
+        bulkhead.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    void followerStopsWaitingForAStuckLeaderAtTheWaitTimeout() throws Exception {
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> bulkhead.call("predict:1", () -> {
+            leaderStarted.countDown();
+            awaitRelease();
+            return "segment";
+        }));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> bulkhead.call("predict:1", () -> "not run"))
+            .isInstanceOf(MLSaturatedException.class);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(5000);
+        assertThat(bulkhead.status()).containsEntry("coalesced", 1L).containsEntry("timedOut", 1L);
+
+        release.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("segment");
+    }
+
+    @Test
+    void followerSharesTheLeadersResult() throws Exception {
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> bulkhead.call("predict:1", () -> {
+            leaderStarted.countDown();
+            awaitRelease();
+            return "segment";
+        }));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> bulkhead.call("predict:1", () -> "not run"));
+        while (!Long.valueOf(1).equals(bulkhead.status().get("coalesced"))) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("segment");
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("segment");
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.pblGEHU.Custlysis.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MLIntegrationServiceTest {
+
+    private final SegmentationTrainingService trainingService = mock(SegmentationTrainingService.class);
+    private final MLWorkerPool workerPool = mock(MLWorkerPool.class);
+    private final CustomerSegmentIndex segmentIndex = mock(CustomerSegmentIndex.class);
+    private final SegmentStatistics segmentStatistics = mock(SegmentStatistics.class);
+    private final CampaignAnalytics campaignAnalytics = mock(CampaignAnalytics.class);
+    private final MLIntegrationService service = new MLIntegrationService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "trainingService", trainingService);
+        ReflectionTestUtils.setField(service, "workerPool", workerPool);
+        ReflectionTestUtils.setField(service, "segmentIndex", segmentIndex);
+        ReflectionTestUtils.setField(service, "segmentStatistics", segmentStatistics);
+        ReflectionTestUtils.setField(service, "campaignAnalytics", campaignAnalytics);
+        ReflectionTestUtils.setField(service, "trainingEngine", "native");
+    }
+
+    @Test
+    void nativeTrainingReloadsWorkersAndViews() throws Exception {
+        Map<String, Object> results = Map.of("status", "success");
+        when(trainingService.train(any())).thenReturn(results);
+
+        assertThat(service.train(new TrainingJob("native"))).isEqualTo(results);
+
+        verify(workerPool).reloadModels();
+        verify(segmentIndex).rebuild();
+        verify(segmentStatistics).rebuild();
+        verify(campaignAnalytics).rebuild();
+    }
+
+    @Test
+    void failedNativeTrainingKeepsWorkersOnTheOldModel() throws Exception {
+        when(trainingService.train(any())).thenThrow(new IllegalStateException("No customer data found in database"));
+
+        assertThatThrownBy(() -> service.train(new TrainingJob("native"))).isInstanceOf(IllegalStateException.class);
+
+        verify(workerPool, never()).reloadModels();
+    }
+}
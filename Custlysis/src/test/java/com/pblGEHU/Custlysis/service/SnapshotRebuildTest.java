@@ -0,0 +1,72 @@
+package com.pblGEHU.Custlysis.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnapshotRebuildTest {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SnapshotRebuild<List<String>> rebuilds = new SnapshotRebuild<>(lock);
+    private final List<List<String>> installed = new ArrayList<>();
+
+    @Test
+    void replaysWritesMadeDuringTheRead() {
+        rebuilds.run(() -> {
+            write(snapshot -> snapshot.add("written during load"));
+            return new ArrayList<>(List.of("loaded"));
+        }, installed::add);
+
+        assertThat(installed).containsExactly(List.of("loaded", "written during load"));
+    }
+
+    @Test
+    void rebuildRequestedDuringAReadRunsOneMorePass() {
+        int[] passes = {0};
+        rebuilds.run(() -> {
+            passes[0]++;
+            if (passes[0] == 1) {
+                // A training run finishing now must not have its rebuild dropped
+                rebuilds.run(() -> {
+                    throw new AssertionError("second reader must not start");
+                }, installed::add);
+                rebuilds.run(() -> {
+                    throw new AssertionError("second reader must not start");
+                }, installed::add);
+            } else {
+                write(snapshot -> snapshot.add("written during second pass"));
+            }
+            return new ArrayList<>(List.of("pass " + passes[0]));
+        }, installed::add);
+
+        assertThat(passes[0]).isEqualTo(2);
+        assertThat(installed).containsExactly(List.of("pass 1"), List.of("pass 2", "written during second pass"));
+    }
+
+    @Test
+    void failedReadLetsTheNextRebuildStart() {
+        assertThatThrownBy(() -> rebuilds.run(() -> {
+            throw new IllegalStateException("database down");
+        }, installed::add)).isInstanceOf(IllegalStateException.class);
+
+        rebuilds.run(() -> new ArrayList<>(List.of("loaded")), installed::add);
+        write(snapshot -> snapshot.add("after the rebuild"));
+
+        assertThat(installed).containsExactly(List.of("loaded"));
+    }
+
+    private void write(Consumer<List<String>> change) {
+        lock.writeLock().lock();
+        try {
+            rebuilds.record(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.pblGEHU.Custlysis.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteAheadLogTest {
+
+    // Header is payload length, sequence and checksum
+    private static final int HEADER_BYTES = 4 + 8 + 4;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysRecordsAfterAppliedSequence() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1 << 20)) {
+            assertThat(log.open(0)).isEmpty();
+            log.append(List.of(record(1, "a"), record(2, "b")));
+            log.append(List.of(record(3, "c")));
+        }
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1 << 20)) {
+            List<WriteAheadLog.Record> unapplied = log.open(1);
+            assertThat(unapplied).extracting(WriteAheadLog.Record::sequence).containsExactly(2L, 3L);
+            assertThat(payloads(unapplied)).containsExactly("b", "c");
+            assertThat(log.lastSequence()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void sequencesContinueFromAppliedWhenLogIsEmpty() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1 << 20)) {
+            assertThat(log.open(41)).isEmpty();
+            assertThat(log.lastSequence()).isEqualTo(41);
+        }
+    }
+
+    @Test
+    void truncatesTornTailAndKeepsAppending() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1 << 20)) {
+            log.open(0);
+            log.append(List.of(record(1, "a"), record(2, "b")));
+        }
+        Path segment = onlySegment();
+        long intact = Files.size(segment);
+        // A crash mid-append leaves a header without its full payload
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(HEADER_BYTES + 2).putInt(0, 100).putLong(4, 3));
+        }
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1 << 20)) {
+            assertThat(log.open(0)).extracting(WriteAheadLog.Record::sequence).containsExactly(1L, 2L);
+            assertThat(Files.size(segment)).isEqualTo(intact);
+            log.append(List.of(record(3, "c")));
+        }
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1 << 20)) {
+            assertThat(payloads(log.open(0))).containsExactly("a", "b", "c");
+        }
+    }
+
+    @Test
+    void discardsEverythingAfterCorruptRecord() throws IOException {
+        // Every append fills a segment, so each record lands in its own file
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1)) {
+            log.open(0);
+            log.append(List.of(record(1, "a")));
+            log.append(List.of(record(2, "b")));
+            log.append(List.of(record(3, "c")));
+        }
+        Path second = directory.resolve(String.format("%020d.wal", 2));
+        try (FileChannel channel = FileChannel.open(second, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap("x".getBytes(StandardCharsets.UTF_8)), HEADER_BYTES);
+        }
+
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1)) {
+            assertThat(payloads(log.open(0))).containsExactly("a");
+            assertThat(log.lastSequence()).isEqualTo(1);
+            assertThat(Files.exists(directory.resolve(String.format("%020d.wal", 3)))).isFalse();
+            assertThat(Files.size(second)).isZero();
+        }
+    }
+
+    @Test
+    void releaseDeletesOnlyFullyAppliedSegments() throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1)) {
+            log.open(0);
+            log.append(List.of(record(1, "a")));
+            log.append(List.of(record(2, "b")));
+            log.append(List.of(record(3, "c")));
+            // Segments start at 1, 2, 3 and 4 (empty, current)
+            assertThat(log.segmentCount()).isEqualTo(4);
+
+            log.release(2);
+            assertThat(log.segmentCount()).isEqualTo(2);
+            log.release(10);
+            assertThat(log.segmentCount()).isEqualTo(1);
+        }
+        try (WriteAheadLog log = new WriteAheadLog(directory, 1)) {
+            assertThat(log.open(3)).isEmpty();
+            assertThat(log.lastSequence()).isEqualTo(3);
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.toList();
+            assertThat(segments).hasSize(1);
+            return segments.get(0);
+        }
+    }
+
+    private static WriteAheadLog.Record record(long sequence, String payload) {
+        return new WriteAheadLog.Record(sequence, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> payloads(List<WriteAheadLog.Record> records) {
+        return records.stream().map(record -> new String(record.payload(), StandardCharsets.UTF_8)).toList();
+    }
+}
@@ -0,0 +1,117 @@
+package com.pblGEHU.Custlysis.bench;
+
+import com.pblGEHU.Custlysis.CustlysisApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The application context running against an in-memory H2 database in MySQL mode, with
+ * every scheduled job, startup loader and background service switched off: they would
+ * compete with the measurement, and the streaming loaders need MySQL.
+ * Tables are created by Hibernate and filled with {@link SyntheticData}.
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private final ConfigurableApplicationContext context;
+    private final JdbcTemplate jdbcTemplate;
+
+    private BenchmarkDatabase(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    public static BenchmarkDatabase start() {
+        SpringApplication application = new SpringApplication(CustlysisApplication.class);
+        ConfigurableApplicationContext context = application.run(
+            "--spring.datasource.url=jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+            "--spring.jpa.hibernate.ddl-auto=create",
+            "--spring.jpa.show-sql=false",
+            "--spring.main.banner-mode=off",
+            "--logging.level.root=WARN",
+            "--logging.level.org.springframework=WARN",
+            "--server.port=0",
+            "--custlysis.scheduling.enabled=false",
+            "--custlysis.startup-load.enabled=false",
+            "--custlysis.ml.workers.enabled=false",
+            "--custlysis.features.store.enabled=false",
+            "--custlysis.ingest.pipeline.enabled=false",
+            "--custlysis.ingest.wal.dir=" + walDirectory(),
+            "--custlysis.rollups.enabled=false",
+            "--custlysis.dormancy.enabled=false",
+            "--custlysis.churn.enabled=false");
+        return new BenchmarkDatabase(context);
+    }
+
+    // Never the working directory, even if a benchmark turns the ingest pipeline back on
+    private static Path walDirectory() {
+        try {
+            Path directory = Files.createTempDirectory("custlysis-bench-wal");
+            directory.toFile().deleteOnExit();
+            return directory;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create a write-ahead log directory", e);
+        }
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public void insertCustomers(int rows) {
+        insert("INSERT INTO customer (customer_id, name, dob, gender, marital_status, educational_level, occupation, "
+            + "income_bracket, location, geo_cluster, digital_score, risk_profile, preferred_language, tenure_days, "
+            + "churn_risk_score, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+            rows, SyntheticData::customer);
+    }
+
+    public void insertProducts(int rows) {
+        insert("INSERT INTO product (product_id, name, category, sub_category, risk_level, avg_rating, popularity_score) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)", rows, SyntheticData::product);
+    }
+
+    public void insertTransactions(int rows, int accounts) {
+        insert("INSERT INTO transactions (txn_id, account_id, txn_type, amount, timestamp, channel, merchant_category, "
+            + "geo_location, is_recurring, is_high_value, txn_score) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+            rows, id -> SyntheticData.transaction(id, accounts));
+    }
+
+    public void insertSegmentLabels(int rows) {
+        insert("INSERT INTO segmentation_label (customer_id, segment_id, segment_name, assigned_on, model_version, "
+            + "segment_score) VALUES (?, ?, ?, ?, ?, ?)", rows, SyntheticData::segmentLabel);
+    }
+
+    private void insert(String sql, int rows, RowFactory factory) {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int id = 1; id <= rows; id++) {
+            batch.add(factory.row(id));
+            if (batch.size() == BATCH_SIZE || id == rows) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    @FunctionalInterface
+    private interface RowFactory {
+        Object[] row(int id);
+    }
+}
@@ -0,0 +1,61 @@
+package com.pblGEHU.Custlysis.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pblGEHU.Custlysis.repository.CustomerRepository;
+import com.pblGEHU.Custlysis.repository.SegmentationLabelRepository;
+import com.pblGEHU.Custlysis.repository.TransactionRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of entity lists loaded from the database, as the list endpoints
+ * returned them before pagination
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class EntityJsonBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    @Param({"customers", "transactions", "segmentLabels"})
+    private String entity;
+
+    private List<?> entities;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        try (BenchmarkDatabase database = BenchmarkDatabase.start()) {
+            switch (entity) {
+                case "customers" -> {
+                    database.insertCustomers(rows);
+                    entities = database.bean(CustomerRepository.class).findAll();
+                }
+                case "transactions" -> {
+                    database.insertTransactions(rows, Math.max(1, rows / 10));
+                    entities = database.bean(TransactionRepository.class).findAll();
+                }
+                case "segmentLabels" -> {
+                    database.insertSegmentLabels(rows);
+                    entities = database.bean(SegmentationLabelRepository.class).findAll();
+                }
+                default -> throw new IllegalArgumentException("Unknown entity " + entity);
+            }
+            objectMapper = database.bean(ObjectMapper.class);
+        }
+    }
+
+    @Benchmark
+    public void writeJson() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), entities);
+    }
+}
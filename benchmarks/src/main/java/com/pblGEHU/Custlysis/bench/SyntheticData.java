@@ -0,0 +1,100 @@
+package com.pblGEHU.Custlysis.bench;
+
+import com.pblGEHU.Custlysis.dto.RecommendationDTO;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic rows: each row is derived from its id alone, so a dataset of any
+ * size is identical across runs and machines.
+ */
+public final class SyntheticData {
+
+    static final String[] SEGMENTS = {
+        "Digital Savvy", "High-Value Investors", "Traditional Savers", "At-Risk Customers", "New Customers"
+    };
+    static final String[] CATEGORIES = { "Savings", "Investment", "Loan", "Credit Card", "Insurance" };
+    static final String[] CHANNELS = { "UPI", "ATM", "Branch", "Online", "Mobile" };
+    static final String[] INCOME = { "Low", "Medium", "High", "Very High" };
+    static final String[] RISK = { "Low", "Medium", "High" };
+    static final String[] LOCATIONS = { "Dehradun", "Delhi", "Mumbai", "Bengaluru", "Pune", "Chennai" };
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private SyntheticData() {
+    }
+
+    static Object[] customer(int id) {
+        SplittableRandom random = random(id);
+        return new Object[] {
+            id, "Customer " + id, Date.valueOf(LocalDate.of(1950 + random.nextInt(55), 1 + random.nextInt(12), 1)),
+            random.nextBoolean() ? "M" : "F", random.nextBoolean() ? "Married" : "Single", "Graduate", "Salaried",
+            pick(random, INCOME), pick(random, LOCATIONS), "G" + random.nextInt(8), money(random, 100),
+            pick(random, RISK), "English", random.nextInt(4000), money(random, 1),
+            Timestamp.valueOf(EPOCH.minusDays(random.nextInt(4000)))
+        };
+    }
+
+    static Object[] product(int id) {
+        SplittableRandom random = random(id);
+        return new Object[] {
+            id, "Product " + id, CATEGORIES[id % CATEGORIES.length], "Standard", pick(random, RISK),
+            money(random, 5), money(random, 100)
+        };
+    }
+
+    static Object[] transaction(int id, int accounts) {
+        SplittableRandom random = random(id);
+        return new Object[] {
+            id, 1 + random.nextInt(accounts), random.nextBoolean() ? "DEBIT" : "CREDIT", money(random, 50_000),
+            Timestamp.valueOf(EPOCH.plusMinutes(random.nextInt(500_000))), pick(random, CHANNELS), "Retail",
+            pick(random, LOCATIONS), random.nextInt(10) == 0, random.nextInt(20) == 0, money(random, 1)
+        };
+    }
+
+    static Object[] segmentLabel(int customerId) {
+        SplittableRandom random = random(customerId);
+        int segment = random.nextInt(SEGMENTS.length);
+        return new Object[] {
+            customerId, String.valueOf(segment), SEGMENTS[segment], Timestamp.valueOf(EPOCH), "v1.0_bench",
+            money(random, 1)
+        };
+    }
+
+    /**
+     * Rows as RecommendationLogRepository.streamDetailed projects them, with some customers
+     * unsegmented and some products missing to exercise every branch of the mapping
+     */
+    public static List<RecommendationDTO> detailedRecommendations(int rows) {
+        List<RecommendationDTO> result = new ArrayList<>(rows);
+        for (int id = 1; id <= rows; id++) {
+            SplittableRandom random = random(id);
+            int customerId = 1 + random.nextInt(Math.max(1, rows / 4));
+            String segment = random.nextInt(10) == 0 ? null : pick(random, SEGMENTS);
+            boolean hasProduct = random.nextInt(50) != 0;
+            result.add(new RecommendationDTO(id, customerId, "Customer " + customerId, segment,
+                hasProduct ? 1 + random.nextInt(100) : null, hasProduct ? "Product" : null,
+                hasProduct ? pick(random, CATEGORIES) : null, money(random, 100)));
+        }
+        return result;
+    }
+
+    private static SplittableRandom random(int id) {
+        return new SplittableRandom(0x5EEDL * 31 + id);
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static BigDecimal money(SplittableRandom random, double max) {
+        return BigDecimal.valueOf(Math.round(random.nextDouble(max) * 100), 2);
+    }
+}
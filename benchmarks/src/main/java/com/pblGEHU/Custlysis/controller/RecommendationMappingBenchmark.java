@@ -0,0 +1,67 @@
+package com.pblGEHU.Custlysis.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pblGEHU.Custlysis.bench.SyntheticData;
+import com.pblGEHU.Custlysis.dto.RecommendationDTO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /api/recommendations/detailed after the query: enrich each projected row (defaults,
+ * rationale, priority) and write it to the JSON array, as the streaming endpoint does.
+ * Rows are generated in memory because the endpoint's streaming fetch size is MySQL-specific.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RecommendationMappingBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private List<RecommendationDTO> projected;
+    private RecommendationLogController controller;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        projected = SyntheticData.detailedRecommendations(rows);
+        controller = new RecommendationLogController();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public void generateRationale(Blackhole blackhole) {
+        for (RecommendationDTO dto : projected) {
+            blackhole.consume(controller.generateRationale(dto.getSegment(), dto.getProductCategory()));
+        }
+    }
+
+    @Benchmark
+    public void enrich(Blackhole blackhole) {
+        for (RecommendationDTO dto : projected) {
+            blackhole.consume(controller.enrich(dto));
+        }
+    }
+
+    @Benchmark
+    public void enrichAndWriteJson() throws IOException {
+        try (JsonGenerator json = objectMapper.createGenerator(OutputStream.nullOutputStream())) {
+            json.writeStartArray();
+            for (RecommendationDTO dto : projected) {
+                json.writeObject(controller.enrich(dto));
+            }
+            json.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.pblGEHU.Custlysis.controller;
+
+import com.pblGEHU.Custlysis.bench.BenchmarkDatabase;
+import com.pblGEHU.Custlysis.dto.SegmentInfo;
+import com.pblGEHU.Custlysis.service.SegmentStatistics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /api/segmentation/segments: read the per-segment statistics maintained by SegmentStatistics
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SegmentStatsBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private BenchmarkDatabase database;
+    private SegmentationLabelController controller;
+
+    @Setup
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        database.insertSegmentLabels(rows);
+        // Labels are inserted behind the application's back, so build the statistics from them
+        database.bean(SegmentStatistics.class).rebuild();
+        controller = database.bean(SegmentationLabelController.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<SegmentInfo> getSegmentStats() {
+        return controller.getSegmentStats(null);
+    }
+}
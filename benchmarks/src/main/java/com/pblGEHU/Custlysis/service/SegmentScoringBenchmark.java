@@ -0,0 +1,68 @@
+package com.pblGEHU.Custlysis.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearest-centroid scoring in SegmentScorer: impute, scale and compare every row against
+ * every centroid. Features are random with a few missing values, against a five-segment model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SegmentScoringBenchmark {
+
+    private static final int SEGMENTS = 5;
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    private SegmentScorer.Scoring scoring;
+    private double[] features;
+    private int[] labels;
+    private double[] confidences;
+
+    @Setup
+    public void setUp() {
+        int d = CustomerFeatureExtractor.FEATURE_COUNT;
+        SplittableRandom random = new SplittableRandom(42);
+
+        double[] mean = new double[d];
+        double[] scale = new double[d];
+        double[] medians = new double[d];
+        for (int j = 0; j < d; j++) {
+            mean[j] = random.nextDouble(100);
+            scale[j] = 1 + random.nextDouble(50);
+            medians[j] = mean[j];
+        }
+        double[] centroids = new double[SEGMENTS * d];
+        Arrays.setAll(centroids, i -> random.nextGaussian());
+        String[] names = new String[SEGMENTS];
+        Arrays.setAll(names, s -> "Segment " + s);
+
+        SegmentationModel model = new SegmentationModel("v1.0_bench", LocalDateTime.now(),
+            CustomerFeatureExtractor.FEATURE_NAMES, SEGMENTS, mean, scale, medians, centroids, 6.0, names, List.of());
+        scoring = new SegmentScorer.Scoring(model);
+
+        features = new double[rows * d];
+        for (int i = 0; i < features.length; i++) {
+            features[i] = random.nextInt(50) == 0 ? Double.NaN : random.nextDouble(200);
+        }
+        labels = new int[rows];
+        confidences = new double[rows];
+    }
+
+    @Benchmark
+    public int[] score() {
+        scoring.score(features, rows, labels, confidences);
+        return labels;
+    }
+}
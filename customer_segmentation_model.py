@@ -11,8 +11,10 @@ Version: 1.0
 Date: 2025-01-18
 """
 
+import os
 import sys
 import json
+import struct
 import logging
 import argparse
 from datetime import datetime, date
@@ -55,7 +57,19 @@ DB_CONFIG = {
 MODEL_FILES = {
     'model': 'segmentation_model.pkl',
     'scaler': 'feature_scaler.pkl',
-    'metadata': 'model_metadata.json'
+    'metadata': 'model_metadata.json',
+    # Portable artifact scored in-process by the Spring Boot app (SegmentScorer)
+    'artifact': 'segmentation_model.json'
+}
+
+ARTIFACT_FORMAT_VERSION = 1
+
+# Segment statistics keys and their names in the artifact's segment profiles
+ARTIFACT_PROFILE_KEYS = {
+    'size': 'size', 'percentage': 'percentage', 'avg_age': 'avgAge',
+    'avg_balance': 'avgBalance', 'avg_digital_score': 'avgDigitalScore',
+    'avg_churn_risk': 'avgChurnRisk', 'avg_tenure': 'avgTenure',
+    'avg_txn_freq': 'avgTxnFreq', 'avg_income': 'avgIncome', 'avg_risk': 'avgRisk'
 }
 
 FEATURE_NAMES = [
@@ -313,6 +327,8 @@ class CustomerSegmentationModel:
         self.optimal_k = None
         self.segment_names = {}
         self.segment_stats = {}
+        self.feature_medians = {}
+        self.max_distance = 0.0
         self.model_version = f"v1.0_{datetime.now().strftime('%Y%m%d')}"
     
     def find_optimal_k(self, X: np.ndarray, min_k: int = 3, max_k: int = 8) -> int:
@@ -376,6 +392,9 @@ class CustomerSegmentationModel:
         # Calculate silhouette score
         silhouette_avg = silhouette_score(X_scaled, labels)
         
+        # Largest distance to an own centroid, used to normalise confidence at scoring time
+        self.max_distance = float(np.max(np.min(self.model.transform(X_scaled), axis=1)))
+        
         # Generate segment statistics and names
         self._generate_segment_stats(features_df, labels)
         self._generate_segment_names()
@@ -505,13 +524,52 @@ class CustomerSegmentationModel:
                 json.dump(metadata, f, indent=2)
             logger.info(f"Metadata saved to {MODEL_FILES['metadata']}")
             
+            self.export_artifact()
             return True
         except Exception as e:
             logger.error(f"Error saving model: {e}")
             return False
     
+    def export_artifact(self):
+        """Write the compact JSON artifact: scaler parameters, medians, centroids and names."""
+        artifact = {
+            'format_version': ARTIFACT_FORMAT_VERSION,
+            'model_version': self.model_version,
+            'trained_at': datetime.now().isoformat(),
+            'feature_names': FEATURE_NAMES,
+            'scaler': {
+                'mean': [float(v) for v in self.scaler.mean_],
+                'scale': [float(v) for v in self.scaler.scale_]
+            },
+            'medians': [float(self.feature_medians[name]) if name in self.feature_medians else None
+                        for name in FEATURE_NAMES],
+            'max_distance': float(self.max_distance),
+            'centroids': [[float(v) for v in center] for center in self.model.cluster_centers_],
+            'segments': [
+                {
+                    'id': str(seg_id),
+                    'name': self.segment_names[seg_id],
+                    'profile': {ARTIFACT_PROFILE_KEYS[key]: float(val)
+                                for key, val in self.segment_stats[seg_id].items()
+                                if key in ARTIFACT_PROFILE_KEYS}
+                }
+                for seg_id in range(self.optimal_k)
+            ]
+        }
+        tmp_path = MODEL_FILES['artifact'] + '.tmp'
+        with open(tmp_path, 'w') as f:
+            json.dump(artifact, f, indent=2)
+        os.replace(tmp_path, MODEL_FILES['artifact'])
+        logger.info(f"Model artifact saved to {MODEL_FILES['artifact']}")
+    
     def load_model(self):
-        """Load model, scaler, and metadata from files."""
+        """Load model, scaler, and metadata from files.
+
+        The JSON artifact wins when it is newer than the pickled model, which is the
+        case after the Spring Boot app trained natively and exported only the artifact.
+        """
+        if _artifact_is_newer():
+            return self.load_artifact()
         try:
             # Load model
             self.model = joblib.load(MODEL_FILES['model'])
@@ -536,6 +594,65 @@ class CustomerSegmentationModel:
             logger.error(f"Error loading model: {e}")
             return False
 
+    def load_artifact(self):
+        """Load the model from the portable JSON artifact instead of the pickles."""
+        try:
+            with open(MODEL_FILES['artifact'], 'r') as f:
+                artifact = json.load(f)
+            if artifact.get('format_version') != ARTIFACT_FORMAT_VERSION:
+                raise ValueError(f"Unsupported artifact format {artifact.get('format_version')}")
+
+            self.scaler = ArtifactScaler(artifact['scaler']['mean'], artifact['scaler']['scale'])
+            self.model = ArtifactCentroids(artifact['centroids'])
+            self.model_version = artifact['model_version']
+            self.optimal_k = len(artifact['centroids'])
+            self.max_distance = float(artifact.get('max_distance', 0.0))
+            self.feature_medians = {name: median for name, median in zip(FEATURE_NAMES, artifact.get('medians', []))
+                                    if median is not None}
+            profile_names = {artifact_key: key for key, artifact_key in ARTIFACT_PROFILE_KEYS.items()}
+            for seg_id, segment in enumerate(artifact['segments']):
+                self.segment_names[seg_id] = segment['name']
+                self.segment_stats[seg_id] = {profile_names[key]: val for key, val in segment.get('profile', {}).items()
+                                              if key in profile_names}
+
+            logger.info(f"Model artifact loaded from {MODEL_FILES['artifact']}. Model version: {self.model_version}")
+            return True
+        except Exception as e:
+            logger.error(f"Error loading model artifact: {e}")
+            return False
+
+
+class ArtifactScaler:
+    """StandardScaler rebuilt from the artifact's mean and scale."""
+
+    def __init__(self, mean: List[float], scale: List[float]):
+        self.mean_ = np.asarray(mean, dtype=float)
+        self.scale_ = np.asarray(scale, dtype=float)
+
+    def transform(self, X: np.ndarray) -> np.ndarray:
+        return (np.asarray(X, dtype=float) - self.mean_) / self.scale_
+
+
+class ArtifactCentroids:
+    """Fitted K-Means rebuilt from the artifact's centroids; enough to predict and score."""
+
+    def __init__(self, centroids: List[List[float]]):
+        self.cluster_centers_ = np.asarray(centroids, dtype=float)
+
+    def transform(self, X_scaled: np.ndarray) -> np.ndarray:
+        return np.linalg.norm(X_scaled[:, np.newaxis, :] - self.cluster_centers_[np.newaxis, :, :], axis=2)
+
+    def predict(self, X_scaled: np.ndarray) -> np.ndarray:
+        return np.argmin(self.transform(X_scaled), axis=1)
+
+
+def _artifact_is_newer() -> bool:
+    if not os.path.exists(MODEL_FILES['artifact']):
+        return False
+    if not os.path.exists(MODEL_FILES['model']):
+        return True
+    return os.path.getmtime(MODEL_FILES['artifact']) > os.path.getmtime(MODEL_FILES['model'])
+
 
 # ============================================================================
 # MAIN EXECUTION FUNCTIONS
@@ -574,6 +691,7 @@ def train_model():
 
         logger.info("STEP 6: Training model...")
         model = CustomerSegmentationModel()
+        model.feature_medians = feature_engineer.feature_medians
         results = model.train(features_df)
 
         logger.info("STEP 7: Saving model files...")
@@ -595,19 +713,27 @@ def train_model():
 
 
 
-def predict_customer(customer_id: int):
-    """Predict segment for a specific customer."""
+def predict_customer(customer_id: int, model: Optional[CustomerSegmentationModel] = None,
+                     db: Optional[DatabaseConnector] = None, emit: bool = True):
+    """Predict segment for a specific customer.
+
+    A long-lived worker passes its already loaded model and open connection;
+    the CLI path loads both for this single call.
+    """
     logger.info(f"Predicting segment for customer {customer_id}")
     
     # Load model
-    model = CustomerSegmentationModel()
-    if not model.load_model():
-        return {'status': 'error', 'message': 'Failed to load model'}
+    if model is None:
+        model = CustomerSegmentationModel()
+        if not model.load_model():
+            return {'status': 'error', 'message': 'Failed to load model'}
     
     # Connect to database
-    db = DatabaseConnector(DB_CONFIG)
-    if not db.connect():
-        return {'status': 'error', 'message': 'Database connection failed'}
+    owns_connection = db is None
+    if owns_connection:
+        db = DatabaseConnector(DB_CONFIG)
+        if not db.connect():
+            return {'status': 'error', 'message': 'Database connection failed'}
     
     try:
         # Fetch customer data
@@ -643,24 +769,27 @@ def predict_customer(customer_id: int):
             }
         }
         
-        print(json.dumps(output, indent=2))
+        if emit:
+            print(json.dumps(output, indent=2))
         return output
         
     except Exception as e:
         logger.error(f"Prediction failed: {e}")
         return {'status': 'error', 'message': str(e)}
     finally:
-        db.disconnect()
+        if owns_connection:
+            db.disconnect()
 
 
-def get_segments():
+def get_segments(model: Optional[CustomerSegmentationModel] = None, emit: bool = True):
     """Get all segment information."""
     logger.info("Retrieving segment information")
     
     # Load model
-    model = CustomerSegmentationModel()
-    if not model.load_model():
-        return {'status': 'error', 'message': 'Failed to load model'}
+    if model is None:
+        model = CustomerSegmentationModel()
+        if not model.load_model():
+            return {'status': 'error', 'message': 'Failed to load model'}
     
     output = {
         'model_version': model.model_version,
@@ -682,10 +811,95 @@ def get_segments():
             }
         }
     
-    print(json.dumps(output, indent=2))
+    if emit:
+        print(json.dumps(output, indent=2))
     return output
 
 
+# ============================================================================
+# WORKER MODE
+# ============================================================================
+
+class SegmentationWorker:
+    """Long-lived worker that keeps the model and a database connection open.
+
+    Requests and responses are JSON documents framed by a 4-byte big-endian
+    length prefix on stdin/stdout. Every request carries an 'id' that is echoed
+    back so the JVM can multiplex several in-flight requests over one pipe.
+    Logging stays on stderr so it never corrupts the protocol stream.
+    """
+
+    def __init__(self):
+        self.model = CustomerSegmentationModel()
+        self.model_loaded = self.model.load_model()
+        self.db = DatabaseConnector(DB_CONFIG)
+
+    def _connection(self) -> DatabaseConnector:
+        if self.db.connection is None or not self.db.connection.is_connected():
+            if not self.db.connect():
+                raise RuntimeError('Database connection failed')
+        return self.db
+
+    def handle(self, request: Dict) -> Dict:
+        action = request.get('action')
+        if action == 'ping':
+            return {'status': 'ok', 'model_loaded': self.model_loaded,
+                    'model_version': self.model.model_version}
+        if action == 'reload':
+            self.model = CustomerSegmentationModel()
+            self.model_loaded = self.model.load_model()
+            return {'status': 'ok' if self.model_loaded else 'error',
+                    'model_version': self.model.model_version}
+        if not self.model_loaded:
+            return {'status': 'error', 'message': 'Failed to load model'}
+        if action == 'predict':
+            return predict_customer(int(request['customer_id']), self.model, self._connection(), emit=False)
+        if action == 'get_segments':
+            return get_segments(self.model, emit=False)
+        raise ValueError(f'Unknown action: {action}')
+
+
+def _read_frame(stream) -> Optional[bytes]:
+    header = stream.read(4)
+    if len(header) < 4:
+        return None
+    (length,) = struct.unpack('>I', header)
+    payload = stream.read(length)
+    if len(payload) < length:
+        return None
+    return payload
+
+
+def _write_frame(stream, document: Dict):
+    payload = json.dumps(document, default=str).encode('utf-8')
+    stream.write(struct.pack('>I', len(payload)) + payload)
+    stream.flush()
+
+
+def serve():
+    """Serve framed requests on stdin/stdout until stdin is closed."""
+    stdin = sys.stdin.buffer
+    stdout = sys.stdout.buffer
+    # Stray prints must not interleave with protocol frames
+    sys.stdout = sys.stderr
+
+    worker = SegmentationWorker()
+    logger.info(f"Worker ready (model loaded: {worker.model_loaded})")
+    while True:
+        payload = _read_frame(stdin)
+        if payload is None:
+            break
+        request_id = None
+        try:
+            request = json.loads(payload)
+            request_id = request.get('id')
+            _write_frame(stdout, {'id': request_id, 'ok': True, 'result': worker.handle(request)})
+        except Exception as e:
+            logger.exception("Worker request failed")
+            _write_frame(stdout, {'id': request_id, 'ok': False, 'error': str(e)})
+    worker.db.disconnect()
+
+
 # ============================================================================
 # CLI INTERFACE
 # ============================================================================
@@ -700,6 +914,7 @@ Examples:
   python customer_segmentation_model.py --action train
   python customer_segmentation_model.py --action predict --customer_id 123
   python customer_segmentation_model.py --action get_segments
+  python customer_segmentation_model.py --action serve
         """
     )
     
@@ -707,7 +922,7 @@ Examples:
         '--action',
         type=str,
         required=True,
-        choices=['train', 'predict', 'get_segments'],
+        choices=['train', 'predict', 'get_segments', 'serve'],
         help='Action to perform'
     )
     
@@ -728,6 +943,8 @@ Examples:
         predict_customer(args.customer_id)
     elif args.action == 'get_segments':
         get_segments()
+    elif args.action == 'serve':
+        serve()
 
 
 if __name__ == '__main__':
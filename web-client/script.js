@@ -6,6 +6,11 @@ let currentTab = 'dashboard';
 let charts = {};
 let currentData = {};
 let editingItem = null;
+let pageCursors = {};
+
+// Rows requested per page from list endpoints (the server caps a page at 1000)
+const PAGE_SIZE = 100;
+const MAX_PAGE_SIZE = 1000;
 
 // Initialize the application
 document.addEventListener('DOMContentLoaded', function() {
@@ -128,6 +133,78 @@ async function apiCall(endpoint, options = {}) {
     }
 }
 
+// Fetch one page of a list endpoint; resolves to { items, nextCursor }
+async function apiPage(endpoint, params = {}) {
+    const query = new URLSearchParams();
+    Object.entries({ limit: PAGE_SIZE, ...params }).forEach(([key, value]) => {
+        if (value !== undefined && value !== null && value !== '') {
+            query.append(key, value);
+        }
+    });
+    return apiCall(`${endpoint}?${query}`);
+}
+
+// Follow the cursors through every page, for lookups that need the whole list (e.g. dropdowns)
+async function apiCallAll(endpoint, params = {}) {
+    const items = [];
+    let cursor = null;
+    do {
+        const page = await apiPage(endpoint, { ...params, limit: MAX_PAGE_SIZE, cursor });
+        if (!page) return null;
+        items.push(...page.items);
+        cursor = page.nextCursor;
+    } while (cursor !== null && cursor !== undefined);
+    return items;
+}
+
+// Load the first page of a table and remember where the next page starts
+async function loadFirstPage(type, endpoint, params = {}) {
+    const page = await apiPage(endpoint, params);
+    if (!page) return null;
+    pageCursors[type] = { endpoint, params, next: page.nextCursor };
+    currentData[type] = page.items;
+    return page.items;
+}
+
+// Append the next page of a table and re-render it through its search filter
+async function loadMore(type) {
+    const state = pageCursors[type];
+    if (!state || state.next === null || state.next === undefined) return;
+    
+    const page = await apiPage(state.endpoint, { ...state.params, cursor: state.next });
+    if (!page) return;
+    
+    state.next = page.nextCursor;
+    currentData[type] = currentData[type].concat(page.items);
+    refreshTable[type]();
+    updateLoadMoreButton(type);
+}
+
+const refreshTable = {
+    customers: () => filterCustomers(document.getElementById('customerSearch')?.value || ''),
+    accounts: () => filterAccounts(document.getElementById('accountSearch')?.value || ''),
+    products: () => filterProducts(document.getElementById('productSearch')?.value || ''),
+    transactions: () => filterTransactions()
+};
+
+function createLoadMoreButton(type) {
+    return `
+        <div class="load-more" id="loadMore-${type}" style="text-align: center; padding: 15px;">
+            <button class="btn btn-secondary" onclick="loadMore('${type}')">
+                <i class="fas fa-chevron-down"></i> Load More
+            </button>
+        </div>
+    `;
+}
+
+function updateLoadMoreButton(type) {
+    const button = document.getElementById(`loadMore-${type}`);
+    const state = pageCursors[type];
+    if (button) {
+        button.style.display = state && state.next !== null && state.next !== undefined ? 'block' : 'none';
+    }
+}
+
 // Show error message
 function showError(message) {
     const content = document.getElementById('content');
@@ -220,6 +297,7 @@ async function loadDashboard() {
                     <p>✅ Database Connected</p>
                     <p>✅ API Server Running</p>
                     <p>✅ Frontend Loaded</p>
+                    <div id="dashboardSummary"></div>
                     <p>Navigate to different sections using the sidebar to manage your banking data.</p>
                 </div>
             </div>
@@ -233,32 +311,34 @@ async function loadDashboard() {
 // Load dashboard data
 async function loadDashboardData() {
     try {
-        // Load customers count
-        const customers = await apiCall('/customers');
-        if (customers) {
-            const totalCustomersEl = document.getElementById('totalCustomers');
-            if (totalCustomersEl) totalCustomersEl.textContent = customers.length.toLocaleString();
-        }
+        // One request; the server keeps the totals up to date
+        const summary = await apiCall('/dashboard/summary');
+        if (!summary) return;
         
-        // Load accounts count
-        const accounts = await apiCall('/accounts');
-        if (accounts) {
-            const totalAccountsEl = document.getElementById('totalAccounts');
-            if (totalAccountsEl) totalAccountsEl.textContent = accounts.length.toLocaleString();
-        }
+        const setText = (id, value) => {
+            const el = document.getElementById(id);
+            if (el) el.textContent = value;
+        };
+        setText('totalCustomers', summary.totalCustomers.toLocaleString());
+        setText('totalAccounts', summary.activeAccounts.toLocaleString());
+        setText('totalProducts', summary.totalProducts.toLocaleString());
+        setText('totalTransactions', summary.totalTransactions.toLocaleString());
         
-        // Load products count
-        const products = await apiCall('/products');
-        if (products) {
-            const totalProductsEl = document.getElementById('totalProducts');
-            if (totalProductsEl) totalProductsEl.textContent = products.length.toLocaleString();
-        }
-        
-        // Load transactions count
-        const transactions = await apiCall('/transactions');
-        if (transactions) {
-            const totalTransactionsEl = document.getElementById('totalTransactions');
-            if (totalTransactionsEl) totalTransactionsEl.textContent = transactions.length.toLocaleString();
+        const summaryEl = document.getElementById('dashboardSummary');
+        if (summaryEl) {
+            const channels = Object.entries(summary.transactionsByChannel || {})
+                .map(([channel, volume]) => `<li>${channel}: ${volume.count.toLocaleString()} transactions, ₹${(volume.amount || 0).toLocaleString()}</li>`)
+                .join('');
+            const segments = Object.entries(summary.segmentDistribution || {})
+                .map(([segment, count]) => `<li>${segment}: ${count.toLocaleString()} customers</li>`)
+                .join('');
+            summaryEl.innerHTML = `
+                <p><strong>Total Balance:</strong> ₹${(summary.totalBalance || 0).toLocaleString()} across ${summary.totalAccounts.toLocaleString()} accounts (avg ₹${(summary.avgBalance || 0).toLocaleString()})</p>
+                <p><strong>Transaction Volume by Channel</strong></p>
+                <ul>${channels || '<li>No transactions</li>'}</ul>
+                <p><strong>Segment Distribution</strong>${summary.modelVersion ? ` (model ${summary.modelVersion})` : ''}</p>
+                <ul>${segments || '<li>No segments assigned</li>'}</ul>
+            `;
         }
         
     } catch (error) {
@@ -268,8 +348,7 @@ async function loadDashboardData() {
 
 // Load Customers with CRUD
 async function loadCustomers() {
-    const customers = await apiCall('/customers');
-    currentData.customers = customers;
+    const customers = await loadFirstPage('customers', '/customers');
     
     const content = document.getElementById('content');
     if (!content) return;
@@ -288,11 +367,14 @@ async function loadCustomers() {
                         </div>
                     </div>
                     ${createCustomerTable(customers)}
+                    ${createLoadMoreButton('customers')}
                 </div>
             </div>
             ${createCustomerModal()}
         `;
         
+        updateLoadMoreButton('customers');
+        
         // Add search functionality
         const searchInput = document.getElementById('customerSearch');
         if (searchInput) {
@@ -370,9 +452,8 @@ function createCustomerTable(customers) {
 
 // Load Accounts with full CRUD
 async function loadAccounts() {
-    const accounts = await apiCall('/accounts');
-    const customers = await apiCall('/customers');
-    currentData.accounts = accounts;
+    const accounts = await loadFirstPage('accounts', '/accounts');
+    const customers = await apiCallAll('/customers');
     currentData.customers = customers;
     
     const content = document.getElementById('content');
@@ -392,11 +473,14 @@ async function loadAccounts() {
                         </div>
                     </div>
                     ${createAccountTable(accounts)}
+                    ${createLoadMoreButton('accounts')}
                 </div>
             </div>
             ${createAccountModal()}
         `;
         
+        updateLoadMoreButton('accounts');
+        
         // Add search functionality
         const searchInput = document.getElementById('accountSearch');
         if (searchInput) {
@@ -677,8 +761,7 @@ function filterAccounts(searchTerm) {
 
 // Load Products with full CRUD
 async function loadProducts() {
-    const products = await apiCall('/products');
-    currentData.products = products;
+    const products = await loadFirstPage('products', '/products');
     
     const content = document.getElementById('content');
     if (!content) return;
@@ -697,11 +780,14 @@ async function loadProducts() {
                         </div>
                     </div>
                     ${createProductTable(products)}
+                    ${createLoadMoreButton('products')}
                 </div>
             </div>
             ${createProductModal()}
         `;
         
+        updateLoadMoreButton('products');
+        
         // Add search functionality
         const searchInput = document.getElementById('productSearch');
         if (searchInput) {
@@ -986,9 +1072,9 @@ function filterProducts(searchTerm) {
 
 // Load Transactions with Insert & View only
 async function loadTransactions() {
-    const transactions = await apiCall('/transactions');
-    const accounts = await apiCall('/accounts');
-    currentData.transactions = transactions;
+    // Newest transactions first
+    const transactions = await loadFirstPage('transactions', '/transactions', { sort: 'desc' });
+    const accounts = await apiCallAll('/accounts');
     currentData.accounts = accounts;
     
     const content = document.getElementById('content');
@@ -1020,11 +1106,14 @@ async function loadTransactions() {
                         </div>
                     </div>
                     ${createTransactionTable(transactions)}
+                    ${createLoadMoreButton('transactions')}
                 </div>
             </div>
             ${createTransactionModal()}
         `;
         
+        updateLoadMoreButton('transactions');
+        
         // Add search functionality
         const searchInput = document.getElementById('transactionSearch');
         if (searchInput) {
@@ -1033,11 +1122,13 @@ async function loadTransactions() {
             });
         }
         
-        // Add filter functionality
+        // Type filter is applied server-side, so reload from the first page
         const filterSelect = document.getElementById('transactionFilter');
         if (filterSelect) {
-            filterSelect.addEventListener('change', function(e) {
+            filterSelect.addEventListener('change', async function(e) {
+                await loadFirstPage('transactions', '/transactions', { sort: 'desc', txnType: e.target.value });
                 filterTransactions();
+                updateLoadMoreButton('transactions');
             });
         }
     }